@@ -1,11 +1,28 @@
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import bibtex.*;
+import cluster.*;
+import ingest.*;
 import publications.*;
 import referenceDB.*;
+import server.*;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses( { ReferenceDataBaseTest.class, PublicationTest.class, JournalArticleTest.class,
-	BookTest.class, ConferencePaperTest.class  })
+	BookTest.class, ConferencePaperTest.class, CitationRankingTest.class,
+	CitationInfluenceTest.class, CoAuthorshipGraphTest.class,
+	AuthorImpactIndexTest.class, CitationSimilarityTest.class,
+	ReachabilityIndexTest.class, YearPartitionedCitationGraphTest.class,
+	ReferenceDataBaseSnapshotTest.class, FrozenReferenceDataBaseTest.class,
+	ChangeFeedTest.class, QueryServerTest.class, QueryCacheTest.class,
+	BibTeXReaderTest.class, BibTeXWriterTest.class,
+	IngestPipelineTest.class, ContentFingerprintIndexTest.class,
+	NearDuplicateTitleIndexTest.class, FuzzyAuthorIndexTest.class,
+	TitleSearchIndexTest.class, TitleTrigramIndexTest.class,
+	TitleScannerTest.class, ShardedReferenceDataBaseTest.class,
+	PartitionNodeTest.class, DistributedReferenceDataBaseTest.class,
+	ReplicaDataBaseTest.class, ReplicationLeaderTest.class, ReplicationFollowerTest.class,
+	PublicationStoreTest.class  })
 public class AllTests {
 }
\ No newline at end of file
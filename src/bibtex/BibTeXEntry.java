@@ -0,0 +1,25 @@
+package bibtex;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class of parsed BibTeX entries: their type, key and fields, with the type
+ * and field names in lowercase and the field values in plain text.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class BibTeXEntry {
+
+	BibTeXEntry(String type, String key) {
+		this.type = type;
+		this.key = key;
+	}
+
+	final String type;
+
+	final String key;
+
+	final Map<String, String> fields = new HashMap<String, String>();
+}
@@ -0,0 +1,207 @@
+package bibtex;
+
+import java.util.List;
+
+/**
+ * A class of parsers of BibTeX text, turning a chunk of whole entries into
+ * BibTeXEntry objects. Comments, preambles and string definitions are
+ * skipped, so macros are not expanded. A malformed entry is skipped up to
+ * the next entry.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class BibTeXParser {
+
+	BibTeXParser(String text) {
+		this.text = text;
+	}
+
+	private final String text;
+
+	private int position;
+
+	/**
+	 * Parse all entries of the text of this parser into the given list.
+	 *
+	 * @return The number of malformed entries skipped.
+	 */
+	int parse(List<BibTeXEntry> entries) {
+		int malformed = 0;
+		while (true) {
+			this.position = this.text.indexOf('@', this.position);
+			if (this.position < 0)
+				return malformed;
+			this.position++;
+			int start = this.position;
+			try {
+				BibTeXEntry entry = parseEntry();
+				if (entry != null)
+					entries.add(entry);
+			} catch (IllegalStateException e) {
+				malformed++;
+				this.position = start;
+			}
+		}
+	}
+
+	/**
+	 * Parse the entry after an @, or skip it and return null if it is a
+	 * comment, preamble or string definition.
+	 *
+	 * @throws IllegalStateException
+	 *             The entry is malformed.
+	 */
+	private BibTeXEntry parseEntry() throws IllegalStateException {
+		String type = identifier().toLowerCase();
+		skipSpace();
+		char open = next();
+		if (type.isEmpty() || (open != '{' && open != '('))
+			throw new IllegalStateException();
+		char close = open == '{' ? '}' : ')';
+		if (type.equals("comment") || type.equals("preamble") || type.equals("string")) {
+			this.position--;
+			skipBalanced();
+			return null;
+		}
+		skipSpace();
+		int keyStart = this.position;
+		while (peek() != ',' && peek() != close)
+			this.position++;
+		BibTeXEntry entry = new BibTeXEntry(type, this.text.substring(keyStart, this.position).trim());
+		while (true) {
+			skipSpace();
+			char c = next();
+			if (c == close)
+				return entry;
+			if (c != ',')
+				throw new IllegalStateException();
+			skipSpace();
+			if (peek() == close)
+				continue;
+			String name = identifier().toLowerCase();
+			skipSpace();
+			if (name.isEmpty() || next() != '=')
+				throw new IllegalStateException();
+			entry.fields.put(name, value());
+		}
+	}
+
+	/**
+	 * Parse a field value: braced or quoted parts and bare words, joined by #.
+	 */
+	private String value() {
+		StringBuilder result = new StringBuilder();
+		while (true) {
+			skipSpace();
+			char c = peek();
+			if (c == '{') {
+				int start = this.position + 1;
+				skipBalanced();
+				result.append(this.text, start, this.position - 1);
+			} else if (c == '"') {
+				int start = ++this.position;
+				int depth = 0;
+				for (char d; (d = next()) != '"' || depth > 0;)
+					if (d == '\\')
+						next();
+					else if (d == '{')
+						depth++;
+					else if (d == '}')
+						depth--;
+				result.append(this.text, start, this.position - 1);
+			} else {
+				String word = identifier();
+				if (word.isEmpty())
+					throw new IllegalStateException();
+				result.append(word);
+			}
+			skipSpace();
+			if (peek() != '#')
+				return plain(result);
+			this.position++;
+		}
+	}
+
+	/**
+	 * Skip a braced or parenthesized block, from its opening character to
+	 * after its matching closing one.
+	 */
+	private void skipBalanced() {
+		char open = next();
+		char close = open == '{' ? '}' : ')';
+		int depth = 1;
+		while (depth > 0) {
+			char c = next();
+			if (c == '\\')
+				next();
+			else if (c == open)
+				depth++;
+			else if (c == close)
+				depth--;
+		}
+	}
+
+	private String identifier() {
+		int start = this.position;
+		while (this.position < this.text.length()) {
+			char c = this.text.charAt(this.position);
+			if (!Character.isLetterOrDigit(c) && "_-:.+/'".indexOf(c) < 0)
+				break;
+			this.position++;
+		}
+		return this.text.substring(start, this.position);
+	}
+
+	private void skipSpace() {
+		while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position)))
+			this.position++;
+	}
+
+	private char peek() {
+		if (this.position >= this.text.length())
+			throw new IllegalStateException();
+		return this.text.charAt(this.position);
+	}
+
+	private char next() {
+		char c = peek();
+		this.position++;
+		return c;
+	}
+
+	/**
+	 * Return the given raw value in plain text: braces are dropped, escaped
+	 * characters unescaped, accent commands dropped from the accented letter,
+	 * and white space collapsed.
+	 */
+	static String plain(CharSequence raw) {
+		StringBuilder result = new StringBuilder(raw.length());
+		for (int i = 0; i < raw.length(); i++) {
+			char c = raw.charAt(i);
+			if (c == '\\' && i + 1 < raw.length()) {
+				char d = raw.charAt(++i);
+				if (Character.isLetter(d)) {
+					// A command: keep one-letter ones like \o, drop the others.
+					int end = i;
+					while (end < raw.length() && Character.isLetter(raw.charAt(end)))
+						end++;
+					if (end == i + 1)
+						result.append(d);
+					i = end - 1;
+				} else if ("\"'^`~=.".indexOf(d) < 0)
+					result.append(d);
+			} else if (c == '{' || c == '}')
+				continue;
+			else if (Character.isWhitespace(c)) {
+				if (result.length() > 0 && result.charAt(result.length() - 1) != ' ')
+					result.append(' ');
+			} else
+				result.append(c);
+		}
+		int length = result.length();
+		if (length > 0 && result.charAt(length - 1) == ' ')
+			result.setLength(length - 1);
+		return result.toString();
+	}
+}
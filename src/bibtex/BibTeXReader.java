@@ -0,0 +1,358 @@
+package bibtex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalIssueNumberException;
+import exceptions.IllegalYearException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.ReferenceDataBase;
+
+/**
+ * A class of streaming readers of BibTeX data, adding the entries they read
+ * to a reference database: @article as JournalArticle, with the journal,
+ * number and year fields, @book as Book, with the publisher field, and
+ * @inproceedings or @conference as ConferencePaper, with the booktitle field.
+ * Other entries are skipped.
+ *
+ * The input is read in chunks of about a given size, each cut just before
+ * the @ of an entry that starts a line outside of any braced or quoted
+ * value, so a line of a value starting with @ stays in its entry. Only if an
+ * entry with unbalanced braces keeps a chunk from being cut until it is
+ * RESYNC_CHUNKS times the chunk size, the chunk is cut before the last line
+ * starting with @, as the parser skips such an entry up to that line anyway.
+ * A batch of as many chunks as the
+ * common fork-join pool has threads is parsed in parallel, after which its
+ * publications are added to the database, in the order of the input, before
+ * the next batch is read. The memory used thus only depends on the chunk
+ * size, not on the size of the input.
+ *
+ * Author names are normalized to the "Last, First" form of the publications:
+ * "First Last" is turned around, "von Last, Jr, First" drops its middle part,
+ * accents and other characters that are not letters are dropped. Authors
+ * that still have no valid name, e.g. with only an initial as first name,
+ * are dropped from their publication; a publication without any valid
+ * author, or without a valid title, year or issue number, is skipped. The
+ * duplicate policy of the database applies to the publications read.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class BibTeXReader {
+
+	/**
+	 * Initialize this new reader for the given UTF-8 input, with chunks of 4
+	 * MB.
+	 *
+	 * @param in
+	 *            The input to be read.
+	 * @throws IllegalArgumentException
+	 *             The given input is not effective.
+	 */
+	public BibTeXReader(InputStream in) throws IllegalArgumentException {
+		this(in, 1 << 22);
+	}
+
+	/**
+	 * Initialize this new reader for the given UTF-8 input, with chunks of
+	 * the given size.
+	 *
+	 * @param in
+	 *            The input to be read.
+	 * @param chunkSize
+	 *            The size, in bytes, of the chunks of input parsed in
+	 *            parallel.
+	 * @throws IllegalArgumentException
+	 *             The given input is not effective or the given size is not
+	 *             positive.
+	 */
+	public BibTeXReader(InputStream in, int chunkSize) throws IllegalArgumentException {
+		if (in == null || chunkSize <= 0)
+			throw new IllegalArgumentException();
+		this.in = in;
+		this.chunkSize = chunkSize;
+	}
+
+	private final InputStream in;
+
+	private final int chunkSize;
+
+	/**
+	 * Read all remaining entries of the input of this reader and add them to
+	 * the given database.
+	 *
+	 * @param dataBase
+	 *            The database to be filled.
+	 * @return The number of publications added.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 * @throws IOException
+	 *             The input cannot be read.
+	 */
+	public int readInto(ReferenceDataBase dataBase) throws IllegalArgumentException, IOException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		int added = 0;
+		int parallelism = Math.max(1, ForkJoinPool.commonPool().getParallelism());
+		while (true) {
+			List<Parse> batch = new ArrayList<Parse>(parallelism);
+			for (String chunk; batch.size() < parallelism && (chunk = nextChunk()) != null;)
+				batch.add(new Parse(chunk));
+			if (batch.isEmpty())
+				return added;
+			ForkJoinTask.invokeAll(batch);
+			for (Parse parse : batch) {
+				this.entriesNumber += parse.entriesNumber;
+				this.skippedNumber += parse.skippedNumber;
+				this.droppedAuthorsNumber += parse.droppedAuthorsNumber;
+				for (Publication publication : parse.getRawResult())
+					try {
+						dataBase.addAsPublication(publication);
+						if (publication.isTerminated())
+							this.duplicatesNumber++;
+						else
+							added++;
+					} catch (IllegalArgumentException e) {
+						// Rejected by the duplicate policy of the database.
+						this.duplicatesNumber++;
+					}
+			}
+		}
+	}
+
+	/**
+	 * Return the number of entries read so far, including the skipped ones.
+	 */
+	@Basic
+	public int getEntriesNumber() {
+		return entriesNumber;
+	}
+
+	private int entriesNumber;
+
+	/**
+	 * Return the number of entries skipped so far, because they are malformed,
+	 * of another type or not valid as publication.
+	 */
+	@Basic
+	public int getSkippedNumber() {
+		return skippedNumber;
+	}
+
+	private int skippedNumber;
+
+	/**
+	 * Return the number of publications read so far that the database
+	 * rejected or merged as duplicates, see DuplicatePolicy.
+	 */
+	@Basic
+	public int getDuplicatesNumber() {
+		return duplicatesNumber;
+	}
+
+	private int duplicatesNumber;
+
+	/**
+	 * Return the number of authors dropped so far from the publications read,
+	 * because their name could not be made valid.
+	 */
+	@Basic
+	public int getDroppedAuthorsNumber() {
+		return droppedAuthorsNumber;
+	}
+
+	private int droppedAuthorsNumber;
+
+	/**
+	 * Return the next chunk of whole entries of the input, or null at its
+	 * end.
+	 */
+	private String nextChunk() throws IOException {
+		byte[] buffer = Arrays.copyOf(this.pending, Math.max(this.chunkSize, this.pending.length * 2));
+		int length = this.pending.length;
+		while (true) {
+			while (!this.ended && length < buffer.length) {
+				int read = this.in.read(buffer, length, buffer.length - length);
+				if (read < 0)
+					this.ended = true;
+				else
+					length += read;
+			}
+			if (this.ended) {
+				this.pending = new byte[0];
+				return length == 0 ? null : new String(buffer, 0, length, StandardCharsets.UTF_8);
+			}
+			// Cut before the last entry starting a line; its end may not have
+			// been read yet.
+			int cut = cutIndex(buffer, length, buffer.length >= RESYNC_CHUNKS * (long) this.chunkSize);
+			if (cut > 0) {
+				this.pending = Arrays.copyOfRange(buffer, cut, length);
+				return new String(buffer, 0, cut, StandardCharsets.UTF_8);
+			}
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+	}
+
+	/**
+	 * Return the index of the last @ starting a line outside of any braced or
+	 * quoted value in the given first bytes of the given buffer, or if there
+	 * is none and resync is set, of the last @ starting a line at all; 0 if
+	 * there is none either.
+	 * Braces are counted as the parser does: a backslash escapes the next
+	 * character, and braces also count within a quoted value.
+	 */
+	static int cutIndex(byte[] buffer, int length, boolean resync) {
+		int cut = 0;
+		int line = 0;
+		int depth = 0;
+		boolean quoted = false;
+		for (int i = 0; i < length; i++) {
+			byte b = buffer[i];
+			if (b == '\\')
+				i++;
+			else if (b == '{')
+				depth++;
+			else if (b == '}') {
+				if (depth > 0 && --depth == 0)
+					quoted = false;
+			} else if (b == '"' && depth == 1)
+				quoted = !quoted;
+			else if (b == '@' && i > 0 && buffer[i - 1] == '\n') {
+				line = i;
+				if (depth == 0)
+					cut = i;
+			}
+		}
+		return cut == 0 && resync ? line : cut;
+	}
+
+	/**
+	 * The number of chunk sizes a chunk may grow to before it is cut without
+	 * regard to braces.
+	 */
+	static final int RESYNC_CHUNKS = 16;
+
+	/**
+	 * The input read after the end of the last chunk.
+	 */
+	private byte[] pending = new byte[0];
+
+	private boolean ended;
+
+	/**
+	 * A class of tasks parsing a chunk into publications.
+	 */
+	@SuppressWarnings("serial")
+	private static class Parse extends RecursiveTask<List<Publication>> {
+
+		Parse(String chunk) {
+			this.chunk = chunk;
+		}
+
+		private final String chunk;
+
+		int entriesNumber, skippedNumber, droppedAuthorsNumber;
+
+		@Override
+		protected List<Publication> compute() {
+			List<BibTeXEntry> entries = new ArrayList<BibTeXEntry>();
+			int malformed = new BibTeXParser(this.chunk).parse(entries);
+			this.entriesNumber = entries.size() + malformed;
+			this.skippedNumber = malformed;
+			List<Publication> result = new ArrayList<Publication>(entries.size());
+			for (BibTeXEntry entry : entries) {
+				Publication publication = toPublication(entry);
+				if (publication == null)
+					this.skippedNumber++;
+				else
+					result.add(publication);
+			}
+			return result;
+		}
+
+		/**
+		 * Return the publication described by the given entry, or null if it
+		 * describes none.
+		 */
+		private Publication toPublication(BibTeXEntry entry) {
+			String title = entry.fields.get("title");
+			String authorField = entry.fields.get("author");
+			if (authorField == null)
+				authorField = entry.fields.get("editor");
+			if (title == null || title.isEmpty() || authorField == null)
+				return null;
+			List<String> authors = new ArrayList<String>();
+			for (String name : authorField.split("\\s+and\\s+")) {
+				String author = normalizeAuthor(name);
+				if (author != null)
+					authors.add(author);
+				else if (!name.trim().equals("others"))
+					this.droppedAuthorsNumber++;
+			}
+			if (authors.isEmpty())
+				return null;
+			try {
+				int year = Integer.parseInt(entry.fields.get("year"));
+				String[] names = authors.toArray(new String[authors.size()]);
+				if (entry.type.equals("article"))
+					return new JournalArticle(title, names, entry.fields.get("journal"),
+							Integer.parseInt(entry.fields.get("number")), year);
+				if (entry.type.equals("book"))
+					return new Book(title, names, year, entry.fields.get("publisher"));
+				if (entry.type.equals("inproceedings") || entry.type.equals("conference"))
+					return new ConferencePaper(title, names, year, entry.fields.get("booktitle"));
+				return null;
+			} catch (NumberFormatException e) {
+				return null;
+			} catch (IllegalAuthorException e) {
+				return null;
+			} catch (IllegalYearException e) {
+				return null;
+			} catch (IllegalIssueNumberException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Return the given BibTeX author name in the "Last, First" form of the
+	 * publications.
+	 *
+	 * @param name
+	 *            The name, as "First Last", "Last, First" or
+	 *            "Last, Jr, First", in plain text.
+	 * @return The normalized name, or null if it is not a valid author name.
+	 */
+	public static String normalizeAuthor(String name) {
+		String letters = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+				.replace('-', ' ').replaceAll("[^a-zA-Z ,]", "").replaceAll("\\s+", " ");
+		String last, first;
+		if (letters.indexOf(',') >= 0) {
+			String[] parts = letters.split(",");
+			last = parts[0].trim();
+			first = parts.length > 1 ? parts[parts.length - 1].trim() : "";
+		} else {
+			String trimmed = letters.trim();
+			int space = trimmed.lastIndexOf(' ');
+			if (space < 0)
+				return null;
+			first = trimmed.substring(0, space);
+			last = trimmed.substring(space + 1);
+		}
+		String result = last + ", " + first;
+		return Publication.isValidAuthor(result) ? result : null;
+	}
+}
@@ -0,0 +1,151 @@
+package bibtex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.ReferenceDataBase;
+
+public class BibTeXReaderTest {
+
+	private ReferenceDataBase DB;
+
+	private static final String INPUT = "% a comment\n"
+			+ "@string{mems = \"Journal of MEMS\"}\n"
+			+ "@article{wang2016,\n"
+			+ "  title = {Gas {Leak} Rate \\{Study\\}},\n"
+			+ "  author = {Bo Wang and De Coster, Jeroen and J. Smith},\n"
+			+ "  journal = \"Journal of \" # \"MEMS\",\n"
+			+ "  number = 123,\n"
+			+ "  year = {2016},\n"
+			+ "}\n"
+			+ "@Book{steegmans2014, title={Object Oriented Programming}, author={Steegmans, Eric},\n"
+			+ "  year=2014, publisher={Acco}}\n"
+			+ "@inproceedings(witvrouw2012, title = \"Transducers {\\\"u}ber alles\", "
+			+ "author = {Ann Witvrouw and Bo Wang and others}, year = 2012, booktitle = {Transducers})\n"
+			+ "@misc{other, title = {Other}, author = {Bo Wang}, year = 2010}\n"
+			+ "@article{broken, title = {Broken\n"
+			+ "@article{noissue, title = {No Issue}, author = {Bo Wang}, journal = {J}, year = 2010}\n";
+
+	@Before
+	public void setUp() {
+		DB = new ReferenceDataBase();
+	}
+
+	private BibTeXReader read(String input, int chunkSize) throws Exception {
+		BibTeXReader reader = new BibTeXReader(
+				new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), chunkSize);
+		reader.readInto(DB);
+		return reader;
+	}
+
+	@Test
+	public void readInto_entries() throws Exception {
+		BibTeXReader reader = read(INPUT, 1 << 20);
+		assertEquals(3, DB.getAllPublications().size());
+		assertEquals(6, reader.getEntriesNumber());
+		assertEquals(3, reader.getSkippedNumber());
+		assertEquals(1, reader.getDroppedAuthorsNumber());
+		JournalArticle article = (JournalArticle) DB.findByTitleWord("leak").iterator().next();
+		assertEquals("Gas Leak Rate {Study}", article.getTitle());
+		assertArrayEquals(new String[] { "Wang, Bo", "De Coster, Jeroen" }, article.getAuthors());
+		assertEquals("Journal of MEMS", article.getJournal());
+		assertEquals(123, article.getIssueNumber());
+		assertEquals(2016, article.getYear());
+		Book book = (Book) DB.findByAuthor("E. Steegmans").iterator().next();
+		assertEquals("Acco", book.getPublisher());
+		ConferencePaper paper = (ConferencePaper) DB.findByTitleWord("transducers").iterator().next();
+		assertEquals("Transducers uber alles", paper.getTitle());
+		assertEquals("Transducers", paper.getConference());
+		assertEquals(2, paper.getAuthors().length);
+	}
+
+	@Test
+	public void readInto_smallChunks() throws Exception {
+		BibTeXReader reader = read(INPUT, 16);
+		assertEquals(3, DB.getAllPublications().size());
+		assertEquals(6, reader.getEntriesNumber());
+	}
+
+	@Test
+	public void readInto_atLineInValue() throws Exception {
+		String input = "@article{wang2016, title = {Gas Leak}, author = {Bo Wang}, journal = {J}, number = 1,\n"
+				+ "  year = 2016, abstract = {Leak rates\n"
+				+ "@book{inner, title = {Inner}, author = {Eric Steegmans}, year = 2014, publisher = {Acco}}\n"
+				+ "  and more}, note = \"See\n"
+				+ "@book{quoted, title = {Quoted}, author = {Eric Steegmans}, year = 2014, publisher = {Acco}}\n"
+				+ "  too\"}\n"
+				+ "@book{steegmans2014, title = {Outer}, author = {Eric Steegmans}, year = 2014, publisher = {Acco}}\n";
+		// Whatever the chunk size, and thus the number of chunks parsed in
+		// parallel, the lines starting with @ stay in their values, as long as
+		// no entry is longer than RESYNC_CHUNKS chunk sizes.
+		for (int chunkSize = input.length() / BibTeXReader.RESYNC_CHUNKS + 1; chunkSize <= input.length(); chunkSize++) {
+			setUp();
+			BibTeXReader reader = read(input, chunkSize);
+			assertEquals(2, reader.getEntriesNumber());
+			assertEquals(2, DB.getAllPublications().size());
+			assertEquals(1, DB.findByTitleWord("leak").size());
+			assertEquals(1, DB.findByTitleWord("outer").size());
+		}
+	}
+
+	@Test
+	public void cutIndex() {
+		String text = "@a{k, x = {\n@b{}}}\n@c{k, y = \"\n@d\"}\n@e{k, z = {\n@f";
+		byte[] input = text.getBytes(StandardCharsets.UTF_8);
+		assertEquals(text.indexOf("@e"), BibTeXReader.cutIndex(input, input.length, false));
+		assertEquals(text.indexOf("@e"), BibTeXReader.cutIndex(input, input.length, true));
+		assertEquals(text.indexOf("@c"), BibTeXReader.cutIndex(input, text.indexOf("@e"), false));
+		// Unbalanced braces: only cut when resyncing.
+		text = "@a{k, x = {\n@b{k}\n@c";
+		input = text.getBytes(StandardCharsets.UTF_8);
+		assertEquals(0, BibTeXReader.cutIndex(input, input.length, false));
+		assertEquals(text.indexOf("@c"), BibTeXReader.cutIndex(input, input.length, true));
+	}
+
+	@Test
+	public void readInto_order() throws Exception {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 500; i++)
+			input.append("@book{b" + i + ", title = {Book " + i + "}, author = {Bo Wang}, year = 2000}\n");
+		read(input.toString(), 64);
+		List<Publication> books = new ArrayList<Publication>(DB.getAllPublications());
+		Collections.sort(books, new Comparator<Publication>() {
+			@Override
+			public int compare(Publication publication1, Publication publication2) {
+				return Integer.compare(publication1.getId(), publication2.getId());
+			}
+		});
+		assertEquals(500, books.size());
+		for (int i = 0; i < 500; i++)
+			assertEquals("Book " + i, books.get(i).getTitle());
+	}
+
+	@Test
+	public void normalizeAuthor() {
+		assertEquals("Wang, Bo", BibTeXReader.normalizeAuthor("Bo Wang"));
+		assertEquals("Van Beethoven, Ludwig", BibTeXReader.normalizeAuthor("Van Beethoven, Jr, Ludwig"));
+		assertEquals("Muller, Jean Paul", BibTeXReader.normalizeAuthor("Jean-Paul M\u00fcller"));
+		assertNull(BibTeXReader.normalizeAuthor("Wang"));
+		assertNull(BibTeXReader.normalizeAuthor("J. Smith"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_illegalChunkSize() {
+		new BibTeXReader(new ByteArrayInputStream(new byte[0]), 0);
+	}
+}
@@ -0,0 +1,148 @@
+package bibtex;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.PublicationAttribute;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBaseView;
+
+/**
+ * A class of writers of the publications of a reference database as BibTeX,
+ * in a form a BibTeXReader reads back: JournalArticle as @article, Book as
+ * @book and ConferencePaper as @inproceedings, with key "p" followed by the
+ * ID of the publication.
+ *
+ * The publications are written from a read-only view of the database, e.g.
+ * a snapshot, in batches: the entries of a batch are formatted in parallel
+ * and then written in order, so only one batch is held in memory at a time.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class BibTeXWriter {
+
+	/**
+	 * Initialize this new writer writing to the given output.
+	 *
+	 * @param out
+	 *            The output to be written.
+	 * @throws IllegalArgumentException
+	 *             The given output is not effective.
+	 */
+	public BibTeXWriter(Writer out) throws IllegalArgumentException {
+		if (out == null)
+			throw new IllegalArgumentException();
+		this.out = out;
+	}
+
+	private final Writer out;
+
+	/**
+	 * Write all publications of the given view, in increasing ID.
+	 *
+	 * @param view
+	 *            The view to be written.
+	 * @return The number of entries written.
+	 * @throws IOException
+	 *             The output cannot be written.
+	 */
+	public int write(ReferenceDataBaseView view) throws IOException {
+		List<PublicationRecord> records = view.getAllPublications();
+		records.sort(new Comparator<PublicationRecord>() {
+			@Override
+			public int compare(PublicationRecord record1, PublicationRecord record2) {
+				return Integer.compare(record1.getId(), record2.getId());
+			}
+		});
+		int parallelism = Math.max(1, ForkJoinPool.commonPool().getParallelism());
+		for (int start = 0; start < records.size(); start += parallelism * GRAIN) {
+			Format[] batch = new Format[Math.min(parallelism, (records.size() - start + GRAIN - 1) / GRAIN)];
+			for (int i = 0; i < batch.length; i++)
+				batch[i] = new Format(records, start + i * GRAIN, Math.min(records.size(), start + (i + 1) * GRAIN));
+			ForkJoinTask.invokeAll(batch);
+			for (Format format : batch)
+				this.out.write(format.getRawResult());
+		}
+		this.out.flush();
+		return records.size();
+	}
+
+	/**
+	 * Return the given record as a BibTeX entry.
+	 */
+	static String format(PublicationRecord record) {
+		StringBuilder result = new StringBuilder(256);
+		Class<?> type = record.getType();
+		String entryType = type == JournalArticle.class ? "article"
+				: type == Book.class ? "book" : type == ConferencePaper.class ? "inproceedings" : "misc";
+		result.append('@').append(entryType).append("{p").append(record.getId()).append(",\n");
+		field(result, "title", record.getTitle());
+		StringBuilder authors = new StringBuilder();
+		for (String author : record.getAuthors()) {
+			if (authors.length() > 0)
+				authors.append(" and ");
+			authors.append(author);
+		}
+		field(result, "author", authors.toString());
+		field(result, "journal", record.getAttribute(PublicationAttribute.JOURNAL));
+		field(result, "number", record.getAttribute(PublicationAttribute.ISSUE_NUMBER));
+		field(result, "publisher", record.getAttribute(PublicationAttribute.PUBLISHER));
+		field(result, "booktitle", record.getAttribute(PublicationAttribute.CONFERENCE));
+		field(result, "year", record.getYear());
+		result.setLength(result.length() - 2);
+		return result.append("\n}\n\n").toString();
+	}
+
+	private static void field(StringBuilder result, String name, Object value) {
+		if (value == null)
+			return;
+		result.append("  ").append(name).append(" = {");
+		String text = value.toString();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '{' || c == '}' || c == '\\')
+				result.append('\\');
+			result.append(c);
+		}
+		result.append("},\n");
+	}
+
+	/**
+	 * A class of tasks formatting a range of records.
+	 */
+	@SuppressWarnings("serial")
+	private static class Format extends RecursiveTask<String> {
+
+		Format(List<PublicationRecord> records, int from, int to) {
+			this.records = records;
+			this.from = from;
+			this.to = to;
+		}
+
+		private final List<PublicationRecord> records;
+
+		private final int from, to;
+
+		@Override
+		protected String compute() {
+			StringBuilder result = new StringBuilder();
+			for (int i = this.from; i < this.to; i++)
+				result.append(format(this.records.get(i)));
+			return result.toString();
+		}
+	}
+
+	/**
+	 * The number of entries formatted by one task.
+	 */
+	private static final int GRAIN = 1024;
+}
@@ -0,0 +1,78 @@
+package bibtex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBase;
+
+public class BibTeXWriterTest {
+
+	private ReferenceDataBase DB;
+	private Publication publication1, publication2, publication3;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1 {MEMS}", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+	}
+
+	@Test
+	public void format() throws Exception {
+		PublicationRecord record = DB.snapshot().getPublicationWithID(publication2.getId());
+		assertEquals("@book{p" + publication2.getId() + ",\n  title = {publication2},\n"
+				+ "  author = {Eric, Steegmans},\n  publisher = {acco},\n  year = {2014}\n}\n\n",
+				BibTeXWriter.format(record));
+	}
+
+	@Test
+	public void write_roundTrip() throws Exception {
+		StringWriter out = new StringWriter();
+		assertEquals(3, new BibTeXWriter(out).write(DB.snapshot()));
+		assertTrue(out.toString().startsWith("@article{p" + publication1.getId() + ","));
+		ReferenceDataBase copy = new ReferenceDataBase();
+		BibTeXReader reader = new BibTeXReader(
+				new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)), 32);
+		assertEquals(3, reader.readInto(copy));
+		assertEquals(0, reader.getSkippedNumber());
+		JournalArticle article = (JournalArticle) copy.findByTitleWord("MEMS").iterator().next();
+		assertEquals("publication1 {MEMS}", article.getTitle());
+		assertArrayEquals(authors, article.getAuthors());
+		assertEquals("journal of MEMS", article.getJournal());
+		assertEquals(123, article.getIssueNumber());
+		ConferencePaper paper = (ConferencePaper) copy.findByTitleWord("publication3").iterator().next();
+		assertEquals("Transducers", paper.getConference());
+		assertEquals(2012, paper.getYear());
+	}
+
+	@Test
+	public void write_manyRecords() throws Exception {
+		for (int i = 0; i < 3000; i++)
+			DB.addAsPublication(new Book("book" + i, authors, 2000, "acco"));
+		StringWriter out = new StringWriter();
+		new BibTeXWriter(out).write(DB.snapshot());
+		ReferenceDataBase copy = new ReferenceDataBase();
+		new BibTeXReader(new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)), 4096)
+				.readInto(copy);
+		assertEquals(3003, copy.getAllPublications().size());
+	}
+}
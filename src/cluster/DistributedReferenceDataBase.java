@@ -0,0 +1,422 @@
+package cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBase;
+import referenceDB.ReferenceDataBaseView;
+
+/**
+ * A class of coordinators of a reference database distributed over partition
+ * nodes, each node storing the publications of one partition of the IDs.
+ *
+ * The publication with a given ID is stored on the node of partition ID
+ * modulo the number of nodes, so getPublicationWithID asks that node only.
+ * The author and title queries are sent to all nodes at once, and their
+ * answers merged.
+ *
+ * findDirIndirCites runs a breadth-first search in supersteps: the frontier
+ * of a superstep is split by partition, and each node involved receives the
+ * IDs of its part of the frontier in one request and answers with the IDs of
+ * all publications citing them, wherever those are stored. The IDs not seen
+ * before form the frontier of the next superstep. The search thus takes one
+ * round of requests per level of citations, whatever the size of a level,
+ * and one last round to fetch the records found.
+ *
+ * The records are loaded from a view of a database and not changed after.
+ * Failures of the network are thrown as UncheckedIOException.
+ *
+ * @invar The number of partitions is positive.
+ *        | getPartitionsNumber() > 0
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class DistributedReferenceDataBase implements ReferenceDataBaseView, Closeable {
+
+	/**
+	 * Initialize this new database over the nodes at the given addresses, the
+	 * node at index i storing partition i.
+	 *
+	 * @param nodes
+	 *            The addresses of the nodes.
+	 * @throws IllegalArgumentException
+	 *             The given list is not effective or empty.
+	 * @throws IOException
+	 *             One of the nodes could not be reached.
+	 */
+	public DistributedReferenceDataBase(List<InetSocketAddress> nodes) throws IllegalArgumentException, IOException {
+		if (nodes == null || nodes.isEmpty())
+			throw new IllegalArgumentException();
+		this.connections = new NodeConnection[nodes.size()];
+		try {
+			for (int partition = 0; partition < this.connections.length; partition++)
+				this.connections[partition] = new NodeConnection(nodes.get(partition));
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "distributed-reference-database");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Return the number of partitions of this database.
+	 */
+	public int getPartitionsNumber() {
+		return this.connections.length;
+	}
+
+	/**
+	 * Return the partition of the publication with the given ID.
+	 */
+	int partitionOf(int id) {
+		return Math.floorMod(id, this.connections.length);
+	}
+
+	/**
+	 * The connection to the node of each partition.
+	 */
+	private final NodeConnection[] connections;
+
+	/**
+	 * The threads sending the requests to the nodes.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Store all publications of the given view on the nodes of their
+	 * partitions, replacing the publications with the same IDs.
+	 *
+	 * @param view
+	 *            The view to load.
+	 * @post All publications of the given view are in this database, with
+	 *       the weights they have in the given view.
+	 * @throws IllegalArgumentException
+	 *             The given view is not effective.
+	 */
+	public void load(ReferenceDataBaseView view) throws IllegalArgumentException {
+		if (view == null)
+			throw new IllegalArgumentException();
+		final List<List<PublicationRecord>> parts = new ArrayList<List<PublicationRecord>>();
+		for (int partition = 0; partition < getPartitionsNumber(); partition++)
+			parts.add(new ArrayList<PublicationRecord>());
+		for (PublicationRecord record : view.getAllPublications()) {
+			parts.get(partitionOf(record.getId())).add(record);
+			if (!this.weights.containsKey(record.getType()))
+				this.weights.put(record.getType(), view.getWeight(record.getType()));
+		}
+		gather(allPartitions(), new PartitionCall<Integer>() {
+			@Override
+			Integer call(int partition, NodeConnection connection) throws IOException {
+				return connection.put(parts.get(partition));
+			}
+		});
+	}
+
+	/**
+	 * The weight of each type of publications of this database.
+	 */
+	private final Map<Class<? extends Publication>, Double> weights = new ConcurrentHashMap<Class<? extends Publication>, Double>();
+
+	/**
+	 * Return the number of publications of this database.
+	 */
+	@Override
+	public int size() {
+		int size = 0;
+		for (int partitionSize : gather(allPartitions(), new PartitionCall<Integer>() {
+			@Override
+			Integer call(int partition, NodeConnection connection) throws IOException {
+				return connection.size();
+			}
+		}))
+			size += partitionSize;
+		return size;
+	}
+
+	/**
+	 * Check whether this database has a publication with the given ID.
+	 */
+	@Override
+	public boolean hasPublicationID(int id) {
+		return find(id) != null;
+	}
+
+	/**
+	 * Return the record of the publication with the given ID, asking the node
+	 * of its partition only.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this database.
+	 */
+	@Override
+	public PublicationRecord getPublicationWithID(int id) throws IllegalPublicationIdException {
+		PublicationRecord record = find(id);
+		if (record == null)
+			throw new IllegalPublicationIdException(id);
+		return record;
+	}
+
+	/**
+	 * Return the record with the given ID, or null if there is none.
+	 */
+	private PublicationRecord find(int id) {
+		try {
+			List<PublicationRecord> records = this.connections[partitionOf(id)].get(Collections.singletonList(id));
+			return records.isEmpty() ? null : records.get(0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Return the records of all publications of this database, in increasing
+	 * ID.
+	 */
+	@Override
+	public List<PublicationRecord> getAllPublications() {
+		List<PublicationRecord> result = new ArrayList<PublicationRecord>();
+		for (List<PublicationRecord> records : gather(allPartitions(), new PartitionCall<List<PublicationRecord>>() {
+			@Override
+			List<PublicationRecord> call(int partition, NodeConnection connection) throws IOException {
+				return connection.getAll();
+			}
+		}))
+			result.addAll(records);
+		Collections.sort(result, new Comparator<PublicationRecord>() {
+			@Override
+			public int compare(PublicationRecord record1, PublicationRecord record2) {
+				return Integer.compare(record1.getId(), record2.getId());
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Return the weight of the given type of publications in this database.
+	 *
+	 * @throws IllegalArgumentException
+	 *             This database has no publications of the given type.
+	 */
+	@Override
+	public double getWeight(Class<? extends Publication> type) throws IllegalArgumentException {
+		Double weight = type == null ? null : this.weights.get(type);
+		if (weight == null)
+			throw new IllegalArgumentException();
+		return weight;
+	}
+
+	/**
+	 * Find all publications of this database authored by an author, asking
+	 * all nodes at once.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	@Override
+	public Set<PublicationRecord> findByAuthor(final String authorName) throws IllegalAuthorException {
+		if (!ReferenceDataBase.isValidAuthor(authorName))
+			throw new IllegalAuthorException(authorName);
+		return union(gather(allPartitions(), new PartitionCall<List<PublicationRecord>>() {
+			@Override
+			List<PublicationRecord> call(int partition, NodeConnection connection) throws IOException {
+				return connection.findByAuthor(authorName);
+			}
+		}));
+	}
+
+	/**
+	 * Return all publications of this database that have the given word in
+	 * their title, ignoring case, asking all nodes at once.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given word is not effective.
+	 */
+	@Override
+	public Set<PublicationRecord> findByTitleWord(final String word) throws IllegalArgumentException {
+		if (word == null)
+			throw new IllegalArgumentException();
+		return union(gather(allPartitions(), new PartitionCall<List<PublicationRecord>>() {
+			@Override
+			List<PublicationRecord> call(int partition, NodeConnection connection) throws IOException {
+				return connection.findByTitleWord(word);
+			}
+		}));
+	}
+
+	/**
+	 * Calculate the citation index of the given author in this database.
+	 *
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	@Override
+	public double authorCitationIndex(String authorName) throws IllegalAuthorException {
+		double citationIndex = 0;
+		for (PublicationRecord record : findByAuthor(authorName))
+			citationIndex += this.weights.get(record.getType());
+		return citationIndex;
+	}
+
+	/**
+	 * Return all publications of this database that directly or indirectly
+	 * cite the publication with the given ID, searching one level of
+	 * citations per superstep.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this database.
+	 */
+	@Override
+	public Set<PublicationRecord> findDirIndirCites(int id) throws IllegalPublicationIdException {
+		getPublicationWithID(id);
+		Set<Integer> found = new HashSet<Integer>();
+		List<Integer> frontier = Collections.singletonList(id);
+		while (!frontier.isEmpty()) {
+			final List<List<Integer>> parts = split(frontier);
+			List<Integer> next = new ArrayList<Integer>();
+			for (int[] citing : gather(partitionsOf(parts), new PartitionCall<int[]>() {
+				@Override
+				int[] call(int partition, NodeConnection connection) throws IOException {
+					return connection.expand(parts.get(partition));
+				}
+			}))
+				for (int citingId : citing)
+					if (found.add(citingId))
+						next.add(citingId);
+			frontier = next;
+		}
+		final List<List<Integer>> parts = split(found);
+		return union(gather(partitionsOf(parts), new PartitionCall<List<PublicationRecord>>() {
+			@Override
+			List<PublicationRecord> call(int partition, NodeConnection connection) throws IOException {
+				return connection.get(parts.get(partition));
+			}
+		}));
+	}
+
+	/**
+	 * Return the given IDs split by partition.
+	 */
+	private List<List<Integer>> split(Iterable<Integer> ids) {
+		List<List<Integer>> parts = new ArrayList<List<Integer>>();
+		for (int partition = 0; partition < getPartitionsNumber(); partition++)
+			parts.add(new ArrayList<Integer>());
+		for (int id : ids)
+			parts.get(partitionOf(id)).add(id);
+		return parts;
+	}
+
+	/**
+	 * Return the partitions with a non-empty part of the given IDs.
+	 */
+	private static List<Integer> partitionsOf(List<List<Integer>> parts) {
+		List<Integer> partitions = new ArrayList<Integer>();
+		for (int partition = 0; partition < parts.size(); partition++)
+			if (!parts.get(partition).isEmpty())
+				partitions.add(partition);
+		return partitions;
+	}
+
+	private List<Integer> allPartitions() {
+		List<Integer> partitions = new ArrayList<Integer>();
+		for (int partition = 0; partition < getPartitionsNumber(); partition++)
+			partitions.add(partition);
+		return partitions;
+	}
+
+	private static Set<PublicationRecord> union(List<List<PublicationRecord>> parts) {
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		for (List<PublicationRecord> part : parts)
+			result.addAll(part);
+		return result;
+	}
+
+	/**
+	 * A class of requests to the node of one partition.
+	 */
+	private static abstract class PartitionCall<T> {
+
+		abstract T call(int partition, NodeConnection connection) throws IOException;
+	}
+
+	/**
+	 * Send the given request to the nodes of the given partitions at once,
+	 * and return their answers, in the order of the partitions.
+	 */
+	private <T> List<T> gather(List<Integer> partitions, final PartitionCall<T> request) {
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		// The first request is sent by the calling thread itself.
+		for (int i = 1; i < partitions.size(); i++) {
+			final int partition = partitions.get(i);
+			futures.add(this.executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws IOException {
+					return request.call(partition, connections[partition]);
+				}
+			}));
+		}
+		List<T> result = new ArrayList<T>(partitions.size());
+		try {
+			if (!partitions.isEmpty())
+				result.add(request.call(partitions.get(0), this.connections[partitions.get(0)]));
+			for (Future<T> future : futures)
+				result.add(future.get());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw new UncheckedIOException((IOException) e.getCause());
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Close the connections of this database to its nodes. The nodes keep
+	 * running.
+	 */
+	@Override
+	public void close() {
+		for (NodeConnection connection : this.connections)
+			if (connection != null)
+				try {
+					connection.close();
+				} catch (IOException e) {
+					// Nothing left to release.
+				}
+		if (this.executor != null)
+			this.executor.shutdown();
+	}
+}
@@ -0,0 +1,164 @@
+package cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBase;
+import referenceDB.ReferenceDataBaseSnapshot;
+
+public class DistributedReferenceDataBaseTest {
+
+	private static List<Process> processes = new ArrayList<Process>();
+	private static PartitionNode localNode;
+	private static DistributedReferenceDataBase DB;
+	private static ReferenceDataBaseSnapshot snapshot;
+	private static String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine", "Steegmans, Eric" };
+	private static String[] words = { "fluid", "motion", "gas", "leak", "object", "MEMS", "study" };
+
+	/**
+	 * Start two nodes in JVMs of their own and one in this JVM, and load a
+	 * database with chains of citations over them.
+	 */
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		List<InetSocketAddress> nodes = new ArrayList<InetSocketAddress>();
+		for (int i = 0; i < 2; i++) {
+			ProcessBuilder builder = new ProcessBuilder(
+					System.getProperty("java.home") + File.separator + "bin" + File.separator + "java", "-cp",
+					System.getProperty("java.class.path"), PartitionNode.class.getName());
+			builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+			Process process = builder.start();
+			processes.add(process);
+			BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			int port = Integer.parseInt(output.readLine().trim());
+			nodes.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		}
+		localNode = new PartitionNode(0);
+		localNode.start();
+		nodes.add(localNode.getAddress());
+		ReferenceDataBase dataBase = new ReferenceDataBase();
+		Random random = new Random(3);
+		List<Publication> publications = new ArrayList<Publication>();
+		for (int i = 0; i < 600; i++) {
+			String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + i;
+			String[] publicationAuthors = { authors[random.nextInt(authors.length)] };
+			int year = 1800 + i / 4;
+			Publication publication;
+			if (i % 3 == 0)
+				publication = new Book(title, publicationAuthors, year, "acco");
+			else if (i % 3 == 1)
+				publication = new JournalArticle(title, publicationAuthors, "journal of MEMS", i, year);
+			else
+				publication = new ConferencePaper(title, publicationAuthors, year, "Transducers");
+			dataBase.addAsPublication(publication);
+			for (int j = random.nextInt(3); j > 0 && !publications.isEmpty(); j--)
+				publication.addAsCites(publications.get(Math.max(0, publications.size() - 1 - random.nextInt(20))));
+			publications.add(publication);
+		}
+		snapshot = dataBase.snapshot();
+		DB = new DistributedReferenceDataBase(nodes);
+		DB.load(snapshot);
+	}
+
+	@AfterClass
+	public static void tearDownClass() throws Exception {
+		if (DB != null)
+			DB.close();
+		if (localNode != null)
+			localNode.stop();
+		for (Process process : processes) {
+			process.getOutputStream().close();
+			process.waitFor();
+		}
+	}
+
+	@Test
+	public void partitions() {
+		assertEquals(3, DB.getPartitionsNumber());
+		assertEquals(600, DB.size());
+		assertEquals(200, localNode.size());
+	}
+
+	@Test
+	public void getPublicationWithID() throws Exception {
+		for (int id : new int[] { 1001, 1002, 1003, 1600 }) {
+			assertTrue(DB.hasPublicationID(id));
+			PublicationRecord record = DB.getPublicationWithID(id);
+			assertEquals(id, record.getId());
+			assertEquals(snapshot.getPublicationWithID(id).getTitle(), record.getTitle());
+			assertEquals(snapshot.getPublicationWithID(id).getType(), record.getType());
+		}
+		assertFalse(DB.hasPublicationID(1601));
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void getPublicationWithID_unknown() throws Exception {
+		DB.getPublicationWithID(99);
+	}
+
+	@Test
+	public void getAllPublications() {
+		List<PublicationRecord> records = DB.getAllPublications();
+		assertEquals(600, records.size());
+		for (int i = 0; i < records.size(); i++)
+			assertEquals(snapshot.getAllPublications().get(i).getId(), records.get(i).getId());
+	}
+
+	@Test
+	public void queries() throws Exception {
+		for (String author : new String[] { "B. Wang", "J. De Coster", "A. Nobody" }) {
+			assertEquals(idsOf(snapshot.findByAuthor(author)), idsOf(DB.findByAuthor(author)));
+			assertEquals(snapshot.authorCitationIndex(author), DB.authorCitationIndex(author), 1e-9);
+		}
+		for (String word : new String[] { "fluid", "MOTION ", "s 1", "absent" })
+			assertEquals(idsOf(snapshot.findByTitleWord(word)), idsOf(DB.findByTitleWord(word)));
+		assertEquals(snapshot.getWeight(Book.class), DB.getWeight(Book.class), 1e-9);
+	}
+
+	@Test(expected = IllegalAuthorException.class)
+	public void findByAuthor_illegal() throws Exception {
+		DB.findByAuthor("Wang");
+	}
+
+	@Test
+	public void findDirIndirCites() throws Exception {
+		for (int id = 1001; id <= 1600; id += 37)
+			assertEquals(idsOf(snapshot.findDirIndirCites(id)), idsOf(DB.findDirIndirCites(id)));
+		assertTrue(DB.findDirIndirCites(1600).isEmpty());
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void findDirIndirCites_unknown() throws Exception {
+		DB.findDirIndirCites(99);
+	}
+
+	private static Set<Integer> idsOf(Set<PublicationRecord> records) {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (PublicationRecord record : records)
+			ids.add(record.getId());
+		return ids;
+	}
+}
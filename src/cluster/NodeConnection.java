@@ -0,0 +1,97 @@
+package cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collection;
+import java.util.List;
+
+import referenceDB.PublicationRecord;
+
+/**
+ * A class of connections of a coordinator to a partition node, sending one
+ * request at a time and waiting for its answer. All methods are synchronized,
+ * so a connection can be shared by the threads of a coordinator.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class NodeConnection implements Closeable {
+
+	/**
+	 * Initialize this new connection to the node at the given address.
+	 *
+	 * @throws IOException
+	 *             The node could not be reached.
+	 */
+	NodeConnection(InetSocketAddress address) throws IOException {
+		this.socket = new Socket();
+		this.socket.setTcpNoDelay(true);
+		this.socket.connect(address);
+		this.input = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+		this.output = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+	}
+
+	private final Socket socket;
+
+	private final DataInputStream input;
+
+	private final DataOutputStream output;
+
+	synchronized int put(Collection<PublicationRecord> records) throws IOException {
+		this.output.writeByte(PartitionNode.PUT);
+		PartitionNode.writeRecords(this.output, records);
+		this.output.flush();
+		return this.input.readInt();
+	}
+
+	synchronized List<PublicationRecord> get(Collection<Integer> ids) throws IOException {
+		this.output.writeByte(PartitionNode.GET);
+		PartitionNode.writeIds(this.output, ids);
+		this.output.flush();
+		return PartitionNode.readRecords(this.input);
+	}
+
+	synchronized List<PublicationRecord> findByAuthor(String authorName) throws IOException {
+		this.output.writeByte(PartitionNode.FIND_AUTHOR);
+		this.output.writeUTF(authorName);
+		this.output.flush();
+		return PartitionNode.readRecords(this.input);
+	}
+
+	synchronized List<PublicationRecord> findByTitleWord(String word) throws IOException {
+		this.output.writeByte(PartitionNode.FIND_TITLE);
+		this.output.writeUTF(word);
+		this.output.flush();
+		return PartitionNode.readRecords(this.input);
+	}
+
+	synchronized int[] expand(Collection<Integer> ids) throws IOException {
+		this.output.writeByte(PartitionNode.EXPAND);
+		PartitionNode.writeIds(this.output, ids);
+		this.output.flush();
+		return PartitionNode.readIds(this.input);
+	}
+
+	synchronized int size() throws IOException {
+		this.output.writeByte(PartitionNode.SIZE);
+		this.output.flush();
+		return this.input.readInt();
+	}
+
+	synchronized List<PublicationRecord> getAll() throws IOException {
+		this.output.writeByte(PartitionNode.ALL);
+		this.output.flush();
+		return PartitionNode.readRecords(this.input);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.socket.close();
+	}
+}
@@ -0,0 +1,356 @@
+package cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import referenceDB.PublicationRecord;
+
+/**
+ * A class of nodes of a distributed reference database, each storing the
+ * records of one partition of the publications and answering the requests of
+ * a coordinator over TCP.
+ *
+ * A request is an opcode byte followed by its arguments, and is answered
+ * before the next request on the same connection is read. Records travel as
+ * written by PublicationRecord.writeTo, lists of records and IDs are preceded
+ * by their length. A node knows nothing about the other nodes: the records it
+ * stores carry the IDs of all publications they cite and are cited by,
+ * wherever those are stored, so a node can expand the citations of its own
+ * publications without asking any other node.
+ *
+ * A node can run in the JVM of its coordinator, or on its own through main.
+ * The protocol has no authentication: any client reaching the port of a node
+ * can replace its records. A node therefore listens on the loopback address
+ * unless it is given another address to bind to, which should only be
+ * reachable from the hosts of the cluster. The lengths of the lists read
+ * from a connection are checked before anything is allocated for them.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class PartitionNode {
+
+	/**
+	 * Store the given records, replacing the records with the same IDs, and
+	 * return the number of records of this node.
+	 */
+	static final byte PUT = 1;
+
+	/**
+	 * Return the records with the given IDs that this node stores.
+	 */
+	static final byte GET = 2;
+
+	/**
+	 * Return the records of this node of the given author.
+	 */
+	static final byte FIND_AUTHOR = 3;
+
+	/**
+	 * Return the records of this node with the given word in their title.
+	 */
+	static final byte FIND_TITLE = 4;
+
+	/**
+	 * Return the IDs of all publications citing one of the publications with
+	 * the given IDs that this node stores, without duplicates.
+	 */
+	static final byte EXPAND = 5;
+
+	/**
+	 * Return the number of records of this node.
+	 */
+	static final byte SIZE = 6;
+
+	/**
+	 * Return all records of this node.
+	 */
+	static final byte ALL = 7;
+
+	/**
+	 * Initialize this new node listening on the given port of the loopback
+	 * address, without any records.
+	 *
+	 * @param port
+	 *            The port of this node, or 0 for any free port.
+	 * @throws IllegalArgumentException
+	 *             The given port is not a valid port.
+	 * @throws IOException
+	 *             The port could not be bound.
+	 */
+	public PartitionNode(int port) throws IllegalArgumentException, IOException {
+		this(InetAddress.getLoopbackAddress(), port);
+	}
+
+	/**
+	 * Initialize this new node listening on the given port of the given
+	 * address, without any records.
+	 *
+	 * @param bindAddress
+	 *            The local address to listen on.
+	 * @param port
+	 *            The port of this node, or 0 for any free port.
+	 * @throws IllegalArgumentException
+	 *             The given address is not effective or the given port is
+	 *             not a valid port.
+	 * @throws IOException
+	 *             The port could not be bound.
+	 */
+	public PartitionNode(InetAddress bindAddress, int port) throws IllegalArgumentException, IOException {
+		if (bindAddress == null || port < 0 || port > 0xFFFF)
+			throw new IllegalArgumentException();
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.bind(new InetSocketAddress(bindAddress, port), BACKLOG);
+	}
+
+	/**
+	 * Return the port this node listens on.
+	 */
+	public int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Return the address a coordinator in this JVM reaches this node on.
+	 */
+	public InetSocketAddress getAddress() {
+		InetAddress address = this.serverSocket.getInetAddress();
+		if (address.isAnyLocalAddress())
+			address = InetAddress.getLoopbackAddress();
+		return new InetSocketAddress(address, getPort());
+	}
+
+	private final ServerSocket serverSocket;
+
+	/**
+	 * Return the number of records of this node.
+	 */
+	public int size() {
+		return this.records.size();
+	}
+
+	/**
+	 * The records of this node, by ID.
+	 */
+	private final ConcurrentHashMap<Integer, PublicationRecord> records = new ConcurrentHashMap<Integer, PublicationRecord>();
+
+	/**
+	 * Start accepting connections, each served by a thread of its own.
+	 */
+	public void start() {
+		Thread acceptor = new Thread("partition-node-" + getPort()) {
+			@Override
+			public void run() {
+				while (!serverSocket.isClosed()) {
+					final Socket socket;
+					try {
+						socket = serverSocket.accept();
+					} catch (IOException e) {
+						// Closed by stop.
+						return;
+					}
+					Thread connection = new Thread("partition-node-" + getPort() + "-connection") {
+						@Override
+						public void run() {
+							serve(socket);
+						}
+					};
+					connection.setDaemon(true);
+					connection.start();
+				}
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Stop accepting connections. Connections accepted before are served
+	 * until their coordinator closes them.
+	 */
+	public void stop() {
+		try {
+			this.serverSocket.close();
+		} catch (IOException e) {
+			// Nothing left to release.
+		}
+	}
+
+	/**
+	 * Answer the requests read from the given socket until it is closed.
+	 */
+	private void serve(Socket socket) {
+		try {
+			socket.setTcpNoDelay(true);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			while (true) {
+				int opcode;
+				try {
+					opcode = input.readByte();
+				} catch (EOFException e) {
+					return;
+				}
+				answer(opcode, input, output);
+				output.flush();
+			}
+		} catch (IOException e) {
+			// The coordinator is gone or does not speak the protocol.
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Nothing left to release.
+			}
+		}
+	}
+
+	private void answer(int opcode, DataInput input, DataOutput output) throws IOException {
+		switch (opcode) {
+		case PUT:
+			for (PublicationRecord record : readRecords(input))
+				this.records.put(record.getId(), record);
+			output.writeInt(this.records.size());
+			break;
+		case GET: {
+			List<PublicationRecord> result = new ArrayList<PublicationRecord>();
+			for (int id : readIds(input)) {
+				PublicationRecord record = this.records.get(id);
+				if (record != null)
+					result.add(record);
+			}
+			writeRecords(output, result);
+			break;
+		}
+		case FIND_AUTHOR: {
+			String authorName = input.readUTF();
+			List<PublicationRecord> result = new ArrayList<PublicationRecord>();
+			for (PublicationRecord record : this.records.values())
+				for (String name : record.getAuthorsNames())
+					if (name.equals(authorName)) {
+						result.add(record);
+						break;
+					}
+			writeRecords(output, result);
+			break;
+		}
+		case FIND_TITLE: {
+			String lowerCaseWord = input.readUTF().toLowerCase();
+			List<PublicationRecord> result = new ArrayList<PublicationRecord>();
+			for (PublicationRecord record : this.records.values())
+				if (record.getTitle().toLowerCase().contains(lowerCaseWord))
+					result.add(record);
+			writeRecords(output, result);
+			break;
+		}
+		case EXPAND: {
+			Set<Integer> result = new HashSet<Integer>();
+			for (int id : readIds(input)) {
+				PublicationRecord record = this.records.get(id);
+				if (record != null)
+					for (int citing : record.getCitedBy())
+						result.add(citing);
+			}
+			writeIds(output, result);
+			break;
+		}
+		case SIZE:
+			output.writeInt(this.records.size());
+			break;
+		case ALL:
+			writeRecords(output, new ArrayList<PublicationRecord>(this.records.values()));
+			break;
+		default:
+			throw new IOException("Unknown opcode " + opcode);
+		}
+	}
+
+	static void writeRecords(DataOutput output, Collection<PublicationRecord> records) throws IOException {
+		output.writeInt(records.size());
+		for (PublicationRecord record : records)
+			record.writeTo(output);
+	}
+
+	static List<PublicationRecord> readRecords(DataInput input) throws IOException {
+		int size = readLength(input);
+		// Records are large, so only as many are allocated as are read.
+		List<PublicationRecord> records = new ArrayList<PublicationRecord>(Math.min(size, 1024));
+		for (int i = 0; i < size; i++)
+			records.add(PublicationRecord.readFrom(input));
+		return records;
+	}
+
+	static void writeIds(DataOutput output, Collection<Integer> ids) throws IOException {
+		output.writeInt(ids.size());
+		for (int id : ids)
+			output.writeInt(id);
+	}
+
+	static int[] readIds(DataInput input) throws IOException {
+		int[] ids = new int[readLength(input)];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = input.readInt();
+		return ids;
+	}
+
+	/**
+	 * Return the length of a list read from the given input, before the list
+	 * is allocated.
+	 *
+	 * @throws IOException
+	 *             The length is negative or above MAX_LENGTH.
+	 */
+	static int readLength(DataInput input) throws IOException {
+		int length = input.readInt();
+		if (length < 0 || length > MAX_LENGTH)
+			throw new IOException("Invalid length " + length);
+		return length;
+	}
+
+	/**
+	 * The maximal number of records or IDs in one request or answer.
+	 */
+	static final int MAX_LENGTH = 1 << 26;
+
+	/**
+	 * The number of connections waiting to be accepted.
+	 */
+	private static final int BACKLOG = 64;
+
+	/**
+	 * Run a node on its own, until its standard input is closed.
+	 *
+	 * @param args
+	 *            The port of the node, or nothing for any free port, and
+	 *            optionally the address to listen on instead of the loopback
+	 *            address. The port bound is printed as the first line of the
+	 *            standard output.
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+		PartitionNode node = args.length > 1 ? new PartitionNode(InetAddress.getByName(args[1]), port)
+				: new PartitionNode(port);
+		node.start();
+		System.out.println(node.getPort());
+		System.out.flush();
+		while (System.in.read() != -1)
+			;
+		node.stop();
+	}
+}
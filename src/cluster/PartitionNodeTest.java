@@ -0,0 +1,132 @@
+package cluster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBase;
+import referenceDB.ReferenceDataBaseSnapshot;
+
+public class PartitionNodeTest {
+
+	private PartitionNode node;
+	private NodeConnection connection;
+	private ReferenceDataBaseSnapshot snapshot;
+	private Publication publication1, publication2, publication3;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion in fluids", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("Object oriented programming", new String[] { "Steegmans, Eric" }, 2014, "acco");
+		publication3 = new ConferencePaper("Gas leak rate study", new String[] { "Wang, Bo" }, 2012, "Transducers");
+		ReferenceDataBase DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		publication1.addAsCites(publication3);
+		publication2.addAsCites(publication3);
+		snapshot = DB.snapshot();
+		node = new PartitionNode(0);
+		node.start();
+		connection = new NodeConnection(node.getAddress());
+		assertEquals(3, connection.put(snapshot.getAllPublications()));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connection.close();
+		node.stop();
+	}
+
+	@Test
+	public void get() throws Exception {
+		List<PublicationRecord> records = connection.get(Arrays.asList(publication2.getId(), 99));
+		assertEquals(1, records.size());
+		PublicationRecord record = records.get(0);
+		PublicationRecord expected = snapshot.getPublicationWithID(publication2.getId());
+		assertEquals(expected.getId(), record.getId());
+		assertEquals(Book.class, record.getType());
+		assertEquals(expected.getTitle(), record.getTitle());
+		assertArrayEquals(expected.getAuthors(), record.getAuthors());
+		assertArrayEquals(expected.getAuthorsNames(), record.getAuthorsNames());
+		assertEquals(2014, record.getYear());
+		assertArrayEquals(expected.getCites(), record.getCites());
+		assertArrayEquals(expected.getCitedBy(), record.getCitedBy());
+		assertEquals(3, node.size());
+		assertEquals(3, connection.size());
+		assertEquals(3, connection.getAll().size());
+	}
+
+	@Test
+	public void queries() throws Exception {
+		assertEquals(ids(publication1, publication3), idsOf(connection.findByAuthor("B. Wang")));
+		assertEquals(ids(publication1), idsOf(connection.findByTitleWord("FLUID")));
+		int[] citing = connection.expand(Arrays.asList(publication3.getId(), publication1.getId()));
+		Arrays.sort(citing);
+		assertArrayEquals(new int[] { publication1.getId(), publication2.getId() }, citing);
+	}
+
+	@Test
+	public void concurrentConnections() throws Exception {
+		List<NodeConnection> connections = new ArrayList<NodeConnection>();
+		for (int i = 0; i < 4; i++)
+			connections.add(new NodeConnection(node.getAddress()));
+		for (NodeConnection other : connections) {
+			assertEquals(3, other.size());
+			other.close();
+		}
+		assertEquals(3, connection.size());
+	}
+
+	@Test
+	public void loopbackByDefault() throws Exception {
+		assertTrue(node.getAddress().getAddress().isLoopbackAddress());
+	}
+
+	@Test
+	public void invalidLength() throws Exception {
+		for (int length : new int[] { -1, Integer.MAX_VALUE }) {
+			Socket socket = new Socket(node.getAddress().getAddress(), node.getPort());
+			DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+			output.writeByte(PartitionNode.GET);
+			output.writeInt(length);
+			output.flush();
+			// The node closes the connection without answering.
+			assertEquals(-1, socket.getInputStream().read());
+			socket.close();
+		}
+		assertEquals(3, connection.size());
+	}
+
+	private static Set<Integer> ids(Publication... publications) {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (Publication publication : publications)
+			ids.add(publication.getId());
+		return ids;
+	}
+
+	private static Set<Integer> idsOf(List<PublicationRecord> records) {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (PublicationRecord record : records)
+			ids.add(record.getId());
+		return ids;
+	}
+}
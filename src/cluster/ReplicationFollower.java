@@ -0,0 +1,243 @@
+package cluster;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import referenceDB.ChangeEvent;
+import referenceDB.PublicationRecord;
+import referenceDB.ReplicaDataBase;
+
+/**
+ * A class of followers of a replication leader, keeping a replica of the
+ * database of the leader up to date from the events it ships.
+ *
+ * A follower connects to its leader from a thread of its own, and applies
+ * the checkpoints and events it receives to its replica. When the connection
+ * is lost, it connects again, resuming after the last event it has applied.
+ * The replica can be queried by any number of threads meanwhile.
+ *
+ * @invar The lag of each follower is not below 0.
+ *        | getLag() >= 0
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class ReplicationFollower {
+
+	/**
+	 * Initialize this new follower of the leader at the given address, with
+	 * an empty replica.
+	 *
+	 * @param leader
+	 *            The address of the leader.
+	 * @throws IllegalArgumentException
+	 *             The given address is not effective.
+	 */
+	public ReplicationFollower(InetSocketAddress leader) throws IllegalArgumentException {
+		if (leader == null)
+			throw new IllegalArgumentException();
+		this.leader = leader;
+	}
+
+	/**
+	 * Return the address of the leader of this follower.
+	 */
+	@Basic
+	public InetSocketAddress getLeader() {
+		return leader;
+	}
+
+	private final InetSocketAddress leader;
+
+	/**
+	 * Return the replica of this follower.
+	 */
+	@Basic
+	public ReplicaDataBase getReplica() {
+		return replica;
+	}
+
+	private final ReplicaDataBase replica = new ReplicaDataBase();
+
+	/**
+	 * Return the number of events of the feed of the leader, as last heard
+	 * from the leader, that have not yet been applied to the replica of this
+	 * follower.
+	 */
+	public long getLag() {
+		return Math.max(0, this.leaderSequence - this.replica.getSequence());
+	}
+
+	/**
+	 * The last sequence number of the feed of the leader, as last heard from
+	 * the leader.
+	 */
+	private volatile long leaderSequence;
+
+	/**
+	 * Check whether this follower is connected to its leader.
+	 */
+	public boolean isConnected() {
+		return this.socket != null;
+	}
+
+	private volatile Socket socket;
+
+	/**
+	 * Wait until the replica of this follower has applied the event with the
+	 * given sequence number.
+	 *
+	 * @param sequence
+	 *            The sequence number to wait for.
+	 * @param timeout
+	 *            The maximal time to wait, in milliseconds.
+	 * @return True if and only if the replica has applied that event before
+	 *         the given time has passed.
+	 */
+	public boolean awaitSequence(long sequence, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (this.progress) {
+			while (this.replica.getSequence() < sequence) {
+				long left = deadline - System.currentTimeMillis();
+				if (left <= 0)
+					return false;
+				this.progress.wait(left);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The monitor notified whenever the replica has advanced.
+	 */
+	private final Object progress = new Object();
+
+	/**
+	 * Start following the leader.
+	 */
+	public void start() {
+		Thread thread = new Thread("replication-follower") {
+			@Override
+			public void run() {
+				while (!stopped)
+					try {
+						follow();
+					} catch (IOException | IllegalArgumentException e) {
+						// The leader is gone or sent something inconsistent:
+						// connect again after a while.
+						try {
+							Thread.sleep(RETRY_INTERVAL);
+						} catch (InterruptedException interrupted) {
+							return;
+						}
+					}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop following the leader. The replica keeps its publications.
+	 */
+	public void stop() {
+		this.stopped = true;
+		Socket socket = this.socket;
+		if (socket != null)
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Nothing left to release.
+			}
+	}
+
+	private volatile boolean stopped;
+
+	/**
+	 * Connect to the leader and apply what it sends, until the connection is
+	 * lost or this follower is stopped.
+	 */
+	private void follow() throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.setTcpNoDelay(true);
+			socket.connect(this.leader);
+			this.socket = socket;
+			if (this.stopped)
+				return;
+			DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+			output.writeLong(this.replica.getSequence());
+			output.flush();
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+			List<PublicationRecord> records = null;
+			Map<Class<? extends Publication>, Double> weights = null;
+			long checkpointSequence = 0;
+			int recordsNumber = 0;
+			while (!this.stopped) {
+				byte kind = input.readByte();
+				long leaderSequence = input.readLong();
+				DataInputStream payload = new DataInputStream(
+						new ByteArrayInputStream(ReplicationLeader.readPayload(input)));
+				switch (kind) {
+				case ReplicationLeader.SNAPSHOT:
+					checkpointSequence = payload.readLong();
+					recordsNumber = payload.readInt();
+					records = new ArrayList<PublicationRecord>(recordsNumber);
+					weights = new HashMap<Class<? extends Publication>, Double>();
+					for (int i = payload.readInt(); i > 0; i--)
+						weights.put(typeNamed(payload.readUTF()), payload.readDouble());
+					break;
+				case ReplicationLeader.RECORDS:
+					if (records == null)
+						throw new IOException("Records without a checkpoint");
+					for (int i = payload.readInt(); i > 0; i--)
+						records.add(PublicationRecord.readFrom(payload));
+					break;
+				case ReplicationLeader.EVENTS:
+					for (int i = payload.readInt(); i > 0; i--)
+						this.replica.apply(ChangeEvent.readFrom(payload));
+					break;
+				case ReplicationLeader.HEARTBEAT:
+					break;
+				default:
+					throw new IOException("Unknown frame " + kind);
+				}
+				if (records != null && records.size() == recordsNumber) {
+					this.replica.install(records, weights, checkpointSequence);
+					records = null;
+				}
+				this.leaderSequence = leaderSequence;
+				synchronized (this.progress) {
+					this.progress.notifyAll();
+				}
+			}
+		} finally {
+			this.socket = null;
+			socket.close();
+		}
+	}
+
+	private static Class<? extends Publication> typeNamed(String name) throws IOException {
+		try {
+			return Class.forName(name).asSubclass(Publication.class);
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * The time in milliseconds to wait before connecting again.
+	 */
+	private static final long RETRY_INTERVAL = 100;
+}
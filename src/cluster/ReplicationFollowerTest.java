@@ -0,0 +1,77 @@
+package cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.Publication;
+import referenceDB.ChangeFeed;
+import referenceDB.ReferenceDataBase;
+
+public class ReplicationFollowerTest {
+
+	private ReferenceDataBase DB;
+	private ChangeFeed feed;
+	private ReplicationLeader leader;
+	private ReplicationFollower follower;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(new Book("Object oriented programming", authors, 2014, "acco"));
+		feed = new ChangeFeed(DB, 1024);
+		leader = new ReplicationLeader(feed, 0);
+		leader.start();
+		follower = new ReplicationFollower(leader.getAddress());
+	}
+
+	@After
+	public void tearDown() {
+		follower.stop();
+		leader.stop();
+		feed.terminate();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_noLeader() {
+		new ReplicationFollower(null);
+	}
+
+	@Test
+	public void follow() throws Exception {
+		assertFalse(follower.isConnected());
+		follower.start();
+		for (int i = 0; i < 10; i++) {
+			Publication publication = new Book("Book " + i, authors, 2000, "acco");
+			DB.addAsPublication(publication);
+			publication.setTitle("Book " + i + " revised");
+		}
+		assertTrue(follower.awaitSequence(20, 10000));
+		assertTrue(follower.isConnected());
+		assertEquals(0, follower.getLag());
+		assertEquals(11, follower.getReplica().size());
+		assertEquals(10, follower.getReplica().findByTitleWord("book").size());
+		assertEquals(10, follower.getReplica().findByTitleWord("revised").size());
+	}
+
+	@Test
+	public void awaitSequence_noLeader() throws Exception {
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		ReplicationFollower orphan = new ReplicationFollower(new InetSocketAddress("localhost", port));
+		orphan.start();
+		assertFalse(orphan.awaitSequence(1, 300));
+		assertFalse(orphan.isConnected());
+		orphan.stop();
+	}
+}
@@ -0,0 +1,425 @@
+package cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import referenceDB.ChangeEvent;
+import referenceDB.ChangeFeed;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBaseSnapshot;
+
+/**
+ * A class of leaders of the replication of a reference database, shipping
+ * the events of a change feed of that database to any number of followers
+ * over TCP.
+ *
+ * A follower connects and sends the sequence number of the last event it has
+ * applied. If the feed still keeps the events after it, the leader streams
+ * them from there on; otherwise, e.g. for a new follower at sequence number
+ * 0, it first sends its latest checkpoint, a snapshot of the database with
+ * the sequence number of the last event it reflects, and streams the events
+ * after that checkpoint. The checkpoint is encoded once, and shared by all
+ * followers catching up from it.
+ *
+ * The leader sends frames of up to BATCH events or records, each frame
+ * compressed as a whole, and a heartbeat when there are no events for a
+ * while. Each frame carries the last sequence number of the feed, from which
+ * a follower knows how far it lags behind.
+ *
+ * A session waits on the feed for new events, and wakes up at the latest
+ * when its heartbeat is due.
+ *
+ * The checkpoints are taken by the thread changing the database, which owns
+ * the leader. A follower catching up from a checkpoint needs all events
+ * after it, so a checkpoint is only useful for as long as the feed keeps
+ * those, i.e. for fewer events than the capacity of the feed. The owner must
+ * therefore call checkpoint whenever isCheckpointDue returns true, checking
+ * it at least once per half the capacity of the feed, e.g. after each batch
+ * of changes. A follower that needs a checkpoint while the latest one is
+ * stale is not sent that checkpoint, since it could not continue from it,
+ * but disconnected, and tries again later; getStaleCheckpointsNumber counts
+ * these refusals, so an owner failing to take checkpoints shows up.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class ReplicationLeader {
+
+	/**
+	 * A frame with the sequence number, the number of records and the weights
+	 * of a checkpoint, followed by frames with its records.
+	 */
+	static final byte SNAPSHOT = 1;
+
+	/**
+	 * A frame with records of a checkpoint.
+	 */
+	static final byte RECORDS = 2;
+
+	/**
+	 * A frame with consecutive events of the feed.
+	 */
+	static final byte EVENTS = 3;
+
+	/**
+	 * A frame without content.
+	 */
+	static final byte HEARTBEAT = 4;
+
+	/**
+	 * Initialize this new leader for the given feed, listening on the given
+	 * port, and take its first checkpoint. This constructor must be called by
+	 * the thread changing the database of the feed.
+	 *
+	 * @param feed
+	 *            The feed whose events are shipped.
+	 * @param port
+	 *            The port of this leader, or 0 for any free port.
+	 * @throws IllegalArgumentException
+	 *             The given feed is not effective, or the given port is not
+	 *             a valid port.
+	 * @throws IOException
+	 *             The port could not be bound.
+	 */
+	public ReplicationLeader(ChangeFeed feed, int port) throws IllegalArgumentException, IOException {
+		if (feed == null || port < 0 || port > 0xFFFF)
+			throw new IllegalArgumentException();
+		this.feed = feed;
+		checkpoint();
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.bind(new InetSocketAddress(port));
+	}
+
+	/**
+	 * Return the feed of this leader.
+	 */
+	@Basic
+	public ChangeFeed getFeed() {
+		return feed;
+	}
+
+	private final ChangeFeed feed;
+
+	/**
+	 * Return the port this leader listens on.
+	 */
+	public int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Return the address a follower in this JVM reaches this leader on.
+	 */
+	public InetSocketAddress getAddress() {
+		return new InetSocketAddress("localhost", getPort());
+	}
+
+	private final ServerSocket serverSocket;
+
+	/**
+	 * Take a new checkpoint of the database of the feed of this leader, for
+	 * the followers catching up from now on. This method must be called by
+	 * the thread changing that database.
+	 *
+	 * @post The checkpoint sequence number of this leader is the last
+	 *       sequence number of its feed.
+	 */
+	public void checkpoint() {
+		this.checkpoint = new Checkpoint(this.feed.getDataBase().snapshot(), this.feed.getLastSequence());
+	}
+
+	/**
+	 * Return the sequence number of the last event reflected by the latest
+	 * checkpoint of this leader.
+	 */
+	public long getCheckpointSequence() {
+		return this.checkpoint.sequence;
+	}
+
+	/**
+	 * Check whether this leader needs a new checkpoint, i.e. whether half the
+	 * capacity of its feed, or more, of events has been recorded since its
+	 * latest checkpoint.
+	 */
+	public boolean isCheckpointDue() {
+		return this.feed.getLastSequence() - getCheckpointSequence() >= this.feed.getCapacity() / 2;
+	}
+
+	/**
+	 * Check whether the latest checkpoint of this leader is stale, i.e.
+	 * whether some of the events after it are no longer kept by the feed.
+	 */
+	public boolean isCheckpointStale() {
+		return getCheckpointSequence() + 1 < this.feed.getFirstSequence();
+	}
+
+	/**
+	 * Return the number of times a follower could not be caught up, since the
+	 * events after the latest checkpoint were no longer kept by the feed.
+	 */
+	public long getStaleCheckpointsNumber() {
+		return this.staleCheckpointsNumber.get();
+	}
+
+	private final AtomicLong staleCheckpointsNumber = new AtomicLong();
+
+	private volatile Checkpoint checkpoint;
+
+	/**
+	 * A class of checkpoints of a database, with their frames, encoded on
+	 * first use.
+	 */
+	private static class Checkpoint {
+
+		Checkpoint(ReferenceDataBaseSnapshot snapshot, long sequence) {
+			this.snapshot = snapshot;
+			this.sequence = sequence;
+		}
+
+		synchronized List<byte[]> getFrames() throws IOException {
+			if (this.frames == null) {
+				List<byte[]> frames = new ArrayList<byte[]>();
+				List<PublicationRecord> records = this.snapshot.getAllPublications();
+				Set<Class<? extends Publication>> types = new HashSet<Class<? extends Publication>>();
+				for (PublicationRecord record : records)
+					types.add(record.getType());
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream payload = new DataOutputStream(bytes);
+				payload.writeLong(this.sequence);
+				payload.writeInt(records.size());
+				payload.writeInt(types.size());
+				for (Class<? extends Publication> type : types) {
+					payload.writeUTF(type.getName());
+					payload.writeDouble(this.snapshot.getWeight(type));
+				}
+				frames.add(encodeFrame(SNAPSHOT, this.sequence, bytes.toByteArray()));
+				for (int from = 0; from < records.size(); from += BATCH) {
+					int to = Math.min(records.size(), from + BATCH);
+					bytes.reset();
+					payload.writeInt(to - from);
+					for (PublicationRecord record : records.subList(from, to))
+						record.writeTo(payload);
+					frames.add(encodeFrame(RECORDS, this.sequence, bytes.toByteArray()));
+				}
+				this.frames = frames;
+			}
+			return this.frames;
+		}
+
+		private final ReferenceDataBaseSnapshot snapshot;
+
+		private final long sequence;
+
+		private List<byte[]> frames;
+	}
+
+	/**
+	 * Return the number of followers connected to this leader.
+	 */
+	public int getFollowersNumber() {
+		return this.followersNumber.get();
+	}
+
+	private final AtomicInteger followersNumber = new AtomicInteger();
+
+	/**
+	 * Start accepting followers, each served by a thread of its own.
+	 */
+	public void start() {
+		Thread acceptor = new Thread("replication-leader-" + getPort()) {
+			@Override
+			public void run() {
+				while (!serverSocket.isClosed()) {
+					final Socket socket;
+					try {
+						socket = serverSocket.accept();
+					} catch (IOException e) {
+						// Closed by stop.
+						return;
+					}
+					Thread session = new Thread("replication-leader-" + getPort() + "-session") {
+						@Override
+						public void run() {
+							followersNumber.incrementAndGet();
+							try {
+								serve(socket);
+							} finally {
+								followersNumber.decrementAndGet();
+							}
+						}
+					};
+					session.setDaemon(true);
+					session.start();
+				}
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Stop this leader, disconnecting all followers.
+	 */
+	public void stop() {
+		try {
+			this.serverSocket.close();
+		} catch (IOException e) {
+			// Nothing left to release.
+		}
+	}
+
+	/**
+	 * Ship the events of the feed to the follower at the given socket, until
+	 * this leader is stopped or the follower is gone.
+	 */
+	private void serve(Socket socket) {
+		try {
+			socket.setTcpNoDelay(true);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			long next = input.readLong() + 1;
+			// A follower at sequence number 0 has nothing, whatever the feed
+			// still keeps.
+			boolean started = next > 1;
+			long sentCheckpoint = -1;
+			long lastFrame = System.nanoTime();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream payload = new DataOutputStream(bytes);
+			while (!this.serverSocket.isClosed()) {
+				List<ChangeEvent> events = null;
+				if (started)
+					try {
+						events = this.feed.poll(next, BATCH);
+					} catch (IllegalStateException e) {
+						// The events after the follower are gone.
+					}
+				if (events == null) {
+					Checkpoint checkpoint = this.checkpoint;
+					// Sending the same checkpoint again would not help, nor
+					// would sending one whose later events are gone.
+					if (checkpoint.sequence == sentCheckpoint
+							|| checkpoint.sequence + 1 < this.feed.getFirstSequence()) {
+						this.staleCheckpointsNumber.incrementAndGet();
+						return;
+					}
+					for (byte[] frame : checkpoint.getFrames())
+						output.write(frame);
+					output.flush();
+					sentCheckpoint = checkpoint.sequence;
+					next = checkpoint.sequence + 1;
+					started = true;
+					lastFrame = System.nanoTime();
+					continue;
+				}
+				if (!events.isEmpty()) {
+					bytes.reset();
+					payload.writeInt(events.size());
+					for (ChangeEvent event : events)
+						event.writeTo(payload);
+					output.write(encodeFrame(EVENTS, this.feed.getLastSequence(), bytes.toByteArray()));
+					output.flush();
+					next += events.size();
+					lastFrame = System.nanoTime();
+				} else {
+					long remaining = HEARTBEAT_INTERVAL - (System.nanoTime() - lastFrame);
+					if (remaining <= 0) {
+						output.write(encodeFrame(HEARTBEAT, this.feed.getLastSequence(), new byte[0]));
+						output.flush();
+						lastFrame = System.nanoTime();
+					} else
+						this.feed.awaitSequence(next, Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+				}
+			}
+		} catch (IOException e) {
+			// The follower is gone.
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Nothing left to release.
+			}
+		}
+	}
+
+	/**
+	 * Return a frame of the given kind with the given last sequence number
+	 * and the given payload, compressed: the kind, the sequence number, the
+	 * length of the payload, the length of the compressed payload and the
+	 * compressed payload.
+	 */
+	static byte[] encodeFrame(byte kind, long lastSequence, byte[] payload) throws IOException {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		deflater.setInput(payload);
+		deflater.finish();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 4 + 64);
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished())
+			compressed.write(buffer, 0, deflater.deflate(buffer));
+		deflater.end();
+		ByteArrayOutputStream frame = new ByteArrayOutputStream(compressed.size() + 17);
+		DataOutputStream output = new DataOutputStream(frame);
+		output.writeByte(kind);
+		output.writeLong(lastSequence);
+		output.writeInt(payload.length);
+		output.writeInt(compressed.size());
+		compressed.writeTo(output);
+		return frame.toByteArray();
+	}
+
+	/**
+	 * Return the payload of a frame read from the given input, after its
+	 * kind and last sequence number.
+	 */
+	static byte[] readPayload(DataInputStream input) throws IOException {
+		byte[] payload = new byte[input.readInt()];
+		byte[] compressed = new byte[input.readInt()];
+		input.readFully(compressed);
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while (length < payload.length) {
+				int inflated = inflater.inflate(payload, length, payload.length - length);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput()))
+					throw new IOException("Truncated frame");
+				length += inflated;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+		return payload;
+	}
+
+	/**
+	 * The maximal number of events or records of a frame.
+	 */
+	static final int BATCH = 4096;
+
+	/**
+	 * The time in nanoseconds without events after which a heartbeat is sent.
+	 */
+	private static final long HEARTBEAT_INTERVAL = 100_000_000L;
+}
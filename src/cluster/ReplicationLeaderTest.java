@@ -0,0 +1,177 @@
+package cluster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.ChangeFeed;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBase;
+import referenceDB.ReferenceDataBaseView;
+
+public class ReplicationLeaderTest {
+
+	private ReferenceDataBase DB;
+	private ChangeFeed feed;
+	private ReplicationLeader leader;
+	private List<ReplicationFollower> followers = new ArrayList<ReplicationFollower>();
+	private List<Publication> publications = new ArrayList<Publication>();
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		JournalArticle.setWeight(1.0);
+		Book.setWeight(1.2);
+		ConferencePaper.setWeight(0.8);
+		DB = new ReferenceDataBase();
+		for (int i = 0; i < 2000; i++)
+			add(i);
+		feed = new ChangeFeed(DB, 256);
+		leader = new ReplicationLeader(feed, 0);
+		leader.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (ReplicationFollower follower : followers)
+			follower.stop();
+		leader.stop();
+		feed.terminate();
+		Book.setWeight(1.2);
+	}
+
+	private void add(int i) throws Exception {
+		Publication publication = i % 2 == 0
+				? new Book("Book " + i, authors, 1900 + i / 20, "acco")
+				: new JournalArticle("Article " + i, authors, "journal of MEMS", i, 1900 + i / 20);
+		DB.addAsPublication(publication);
+		if (!publications.isEmpty())
+			publication.addAsCites(publications.get(publications.size() - 1));
+		publications.add(publication);
+	}
+
+	/**
+	 * Change the database in as many ways as the given number.
+	 */
+	private void change(int changes) throws Exception {
+		for (int i = 0; i < changes; i++) {
+			Publication publication = publications.get(publications.size() - 1 - i % 50);
+			switch (i % 4) {
+			case 0:
+				add(publications.size());
+				break;
+			case 1:
+				publication.setTitle(publication.getTitle() + " revised");
+				break;
+			case 2:
+				DB.removePublication(publications.remove(publications.size() / 2));
+				break;
+			default:
+				Book.setWeight(1.0 + i % 7 / 10.0);
+			}
+		}
+	}
+
+	private ReplicationFollower follow() {
+		ReplicationFollower follower = new ReplicationFollower(leader.getAddress());
+		followers.add(follower);
+		follower.start();
+		return follower;
+	}
+
+	@Test
+	public void catchUp() throws Exception {
+		ReplicationFollower follower = follow();
+		change(100);
+		assertTrue(follower.awaitSequence(feed.getLastSequence(), 10000));
+		assertEquals(0, follower.getLag());
+		assertSameAs(DB.snapshot(), follower.getReplica());
+		assertEquals(1, leader.getFollowersNumber());
+	}
+
+	@Test
+	public void catchUp_fromCheckpoint() throws Exception {
+		change(1000);
+		assertEquals(0, leader.getCheckpointSequence());
+		leader.checkpoint();
+		assertEquals(feed.getLastSequence(), leader.getCheckpointSequence());
+		change(30);
+		ReplicationFollower follower1 = follow(), follower2 = follow();
+		assertTrue(follower1.awaitSequence(feed.getLastSequence(), 10000));
+		assertTrue(follower2.awaitSequence(feed.getLastSequence(), 10000));
+		assertSameAs(DB.snapshot(), follower1.getReplica());
+		assertSameAs(DB.snapshot(), follower2.getReplica());
+	}
+
+	@Test
+	public void catchUp_afterOverflow() throws Exception {
+		ReplicationFollower follower = follow();
+		change(10);
+		assertTrue(follower.awaitSequence(feed.getLastSequence(), 10000));
+		int port = leader.getPort();
+		leader.stop();
+		// The follower misses more events than the feed keeps.
+		change(1000);
+		leader = new ReplicationLeader(feed, port);
+		change(10);
+		leader.start();
+		assertTrue(follower.awaitSequence(feed.getLastSequence(), 10000));
+		assertSameAs(DB.snapshot(), follower.getReplica());
+	}
+
+	@Test
+	public void catchUp_staleCheckpoint() throws Exception {
+		change(1000);
+		assertTrue(leader.isCheckpointDue());
+		assertTrue(leader.isCheckpointStale());
+		ReplicationFollower follower = follow();
+		// The stale checkpoint is refused instead of sent over and over.
+		long deadline = System.currentTimeMillis() + 10000;
+		while (leader.getStaleCheckpointsNumber() == 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertTrue(leader.getStaleCheckpointsNumber() > 0);
+		assertEquals(0, follower.getReplica().size());
+		leader.checkpoint();
+		assertFalse(leader.isCheckpointDue());
+		assertFalse(leader.isCheckpointStale());
+		assertTrue(follower.awaitSequence(feed.getLastSequence(), 10000));
+		assertSameAs(DB.snapshot(), follower.getReplica());
+	}
+
+	@Test
+	public void idleSession() throws Exception {
+		ReplicationFollower follower = follow();
+		while (leader.getFollowersNumber() == 0)
+			Thread.sleep(10);
+		// A session waiting on the feed is woken up by the next event.
+		Thread.sleep(300);
+		change(1);
+		assertTrue(follower.awaitSequence(feed.getLastSequence(), 10000));
+	}
+
+	private static void assertSameAs(ReferenceDataBaseView expected, ReferenceDataBaseView actual) {
+		List<PublicationRecord> expectedRecords = expected.getAllPublications();
+		List<PublicationRecord> actualRecords = actual.getAllPublications();
+		assertEquals(expectedRecords.size(), actualRecords.size());
+		for (int i = 0; i < expectedRecords.size(); i++) {
+			PublicationRecord record = expectedRecords.get(i), copy = actualRecords.get(i);
+			assertEquals(record.getId(), copy.getId());
+			assertEquals(record.getTitle(), copy.getTitle());
+			assertArrayEquals(record.getCites(), copy.getCites());
+			assertArrayEquals(record.getCitedBy(), copy.getCitedBy());
+			assertEquals(expected.getWeight(record.getType()), actual.getWeight(copy.getType()), 1e-9);
+		}
+	}
+}
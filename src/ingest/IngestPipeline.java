@@ -0,0 +1,547 @@
+package ingest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalIssueNumberException;
+import exceptions.IllegalPublicationIdException;
+import exceptions.IllegalYearException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.ReferenceDataBase;
+
+/**
+ * A class of staged pipelines ingesting feeds of publications and citations,
+ * as JSON Lines or CSV, into a reference database.
+ *
+ * Each line of a feed is one record. In JSON Lines, a publication is an
+ * object with the fields "type" ("article", "book" or "inproceedings"),
+ * "key", "title", "authors" (an array of "Last, First" names), "year", and
+ * "journal" and "issue", "publisher" or "conference"; a citation is an
+ * object with the fields "type" ("citation"), "citing" and "cited", the keys
+ * of two publications. In CSV, a publication is a row type, key, title,
+ * authors separated by semicolons, year, journal, publisher or conference,
+ * and issue; a citation is a row citation, citing key, cited key. A header
+ * row starting with "type" is skipped. Quoted fields cannot span lines.
+ *
+ * The stages run at the same time:
+ * <ol>
+ * <li>READ: a thread reads the feed with a channel, in blocks of whole
+ * lines;</li>
+ * <li>PARSE: a pool of threads parses and validates the blocks, with the
+ * checks of the publications, into publications and citations;</li>
+ * <li>PUBLICATIONS and CITATIONS: the thread running the pipeline adds the
+ * publications of each block with addAsPublication, which assigns their
+ * IDs, and then its citations with addCitation, in the order of the
+ * feed.</li>
+ * </ol>
+ * The blocks in progress are held in a bounded queue, in the order of the
+ * feed: when the database falls behind, the queue fills up and the reader
+ * waits, so the memory taken by the blocks stays bounded whatever the size
+ * of the feed. The keys of the publications added and the deferred
+ * citations below are kept until the end of the feed, however, and grow
+ * with it.
+ *
+ * A citation of a key that has not been added yet is kept until the end of
+ * the feed, so a feed may cite publications later in it. The keys are kept
+ * by the pipeline, so a citation feed may also follow a publication feed.
+ * Records that are malformed or not valid, duplicate keys and citations of
+ * unknown keys or that canCites rejects are counted and skipped.
+ *
+ * Each stage counts the items it handled, bytes for READ and records for the
+ * others, which gives its throughput; the counters can be read by other
+ * threads while the pipeline runs.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class IngestPipeline {
+
+	/**
+	 * An enumeration of the formats of the feeds.
+	 */
+	public enum Format {
+		JSON_LINES, CSV
+	}
+
+	/**
+	 * An enumeration of the stages of a pipeline.
+	 */
+	public enum Stage {
+		READ, PARSE, PUBLICATIONS, CITATIONS
+	}
+
+	/**
+	 * Initialize this new pipeline for the given database and format, with as
+	 * many parsing threads as there are processors.
+	 *
+	 * @param dataBase
+	 *            The database to be filled.
+	 * @param format
+	 *            The format of the feeds.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated, or the
+	 *             given format is not effective.
+	 */
+	public IngestPipeline(ReferenceDataBase dataBase, Format format) throws IllegalArgumentException {
+		this(dataBase, format, Runtime.getRuntime().availableProcessors(), 64);
+	}
+
+	/**
+	 * Initialize this new pipeline for the given database and format.
+	 *
+	 * @param dataBase
+	 *            The database to be filled.
+	 * @param format
+	 *            The format of the feeds.
+	 * @param parsers
+	 *            The number of parsing threads.
+	 * @param capacity
+	 *            The maximal number of blocks of lines in progress.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated, the
+	 *             given format is not effective, or the given numbers are not
+	 *             positive.
+	 */
+	public IngestPipeline(ReferenceDataBase dataBase, Format format, int parsers, int capacity)
+			throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated() || format == null || parsers <= 0 || capacity <= 0)
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		this.format = format;
+		this.parsers = parsers;
+		this.capacity = capacity;
+		for (int i = 0; i < this.counts.length; i++)
+			this.counts[i] = new AtomicLong();
+	}
+
+	/**
+	 * Return the database of this pipeline.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Return the format of the feeds of this pipeline.
+	 */
+	@Basic
+	public Format getFormat() {
+		return format;
+	}
+
+	private final Format format;
+
+	private final int parsers;
+
+	private final int capacity;
+
+	/**
+	 * Ingest the feed in the given file.
+	 *
+	 * @throws IOException
+	 *             The file cannot be read.
+	 * @throws InterruptedException
+	 *             The thread running the pipeline has been interrupted.
+	 */
+	public void run(Path file) throws IOException, InterruptedException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			run(channel);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Ingest the feed read from the given channel. This method must be called
+	 * by the thread changing the database.
+	 *
+	 * @throws IOException
+	 *             The channel cannot be read.
+	 * @throws InterruptedException
+	 *             The thread running the pipeline has been interrupted.
+	 */
+	public void run(final ReadableByteChannel channel) throws IOException, InterruptedException {
+		final BlockingQueue<Future<Block>> blocks = new ArrayBlockingQueue<Future<Block>>(this.capacity);
+		final ExecutorService pool = Executors.newFixedThreadPool(this.parsers);
+		final IOException[] failure = new IOException[1];
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					read(channel, blocks, pool);
+				} catch (IOException e) {
+					failure[0] = e;
+				} catch (InterruptedException e) {
+					// The pipeline is being stopped.
+				} finally {
+					try {
+						blocks.put(END);
+					} catch (InterruptedException e) {
+						// The pipeline is being stopped.
+					}
+				}
+			}
+		}, "ingest-reader");
+		if (this.startTime == 0)
+			this.startTime = System.nanoTime();
+		reader.start();
+		try {
+			for (Future<Block> next; (next = blocks.take()) != END;)
+				apply(next.get());
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			reader.interrupt();
+			// Unblock the reader if it waits for room.
+			blocks.clear();
+			reader.join();
+			pool.shutdownNow();
+		}
+		if (failure[0] != null)
+			throw failure[0];
+		for (List<String[]> waiting : this.deferred.values())
+			this.rejectedNumber += waiting.size();
+		this.deferred.clear();
+	}
+
+	/**
+	 * Read the given channel in blocks of whole lines, handing each block to
+	 * the given pool and its future to the given queue.
+	 */
+	private void read(ReadableByteChannel channel, BlockingQueue<Future<Block>> blocks, ExecutorService pool)
+			throws IOException, InterruptedException {
+		ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+		while (true) {
+			int read = channel.read(buffer);
+			if (read > 0)
+				this.counts[Stage.READ.ordinal()].addAndGet(read);
+			if (read < 0 || !buffer.hasRemaining()) {
+				int end = buffer.position();
+				if (read >= 0) {
+					while (end > 0 && buffer.get(end - 1) != '\n')
+						end--;
+					if (end == 0) {
+						// A line longer than a block.
+						ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+						buffer.flip();
+						larger.put(buffer);
+						buffer = larger;
+						continue;
+					}
+				}
+				if (end > 0) {
+					final String text = new String(buffer.array(), 0, end, StandardCharsets.UTF_8);
+					blocks.put(pool.submit(new Callable<Block>() {
+						@Override
+						public Block call() {
+							return parse(text);
+						}
+					}));
+				}
+				if (read < 0)
+					return;
+				int rest = buffer.position() - end;
+				System.arraycopy(buffer.array(), end, buffer.array(), 0, rest);
+				buffer.position(rest);
+				if (buffer.capacity() > BLOCK_SIZE && rest < BLOCK_SIZE) {
+					ByteBuffer smaller = ByteBuffer.allocate(BLOCK_SIZE);
+					smaller.put(buffer.array(), 0, rest);
+					buffer = smaller;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the publications and citations of the given lines.
+	 */
+	private Block parse(String text) {
+		Block block = new Block();
+		int start = 0;
+		while (start < text.length()) {
+			int end = text.indexOf('\n', start);
+			if (end < 0)
+				end = text.length();
+			String line = text.substring(start, end).trim();
+			start = end + 1;
+			if (line.isEmpty() || (this.format == Format.CSV && line.startsWith("type,")))
+				continue;
+			try {
+				if (this.format == Format.JSON_LINES)
+					parseJson(line, block);
+				else
+					parseCsv(line, block);
+			} catch (IllegalArgumentException e) {
+				block.rejectedNumber++;
+			}
+		}
+		this.counts[Stage.PARSE.ordinal()].addAndGet(block.keys.size() + block.rejectedNumber);
+		return block;
+	}
+
+	private static void parseJson(String line, Block block) throws IllegalArgumentException {
+		Map<String, Object> fields = RecordParser.parseJson(line);
+		String type = stringOf(fields.get("type"));
+		if ("citation".equals(type)) {
+			block.add(stringOf(fields.get("citing")), null, stringOf(fields.get("cited")));
+			return;
+		}
+		Object authors = fields.get("authors");
+		if (!(authors instanceof String[]))
+			throw new IllegalArgumentException();
+		String venue = type == null ? null
+				: stringOf(fields.get(type.equals("article") ? "journal"
+						: type.equals("book") ? "publisher" : "conference"));
+		block.add(stringOf(fields.get("key")), publicationOf(type, stringOf(fields.get("title")),
+				(String[]) authors, intOf(fields.get("year")), venue, fields.get("issue")), null);
+	}
+
+	private static void parseCsv(String line, Block block) throws IllegalArgumentException {
+		List<String> fields = RecordParser.parseCsv(line);
+		if (fields.get(0).equals("citation")) {
+			if (fields.size() != 3)
+				throw new IllegalArgumentException();
+			block.add(fields.get(1), null, fields.get(2));
+			return;
+		}
+		if (fields.size() < 6)
+			throw new IllegalArgumentException();
+		String[] authors = fields.get(3).split(";");
+		for (int i = 0; i < authors.length; i++)
+			authors[i] = authors[i].trim();
+		int year;
+		try {
+			year = Integer.parseInt(fields.get(4).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException();
+		}
+		block.add(fields.get(1),
+				publicationOf(fields.get(0), fields.get(2), authors, year, fields.get(5),
+						fields.size() > 6 && !fields.get(6).isEmpty() ? fields.get(6).trim() : null),
+				null);
+	}
+
+	/**
+	 * Return a new publication with the given fields.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The fields are not valid for a publication of the given
+	 *             type.
+	 */
+	private static Publication publicationOf(String type, String title, String[] authors, int year, String venue,
+			Object issue) throws IllegalArgumentException {
+		if (title == null || !Publication.isValidAuthors(authors) || !Publication.isValidYear(year))
+			throw new IllegalArgumentException();
+		try {
+			if ("article".equals(type)) {
+				int issueNumber = intOf(issue instanceof String ? Long.valueOf((String) issue) : issue);
+				if (!JournalArticle.isValidIssueNumber(issueNumber))
+					throw new IllegalArgumentException();
+				return new JournalArticle(title, authors, venue, issueNumber, year);
+			}
+			if ("book".equals(type))
+				return new Book(title, authors, year, venue);
+			if ("inproceedings".equals(type))
+				return new ConferencePaper(title, authors, year, venue);
+		} catch (IllegalAuthorException e) {
+		} catch (IllegalYearException e) {
+		} catch (IllegalIssueNumberException e) {
+		}
+		throw new IllegalArgumentException();
+	}
+
+	private static String stringOf(Object value) throws IllegalArgumentException {
+		if (value != null && !(value instanceof String))
+			throw new IllegalArgumentException();
+		return (String) value;
+	}
+
+	private static int intOf(Object value) throws IllegalArgumentException {
+		if (!(value instanceof Long) || (Long) value != ((Long) value).intValue())
+			throw new IllegalArgumentException();
+		return ((Long) value).intValue();
+	}
+
+	/**
+	 * Add the publications and citations of the given block to the database.
+	 */
+	private void apply(Block block) {
+		this.rejectedNumber += block.rejectedNumber;
+		for (int i = 0; i < block.keys.size(); i++) {
+			String key = block.keys.get(i);
+			Publication publication = block.publications.get(i);
+			String cited = block.cited.get(i);
+			if (key == null)
+				this.rejectedNumber++;
+			else if (publication != null) {
+				if (this.ids.containsKey(key)) {
+					this.rejectedNumber++;
+					continue;
+				}
+				try {
+					this.dataBase.addAsPublication(publication);
+				} catch (IllegalArgumentException e) {
+					// Rejected by the duplicate policy of the database.
+					this.duplicatesNumber++;
+					continue;
+				}
+				if (publication.isTerminated())
+					this.duplicatesNumber++;
+				// A merged publication has the ID of its duplicate.
+				this.ids.put(key, publication.getId());
+				this.counts[Stage.PUBLICATIONS.ordinal()].incrementAndGet();
+				List<String[]> waiting = this.deferred.remove(key);
+				if (waiting != null)
+					for (String[] citation : waiting)
+						addCitation(citation[0], citation[1]);
+			} else if (cited == null)
+				this.rejectedNumber++;
+			else
+				addCitation(key, cited);
+		}
+	}
+
+	/**
+	 * Add the citation between the publications with the given keys, or
+	 * defer it until the missing one of them is added.
+	 */
+	private void addCitation(String citing, String cited) {
+		Integer citingId = this.ids.get(citing);
+		Integer citedId = this.ids.get(cited);
+		if (citingId == null || citedId == null) {
+			String missing = citingId == null ? citing : cited;
+			List<String[]> waiting = this.deferred.get(missing);
+			if (waiting == null)
+				this.deferred.put(missing, waiting = new ArrayList<String[]>(1));
+			waiting.add(new String[] { citing, cited });
+			return;
+		}
+		try {
+			this.dataBase.addCitation(citingId, citedId);
+			this.counts[Stage.CITATIONS.ordinal()].incrementAndGet();
+		} catch (IllegalPublicationIdException e) {
+			this.rejectedNumber++;
+		} catch (IllegalArgumentException e) {
+			this.rejectedNumber++;
+		}
+	}
+
+	/**
+	 * Return the ID the publication with the given key got in the database,
+	 * or -1 if no publication with that key has been added.
+	 */
+	public int getPublicationId(String key) {
+		Integer id = this.ids.get(key);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * The IDs of the publications added, by key.
+	 */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	/**
+	 * The citations waiting for a missing key, by that key.
+	 */
+	private final Map<String, List<String[]>> deferred = new HashMap<String, List<String[]>>();
+
+	/**
+	 * Return the number of items handled by the given stage so far: bytes for
+	 * READ, records for the others.
+	 */
+	public long getCount(Stage stage) {
+		return this.counts[stage.ordinal()].get();
+	}
+
+	/**
+	 * Return the number of items handled by the given stage per second since
+	 * the first run of this pipeline started.
+	 */
+	public double getThroughput(Stage stage) {
+		if (this.startTime == 0)
+			return 0;
+		return getCount(stage) / Math.max(1e-9, (System.nanoTime() - this.startTime) / 1e9);
+	}
+
+	private final AtomicLong[] counts = new AtomicLong[Stage.values().length];
+
+	private volatile long startTime;
+
+	/**
+	 * Return the number of records skipped so far.
+	 */
+	public long getRejectedNumber() {
+		return rejectedNumber;
+	}
+
+	private volatile long rejectedNumber;
+
+	/**
+	 * Return the number of publications so far that the database rejected or
+	 * merged as duplicates, see DuplicatePolicy. The key of a merged
+	 * publication refers to its duplicate.
+	 */
+	public long getDuplicatesNumber() {
+		return duplicatesNumber;
+	}
+
+	private volatile long duplicatesNumber;
+
+	/**
+	 * A class of parsed blocks of records: for each record its key, and
+	 * either its publication or the key it cites.
+	 */
+	private static class Block {
+
+		void add(String key, Publication publication, String cited) {
+			this.keys.add(key);
+			this.publications.add(publication);
+			this.cited.add(cited);
+		}
+
+		final List<String> keys = new ArrayList<String>();
+
+		final List<Publication> publications = new ArrayList<Publication>();
+
+		final List<String> cited = new ArrayList<String>();
+
+		int rejectedNumber;
+	}
+
+	/**
+	 * The marker of the end of the feed in the queue of blocks.
+	 */
+	private static final Future<Block> END = CompletableFuture.completedFuture(null);
+
+	/**
+	 * The size, in bytes, of the blocks of lines.
+	 */
+	private static final int BLOCK_SIZE = 1 << 18;
+}
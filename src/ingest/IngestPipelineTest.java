@@ -0,0 +1,143 @@
+package ingest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.DuplicatePolicy;
+import referenceDB.ReferenceDataBase;
+
+public class IngestPipelineTest {
+
+	private ReferenceDataBase DB;
+
+	@Before
+	public void setUp() {
+		DB = new ReferenceDataBase();
+	}
+
+	private IngestPipeline run(IngestPipeline pipeline, String feed) throws Exception {
+		pipeline.run(Channels.newChannel(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8))));
+		return pipeline;
+	}
+
+	@Test
+	public void run_jsonLines() throws Exception {
+		IngestPipeline pipeline = run(new IngestPipeline(DB, IngestPipeline.Format.JSON_LINES),
+				"{\"type\":\"citation\",\"citing\":\"a\",\"cited\":\"b\"}\n"
+						+ "{\"type\":\"article\",\"key\":\"a\",\"title\":\"Gas \\\"leak\\\"\","
+						+ "\"authors\":[\"Wang, Bo\",\"De Coster, Jeroen\"],\"year\":2016,"
+						+ "\"journal\":\"journal of MEMS\",\"issue\":123}\n"
+						+ "{\"type\":\"book\",\"key\":\"b\",\"title\":\"publication2\","
+						+ "\"authors\":[\"Eric, Steegmans\"],\"year\":2014,\"publisher\":\"acco\"}\n"
+						+ "\n"
+						+ "{\"type\":\"inproceedings\",\"key\":\"c\",\"title\":\"publication3\","
+						+ "\"authors\":[\"Wang, Bo\"],\"year\":2012,\"conference\":\"Transducers\"}\n"
+						+ "{\"type\":\"citation\",\"citing\":\"b\",\"cited\":\"c\"}\n"
+						+ "{\"type\":\"citation\",\"citing\":\"c\",\"cited\":\"a\"}\n"
+						+ "{\"type\":\"book\",\"key\":\"d\",\"title\":\"bad\",\"authors\":[\"Wang\"],\"year\":2014}\n"
+						+ "{\"type\":\"book\",\"key\":\"b\",\"title\":\"duplicate\","
+						+ "\"authors\":[\"Eric, Steegmans\"],\"year\":2014}\n"
+						+ "{\"type\":\"citation\",\"citing\":\"a\",\"cited\":\"nothing\"}\n"
+						+ "not json\n");
+		assertEquals(3, DB.getAllPublications().size());
+		assertEquals(3, pipeline.getCount(IngestPipeline.Stage.PUBLICATIONS));
+		assertEquals(2, pipeline.getCount(IngestPipeline.Stage.CITATIONS));
+		assertEquals(5, pipeline.getRejectedNumber());
+		JournalArticle article = (JournalArticle) DB.getPublicationWithID(pipeline.getPublicationId("a"));
+		assertEquals("Gas \"leak\"", article.getTitle());
+		assertArrayEquals(new String[] { "Wang, Bo", "De Coster, Jeroen" }, article.getAuthors());
+		assertEquals(123, article.getIssueNumber());
+		Publication book = DB.getPublicationWithID(pipeline.getPublicationId("b"));
+		assertEquals("acco", ((Book) book).getPublisher());
+		assertTrue(article.getAllCites().contains(book));
+		assertTrue(book.getAllCites().contains(DB.getPublicationWithID(pipeline.getPublicationId("c"))));
+		assertEquals(-1, pipeline.getPublicationId("d"));
+	}
+
+	@Test
+	public void run_csv() throws Exception {
+		IngestPipeline pipeline = run(new IngestPipeline(DB, IngestPipeline.Format.CSV, 2, 2),
+				"type,key,title,authors,year,venue,issue\n"
+						+ "article,a,\"Gas leak, \"\"rate\"\"\",Wang, Bo;De Coster, Jeroen,2016,journal of MEMS,123\n");
+		// The unquoted authors hold commas, so that row is not valid.
+		assertEquals(1, pipeline.getRejectedNumber());
+		pipeline = run(new IngestPipeline(DB, IngestPipeline.Format.CSV, 2, 2),
+				"article,a,\"Gas leak, \"\"rate\"\"\",\"Wang, Bo;De Coster, Jeroen\",2016,journal of MEMS,123\n"
+						+ "inproceedings,c,publication3,\"Wang, Bo\",2012,Transducers\n"
+						+ "citation,a,c\n"
+						+ "article,e,no issue,\"Wang, Bo\",2012,journal of MEMS,0\n"
+						+ "book,f,future,\"Wang, Bo\",3000,acco\n");
+		assertEquals(2, DB.getAllPublications().size());
+		assertEquals(2, pipeline.getRejectedNumber());
+		Publication article = DB.getPublicationWithID(pipeline.getPublicationId("a"));
+		assertEquals("Gas leak, \"rate\"", article.getTitle());
+		ConferencePaper paper = (ConferencePaper) DB.getPublicationWithID(pipeline.getPublicationId("c"));
+		assertEquals("Transducers", paper.getConference());
+		assertTrue(article.getAllCites().contains(paper));
+	}
+
+	@Test
+	public void run_orderedUnderBackpressure() throws Exception {
+		StringBuilder feed = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			feed.append("book,k" + i + ",book" + i + ",\"Wang, Bo\",2000,acco\n");
+		for (int i = 1; i < 20000; i++)
+			feed.append("citation,k" + i + ",k" + (i - 1) + "\n");
+		IngestPipeline pipeline = run(new IngestPipeline(DB, IngestPipeline.Format.CSV, 3, 1), feed.toString());
+		assertEquals(20000, pipeline.getCount(IngestPipeline.Stage.PUBLICATIONS));
+		assertEquals(19999, pipeline.getCount(IngestPipeline.Stage.CITATIONS));
+		assertEquals(39999, pipeline.getCount(IngestPipeline.Stage.PARSE));
+		assertEquals(feed.length(), pipeline.getCount(IngestPipeline.Stage.READ));
+		for (int i = 1; i < 20000; i++)
+			assertTrue(pipeline.getPublicationId("k" + i) > pipeline.getPublicationId("k" + (i - 1)));
+		assertTrue(pipeline.getThroughput(IngestPipeline.Stage.PUBLICATIONS) > 0);
+	}
+
+	@Test
+	public void run_typeNotString() throws Exception {
+		IngestPipeline pipeline = run(new IngestPipeline(DB, IngestPipeline.Format.JSON_LINES),
+				"{\"type\":\"book\",\"key\":\"a\",\"title\":\"publication1\","
+						+ "\"authors\":[\"Wang, Bo\"],\"year\":2014,\"publisher\":\"acco\"}\n"
+						+ "{\"type\":5,\"key\":\"b\",\"title\":\"publication2\","
+						+ "\"authors\":[\"Wang, Bo\"],\"year\":2014,\"publisher\":\"acco\"}\n"
+						+ "{\"type\":\"book\",\"key\":\"c\",\"title\":\"publication3\","
+						+ "\"authors\":[\"Wang, Bo\"],\"year\":2014,\"publisher\":\"acco\"}\n");
+		assertEquals(2, DB.getAllPublications().size());
+		assertEquals(1, pipeline.getRejectedNumber());
+		assertEquals(-1, pipeline.getPublicationId("b"));
+	}
+
+	@Test
+	public void run_duplicates() throws Exception {
+		DB.setDuplicatePolicy(DuplicatePolicy.MERGE);
+		IngestPipeline pipeline = run(new IngestPipeline(DB, IngestPipeline.Format.CSV),
+				"book,a,Object Oriented Programming,\"Steegmans, Eric\",2014,acco\n"
+						+ "book,b,object-oriented programming,\"Steegmans, Eric\",2014,other\n");
+		assertEquals(1, DB.getAllPublications().size());
+		assertEquals(1, pipeline.getDuplicatesNumber());
+		assertEquals(pipeline.getPublicationId("a"), pipeline.getPublicationId("b"));
+	}
+
+	@Test
+	public void parseJson() {
+		assertEquals(2L, RecordParser.parseJson(" { \"a\" : 2 , \"b\" : [ ] } ").get("a"));
+		assertEquals("\u00e9", RecordParser.parseJson("{\"a\":\"\\u00e9\"}").get("a"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_illegalCapacity() {
+		new IngestPipeline(DB, IngestPipeline.Format.CSV, 1, 0);
+	}
+}
@@ -0,0 +1,196 @@
+package ingest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class of parsers of the lines of an ingest feed: flat JSON objects, with
+ * string, number and string array values, and CSV rows with quoted fields.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class RecordParser {
+
+	/**
+	 * Return the fields of the given JSON object. Strings are returned as
+	 * String, numbers as Long or Double, arrays as String[].
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given line is not such an object.
+	 */
+	static Map<String, Object> parseJson(String line) throws IllegalArgumentException {
+		RecordParser parser = new RecordParser(line);
+		Map<String, Object> result = new HashMap<String, Object>();
+		parser.expect('{');
+		if (parser.skipSpace() == '}')
+			parser.position++;
+		else
+			while (true) {
+				parser.skipSpace();
+				String name = parser.string();
+				parser.expect(':');
+				result.put(name, parser.value());
+				if (parser.skipSpace() == '}') {
+					parser.position++;
+					break;
+				}
+				parser.expect(',');
+			}
+		if (parser.skipSpace() != 0)
+			throw new IllegalArgumentException(line);
+		return result;
+	}
+
+	/**
+	 * Return the fields of the given CSV row. A field in double quotes may
+	 * hold commas and doubled double quotes.
+	 *
+	 * @throws IllegalArgumentException
+	 *             A quoted field is not closed.
+	 */
+	static List<String> parseCsv(String line) throws IllegalArgumentException {
+		List<String> result = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		int i = 0;
+		while (true) {
+			field.setLength(0);
+			if (i < line.length() && line.charAt(i) == '"') {
+				i++;
+				while (true) {
+					if (i >= line.length())
+						throw new IllegalArgumentException(line);
+					char c = line.charAt(i++);
+					if (c == '"') {
+						if (i < line.length() && line.charAt(i) == '"')
+							i++;
+						else
+							break;
+					}
+					field.append(c);
+				}
+				while (i < line.length() && line.charAt(i) != ',')
+					i++;
+			} else
+				while (i < line.length() && line.charAt(i) != ',')
+					field.append(line.charAt(i++));
+			result.add(field.toString());
+			if (i >= line.length())
+				return result;
+			i++;
+		}
+	}
+
+	private RecordParser(String text) {
+		this.text = text;
+	}
+
+	private final String text;
+
+	private int position;
+
+	/**
+	 * Skip white space and return the next character, or 0 at the end.
+	 */
+	private char skipSpace() {
+		while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position)))
+			this.position++;
+		return this.position < this.text.length() ? this.text.charAt(this.position) : 0;
+	}
+
+	private void expect(char c) {
+		if (skipSpace() != c)
+			throw new IllegalArgumentException(this.text);
+		this.position++;
+	}
+
+	private Object value() {
+		char c = skipSpace();
+		if (c == '"')
+			return string();
+		if (c == '[') {
+			this.position++;
+			List<String> strings = new ArrayList<String>();
+			if (skipSpace() == ']')
+				this.position++;
+			else
+				while (true) {
+					strings.add(string());
+					if (skipSpace() == ']') {
+						this.position++;
+						break;
+					}
+					expect(',');
+				}
+			return strings.toArray(new String[strings.size()]);
+		}
+		int start = this.position;
+		while (this.position < this.text.length() && "+-0123456789.eE".indexOf(this.text.charAt(this.position)) >= 0)
+			this.position++;
+		String number = this.text.substring(start, this.position);
+		if (number.isEmpty()) {
+			if (this.text.startsWith("null", start)) {
+				this.position += 4;
+				return null;
+			}
+			throw new IllegalArgumentException(this.text);
+		}
+		try {
+			if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0)
+				return Long.parseLong(number);
+			return Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(this.text);
+		}
+	}
+
+	private String string() {
+		expect('"');
+		StringBuilder result = new StringBuilder();
+		while (true) {
+			if (this.position >= this.text.length())
+				throw new IllegalArgumentException(this.text);
+			char c = this.text.charAt(this.position++);
+			if (c == '"')
+				return result.toString();
+			if (c != '\\') {
+				result.append(c);
+				continue;
+			}
+			if (this.position >= this.text.length())
+				throw new IllegalArgumentException(this.text);
+			char escaped = this.text.charAt(this.position++);
+			switch (escaped) {
+			case 'n':
+				result.append('\n');
+				break;
+			case 't':
+				result.append('\t');
+				break;
+			case 'r':
+				result.append('\r');
+				break;
+			case 'b':
+				result.append('\b');
+				break;
+			case 'f':
+				result.append('\f');
+				break;
+			case 'u':
+				if (this.position + 4 > this.text.length())
+					throw new IllegalArgumentException(this.text);
+				try {
+					result.append((char) Integer.parseInt(this.text.substring(this.position, this.position + 4), 16));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(this.text);
+				}
+				this.position += 4;
+				break;
+			default:
+				result.append(escaped);
+			}
+		}
+	}
+}
@@ -55,7 +55,9 @@ public class Book extends Publication {
 		if(this.isTerminated()){
 			throw new IllegalStateException();
 		}
+		String oldPublisher = this.publisher;
 		this.publisher = publisherName;
+		fireAttributeChanged(PublicationAttribute.PUBLISHER, oldPublisher);
 	}
 	
 
@@ -83,7 +85,9 @@ public class Book extends Publication {
 		//	throw new IllegalWeightException(weight);}
 		if (! isValidWeight(weight)){
 					throw new IllegalWeightException(weight);}
+		double oldWeight = Book.weight;
 		Book.weight = weight;
+		fireWeightChanged(Book.class, oldWeight, weight);
 	}
 	/**
 	 * The weigh of book when calculate citation index.
@@ -60,8 +60,9 @@ public class ConferencePaper extends Publication {
 		if(this.isTerminated()){
 			throw new IllegalStateException();
 		}
-		if(!isTerminated())
+		String oldConference = this.conference;
 		this.conference = conferenceName;
+		fireAttributeChanged(PublicationAttribute.CONFERENCE, oldConference);
 	}
 	
 	/**
@@ -89,7 +90,9 @@ public class ConferencePaper extends Publication {
 	public static void setWeight(double weight) throws IllegalWeightException{
 		if (! isValidWeight(weight)){
 			throw new IllegalWeightException(weight);}
+		double oldWeight = ConferencePaper.weight;
 		ConferencePaper.weight = weight;
+		fireWeightChanged(ConferencePaper.class, oldWeight, weight);
 	}
 	
 	/**
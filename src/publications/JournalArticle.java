@@ -71,7 +71,9 @@ public class JournalArticle extends Publication {
 		if(this.isTerminated()){
 			throw new IllegalStateException();
 		}
+		String oldJournal = this.journal;
 		this.journal = journal;
+		fireAttributeChanged(PublicationAttribute.JOURNAL, oldJournal);
 	}
 
 	/**
@@ -115,7 +117,9 @@ public class JournalArticle extends Publication {
 			throw new IllegalIssueNumberException(issueNumber);
 		} else {
 			if(!isTerminated());
+			int oldIssueNumber = this.issueNumber;
 			this.issueNumber = issueNumber;
+			fireAttributeChanged(PublicationAttribute.ISSUE_NUMBER, oldIssueNumber);
 		}
 
 	}
@@ -144,7 +148,9 @@ public class JournalArticle extends Publication {
 	public static void setWeight(double weight) throws IllegalWeightException{
 		if (! isValidWeight(weight)){
 			throw new IllegalWeightException(weight);}
+		double oldWeight = JournalArticle.weight;
 		JournalArticle.weight = weight;
+		fireWeightChanged(JournalArticle.class, oldWeight, weight);
 	}
 	
 	/**
@@ -1,8 +1,13 @@
 package publications;
 
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Model;
@@ -82,6 +87,92 @@ public abstract class Publication {
 		this.isTerminated = true;
 	}
 
+	/**
+	 * Terminate all the given publications at once.
+	 * 
+	 * The whole batch is marked as terminated first, so no citation to or
+	 * from it can be added while it is dismantled. The publications outside
+	 * the batch that cite, or are cited by, many publications of the batch
+	 * then have their citation sets swept once, instead of being searched
+	 * for each citation; the other citations are removed one by one. Each
+	 * removed citation is still reported to the listeners, after it has been
+	 * removed from both publications.
+	 * 
+	 * @param publications
+	 *            The publications to be terminated.
+	 * @post Each of the given publications is terminated.
+	 * @post No publication is attached any longer to the cites set and citedBy
+	 *       set of the given publications, and those publications are removed
+	 *       from the cites and citedBy sets of all other publications.
+	 */
+	public static void terminateAll(Collection<? extends Publication> publications) {
+		Set<Publication> batch = new HashSet<Publication>();
+		for (Publication publication : publications)
+			if (publication != null && !publication.isTerminated())
+				batch.add(publication);
+		Map<Publication, Integer> hits = new HashMap<Publication, Integer>();
+		for (Publication publication : batch) {
+			publication.isTerminated = true;
+			for (Publication other : publication.cites)
+				countHit(hits, batch, other);
+			for (Publication other : publication.citedBy)
+				countHit(hits, batch, other);
+		}
+		for (Map.Entry<Publication, Integer> entry : hits.entrySet()) {
+			Publication other = entry.getKey();
+			if (entry.getValue() * SWEEP_RATIO < other.cites.size() + other.citedBy.size())
+				continue;
+			for (Iterator<Publication> iterator = other.citedBy.iterator(); iterator.hasNext();) {
+				Publication citing = iterator.next();
+				if (batch.contains(citing)) {
+					iterator.remove();
+					citing.cites.remove(other);
+					fireCitationRemoved(citing, other);
+				}
+			}
+			for (Iterator<Publication> iterator = other.cites.iterator(); iterator.hasNext();) {
+				Publication cited = iterator.next();
+				if (batch.contains(cited)) {
+					iterator.remove();
+					cited.citedBy.remove(other);
+					fireCitationRemoved(other, cited);
+				}
+			}
+		}
+		for (Publication publication : batch) {
+			for (Iterator<Publication> iterator = publication.cites.iterator(); iterator.hasNext();) {
+				Publication cited = iterator.next();
+				iterator.remove();
+				cited.citedBy.remove(publication);
+				fireCitationRemoved(publication, cited);
+			}
+			for (Iterator<Publication> iterator = publication.citedBy.iterator(); iterator.hasNext();) {
+				Publication citing = iterator.next();
+				iterator.remove();
+				citing.cites.remove(publication);
+				fireCitationRemoved(citing, publication);
+			}
+		}
+	}
+
+	/**
+	 * Count one more citation between the given publication and the given
+	 * batch, if that publication is not in the batch.
+	 */
+	private static void countHit(Map<Publication, Integer> hits, Set<Publication> batch, Publication other) {
+		if (!batch.contains(other)) {
+			Integer count = hits.get(other);
+			hits.put(other, count == null ? 1 : count + 1);
+		}
+	}
+
+	/**
+	 * The ratio of the size of the citation sets of a publication to its
+	 * number of citations with a batch, below which terminateAll sweeps
+	 * those sets.
+	 */
+	private static final int SWEEP_RATIO = 4;
+
 	/**
 	 * Variable registering whether or not this publication is terminated.
 	 * 
@@ -108,7 +199,9 @@ public abstract class Publication {
 	public void setTitle(String title) {
 		if (this.isTerminated())
 			throw new IllegalStateException();
+		String oldTitle = this.title;
 		this.title = title;
+		fireAttributeChanged(PublicationAttribute.TITLE, oldTitle);
 	}
 
 	/**
@@ -168,7 +261,9 @@ public abstract class Publication {
 		if (!isValidAuthors(authors)) {
 			throw new IllegalAuthorException(authors);
 		} else {
+			String[] oldAuthors = this.authors;
 			this.authors = authors;
+			fireAttributeChanged(PublicationAttribute.AUTHORS, oldAuthors);
 		}
 	}
 
@@ -189,13 +284,26 @@ public abstract class Publication {
 	public String[] getAuthorsNames() {
 		String[] AuthorsShortNames = new String[this.getAuthorsNumber()];
 		for (int i = 0; i < this.getAuthorsNumber(); i++) {
-			AuthorsShortNames[i] = this.getAuthors()[i].split(", ")[1].substring(0, 1).toUpperCase() + ". "
-					+ this.getAuthors()[i].split(", ")[0];
+			AuthorsShortNames[i] = getShortName(this.getAuthors()[i]);
 		}
 
 		return AuthorsShortNames;
 	}
 
+	/**
+	 * Return the given author name, given as last name, first name, e.g.,
+	 * "Einstein, Albert", as the author's initial and the last name, e.g.,
+	 * "A. Einstein".
+	 * 
+	 * @param author
+	 *            A valid author name.
+	 * @return The short name of the given author.
+	 */
+	public static String getShortName(String author) {
+		String[] parts = author.split(", ");
+		return parts[1].substring(0, 1).toUpperCase() + ". " + parts[0];
+	}
+
 	/**
 	 * Variable registering the authors of the publication.
 	 */
@@ -238,7 +346,9 @@ public abstract class Publication {
 		if (!isValidYear(year)) {
 			throw new IllegalYearException(year);
 		} else {
+			int oldYear = this.year;
 			this.year = year;
+			fireAttributeChanged(PublicationAttribute.YEAR, oldYear);
 		}
 	}
 
@@ -306,6 +416,16 @@ public abstract class Publication {
 		return new HashSet<Publication>(this.cites);
 	}
 
+	/**
+	 * Return the number of publications cited by this publication, without
+	 * copying the cites set.
+	 * 
+	 * @return the size of the set returned by getAllCites().
+	 */
+	public int getCitesNumber() {
+		return this.cites.size();
+	}
+
 	/**
 	 * Check whether this publication can cite the given publication.
 	 * 
@@ -336,8 +456,10 @@ public abstract class Publication {
 	public void addAsCites(Publication publication) throws IllegalArgumentException {
 		if (!canCites(publication))
 			throw new IllegalArgumentException();
-		this.cites.add(publication);
-		publication.citedBy.add(this);
+		if (this.cites.add(publication)) {
+			publication.citedBy.add(this);
+			fireCitationAdded(this, publication);
+		}
 	}
 
 	/**
@@ -367,6 +489,7 @@ public abstract class Publication {
 		if (alreadyCites(publication)) {
 			this.cites.remove(publication);
 			publication.citedBy.remove(this);
+			fireCitationRemoved(this, publication);
 		}
 	}
 
@@ -418,6 +541,16 @@ public abstract class Publication {
 		return new HashSet<Publication>(this.citedBy);
 	}
 
+	/**
+	 * Return the number of publications that cite this publication, without
+	 * copying the citedBy set.
+	 * 
+	 * @return the size of the set returned by getAllCitedBy().
+	 */
+	public int getCitedByNumber() {
+		return this.citedBy.size();
+	}
+
 	/**
 	 * Check whether this publication can be cited by the given publication.
 	 * 
@@ -447,8 +580,10 @@ public abstract class Publication {
 	public void addAsCitedBy(Publication publication) throws IllegalArgumentException {
 		if (!canBeCitedBy(publication))
 			throw new IllegalArgumentException();
-		this.citedBy.add(publication);
-		publication.cites.add(this);
+		if (this.citedBy.add(publication)) {
+			publication.cites.add(this);
+			fireCitationAdded(publication, this);
+		}
 	}
 
 	/**
@@ -467,6 +602,7 @@ public abstract class Publication {
 		if (alreadyCitedBy(publication)) {
 			this.citedBy.remove(publication);
 			publication.cites.remove(this);
+			fireCitationRemoved(publication, this);
 		}
 	}
 
@@ -524,6 +660,113 @@ public abstract class Publication {
 	 */
 	private int id = -1;
 
+	/**
+	 * Return the listener that is notified of the changes of this
+	 * publication.
+	 * 
+	 * @return The listener of this publication, or null if this publication
+	 *         has no listener.
+	 */
+	@Basic
+	public PublicationListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Set the listener that is notified of the changes of this publication.
+	 * A reference database registers itself as listener of the publications
+	 * attached to it.
+	 * 
+	 * @param listener
+	 *            The listener to be set, or null to remove the listener.
+	 * @post The listener of this publication is equal to the given listener.
+	 */
+	@Basic
+	public void setListener(PublicationListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Notify the listener of this publication that the given attribute has
+	 * been changed.
+	 * 
+	 * @param attribute
+	 *            The attribute that has been changed.
+	 * @param oldValue
+	 *            The value of the attribute before the change.
+	 */
+	protected void fireAttributeChanged(PublicationAttribute attribute, Object oldValue) {
+		if (this.listener != null)
+			this.listener.attributeChanged(this, attribute, oldValue);
+	}
+
+	/**
+	 * Notify the listeners of the given publications that the citing
+	 * publication now cites the cited publication.
+	 */
+	private static void fireCitationAdded(Publication citing, Publication cited) {
+		if (citing.listener != null)
+			citing.listener.citationAdded(citing, cited);
+		if (cited.listener != null && cited.listener != citing.listener)
+			cited.listener.citationAdded(citing, cited);
+	}
+
+	/**
+	 * Notify the listeners of the given publications that the citing
+	 * publication no longer cites the cited publication.
+	 */
+	private static void fireCitationRemoved(Publication citing, Publication cited) {
+		if (citing.listener != null)
+			citing.listener.citationRemoved(citing, cited);
+		if (cited.listener != null && cited.listener != citing.listener)
+			cited.listener.citationRemoved(citing, cited);
+	}
+
+	/**
+	 * Variable registering the listener of this publication.
+	 */
+	private PublicationListener listener;
+
+	/**
+	 * Register the given listener, so it is notified of all changes of the
+	 * weights of the types of publications.
+	 * 
+	 * @param listener
+	 *            The listener to be registered.
+	 * @throws IllegalArgumentException
+	 *             The given listener is not effective.
+	 */
+	public static void addWeightListener(WeightListener listener) throws IllegalArgumentException {
+		if (listener == null)
+			throw new IllegalArgumentException();
+		weightListeners.addIfAbsent(listener);
+	}
+
+	/**
+	 * Unregister the given weight listener.
+	 * 
+	 * @param listener
+	 *            The listener to be unregistered.
+	 */
+	public static void removeWeightListener(WeightListener listener) {
+		weightListeners.remove(listener);
+	}
+
+	/**
+	 * Notify the weight listeners that the weight of the given type has been
+	 * changed, if it has.
+	 */
+	protected static void fireWeightChanged(Class<? extends Publication> type, double oldWeight, double newWeight) {
+		if (oldWeight != newWeight)
+			for (WeightListener listener : weightListeners)
+				listener.weightChanged(type, oldWeight, newWeight);
+	}
+
+	/**
+	 * List collecting the registered weight listeners.
+	 */
+	private static final CopyOnWriteArrayList<WeightListener> weightListeners = new CopyOnWriteArrayList<WeightListener>();
+
 	/**
 	 * 
 	 * Return the weight of the publication when calculate citation index.
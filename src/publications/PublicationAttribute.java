@@ -0,0 +1,46 @@
+package publications;
+
+/**
+ * An enumeration of the attributes of a publication that can be changed by
+ * its setters.
+ * 
+ * @version 1.0
+ * @author wangbo
+ */
+public enum PublicationAttribute {
+
+	/**
+	 * The title of a publication.
+	 */
+	TITLE,
+
+	/**
+	 * The authors of a publication.
+	 */
+	AUTHORS,
+
+	/**
+	 * The year of a publication.
+	 */
+	YEAR,
+
+	/**
+	 * The journal of a journal article.
+	 */
+	JOURNAL,
+
+	/**
+	 * The issue number of a journal article.
+	 */
+	ISSUE_NUMBER,
+
+	/**
+	 * The publisher of a book.
+	 */
+	PUBLISHER,
+
+	/**
+	 * The conference of a conference paper.
+	 */
+	CONFERENCE;
+}
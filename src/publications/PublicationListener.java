@@ -0,0 +1,46 @@
+package publications;
+
+/**
+ * An interface of listeners that are notified of the changes of the
+ * publications they are attached to.
+ * 
+ * @version 1.0
+ * @author wangbo
+ */
+public interface PublicationListener {
+
+	/**
+	 * Notify this listener that the citing publication now cites the cited
+	 * publication.
+	 * 
+	 * @param citing
+	 *            The publication that cites.
+	 * @param cited
+	 *            The publication that is cited.
+	 */
+	void citationAdded(Publication citing, Publication cited);
+
+	/**
+	 * Notify this listener that the citing publication no longer cites the
+	 * cited publication.
+	 * 
+	 * @param citing
+	 *            The publication that cited.
+	 * @param cited
+	 *            The publication that was cited.
+	 */
+	void citationRemoved(Publication citing, Publication cited);
+
+	/**
+	 * Notify this listener that an attribute of the given publication has
+	 * been changed.
+	 * 
+	 * @param publication
+	 *            The publication that has been changed.
+	 * @param attribute
+	 *            The attribute that has been changed.
+	 * @param oldValue
+	 *            The value of the attribute before the change.
+	 */
+	void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue);
+}
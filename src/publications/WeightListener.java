@@ -0,0 +1,26 @@
+package publications;
+
+/**
+ * An interface of listeners that are notified of the changes of the weights
+ * of the types of publications. Since the weights are shared by all
+ * publications of a type, these listeners are registered with the
+ * Publication class itself.
+ * 
+ * @version 1.0
+ * @author wangbo
+ */
+public interface WeightListener {
+
+	/**
+	 * Notify this listener that the weight of the given type of publications
+	 * has been changed.
+	 * 
+	 * @param type
+	 *            The type of publications whose weight has been changed.
+	 * @param oldWeight
+	 *            The weight before the change.
+	 * @param newWeight
+	 *            The weight after the change.
+	 */
+	void weightChanged(Class<? extends Publication> type, double oldWeight, double newWeight);
+}
@@ -0,0 +1,386 @@
+package referenceDB;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of impact indices of the authors of a reference database.
+ *
+ * The h-index of an author is the largest number h such that h of the
+ * author's publications are each cited at least h times. The g-index is the
+ * largest number g, at most the number of the author's publications, such
+ * that the g most cited publications of the author are cited at least g^2
+ * times together.
+ *
+ * For each author the number of publications per citation count is kept in
+ * count buckets, together with the current indices. Since each notification
+ * of the database changes a citation count by one, or adds or removes one
+ * publication, the indices only move to neighbouring buckets, and reading
+ * them takes constant time.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class AuthorImpactIndex extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new impact index with all the publications of the given
+	 * database, and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database whose authors are indexed.
+	 * @post This index is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public AuthorImpactIndex(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		for (Publication publication : dataBase.getAllPublications())
+			publicationAdded(publication);
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this index.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this index.
+	 *
+	 * @post This index is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Return the h-index of the given author.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @return The h-index of the author, or 0 if the author is unknown.
+	 */
+	public int getHIndex(String authorName) {
+		Impact impact = this.impacts.get(authorName);
+		return impact == null ? 0 : impact.h;
+	}
+
+	/**
+	 * Return the g-index of the given author.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @return The g-index of the author, or 0 if the author is unknown.
+	 */
+	public int getGIndex(String authorName) {
+		Impact impact = this.impacts.get(authorName);
+		return impact == null ? 0 : impact.g;
+	}
+
+	/**
+	 * Return the h-index of all authors.
+	 *
+	 * @return A map from the names of all authors with at least one
+	 *         publication to their h-index.
+	 */
+	public Map<String, Integer> getAllHIndices() {
+		Map<String, Integer> result = new HashMap<String, Integer>(this.impacts.size() * 2);
+		for (Map.Entry<String, Impact> entry : this.impacts.entrySet())
+			result.put(entry.getKey(), entry.getValue().h);
+		return result;
+	}
+
+	/**
+	 * Return the g-index of all authors.
+	 *
+	 * @return A map from the names of all authors with at least one
+	 *         publication to their g-index.
+	 */
+	public Map<String, Integer> getAllGIndices() {
+		Map<String, Integer> result = new HashMap<String, Integer>(this.impacts.size() * 2);
+		for (Map.Entry<String, Impact> entry : this.impacts.entrySet())
+			result.put(entry.getKey(), entry.getValue().g);
+		return result;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		int count = publication.getCitedByNumber();
+		for (String name : authorNames(publication.getAuthors()))
+			impactOf(name).addPublication(count);
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		removeAuthors(publication.getAuthors(), publication.getCitedByNumber());
+	}
+
+	@Override
+	public void citationAdded(Publication citing, Publication cited) {
+		if (!this.dataBase.isAttached(cited))
+			return;
+		int count = cited.getCitedByNumber() - 1;
+		for (String name : authorNames(cited.getAuthors()))
+			impactOf(name).increment(count);
+	}
+
+	@Override
+	public void citationRemoved(Publication citing, Publication cited) {
+		if (!this.dataBase.isAttached(cited))
+			return;
+		int count = cited.getCitedByNumber() + 1;
+		for (String name : authorNames(cited.getAuthors()))
+			impactOf(name).decrement(count);
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (attribute == PublicationAttribute.AUTHORS) {
+			removeAuthors((String[]) oldValue, publication.getCitedByNumber());
+			publicationAdded(publication);
+		}
+	}
+
+	/**
+	 * Remove a publication with the given number of citations from each of
+	 * the given authors, and forget the authors without publications.
+	 */
+	private void removeAuthors(String[] authors, int count) {
+		for (String name : authorNames(authors)) {
+			Impact impact = impactOf(name);
+			impact.removePublication(count);
+			if (impact.publications == 0)
+				this.impacts.remove(name);
+		}
+	}
+
+	private Impact impactOf(String name) {
+		Impact impact = this.impacts.get(name);
+		if (impact == null) {
+			impact = new Impact();
+			this.impacts.put(name, impact);
+		}
+		return impact;
+	}
+
+	/**
+	 * Return the distinct short names of the given author names.
+	 */
+	private static Set<String> authorNames(String[] authors) {
+		Set<String> names = new LinkedHashSet<String>();
+		for (String author : authors)
+			names.add(Publication.getShortName(author));
+		return names;
+	}
+
+	/**
+	 * A class of impact states of a single author.
+	 *
+	 * @invar buckets[c] is the number of publications of the author cited c
+	 *        times.
+	 * @invar above is the number of publications cited more than h times.
+	 * @invar The g most cited publications are all publications cited more
+	 *        than boundary times, and taken of those cited exactly boundary
+	 *        times. Their citations sum to topSum.
+	 */
+	static class Impact {
+
+		void addPublication(int count) {
+			ensure(count);
+			this.buckets[count]++;
+			this.publications++;
+			if (count > this.h)
+				this.above++;
+			if (this.g > 0 && count > this.boundary) {
+				// The new publication replaces one cited boundary times.
+				this.topSum += count - this.boundary;
+				if (--this.taken == 0)
+					raiseBoundary();
+			}
+			settle();
+		}
+
+		void removePublication(int count) {
+			if (count > this.h)
+				this.above--;
+			boolean inTop = this.g > 0
+					&& (count > this.boundary || (count == this.boundary && this.taken == this.buckets[count]));
+			this.buckets[count]--;
+			this.publications--;
+			if (inTop) {
+				this.topSum -= count;
+				if (count == this.boundary)
+					this.taken--;
+				refill();
+			}
+			settle();
+		}
+
+		void increment(int count) {
+			ensure(count + 1);
+			this.buckets[count]--;
+			this.buckets[count + 1]++;
+			if (count == this.h)
+				this.above++;
+			if (this.g > 0 && count >= this.boundary) {
+				// A publication cited boundary times is in the top, so the
+				// incremented one can always be taken as a top one.
+				this.topSum++;
+				if (count == this.boundary && --this.taken == 0)
+					raiseBoundary();
+			}
+			settle();
+		}
+
+		void decrement(int count) {
+			boolean allTaken = this.g > 0 && this.taken == this.buckets[count];
+			this.buckets[count]--;
+			this.buckets[count - 1]++;
+			if (count == this.h + 1)
+				this.above--;
+			if (this.g > 0) {
+				if (count > this.boundary) {
+					this.topSum--;
+					if (count - 1 == this.boundary)
+						this.taken++;
+				} else if (count == this.boundary && allTaken) {
+					// The decremented publication stays in the top: nothing
+					// outside the top is cited more than boundary - 1 times.
+					this.topSum--;
+					this.boundary = count - 1;
+					this.taken = 1;
+				}
+			}
+			settle();
+		}
+
+		/**
+		 * Move h and g to their correct values, one bucket at a time.
+		 */
+		private void settle() {
+			while (this.above >= this.h + 1) {
+				this.h++;
+				this.above -= this.buckets[this.h];
+			}
+			while (this.h > 0 && this.above + this.buckets[this.h] < this.h) {
+				this.above += this.buckets[this.h];
+				this.h--;
+			}
+			while (this.g < this.publications) {
+				int next = nextValue();
+				if (this.topSum + next < (long) (this.g + 1) * (this.g + 1))
+					break;
+				if (this.g > 0 && next == this.boundary) {
+					this.taken++;
+				} else {
+					this.boundary = next;
+					this.taken = 1;
+				}
+				this.topSum += next;
+				this.g++;
+			}
+			while (this.g > 0 && this.topSum < (long) this.g * this.g) {
+				this.topSum -= this.boundary;
+				this.g--;
+				if (--this.taken == 0)
+					raiseBoundary();
+			}
+		}
+
+		/**
+		 * Complete the top after it lost a publication, with the most cited
+		 * publication outside the top, if any.
+		 */
+		private void refill() {
+			if (this.taken < this.buckets[this.boundary]) {
+				this.taken++;
+				this.topSum += this.boundary;
+				return;
+			}
+			int lower = nextLower(this.boundary);
+			if (lower >= 0) {
+				this.boundary = lower;
+				this.taken = 1;
+				this.topSum += lower;
+			} else {
+				this.g--;
+				if (this.taken == 0)
+					raiseBoundary();
+			}
+		}
+
+		/**
+		 * Return the citation count of the publication that would join the
+		 * top next.
+		 */
+		private int nextValue() {
+			if (this.g > 0 && this.taken < this.buckets[this.boundary])
+				return this.boundary;
+			return nextLower(this.g == 0 ? this.buckets.length : this.boundary);
+		}
+
+		/**
+		 * Return the highest citation count below the given count with at
+		 * least one publication, or -1 if there is none.
+		 */
+		private int nextLower(int count) {
+			for (int c = count - 1; c >= 0; c--)
+				if (this.buckets[c] > 0)
+					return c;
+			return -1;
+		}
+
+		/**
+		 * Move the boundary up to the lowest count above it with at least one
+		 * publication, all of which are in the top.
+		 */
+		private void raiseBoundary() {
+			if (this.g == 0) {
+				this.boundary = 0;
+				this.taken = 0;
+				return;
+			}
+			int c = this.boundary + 1;
+			while (this.buckets[c] == 0)
+				c++;
+			this.boundary = c;
+			this.taken = this.buckets[c];
+		}
+
+		private void ensure(int count) {
+			if (count + 1 >= this.buckets.length)
+				this.buckets = Arrays.copyOf(this.buckets, Math.max(count + 2, this.buckets.length * 2));
+		}
+
+		int[] buckets = new int[8];
+
+		int publications;
+
+		int h, above;
+
+		int g, boundary, taken;
+
+		long topSum;
+	}
+
+	/**
+	 * Map registering the impact state of each author with at least one
+	 * publication.
+	 */
+	private final Map<String, Impact> impacts = new HashMap<String, Impact>();
+}
@@ -0,0 +1,126 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class AuthorImpactIndexTest {
+
+	private ReferenceDataBase DB;
+	private AuthorImpactIndex index;
+	private Publication[] papers;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		DB = new ReferenceDataBase();
+		papers = new Publication[6];
+		for (int i = 0; i < papers.length; i++) {
+			papers[i] = new JournalArticle("paper" + i, authors, "journal of MEMS", 123, 2000 + i);
+			DB.addAsPublication(papers[i]);
+		}
+		index = new AuthorImpactIndex(DB);
+	}
+
+	@Test
+	public void getHIndex_andGIndex() throws Exception {
+		// Citation counts 3, 3, 2, 1, 0, 0.
+		papers[5].addAsCites(papers[0]);
+		papers[4].addAsCites(papers[0]);
+		papers[3].addAsCites(papers[0]);
+		papers[5].addAsCites(papers[1]);
+		papers[4].addAsCites(papers[1]);
+		papers[3].addAsCites(papers[1]);
+		papers[5].addAsCites(papers[2]);
+		papers[4].addAsCites(papers[2]);
+		papers[5].addAsCites(papers[3]);
+		assertEquals(2, index.getHIndex("B. Wang"));
+		assertEquals(2, index.getGIndex("B. Wang"));
+		papers[4].addAsCites(papers[3]);
+		assertEquals(2, index.getHIndex("B. Wang"));
+		papers[3].addAsCites(papers[2]);
+		assertEquals(3, index.getHIndex("B. Wang"));
+		DB.removePublication(papers[5]);
+		assertEquals(2, index.getHIndex("B. Wang"));
+		assertEquals(0, index.getHIndex("A. Einstein"));
+	}
+
+	@Test
+	public void getAllIndices_afterSetAuthors() throws Exception {
+		papers[5].addAsCites(papers[0]);
+		papers[0].setAuthors(new String[] { "Einstein, Albert" });
+		Map<String, Integer> hIndices = index.getAllHIndices();
+		assertEquals(Integer.valueOf(1), hIndices.get("A. Einstein"));
+		assertEquals(Integer.valueOf(0), hIndices.get("B. Wang"));
+		assertEquals(Integer.valueOf(1), index.getAllGIndices().get("A. Einstein"));
+	}
+
+	@Test
+	public void randomizedAgainstRecomputation() throws Exception {
+		Random random = new Random(7);
+		String[][] pools = { { "Wang, Bo" }, { "Wang, Bo", "Ou, Helen" }, { "Ou, Helen", "Mao, Shengping" } };
+		List<Publication> all = new ArrayList<Publication>(Arrays.asList(papers));
+		for (int step = 0; step < 3000; step++) {
+			int action = random.nextInt(10);
+			if (action == 0 || all.size() < 2) {
+				Publication publication = new Book("book" + step, pools[random.nextInt(pools.length)],
+						1900 + random.nextInt(100), "acco");
+				DB.addAsPublication(publication);
+				all.add(publication);
+			} else if (action == 1) {
+				DB.removePublication(all.remove(random.nextInt(all.size())));
+			} else if (action < 6) {
+				Publication citing = all.get(random.nextInt(all.size()));
+				Publication cited = all.get(random.nextInt(all.size()));
+				if (citing.canCites(cited))
+					citing.addAsCites(cited);
+			} else {
+				Publication citing = all.get(random.nextInt(all.size()));
+				List<Publication> cites = new ArrayList<Publication>(citing.getAllCites());
+				if (!cites.isEmpty())
+					citing.removeAsCites(cites.get(random.nextInt(cites.size())));
+			}
+			for (String author : new String[] { "B. Wang", "H. Ou", "S. Mao" }) {
+				List<Integer> counts = new ArrayList<Integer>();
+				for (Publication publication : DB.findByAuthor(author))
+					counts.add(publication.getCitedByNumber());
+				assertEquals(hIndex(counts), index.getHIndex(author));
+				assertEquals(gIndex(counts), index.getGIndex(author));
+			}
+		}
+	}
+
+	private static int hIndex(List<Integer> counts) {
+		Integer[] sorted = counts.toArray(new Integer[0]);
+		Arrays.sort(sorted, Collections.reverseOrder());
+		int h = 0;
+		while (h < sorted.length && sorted[h] >= h + 1)
+			h++;
+		return h;
+	}
+
+	private static int gIndex(List<Integer> counts) {
+		Integer[] sorted = counts.toArray(new Integer[0]);
+		Arrays.sort(sorted, Collections.reverseOrder());
+		int g = 0;
+		long sum = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			sum += sorted[i];
+			if (sum >= (long) (i + 1) * (i + 1))
+				g = i + 1;
+		}
+		return g;
+	}
+}
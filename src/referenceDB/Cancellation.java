@@ -0,0 +1,41 @@
+package referenceDB;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * A class of checks letting the long-running queries of the views stop when
+ * the thread running them is interrupted, e.g. by a server whose timeout has
+ * expired, instead of running to completion for nobody.
+ *
+ * A query calls check with the number of steps it has taken so far; only one
+ * step in STEPS actually reads the interrupt status of the thread.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+final class Cancellation {
+
+	private Cancellation() {
+	}
+
+	/**
+	 * Check whether the query running on the current thread has to stop.
+	 *
+	 * @param step
+	 *            The number of steps the query has taken so far.
+	 * @throws CancellationException
+	 *             The given step is a multiple of STEPS and the current
+	 *             thread has been interrupted. The interrupt status of the
+	 *             thread is left set.
+	 */
+	static void check(int step) throws CancellationException {
+		if ((step & (STEPS - 1)) == 0 && Thread.currentThread().isInterrupted())
+			throw new CancellationException("The query was interrupted");
+	}
+
+	/**
+	 * The number of steps between two reads of the interrupt status; a power
+	 * of two.
+	 */
+	static final int STEPS = 1024;
+}
@@ -0,0 +1,184 @@
+package referenceDB;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of immutable events of a change feed, each describing one change
+ * of a reference database or of the weights of the publications.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+@Immutable
+public final class ChangeEvent {
+
+	/**
+	 * An enumeration of the kinds of changes.
+	 */
+	public enum Kind {
+		PUBLICATION_ADDED, PUBLICATION_REMOVED, CITATION_ADDED, CITATION_REMOVED, ATTRIBUTE_CHANGED, WEIGHT_CHANGED
+	}
+
+	ChangeEvent(long sequence, Kind kind, int publicationId, int citedId, PublicationAttribute attribute,
+			Object oldValue, Object newValue, PublicationRecord record, Class<? extends Publication> type) {
+		this.sequence = sequence;
+		this.kind = kind;
+		this.publicationId = publicationId;
+		this.citedId = citedId;
+		this.attribute = attribute;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+		this.record = record;
+		this.type = type;
+	}
+
+	/**
+	 * Return the sequence number of this event. The events of a feed have
+	 * consecutive sequence numbers from 1, in the order of the changes.
+	 */
+	@Basic
+	public long getSequence() {
+		return sequence;
+	}
+
+	private final long sequence;
+
+	/**
+	 * Return the kind of change of this event.
+	 */
+	@Basic
+	public Kind getKind() {
+		return kind;
+	}
+
+	private final Kind kind;
+
+	/**
+	 * Return the ID of the publication that has been added, removed or
+	 * changed, or of the citing publication, or -1 for a weight change.
+	 */
+	@Basic
+	public int getPublicationId() {
+		return publicationId;
+	}
+
+	private final int publicationId;
+
+	/**
+	 * Return the ID of the cited publication of a citation change, or -1 for
+	 * other changes.
+	 */
+	@Basic
+	public int getCitedId() {
+		return citedId;
+	}
+
+	private final int citedId;
+
+	/**
+	 * Return the changed attribute of an attribute change, or null for other
+	 * changes.
+	 */
+	@Basic
+	public PublicationAttribute getAttribute() {
+		return attribute;
+	}
+
+	private final PublicationAttribute attribute;
+
+	/**
+	 * Return the value before an attribute or weight change, or null for
+	 * other changes. Authors are returned as a copy.
+	 */
+	public Object getOldValue() {
+		return oldValue instanceof String[] ? ((String[]) oldValue).clone() : oldValue;
+	}
+
+	private final Object oldValue;
+
+	/**
+	 * Return the value after an attribute or weight change, or the weight of
+	 * the type of an added publication, or null for other changes. Authors
+	 * are returned as a copy.
+	 */
+	public Object getNewValue() {
+		return newValue instanceof String[] ? ((String[]) newValue).clone() : newValue;
+	}
+
+	private final Object newValue;
+
+	/**
+	 * Return the record of the added publication, as it was added, or null for
+	 * other changes.
+	 */
+	@Basic
+	public PublicationRecord getRecord() {
+		return record;
+	}
+
+	private final PublicationRecord record;
+
+	/**
+	 * Return the type of publications whose weight has been changed, or null
+	 * for other changes.
+	 */
+	@Basic
+	public Class<? extends Publication> getType() {
+		return type;
+	}
+
+	private final Class<? extends Publication> type;
+
+	/**
+	 * Write this event to the given output, to be read back with readFrom.
+	 *
+	 * @throws IOException
+	 *             The output could not be written.
+	 */
+	public void writeTo(DataOutput output) throws IOException {
+		output.writeLong(this.sequence);
+		output.writeByte(this.kind.ordinal());
+		output.writeInt(this.publicationId);
+		output.writeInt(this.citedId);
+		output.writeByte(this.attribute == null ? -1 : this.attribute.ordinal());
+		PublicationRecord.writeValue(output, this.oldValue);
+		PublicationRecord.writeValue(output, this.newValue);
+		output.writeBoolean(this.record != null);
+		if (this.record != null)
+			this.record.writeTo(output);
+		output.writeUTF(this.type == null ? "" : this.type.getName());
+	}
+
+	/**
+	 * Return an event read from the given input, as written by writeTo.
+	 *
+	 * @throws IOException
+	 *             The input could not be read, or does not hold an event.
+	 */
+	public static ChangeEvent readFrom(DataInput input) throws IOException {
+		long sequence = input.readLong();
+		Kind kind = Kind.values()[input.readByte()];
+		int publicationId = input.readInt();
+		int citedId = input.readInt();
+		int attribute = input.readByte();
+		Object oldValue = PublicationRecord.readValue(input);
+		Object newValue = PublicationRecord.readValue(input);
+		PublicationRecord record = input.readBoolean() ? PublicationRecord.readFrom(input) : null;
+		String type = input.readUTF();
+		return new ChangeEvent(sequence, kind, publicationId, citedId,
+				attribute < 0 ? null : PublicationAttribute.values()[attribute], oldValue, newValue, record,
+				type.isEmpty() ? null : PublicationRecord.typeNamed(type));
+	}
+
+	@Override
+	public String toString() {
+		return this.sequence + " " + this.kind + " " + this.publicationId;
+	}
+}
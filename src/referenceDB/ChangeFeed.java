@@ -0,0 +1,265 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+import publications.WeightListener;
+
+/**
+ * A class of change feeds of a reference database, recording its changes and
+ * the changes of the weights of the publications as a sequence of immutable
+ * events, so that other threads, e.g. caches or replicas, can follow the
+ * database without comparing dumps of it.
+ *
+ * The events have consecutive sequence numbers from 1, in the order of the
+ * changes. They are kept in a ring buffer of a fixed capacity: recording an
+ * event stores it in its slot and then publishes the new last sequence number
+ * with a volatile write, without any lock, so the thread changing the
+ * database only pays for the creation of the event. That is a few small
+ * objects for most events, but an event adding a publication carries a
+ * record of it, and building that record copies and sorts the IDs of its
+ * citations in both directions and builds the short names of its authors,
+ * in time linear in their number. The record cannot be built later by a
+ * consumer, since the publication may have changed by then. Consumers poll
+ * batches of events from any sequence number on, and so can resume where
+ * they stopped, as long as these events have not yet been overwritten by
+ * later ones. A consumer that has seen all events can wait for the next one
+ * instead of polling again; only while some consumer waits does recording
+ * an event also take a lock, to wake the waiting consumers up.
+ *
+ * Like the database itself, the feed is written by a single thread: the
+ * thread changing the database, which must also be the thread changing the
+ * weights. Any number of threads can poll it.
+ *
+ * @invar The last sequence number of each feed is not below 0.
+ *        | getLastSequence() >= 0
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class ChangeFeed extends DataBaseAdapter implements WeightListener {
+
+	/**
+	 * Initialize this new change feed for the given database, keeping at
+	 * least the given number of events, and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database to be followed.
+	 * @param capacity
+	 *            The minimal number of most recent events to be kept; it is
+	 *            rounded up to a power of two.
+	 * @post This feed is registered as listener of the given database and as
+	 *       weight listener of the publications.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated, or the
+	 *             given capacity is not positive or above 2^30.
+	 */
+	public ChangeFeed(ReferenceDataBase dataBase, int capacity) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated() || capacity <= 0 || capacity > 1 << 30)
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.events = new ChangeEvent[size];
+		this.mask = size - 1;
+		dataBase.addListener(this);
+		Publication.addWeightListener(this);
+	}
+
+	/**
+	 * Return the database of this feed.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this feed. The events recorded so far can still be polled.
+	 *
+	 * @post This feed is no longer registered as listener of its database nor
+	 *       as weight listener of the publications.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+		Publication.removeWeightListener(this);
+	}
+
+	/**
+	 * Return the number of most recent events this feed keeps.
+	 */
+	public int getCapacity() {
+		return this.events.length;
+	}
+
+	/**
+	 * Return the sequence number of the last event of this feed, or 0 if no
+	 * events have been recorded yet.
+	 */
+	public long getLastSequence() {
+		return this.cursor.get();
+	}
+
+	/**
+	 * Return the sequence number of the oldest event this feed still keeps.
+	 *
+	 * @return The last sequence number minus the capacity plus one, but at
+	 *         least 1.
+	 */
+	public long getFirstSequence() {
+		return Math.max(1, getLastSequence() - this.events.length + 1);
+	}
+
+	/**
+	 * Return the events of this feed from the given sequence number on.
+	 *
+	 * @param fromSequence
+	 *            The sequence number of the first event to be returned,
+	 *            typically the last sequence number seen plus one.
+	 * @param maxEvents
+	 *            The maximal number of events to be returned.
+	 * @return The events with consecutive sequence numbers from the given one
+	 *         on, up to the given number of them and up to the last event;
+	 *         an empty list if there are no such events yet.
+	 * @throws IllegalArgumentException
+	 *             The given sequence number or number of events is not
+	 *             positive.
+	 * @throws IllegalStateException
+	 *             Some of the requested events have already been overwritten
+	 *             by later ones; the consumer has to catch up in another way.
+	 */
+	public List<ChangeEvent> poll(long fromSequence, int maxEvents)
+			throws IllegalArgumentException, IllegalStateException {
+		if (fromSequence <= 0 || maxEvents <= 0)
+			throw new IllegalArgumentException();
+		long last = this.cursor.get();
+		if (fromSequence < last - this.events.length + 1)
+			throw new IllegalStateException("Events from " + fromSequence + " are no longer kept");
+		long to = Math.min(last, fromSequence + maxEvents - 1);
+		List<ChangeEvent> result = new ArrayList<ChangeEvent>((int) Math.max(0, to - fromSequence + 1));
+		for (long sequence = fromSequence; sequence <= to; sequence++) {
+			ChangeEvent event = this.events[(int) sequence & this.mask];
+			// The writer may have wrapped around since the cursor was read.
+			if (event.getSequence() != sequence)
+				throw new IllegalStateException("Events from " + fromSequence + " are no longer kept");
+			result.add(event);
+		}
+		return result;
+	}
+
+	/**
+	 * Wait until this feed has an event with the given sequence number, or
+	 * until the given time has passed.
+	 *
+	 * @param sequence
+	 *            The sequence number of the event to wait for.
+	 * @param timeout
+	 *            The maximal time to wait, in milliseconds.
+	 * @return True if and only if the last sequence number of this feed is at
+	 *         least the given one.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public boolean awaitSequence(long sequence, long timeout) throws InterruptedException {
+		if (this.cursor.get() >= sequence)
+			return true;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		this.waiters.incrementAndGet();
+		try {
+			synchronized (this.signal) {
+				// The writer reads the waiters after publishing its event, so
+				// either it sees this waiter or this waiter sees its event.
+				while (this.cursor.get() < sequence) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0)
+						return false;
+					TimeUnit.NANOSECONDS.timedWait(this.signal, remaining);
+				}
+				return true;
+			}
+		} finally {
+			this.waiters.decrementAndGet();
+		}
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		record(ChangeEvent.Kind.PUBLICATION_ADDED, publication.getId(), -1, null, null, publication.getWeight(),
+				new PublicationRecord(publication, this.dataBase), null);
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		record(ChangeEvent.Kind.PUBLICATION_REMOVED, publication.getId(), -1, null, null, null, null, null);
+	}
+
+	@Override
+	public void citationAdded(Publication citing, Publication cited) {
+		if (this.dataBase.isAttached(citing) && this.dataBase.isAttached(cited))
+			record(ChangeEvent.Kind.CITATION_ADDED, citing.getId(), cited.getId(), null, null, null, null, null);
+	}
+
+	@Override
+	public void citationRemoved(Publication citing, Publication cited) {
+		if (this.dataBase.isAttached(citing) && this.dataBase.isAttached(cited))
+			record(ChangeEvent.Kind.CITATION_REMOVED, citing.getId(), cited.getId(), null, null, null, null, null);
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (oldValue instanceof String[])
+			oldValue = ((String[]) oldValue).clone();
+		record(ChangeEvent.Kind.ATTRIBUTE_CHANGED, publication.getId(), -1, attribute, oldValue,
+				PublicationRecord.attributeOf(publication, attribute), null, null);
+	}
+
+	@Override
+	public void weightChanged(Class<? extends Publication> type, double oldWeight, double newWeight) {
+		record(ChangeEvent.Kind.WEIGHT_CHANGED, -1, -1, null, oldWeight, newWeight, null, type);
+	}
+
+	/**
+	 * Record an event with the given content as the next event of this feed.
+	 */
+	private void record(ChangeEvent.Kind kind, int publicationId, int citedId, PublicationAttribute attribute,
+			Object oldValue, Object newValue, PublicationRecord record, Class<? extends Publication> type) {
+		long sequence = this.cursor.get() + 1;
+		this.events[(int) sequence & this.mask] = new ChangeEvent(sequence, kind, publicationId, citedId, attribute,
+				oldValue, newValue, record, type);
+		this.cursor.set(sequence);
+		if (this.waiters.get() > 0)
+			synchronized (this.signal) {
+				this.signal.notifyAll();
+			}
+	}
+
+	/**
+	 * The ring buffer of the events of this feed; the event with sequence
+	 * number s is kept at index s & mask until it is overwritten.
+	 */
+	private final ChangeEvent[] events;
+
+	private final int mask;
+
+	/**
+	 * The sequence number of the last published event.
+	 */
+	private final AtomicLong cursor = new AtomicLong();
+
+	/**
+	 * The number of consumers waiting for events, and the monitor they wait
+	 * on.
+	 */
+	private final AtomicInteger waiters = new AtomicInteger();
+
+	private final Object signal = new Object();
+}
@@ -0,0 +1,157 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+public class ChangeFeedTest {
+
+	private ReferenceDataBase DB;
+	private ChangeFeed feed;
+	private Publication publication1, publication2, publication3;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		JournalArticle.setWeight(1.0);
+		Book.setWeight(1.2);
+		ConferencePaper.setWeight(0.8);
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		feed = new ChangeFeed(DB, 5);
+	}
+
+	@After
+	public void tearDown() {
+		feed.terminate();
+	}
+
+	@Test
+	public void constructor_roundsCapacity() {
+		assertEquals(8, feed.getCapacity());
+		assertEquals(0, feed.getLastSequence());
+		assertEquals(1, feed.getFirstSequence());
+		assertTrue(feed.poll(1, 10).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_illegalCapacity() {
+		new ChangeFeed(DB, 0);
+	}
+
+	@Test
+	public void poll_eventsInOrder() throws Exception {
+		DB.addAsPublication(publication2);
+		publication1.addAsCites(publication2);
+		publication2.setTitle("changed");
+		Book.setWeight(1.5);
+		publication1.removeAsCites(publication2);
+		DB.removePublication(publication2);
+		List<ChangeEvent> events = feed.poll(1, 10);
+		assertEquals(6, events.size());
+		for (int i = 0; i < events.size(); i++)
+			assertEquals(i + 1, events.get(i).getSequence());
+		assertEquals(ChangeEvent.Kind.PUBLICATION_ADDED, events.get(0).getKind());
+		assertEquals(publication2.getId(), events.get(0).getPublicationId());
+		assertEquals("publication2", events.get(0).getRecord().getTitle());
+		assertEquals(ChangeEvent.Kind.CITATION_ADDED, events.get(1).getKind());
+		assertEquals(publication1.getId(), events.get(1).getPublicationId());
+		assertEquals(publication2.getId(), events.get(1).getCitedId());
+		assertEquals(ChangeEvent.Kind.ATTRIBUTE_CHANGED, events.get(2).getKind());
+		assertEquals(PublicationAttribute.TITLE, events.get(2).getAttribute());
+		assertEquals("publication2", events.get(2).getOldValue());
+		assertEquals("changed", events.get(2).getNewValue());
+		assertEquals(ChangeEvent.Kind.WEIGHT_CHANGED, events.get(3).getKind());
+		assertEquals(Book.class, events.get(3).getType());
+		assertEquals(1.2, (Double) events.get(3).getOldValue(), 0.0001);
+		assertEquals(1.5, (Double) events.get(3).getNewValue(), 0.0001);
+		assertEquals(ChangeEvent.Kind.CITATION_REMOVED, events.get(4).getKind());
+		assertEquals(ChangeEvent.Kind.PUBLICATION_REMOVED, events.get(5).getKind());
+		assertNull(events.get(5).getRecord());
+	}
+
+	@Test
+	public void poll_authorsCopied() throws Exception {
+		String[] newAuthors = { "Wang, Bo" };
+		publication1.setAuthors(newAuthors);
+		ChangeEvent event = feed.poll(1, 1).get(0);
+		assertArrayEquals(authors, (String[]) event.getOldValue());
+		((String[]) event.getNewValue())[0] = "Other, Name";
+		assertArrayEquals(newAuthors, (String[]) event.getNewValue());
+	}
+
+	@Test
+	public void poll_citationOfDetachedIgnored() throws Exception {
+		publication1.addAsCites(publication3);
+		assertEquals(0, feed.getLastSequence());
+	}
+
+	@Test
+	public void poll_resume() throws Exception {
+		publication1.setYear(2015);
+		publication1.setYear(2016);
+		publication1.setYear(2017);
+		List<ChangeEvent> first = feed.poll(1, 2);
+		assertEquals(2, first.size());
+		List<ChangeEvent> rest = feed.poll(first.get(1).getSequence() + 1, 10);
+		assertEquals(1, rest.size());
+		assertEquals(3, rest.get(0).getSequence());
+		assertEquals(2017, rest.get(0).getNewValue());
+		assertTrue(feed.poll(4, 10).isEmpty());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void poll_overwritten() throws Exception {
+		for (int i = 0; i < 10; i++)
+			publication1.setTitle("title" + i);
+		assertEquals(3, feed.getFirstSequence());
+		feed.poll(2, 10);
+	}
+
+	@Test
+	public void awaitSequence() throws Exception {
+		assertTrue(feed.awaitSequence(0, 0));
+		assertFalse(feed.awaitSequence(1, 10));
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+					DB.addAsPublication(publication2);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		assertTrue(feed.awaitSequence(1, 10000));
+		writer.join();
+		assertEquals(1, feed.getLastSequence());
+	}
+
+	@Test
+	public void terminate_stopsRecording() throws Exception {
+		feed.terminate();
+		publication1.setTitle("changed");
+		Book.setWeight(1.3);
+		assertEquals(0, feed.getLastSequence());
+	}
+}
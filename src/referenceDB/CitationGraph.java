@@ -0,0 +1,116 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import publications.Publication;
+
+/**
+ * A class of immutable snapshots of the citation graph of a reference
+ * database, stored in compressed rows of primitive arrays for the analyses
+ * that visit the whole graph.
+ *
+ * Each publication gets an index from 0 to size() - 1. The indices of the
+ * publications cited by the publication with index v are
+ * cites[citesStart[v]] up to cites[citesStart[v + 1]], and likewise for the
+ * publications citing it. Only citations between publications of the
+ * database are kept.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class CitationGraph {
+
+	/**
+	 * Initialize this new citation graph with a snapshot of the given database.
+	 *
+	 * @param dataBase
+	 *            The database to take the snapshot of.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective.
+	 */
+	CitationGraph(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null)
+			throw new IllegalArgumentException();
+		List<Publication> publications = new ArrayList<Publication>(dataBase.getAllPublications());
+		int n = publications.size();
+		this.publications = publications.toArray(new Publication[n]);
+		this.indexOf = new IntIntMap(-1, n);
+		for (int i = 0; i < n; i++)
+			this.indexOf.put(this.publications[i].getId(), i);
+
+		int[][] rows = new int[n][];
+		this.citesStart = new int[n + 1];
+		this.citedByStart = new int[n + 1];
+		for (int u = 0; u < n; u++) {
+			int[] row = new int[this.publications[u].getCitesNumber()];
+			int count = 0;
+			for (Publication publication : this.publications[u].getAllCites()) {
+				int v = this.indexOf.get(publication.getId());
+				if (v >= 0 && this.publications[v] == publication) {
+					row[count++] = v;
+					this.citedByStart[v + 1]++;
+				}
+			}
+			rows[u] = count == row.length ? row : Arrays.copyOf(row, count);
+			this.citesStart[u + 1] = this.citesStart[u] + count;
+		}
+		this.cites = new int[this.citesStart[n]];
+		for (int u = 0; u < n; u++)
+			System.arraycopy(rows[u], 0, this.cites, this.citesStart[u], rows[u].length);
+		for (int v = 0; v < n; v++)
+			this.citedByStart[v + 1] += this.citedByStart[v];
+		this.citedBy = new int[this.cites.length];
+		int[] fill = Arrays.copyOf(this.citedByStart, n);
+		for (int u = 0; u < n; u++)
+			for (int e = this.citesStart[u]; e < this.citesStart[u + 1]; e++)
+				this.citedBy[fill[this.cites[e]]++] = u;
+	}
+
+	/**
+	 * Return the number of publications of this graph.
+	 */
+	int size() {
+		return this.publications.length;
+	}
+
+	/**
+	 * Return the index of the publication with the given ID, or -1 if the ID
+	 * was not in the database when this snapshot was taken.
+	 */
+	int indexOf(int id) {
+		return this.indexOf.get(id);
+	}
+
+	/**
+	 * Return the number of publications cited by the publication with the
+	 * given index.
+	 */
+	int citesNumber(int v) {
+		return this.citesStart[v + 1] - this.citesStart[v];
+	}
+
+	/**
+	 * Return the number of publications citing the publication with the given
+	 * index.
+	 */
+	int citedByNumber(int v) {
+		return this.citedByStart[v + 1] - this.citedByStart[v];
+	}
+
+	/**
+	 * The publications of the snapshot, by index.
+	 */
+	final Publication[] publications;
+
+	private final IntIntMap indexOf;
+
+	final int[] citesStart;
+
+	final int[] cites;
+
+	final int[] citedByStart;
+
+	final int[] citedBy;
+}
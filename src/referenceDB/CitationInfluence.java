@@ -0,0 +1,353 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+
+/**
+ * A class of influence scores over the citation graph of a reference
+ * database, computed as a PageRank-style eigenvector of the cites relation.
+ *
+ * A publication is influential when it is cited by influential publications:
+ * each publication passes its score on to the publications it cites, divided
+ * evenly over them. Optionally the score a publication passes on is scaled by
+ * the weight of its type, so a citation in a book counts more than a citation
+ * in a conference paper. The scores are computed by power iteration on a
+ * snapshot of the citation graph stored in primitive arrays, with each
+ * iteration split over all cores, until the scores change less than the
+ * convergence threshold.
+ *
+ * @invar The scores of all publications sum to 1, once computed.
+ * @version 1.0
+ * @author wangbo
+ */
+public class CitationInfluence {
+
+	/**
+	 * Initialize this new influence computation with a snapshot of the
+	 * citation graph of the given database.
+	 *
+	 * @param dataBase
+	 *            The database whose publications are scored.
+	 * @post The damping factor is 0.85, the convergence threshold is 1e-9,
+	 *       the maximum number of iterations is 100 and the scores are not
+	 *       type weighted.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective.
+	 */
+	public CitationInfluence(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		this.graph = new CitationGraph(dataBase);
+		this.publications = this.graph.publications;
+		int n = this.publications.length;
+		this.citesNumber = new int[n];
+		for (int u = 0; u < n; u++)
+			this.citesNumber[u] = this.graph.citesNumber(u);
+		this.scores = new double[n];
+	}
+
+	/**
+	 * Return the damping factor, i.e., the probability that the score follows
+	 * a citation rather than being spread over all publications.
+	 */
+	@Basic
+	public double getDamping() {
+		return damping;
+	}
+
+	/**
+	 * Set the damping factor to the given value.
+	 *
+	 * @param damping
+	 *            The damping factor to be set.
+	 * @throws IllegalArgumentException
+	 *             The given damping factor is not between 0 and 1.
+	 */
+	public void setDamping(double damping) throws IllegalArgumentException {
+		if (!(damping >= 0 && damping < 1))
+			throw new IllegalArgumentException();
+		this.damping = damping;
+	}
+
+	private double damping = 0.85;
+
+	/**
+	 * Return the convergence threshold, i.e., the sum of the absolute changes
+	 * of the scores below which the iteration stops.
+	 */
+	@Basic
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Set the convergence threshold to the given value.
+	 *
+	 * @param threshold
+	 *            The threshold to be set.
+	 * @throws IllegalArgumentException
+	 *             The given threshold is not positive.
+	 */
+	public void setThreshold(double threshold) throws IllegalArgumentException {
+		if (!(threshold > 0))
+			throw new IllegalArgumentException();
+		this.threshold = threshold;
+	}
+
+	private double threshold = 1e-9;
+
+	/**
+	 * Return the maximum number of iterations.
+	 */
+	@Basic
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * Set the maximum number of iterations to the given value.
+	 *
+	 * @param maxIterations
+	 *            The maximum number of iterations to be set.
+	 * @throws IllegalArgumentException
+	 *             The given number is not positive.
+	 */
+	public void setMaxIterations(int maxIterations) throws IllegalArgumentException {
+		if (maxIterations <= 0)
+			throw new IllegalArgumentException();
+		this.maxIterations = maxIterations;
+	}
+
+	private int maxIterations = 100;
+
+	/**
+	 * Check whether the score a publication passes on is scaled by the weight
+	 * of its type.
+	 */
+	@Basic
+	public boolean isTypeWeighted() {
+		return typeWeighted;
+	}
+
+	/**
+	 * Set whether the score a publication passes on is scaled by the weight of
+	 * its type, as returned by getWeight().
+	 */
+	@Basic
+	public void setTypeWeighted(boolean typeWeighted) {
+		this.typeWeighted = typeWeighted;
+	}
+
+	private boolean typeWeighted;
+
+	/**
+	 * Compute the scores of all publications.
+	 *
+	 * @return The number of iterations that were run.
+	 */
+	public int compute() {
+		final int n = this.publications.length;
+		final int[] citedByStart = this.graph.citedByStart;
+		final int[] citedBy = this.graph.citedBy;
+		this.authorScores = null;
+		if (n == 0)
+			return 0;
+		final double[] weights = new double[n];
+		for (int i = 0; i < n; i++)
+			weights[i] = this.typeWeighted ? this.publications[i].getWeight() : 1;
+		final double[] shares = new double[n];
+		double[] current = this.scores;
+		double[] next = new double[n];
+		Arrays.fill(current, 1.0 / n);
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int chunks = Math.max(1, Math.min(n / 4096, pool.getParallelism() * 4));
+		int iterations = 0;
+		double change = Double.MAX_VALUE;
+		while (iterations < this.maxIterations && change > this.threshold) {
+			final double[] scores = current;
+			final double[] result = next;
+			// Phase 1: the share each publication passes to each publication
+			// it cites, the total weighted score and the score of the
+			// publications that cite nothing.
+			double[] totals = sum(pool, chunks, n, 2, new RangeTask() {
+				@Override
+				public double[] run(int from, int to) {
+					double weighted = 0, dangling = 0;
+					for (int u = from; u < to; u++) {
+						double mass = scores[u] * weights[u];
+						weighted += mass;
+						if (citesNumber[u] == 0) {
+							shares[u] = 0;
+							dangling += mass;
+						} else {
+							shares[u] = mass / citesNumber[u];
+						}
+					}
+					return new double[] { weighted, dangling };
+				}
+			});
+			final double base = (1 - this.damping) / n
+					+ (totals[0] == 0 ? 0 : this.damping * totals[1] / totals[0] / n);
+			final double scale = totals[0] == 0 ? 0 : this.damping / totals[0];
+			// Phase 2: pull the shares of the citing publications.
+			change = sum(pool, chunks, n, 1, new RangeTask() {
+				@Override
+				public double[] run(int from, int to) {
+					double difference = 0;
+					for (int v = from; v < to; v++) {
+						double sum = 0;
+						for (int e = citedByStart[v]; e < citedByStart[v + 1]; e++)
+							sum += shares[citedBy[e]];
+						result[v] = base + scale * sum;
+						difference += Math.abs(result[v] - scores[v]);
+					}
+					return new double[] { difference };
+				}
+			})[0];
+			next = current;
+			current = result;
+			iterations++;
+		}
+		this.scores = current;
+		this.iterations = iterations;
+		return iterations;
+	}
+
+	/**
+	 * Return the number of iterations of the last computation.
+	 */
+	@Basic
+	public int getIterations() {
+		return iterations;
+	}
+
+	private int iterations;
+
+	/**
+	 * Return the influence score of the publication with the given ID.
+	 *
+	 * @param id
+	 *            The publication ID.
+	 * @return The score of the publication, 0 if the scores are not yet
+	 *         computed.
+	 * @throws IllegalPublicationIdException
+	 *             The given ID was not in the database when this computation
+	 *             was initialized.
+	 */
+	public double getScore(int id) throws IllegalPublicationIdException {
+		int index = this.graph.indexOf(id);
+		if (index < 0)
+			throw new IllegalPublicationIdException(id);
+		return this.scores[index];
+	}
+
+	/**
+	 * Return the influence score of the given author, i.e., the sum of the
+	 * scores of all the author's publications.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName",
+	 *            e.g., A. Einstein.
+	 * @return The score of the author, or 0 if the author is unknown.
+	 */
+	public double getAuthorScore(String authorName) {
+		Double score = getAuthorScores().get(authorName);
+		return score == null ? 0 : score;
+	}
+
+	/**
+	 * Return the influence scores of all authors.
+	 *
+	 * @return A map from the author names, given as "initialOfFirstName.
+	 *         lastName", to the sum of the scores of their publications.
+	 */
+	public Map<String, Double> getAuthorScores() {
+		if (this.authorScores == null) {
+			Map<String, Double> result = new HashMap<String, Double>();
+			for (int i = 0; i < this.publications.length; i++) {
+				Set<String> names = new LinkedHashSet<String>();
+				for (String author : this.publications[i].getAuthors())
+					names.add(Publication.getShortName(author));
+				for (String name : names) {
+					Double score = result.get(name);
+					result.put(name, (score == null ? 0 : score) + this.scores[i]);
+				}
+			}
+			this.authorScores = result;
+		}
+		return new HashMap<String, Double>(this.authorScores);
+	}
+
+	/**
+	 * An interface of tasks over a range of publication indices, returning
+	 * partial sums.
+	 */
+	private interface RangeTask {
+		double[] run(int from, int to);
+	}
+
+	/**
+	 * Run the given task over the given number of chunks of [0, n) on the
+	 * given pool, and return the element-wise sum of the partial sums.
+	 */
+	private static double[] sum(ForkJoinPool pool, int chunks, int n, int width, final RangeTask task) {
+		List<Callable<double[]>> calls = new ArrayList<Callable<double[]>>(chunks);
+		for (int c = 0; c < chunks; c++) {
+			final int from = (int) ((long) n * c / chunks);
+			final int to = (int) ((long) n * (c + 1) / chunks);
+			calls.add(new Callable<double[]>() {
+				@Override
+				public double[] call() {
+					return task.run(from, to);
+				}
+			});
+		}
+		double[] result = new double[width];
+		try {
+			for (Future<double[]> future : pool.invokeAll(calls)) {
+				double[] partial = future.get();
+				for (int i = 0; i < width; i++)
+					result[i] += partial[i];
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		return result;
+	}
+
+	/**
+	 * The snapshot of the citation graph, and its publications by index.
+	 */
+	private final CitationGraph graph;
+
+	private final Publication[] publications;
+
+	/**
+	 * The number of publications of the snapshot cited by each publication.
+	 */
+	private final int[] citesNumber;
+
+	/**
+	 * The score of each publication.
+	 */
+	private double[] scores;
+
+	/**
+	 * The cached scores of the authors, or null if not yet aggregated.
+	 */
+	private Map<String, Double> authorScores;
+}
@@ -0,0 +1,119 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class CitationInfluenceTest {
+
+	private ReferenceDataBase DB;
+	private Publication publication1, publication2, publication3, publication4, publication5, publication6;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		publication4 = new JournalArticle("publication4", new String[] { "Archesis, Test", "Shengping, Mao" },
+				"journal of MEMS", 123, 2010);
+		publication5 = new Book("publication5", new String[] { "Els, Wang", "Oliever, Thus" }, 2008,
+				"Springer");
+		publication6 = new Book("publication6", new String[] { "Hellen, Wang", "Ou, Helen" }, 2006,
+				"Springer");
+
+		DB = new ReferenceDataBase();
+		JournalArticle.setWeight(1.0);
+		Book.setWeight(1.2);
+		ConferencePaper.setWeight(0.8);
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+		DB.addAsPublication(publication5);
+		DB.addAsPublication(publication6);
+		publication1.addAsCites(publication3);
+		publication2.addAsCites(publication3);
+		publication3.addAsCites(publication5);
+		publication3.addAsCites(publication6);
+		publication4.addAsCites(publication6);
+	}
+
+	@Test
+	public void compute_scoresSumToOne() throws Exception {
+		CitationInfluence influence = new CitationInfluence(DB);
+		assertTrue(influence.compute() > 1);
+		double sum = 0;
+		for (Publication publication : DB.getAllPublications())
+			sum += influence.getScore(publication.getId());
+		assertEquals(1, sum, 1e-6);
+	}
+
+	@Test
+	public void compute_influentialCitations() throws Exception {
+		CitationInfluence influence = new CitationInfluence(DB);
+		influence.compute();
+		double score1 = influence.getScore(publication1.getId());
+		double score5 = influence.getScore(publication5.getId());
+		double score6 = influence.getScore(publication6.getId());
+		assertEquals(score1, influence.getScore(publication2.getId()), 1e-9);
+		assertTrue(influence.getScore(publication3.getId()) > score1);
+		assertTrue(score6 > score5);
+		assertTrue(score5 > influence.getScore(publication4.getId()));
+	}
+
+	@Test
+	public void compute_typeWeighted() throws Exception {
+		CitationInfluence influence = new CitationInfluence(DB);
+		influence.setTypeWeighted(true);
+		influence.compute();
+		// publication3 is cited by a book and an article, publication6 only
+		// by a paper and an article.
+		double weighted = influence.getScore(publication3.getId());
+		influence.setTypeWeighted(false);
+		influence.compute();
+		assertTrue(weighted > influence.getScore(publication3.getId()));
+	}
+
+	@Test
+	public void getAuthorScore() throws Exception {
+		CitationInfluence influence = new CitationInfluence(DB);
+		influence.compute();
+		assertEquals(influence.getScore(publication1.getId()) + influence.getScore(publication3.getId()),
+				influence.getAuthorScore("B. Wang"), 1e-12);
+		assertEquals(0, influence.getAuthorScore("A. Einstein"), 0);
+	}
+
+	@Test
+	public void compute_largeGraph() throws Exception {
+		ReferenceDataBase large = new ReferenceDataBase();
+		Random random = new Random(42);
+		Publication[] all = new Publication[20000];
+		for (int i = 0; i < all.length; i++) {
+			all[i] = new JournalArticle("paper" + i, authors, "journal", 1, 1600 + i / 100);
+			large.addAsPublication(all[i]);
+			for (int c = 0; c < 5 && i > 0; c++)
+				all[i].addAsCites(all[random.nextInt(i)]);
+		}
+		CitationInfluence influence = new CitationInfluence(large);
+		influence.setThreshold(1e-8);
+		assertTrue(influence.compute() < influence.getMaxIterations());
+		assertTrue(influence.getScore(all[0].getId()) > influence.getScore(all[all.length - 1].getId()));
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void getScore_illegalIdCase() throws Exception {
+		new CitationInfluence(DB).getScore(999);
+	}
+}
@@ -0,0 +1,433 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of citation rankings, maintaining the most cited publications and
+ * the most cited authors of a reference database.
+ *
+ * The publications are ranked on the number of publications that cite them,
+ * in count-bucketed lists for all publications, per type and per year. The
+ * authors are ranked on their weighted citation count, i.e., the weighted sum
+ * of the citations of all the author's publications, where the weights
+ * depend on the type of the citing publication, as the citation index is
+ * defined in the README. This is not the number returned by
+ * authorCitationIndex of the database, which sums the weights of the
+ * author's own publications. The ranking is updated on each notification of
+ * the database, so the top K of each list is returned in O(K).
+ *
+ * @invar The ranked publications are exactly the publications of the database
+ *        this ranking is attached to, unless this ranking is terminated.
+ * @version 1.0
+ * @author wangbo
+ */
+public class CitationRanking extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new citation ranking with all the publications of the
+	 * given database, and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database to be ranked.
+	 * @post This ranking is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public CitationRanking(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		for (Publication publication : dataBase.getAllPublications())
+			publicationAdded(publication);
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database ranked by this ranking.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	/**
+	 * Variable referencing the database ranked by this ranking.
+	 */
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Check whether this ranking is terminated.
+	 */
+	@Basic
+	public boolean isTerminated() {
+		return isTerminated;
+	}
+
+	/**
+	 * Terminate this ranking.
+	 *
+	 * @post This ranking is terminated and no longer registered as listener
+	 *       of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+		this.isTerminated = true;
+	}
+
+	/**
+	 * Variable registering whether or not this ranking is terminated.
+	 */
+	private boolean isTerminated;
+
+	/**
+	 * Return the number of citations of the given publication, as registered
+	 * by this ranking.
+	 *
+	 * @param publication
+	 *            The publication to look up.
+	 * @return The number of publications that cite the given publication, or
+	 *         -1 if the given publication is not ranked.
+	 */
+	public int getCitationCount(Publication publication) {
+		return this.all.getCount(publication);
+	}
+
+	/**
+	 * Return the K most cited publications.
+	 *
+	 * @param k
+	 *            The number of publications to return.
+	 * @return At most k publications, in decreasing order of their number of
+	 *         citations.
+	 * @throws IllegalArgumentException
+	 *             The given number is negative.
+	 */
+	public List<Publication> getMostCited(int k) throws IllegalArgumentException {
+		if (k < 0)
+			throw new IllegalArgumentException();
+		return this.all.getTop(k);
+	}
+
+	/**
+	 * Return the K most cited publications of the given type.
+	 *
+	 * @param k
+	 *            The number of publications to return.
+	 * @param type
+	 *            The class of the publications to return, e.g., Book.class.
+	 * @return At most k publications of exactly the given class, in
+	 *         decreasing order of their number of citations.
+	 * @throws IllegalArgumentException
+	 *             The given number is negative.
+	 */
+	public List<Publication> getMostCited(int k, Class<? extends Publication> type) throws IllegalArgumentException {
+		if (k < 0)
+			throw new IllegalArgumentException();
+		CountBuckets<Publication> buckets = this.byType.get(type);
+		return buckets == null ? new ArrayList<Publication>() : buckets.getTop(k);
+	}
+
+	/**
+	 * Return the K most cited publications of the given year.
+	 *
+	 * @param k
+	 *            The number of publications to return.
+	 * @param year
+	 *            The year of the publications to return.
+	 * @return At most k publications published in the given year, in
+	 *         decreasing order of their number of citations.
+	 * @throws IllegalArgumentException
+	 *             The given number is negative.
+	 */
+	public List<Publication> getMostCitedOfYear(int k, int year) throws IllegalArgumentException {
+		if (k < 0)
+			throw new IllegalArgumentException();
+		CountBuckets<Publication> buckets = this.byYear.get(year);
+		return buckets == null ? new ArrayList<Publication>() : buckets.getTop(k);
+	}
+
+	/**
+	 * Return the weighted citation count of the given author.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName",
+	 *            e.g., A. Einstein.
+	 * @return The weighted sum of the citations of all the publications of
+	 *         the given author, with the weight of the type of each citing
+	 *         publication, or 0 if the author is unknown.
+	 */
+	public double getWeightedCitationCount(String authorName) {
+		refreshWeights();
+		AuthorEntry entry = this.authors.get(authorName);
+		return entry == null ? 0 : entry.score;
+	}
+
+	/**
+	 * Return the K authors with the highest weighted citation count.
+	 *
+	 * @param k
+	 *            The number of authors to return.
+	 * @return At most k author names, given as "initialOfFirstName.
+	 *         lastName", in decreasing order of their weighted citation
+	 *         count.
+	 * @throws IllegalArgumentException
+	 *             The given number is negative.
+	 */
+	public List<String> getMostCitedAuthors(int k) throws IllegalArgumentException {
+		if (k < 0)
+			throw new IllegalArgumentException();
+		refreshWeights();
+		List<String> result = new ArrayList<String>(Math.min(k, this.authorRanking.size()));
+		Iterator<AuthorEntry> entries = this.authorRanking.iterator();
+		while (entries.hasNext() && result.size() < k)
+			result.add(entries.next().name);
+		return result;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		int count = publication.getCitedByNumber();
+		this.all.add(publication, count);
+		bucketsOfType(publication.getClass()).add(publication, count);
+		bucketsOfYear(publication.getYear()).add(publication, count);
+		registerType(publication);
+		if (count > 0)
+			changeAuthorCitations(authorNames(publication.getAuthors()), publication.getAllCitedBy(), 1);
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		if (!this.all.contains(publication))
+			return;
+		int count = this.all.getCount(publication);
+		this.all.remove(publication);
+		removeFrom(this.byType, publication.getClass(), publication);
+		removeFrom(this.byYear, publication.getYear(), publication);
+		if (count > 0)
+			changeAuthorCitations(authorNames(publication.getAuthors()), publication.getAllCitedBy(), -1);
+	}
+
+	@Override
+	public void citationAdded(Publication citing, Publication cited) {
+		if (!this.all.contains(cited))
+			return;
+		this.all.increment(cited);
+		this.byType.get(cited.getClass()).increment(cited);
+		this.byYear.get(cited.getYear()).increment(cited);
+		changeAuthorCitations(authorNames(cited.getAuthors()), Collections.singleton(citing), 1);
+	}
+
+	@Override
+	public void citationRemoved(Publication citing, Publication cited) {
+		if (!this.all.contains(cited))
+			return;
+		this.all.decrement(cited);
+		this.byType.get(cited.getClass()).decrement(cited);
+		this.byYear.get(cited.getYear()).decrement(cited);
+		changeAuthorCitations(authorNames(cited.getAuthors()), Collections.singleton(citing), -1);
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (!this.all.contains(publication))
+			return;
+		if (attribute == PublicationAttribute.YEAR) {
+			int count = this.all.getCount(publication);
+			removeFrom(this.byYear, (Integer) oldValue, publication);
+			bucketsOfYear(publication.getYear()).add(publication, count);
+		} else if (attribute == PublicationAttribute.AUTHORS) {
+			Set<Publication> citing = publication.getAllCitedBy();
+			changeAuthorCitations(authorNames((String[]) oldValue), citing, -1);
+			changeAuthorCitations(authorNames(publication.getAuthors()), citing, 1);
+		}
+	}
+
+	/**
+	 * Return the distinct short names of the given author names.
+	 */
+	private static Set<String> authorNames(String[] authors) {
+		Set<String> names = new LinkedHashSet<String>();
+		for (String author : authors)
+			names.add(Publication.getShortName(author));
+		return names;
+	}
+
+	/**
+	 * Add the given number of times each of the given citing publications to
+	 * the citations of each of the given authors, and re-rank those authors.
+	 */
+	private void changeAuthorCitations(Set<String> authorNames, Set<Publication> citing, int times) {
+		for (String name : authorNames) {
+			AuthorEntry entry = this.authors.get(name);
+			if (entry == null) {
+				entry = new AuthorEntry(name);
+				this.authors.put(name, entry);
+			} else {
+				this.authorRanking.remove(entry);
+			}
+			for (Publication publication : citing) {
+				registerType(publication);
+				entry.addCitations(publication.getClass(), times);
+			}
+			if (entry.isEmpty()) {
+				this.authors.remove(name);
+			} else {
+				entry.score = entry.computeScore(this.weights);
+				this.authorRanking.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Register the weight of the type of the given publication, the first
+	 * time a publication of that type is seen.
+	 */
+	private void registerType(Publication publication) {
+		if (!this.representatives.containsKey(publication.getClass())) {
+			this.representatives.put(publication.getClass(), publication);
+			this.weights.put(publication.getClass(), publication.getWeight());
+		}
+	}
+
+	/**
+	 * Re-rank all authors if the weight of any type of publication has been
+	 * changed since the authors were last ranked. The weights are shared by
+	 * all publications of a type, so one publication per type is enough to
+	 * read them.
+	 */
+	private void refreshWeights() {
+		boolean changed = false;
+		for (Map.Entry<Class<?>, Publication> entry : this.representatives.entrySet()) {
+			double weight = entry.getValue().getWeight();
+			if (weight != this.weights.get(entry.getKey())) {
+				this.weights.put(entry.getKey(), weight);
+				changed = true;
+			}
+		}
+		if (changed) {
+			this.authorRanking.clear();
+			for (AuthorEntry entry : this.authors.values()) {
+				entry.score = entry.computeScore(this.weights);
+				this.authorRanking.add(entry);
+			}
+		}
+	}
+
+	private CountBuckets<Publication> bucketsOfType(Class<?> type) {
+		CountBuckets<Publication> buckets = this.byType.get(type);
+		if (buckets == null) {
+			buckets = new CountBuckets<Publication>();
+			this.byType.put(type, buckets);
+		}
+		return buckets;
+	}
+
+	private CountBuckets<Publication> bucketsOfYear(int year) {
+		CountBuckets<Publication> buckets = this.byYear.get(year);
+		if (buckets == null) {
+			buckets = new CountBuckets<Publication>();
+			this.byYear.put(year, buckets);
+		}
+		return buckets;
+	}
+
+	/**
+	 * Remove the given publication from the buckets registered under the
+	 * given key, and drop those buckets if they became empty.
+	 */
+	private static <K> void removeFrom(Map<K, CountBuckets<Publication>> map, K key, Publication publication) {
+		CountBuckets<Publication> buckets = map.get(key);
+		if (buckets != null) {
+			buckets.remove(publication);
+			if (buckets.size() == 0)
+				map.remove(key);
+		}
+	}
+
+	/**
+	 * A class of author entries, registering the number of citations of the
+	 * publications of an author per type of citing publication.
+	 */
+	private static class AuthorEntry {
+
+		AuthorEntry(String name) {
+			this.name = name;
+		}
+
+		void addCitations(Class<?> type, int times) {
+			Integer count = this.citationsByType.get(type);
+			int newCount = (count == null ? 0 : count) + times;
+			if (newCount == 0)
+				this.citationsByType.remove(type);
+			else
+				this.citationsByType.put(type, newCount);
+		}
+
+		boolean isEmpty() {
+			return this.citationsByType.isEmpty();
+		}
+
+		double computeScore(Map<Class<?>, Double> weights) {
+			double result = 0;
+			for (Map.Entry<Class<?>, Integer> entry : this.citationsByType.entrySet())
+				result += entry.getValue() * weights.get(entry.getKey());
+			return result;
+		}
+
+		final String name;
+
+		final Map<Class<?>, Integer> citationsByType = new HashMap<Class<?>, Integer>();
+
+		double score;
+	}
+
+	/**
+	 * The count-bucketed lists of all publications, per type and per year.
+	 */
+	private final CountBuckets<Publication> all = new CountBuckets<Publication>();
+
+	private final Map<Class<?>, CountBuckets<Publication>> byType = new HashMap<Class<?>, CountBuckets<Publication>>();
+
+	private final Map<Integer, CountBuckets<Publication>> byYear = new HashMap<Integer, CountBuckets<Publication>>();
+
+	/**
+	 * Map registering the citations of each author with at least one
+	 * citation.
+	 */
+	private final Map<String, AuthorEntry> authors = new HashMap<String, AuthorEntry>();
+
+	/**
+	 * Set ranking the author entries on decreasing score, and on name for
+	 * equal scores.
+	 */
+	private final TreeSet<AuthorEntry> authorRanking = new TreeSet<AuthorEntry>(
+			new Comparator<AuthorEntry>() {
+				@Override
+				public int compare(AuthorEntry entry1, AuthorEntry entry2) {
+					int result = Double.compare(entry2.score, entry1.score);
+					return result != 0 ? result : entry1.name.compareTo(entry2.name);
+				}
+			});
+
+	/**
+	 * The weight of each type of citing publication the author scores are
+	 * computed with, and one publication of each type to read the current
+	 * weight from.
+	 */
+	private final Map<Class<?>, Double> weights = new HashMap<Class<?>, Double>();
+
+	private final Map<Class<?>, Publication> representatives = new HashMap<Class<?>, Publication>();
+}
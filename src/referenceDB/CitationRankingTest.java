@@ -0,0 +1,128 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class CitationRankingTest {
+
+	private ReferenceDataBase DB;
+	private CitationRanking ranking;
+	private Publication publication1, publication2, publication3, publication4, publication5, publication6;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		publication4 = new JournalArticle("publication4", new String[] { "Archesis, Test", "Shengping, Mao" },
+				"journal of MEMS", 123, 2010);
+		publication5 = new Book("publication5", new String[] { "Els, Wang", "Oliever, Thus" }, 2008,
+				"Springer");
+		publication6 = new Book("publication6", new String[] { "Hellen, Wang", "Ou, Helen" }, 2006,
+				"Springer");
+
+		DB = new ReferenceDataBase();
+		JournalArticle.setWeight(1.0);
+		Book.setWeight(1.2);
+		ConferencePaper.setWeight(0.8);
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+		publication1.addAsCites(publication4);
+		ranking = new CitationRanking(DB);
+		DB.addAsPublication(publication5);
+		DB.addAsPublication(publication6);
+		DB.addCitation(publication1.getId(), publication3.getId());
+		DB.addCitation(publication2.getId(), publication3.getId());
+		DB.addCitation(publication3.getId(), publication6.getId());
+		DB.addCitation(publication4.getId(), publication6.getId());
+		DB.addCitation(publication5.getId(), publication6.getId());
+	}
+
+	@Test
+	public void getMostCited_overall() {
+		assertEquals(Arrays.asList(publication6, publication3), ranking.getMostCited(2));
+		assertEquals(6, ranking.getMostCited(10).size());
+		assertEquals(1, ranking.getCitationCount(publication4));
+	}
+
+	@Test
+	public void getMostCited_byTypeAndYear() {
+		assertEquals(Arrays.asList(publication6), ranking.getMostCited(1, Book.class));
+		assertEquals(3, ranking.getMostCited(5, Book.class).size());
+		assertEquals(Arrays.asList(publication3), ranking.getMostCitedOfYear(5, 2012));
+		assertTrue(ranking.getMostCitedOfYear(5, 2000).isEmpty());
+	}
+
+	@Test
+	public void getMostCited_afterRemoveCitation() {
+		publication3.removeAsCites(publication6);
+		publication4.removeAsCites(publication6);
+		assertEquals(publication3, ranking.getMostCited(1).get(0));
+		assertEquals(1, ranking.getCitationCount(publication6));
+	}
+
+	@Test
+	public void getMostCited_afterRemovePublication() {
+		DB.removePublication(publication3);
+		assertEquals(-1, ranking.getCitationCount(publication3));
+		assertEquals(2, ranking.getCitationCount(publication6));
+		assertTrue(ranking.getMostCitedOfYear(5, 2012).isEmpty());
+	}
+
+	@Test
+	public void getMostCited_afterSetYear() throws Exception {
+		publication6.setYear(2012);
+		assertEquals(Arrays.asList(publication6, publication3), ranking.getMostCitedOfYear(5, 2012));
+		assertTrue(ranking.getMostCitedOfYear(5, 2006).isEmpty());
+	}
+
+	@Test
+	public void getMostCitedAuthors() throws Exception {
+		List<String> top = ranking.getMostCitedAuthors(3);
+		assertEquals("H. Ou", top.get(0));
+		assertEquals(0.8 + 1.0 + 1.2, ranking.getWeightedCitationCount("H. Ou"), 0.0001);
+		assertEquals(1.0 + 1.2, ranking.getWeightedCitationCount("B. Wang"), 0.0001);
+	}
+
+	@Test
+	public void getMostCitedAuthors_afterSetWeight() throws Exception {
+		Book.setWeight(5);
+		assertEquals(1.0 + 5, ranking.getWeightedCitationCount("B. Wang"), 0.0001);
+		assertEquals("H. Ou", ranking.getMostCitedAuthors(1).get(0));
+		Book.setWeight(1.2);
+	}
+
+	@Test
+	public void getMostCitedAuthors_afterSetAuthors() throws Exception {
+		publication6.setAuthors(new String[] { "Einstein, Albert" });
+		assertEquals(0, ranking.getWeightedCitationCount("H. Ou"), 0.0001);
+		assertEquals("A. Einstein", ranking.getMostCitedAuthors(1).get(0));
+	}
+
+	@Test
+	public void terminate() {
+		ranking.terminate();
+		publication2.addAsCites(publication6);
+		assertEquals(3, ranking.getCitationCount(publication6));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getMostCited_negativeCase() {
+		ranking.getMostCited(-1);
+	}
+}
@@ -0,0 +1,422 @@
+package referenceDB;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+
+/**
+ * A class of related-publication tables, computed from the citation structure
+ * of a reference database.
+ *
+ * Two publications are co-cited when a third publication cites both of them;
+ * the co-citation strength of a pair is the number of such publications.
+ * Two publications are bibliographically coupled when they cite a same third
+ * publication; the coupling strength of a pair is the number of such shared
+ * references. These are the off-diagonal entries of the sparse matrix
+ * products C^T C and C C^T of the citation matrix C.
+ *
+ * The N strongest neighbours of every publication are computed once on a
+ * snapshot of the citation graph, with the publications partitioned over a
+ * fork-join pool. Publications citing, or cited by, more than a maximum
+ * fan-out of publications are skipped as intermediates, since such hubs
+ * relate everything to everything at a quadratic cost. The results are
+ * stored in fixed-size rows of an off-heap table, so a lookup is a constant
+ * number of array reads.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class CitationSimilarity {
+
+	/**
+	 * Initialize this new similarity table with a snapshot of the citation
+	 * graph of the given database.
+	 *
+	 * @param dataBase
+	 *            The database whose publications are related.
+	 * @param neighboursNumber
+	 *            The number N of neighbours kept per publication.
+	 * @post The maximum fan-out is 1000.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective, or the given number of
+	 *             neighbours is not positive.
+	 */
+	public CitationSimilarity(ReferenceDataBase dataBase, int neighboursNumber) throws IllegalArgumentException {
+		if (neighboursNumber <= 0)
+			throw new IllegalArgumentException();
+		this.graph = new CitationGraph(dataBase);
+		this.neighboursNumber = neighboursNumber;
+	}
+
+	/**
+	 * Return the number of neighbours kept per publication.
+	 */
+	@Basic
+	public int getNeighboursNumber() {
+		return neighboursNumber;
+	}
+
+	private final int neighboursNumber;
+
+	/**
+	 * Return the maximum fan-out of the publications used as intermediates.
+	 */
+	@Basic
+	public int getMaxFanOut() {
+		return maxFanOut;
+	}
+
+	/**
+	 * Set the maximum fan-out to the given value.
+	 *
+	 * @param maxFanOut
+	 *            The maximum number of publications a publication may cite, or
+	 *            be cited by, to relate the publications it cites, or is cited
+	 *            by.
+	 * @throws IllegalArgumentException
+	 *             The given fan-out is smaller than 2.
+	 */
+	public void setMaxFanOut(int maxFanOut) throws IllegalArgumentException {
+		if (maxFanOut < 2)
+			throw new IllegalArgumentException();
+		this.maxFanOut = maxFanOut;
+	}
+
+	private int maxFanOut = 1000;
+
+	/**
+	 * Compute the co-citation and the coupling neighbours of all publications.
+	 * 
+	 * @throws IllegalStateException
+	 *             A table would not fit in a single off-heap buffer of at most
+	 *             2 GB.
+	 */
+	public void compute() throws IllegalStateException {
+		int n = this.graph.size();
+		long bytes = 8L * n * this.neighboursNumber;
+		if (bytes > Integer.MAX_VALUE)
+			throw new IllegalStateException();
+		this.coCitations = allocate((int) bytes);
+		this.couplings = allocate((int) bytes);
+		// The scratch spaces are dropped with the queue once all rows are done.
+		ForkJoinPool.commonPool().invoke(new Rows(0, n, new ConcurrentLinkedQueue<Scratch>()));
+		this.computed = true;
+	}
+
+	/**
+	 * Check whether the tables have been computed.
+	 */
+	@Basic
+	public boolean isComputed() {
+		return computed;
+	}
+
+	private boolean computed;
+
+	/**
+	 * Return the publications most often co-cited with the publication with
+	 * the given ID.
+	 *
+	 * @param id
+	 *            The publication ID.
+	 * @return At most N publications, in decreasing order of co-citation
+	 *         strength.
+	 * @throws IllegalPublicationIdException
+	 *             The given ID was not in the database when this table was
+	 *             initialized.
+	 * @throws IllegalStateException
+	 *             The tables have not been computed.
+	 */
+	public List<Publication> getCoCited(int id) throws IllegalPublicationIdException, IllegalStateException {
+		return neighbours(this.coCitations, id);
+	}
+
+	/**
+	 * Return the publications sharing the most references with the
+	 * publication with the given ID.
+	 *
+	 * @param id
+	 *            The publication ID.
+	 * @return At most N publications, in decreasing order of coupling
+	 *         strength.
+	 * @throws IllegalPublicationIdException
+	 *             The given ID was not in the database when this table was
+	 *             initialized.
+	 * @throws IllegalStateException
+	 *             The tables have not been computed.
+	 */
+	public List<Publication> getCoupled(int id) throws IllegalPublicationIdException, IllegalStateException {
+		return neighbours(this.couplings, id);
+	}
+
+	/**
+	 * Return the co-citation strength of the publications with the given IDs,
+	 * if the second is among the N neighbours of the first.
+	 *
+	 * @return The strength, or 0 if the second publication is not among the
+	 *         neighbours of the first.
+	 * @throws IllegalPublicationIdException
+	 *             One of the given IDs was not in the database when this table
+	 *             was initialized.
+	 * @throws IllegalStateException
+	 *             The tables have not been computed.
+	 */
+	public int getCoCitationStrength(int id1, int id2) throws IllegalPublicationIdException, IllegalStateException {
+		return strength(this.coCitations, id1, id2);
+	}
+
+	/**
+	 * Return the coupling strength of the publications with the given IDs, if
+	 * the second is among the N neighbours of the first.
+	 *
+	 * @return The strength, or 0 if the second publication is not among the
+	 *         neighbours of the first.
+	 * @throws IllegalPublicationIdException
+	 *             One of the given IDs was not in the database when this table
+	 *             was initialized.
+	 * @throws IllegalStateException
+	 *             The tables have not been computed.
+	 */
+	public int getCouplingStrength(int id1, int id2) throws IllegalPublicationIdException, IllegalStateException {
+		return strength(this.couplings, id1, id2);
+	}
+
+	private List<Publication> neighbours(IntBuffer table, int id) throws IllegalPublicationIdException {
+		int row = rowOf(id);
+		List<Publication> result = new ArrayList<Publication>(this.neighboursNumber);
+		for (int i = 0; i < this.neighboursNumber; i++) {
+			int neighbour = table.get(row + 2 * i);
+			if (neighbour < 0)
+				break;
+			result.add(this.graph.publications[neighbour]);
+		}
+		return result;
+	}
+
+	private int strength(IntBuffer table, int id1, int id2) throws IllegalPublicationIdException {
+		int row = rowOf(id1);
+		int other = this.graph.indexOf(id2);
+		if (other < 0)
+			throw new IllegalPublicationIdException(id2);
+		for (int i = 0; i < this.neighboursNumber; i++) {
+			int neighbour = table.get(row + 2 * i);
+			if (neighbour < 0)
+				break;
+			if (neighbour == other)
+				return table.get(row + 2 * i + 1);
+		}
+		return 0;
+	}
+
+	/**
+	 * Return the offset of the row of the publication with the given ID.
+	 */
+	private int rowOf(int id) throws IllegalPublicationIdException {
+		if (!this.computed)
+			throw new IllegalStateException();
+		int index = this.graph.indexOf(id);
+		if (index < 0)
+			throw new IllegalPublicationIdException(id);
+		return index * this.neighboursNumber * 2;
+	}
+
+	private static IntBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	/**
+	 * A class of fork-join tasks computing the rows of a range of
+	 * publications.
+	 */
+	@SuppressWarnings("serial")
+	private class Rows extends RecursiveAction {
+
+		Rows(int from, int to, Queue<Scratch> scratches) {
+			this.from = from;
+			this.to = to;
+			this.scratches = scratches;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > GRAIN) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Rows(this.from, middle, this.scratches), new Rows(middle, this.to, this.scratches));
+				return;
+			}
+			Scratch scratch = this.scratches.poll();
+			if (scratch == null)
+				scratch = new Scratch();
+			scratch.ensure(graph.size(), neighboursNumber);
+			CitationGraph g = graph;
+			for (int p = this.from; p < this.to; p++) {
+				// Row p of C^T C: pairs cited together by a citing publication.
+				for (int e = g.citedByStart[p]; e < g.citedByStart[p + 1]; e++) {
+					int q = g.citedBy[e];
+					if (g.citesNumber(q) <= maxFanOut)
+						for (int f = g.citesStart[q]; f < g.citesStart[q + 1]; f++)
+							scratch.count(g.cites[f], p);
+				}
+				scratch.flush(coCitations, p, neighboursNumber);
+				// Row p of C C^T: pairs citing a same publication.
+				for (int e = g.citesStart[p]; e < g.citesStart[p + 1]; e++) {
+					int r = g.cites[e];
+					if (g.citedByNumber(r) <= maxFanOut)
+						for (int f = g.citedByStart[r]; f < g.citedByStart[r + 1]; f++)
+							scratch.count(g.citedBy[f], p);
+				}
+				scratch.flush(couplings, p, neighboursNumber);
+			}
+			this.scratches.add(scratch);
+		}
+
+		private final int from, to;
+
+		/**
+		 * The scratch spaces not in use by any task of the same computation.
+		 */
+		private final Queue<Scratch> scratches;
+	}
+
+	/**
+	 * A class of per-task scratch space: a dense accumulator over all
+	 * publications, the list of touched entries, and a bounded min-heap for
+	 * the top N.
+	 */
+	private static class Scratch {
+
+		void ensure(int n, int neighboursNumber) {
+			if (this.counts.length < n) {
+				this.counts = new int[n];
+				this.touched = new int[Math.max(16, n / 8)];
+			}
+			if (this.heapIndex.length < neighboursNumber) {
+				this.heapIndex = new int[neighboursNumber];
+				this.heapCount = new int[neighboursNumber];
+			}
+		}
+
+		void count(int other, int self) {
+			if (other == self)
+				return;
+			if (this.counts[other]++ == 0) {
+				if (this.touchedSize == this.touched.length)
+					this.touched = Arrays.copyOf(this.touched, this.touchedSize * 2);
+				this.touched[this.touchedSize++] = other;
+			}
+		}
+
+		/**
+		 * Write the N strongest touched entries to the given row of the given
+		 * table, strongest first, and reset the accumulator.
+		 */
+		void flush(IntBuffer table, int row, int neighboursNumber) {
+			int size = 0;
+			for (int i = 0; i < this.touchedSize; i++) {
+				int other = this.touched[i];
+				int count = this.counts[other];
+				this.counts[other] = 0;
+				if (size < neighboursNumber) {
+					this.heapIndex[size] = other;
+					this.heapCount[size] = count;
+					siftUp(size++);
+				} else if (weaker(this.heapIndex[0], this.heapCount[0], other, count)) {
+					this.heapIndex[0] = other;
+					this.heapCount[0] = count;
+					siftDown(0, size);
+				}
+			}
+			this.touchedSize = 0;
+			int offset = row * neighboursNumber * 2;
+			for (int i = size; i < neighboursNumber; i++)
+				table.put(offset + 2 * i, -1);
+			// Pop the weakest first, filling the row from the end.
+			for (int i = size - 1; i >= 0; i--) {
+				table.put(offset + 2 * i, this.heapIndex[0]);
+				table.put(offset + 2 * i + 1, this.heapCount[0]);
+				this.heapIndex[0] = this.heapIndex[i];
+				this.heapCount[0] = this.heapCount[i];
+				siftDown(0, i);
+			}
+		}
+
+		/**
+		 * Check whether the first entry ranks below the second: a lower count,
+		 * or an equal count and a higher index.
+		 */
+		private static boolean weaker(int index1, int count1, int index2, int count2) {
+			return count1 < count2 || (count1 == count2 && index1 > index2);
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (!weaker(this.heapIndex[i], this.heapCount[i], this.heapIndex[parent], this.heapCount[parent]))
+					return;
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i, int size) {
+			while (true) {
+				int weakest = i;
+				for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++)
+					if (weaker(this.heapIndex[child], this.heapCount[child], this.heapIndex[weakest],
+							this.heapCount[weakest]))
+						weakest = child;
+				if (weakest == i)
+					return;
+				swap(i, weakest);
+				i = weakest;
+			}
+		}
+
+		private void swap(int i, int j) {
+			int index = this.heapIndex[i];
+			int count = this.heapCount[i];
+			this.heapIndex[i] = this.heapIndex[j];
+			this.heapCount[i] = this.heapCount[j];
+			this.heapIndex[j] = index;
+			this.heapCount[j] = count;
+		}
+
+		private int[] counts = new int[0];
+
+		private int[] touched = new int[16];
+
+		private int touchedSize;
+
+		private int[] heapIndex = new int[0];
+
+		private int[] heapCount = new int[0];
+	}
+
+	/**
+	 * The number of publications below which a task is not split any further.
+	 */
+	private static final int GRAIN = 256;
+
+	/**
+	 * The snapshot of the citation graph.
+	 */
+	private final CitationGraph graph;
+
+	/**
+	 * The off-heap tables; the row of the publication with index p holds N
+	 * pairs of a neighbour index and a strength, strongest first, padded with
+	 * a neighbour index of -1.
+	 */
+	private IntBuffer coCitations, couplings;
+}
@@ -0,0 +1,93 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class CitationSimilarityTest {
+
+	private ReferenceDataBase DB;
+	private Publication publication1, publication2, publication3, publication4, publication5, publication6;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		publication4 = new JournalArticle("publication4", new String[] { "Archesis, Test", "Shengping, Mao" },
+				"journal of MEMS", 123, 2010);
+		publication5 = new Book("publication5", new String[] { "Els, Wang", "Oliever, Thus" }, 2008,
+				"Springer");
+		publication6 = new Book("publication6", new String[] { "Hellen, Wang", "Ou, Helen" }, 2006,
+				"Springer");
+
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+		DB.addAsPublication(publication5);
+		DB.addAsPublication(publication6);
+		publication1.addAsCites(publication4);
+		publication1.addAsCites(publication5);
+		publication1.addAsCites(publication6);
+		publication2.addAsCites(publication4);
+		publication2.addAsCites(publication5);
+		publication3.addAsCites(publication5);
+	}
+
+	@Test
+	public void getCoCited() throws Exception {
+		CitationSimilarity similarity = new CitationSimilarity(DB, 2);
+		similarity.compute();
+		assertEquals(Arrays.asList(publication4, publication6), similarity.getCoCited(publication5.getId()));
+		assertEquals(2, similarity.getCoCitationStrength(publication5.getId(), publication4.getId()));
+		assertEquals(1, similarity.getCoCitationStrength(publication5.getId(), publication6.getId()));
+		assertTrue(similarity.getCoCited(publication1.getId()).isEmpty());
+	}
+
+	@Test
+	public void getCoupled() throws Exception {
+		CitationSimilarity similarity = new CitationSimilarity(DB, 5);
+		similarity.compute();
+		List<Publication> coupled = similarity.getCoupled(publication1.getId());
+		assertEquals(Arrays.asList(publication2, publication3), coupled);
+		assertEquals(2, similarity.getCouplingStrength(publication1.getId(), publication2.getId()));
+		assertEquals(0, similarity.getCouplingStrength(publication1.getId(), publication6.getId()));
+	}
+
+	@Test
+	public void compute_hubsSkipped() throws Exception {
+		CitationSimilarity similarity = new CitationSimilarity(DB, 5);
+		similarity.setMaxFanOut(2);
+		similarity.compute();
+		// publication1 cites three publications and no longer relates them.
+		assertEquals(Arrays.asList(publication4), similarity.getCoCited(publication5.getId()));
+		assertTrue(similarity.getCoCited(publication6.getId()).isEmpty());
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void getCoCited_illegalIdCase() throws Exception {
+		CitationSimilarity similarity = new CitationSimilarity(DB, 5);
+		similarity.compute();
+		similarity.getCoCited(999);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void getCoCited_notComputedCase() throws Exception {
+		new CitationSimilarity(DB, 5).getCoCited(publication1.getId());
+	}
+}
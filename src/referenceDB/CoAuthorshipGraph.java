@@ -0,0 +1,300 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalAuthorException;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of co-authorship graphs of a reference database. Two authors are
+ * collaborators when they are both authors of at least one publication of the
+ * database, and the weight of the edge between them is the number of such
+ * joint publications.
+ *
+ * Each author name, given as "initialOfFirstName. lastName" like in
+ * findByAuthor, is mapped to an int ID, and the collaborators of each author
+ * are kept in a primitive map from collaborator IDs to joint-publication
+ * counts. The graph is updated on each notification of the database.
+ *
+ * @invar The edge weight between two authors is equal to the number of
+ *        publications of the database having both authors, unless this graph
+ *        is terminated.
+ * @version 1.0
+ * @author wangbo
+ */
+public class CoAuthorshipGraph extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new co-authorship graph with all the publications of the
+	 * given database, and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database whose authors are linked.
+	 * @post This graph is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public CoAuthorshipGraph(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		for (Publication publication : dataBase.getAllPublications())
+			publicationAdded(publication);
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this graph.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this graph.
+	 *
+	 * @post This graph is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Return the number of distinct authors that have been seen by this graph.
+	 */
+	public int getAuthorsNumber() {
+		return this.names.size();
+	}
+
+	/**
+	 * Return the number of publications of the given author.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	public int getPublicationsNumber(String authorName) throws IllegalAuthorException {
+		int id = idOf(authorName);
+		return id < 0 ? 0 : this.publicationsNumber[id];
+	}
+
+	/**
+	 * Return the collaborators of the given author.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @return A map from the names of the collaborators of the given author to
+	 *         the number of their joint publications.
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	public Map<String, Integer> getCollaborators(String authorName) throws IllegalAuthorException {
+		Map<String, Integer> result = new HashMap<String, Integer>();
+		int id = idOf(authorName);
+		if (id < 0)
+			return result;
+		IntIntMap neighbors = this.adjacency.get(id);
+		for (int slot = 0; slot < neighbors.capacity(); slot++)
+			if (neighbors.isUsedAt(slot))
+				result.put(this.names.get(neighbors.keyAt(slot)), neighbors.valueAt(slot));
+		return result;
+	}
+
+	/**
+	 * Return the number of joint publications of the given authors.
+	 *
+	 * @throws IllegalAuthorException
+	 *             One of the given author names is not valid.
+	 */
+	public int getJointPublicationsNumber(String authorName1, String authorName2) throws IllegalAuthorException {
+		int id1 = idOf(authorName1);
+		int id2 = idOf(authorName2);
+		if (id1 < 0 || id2 < 0)
+			return 0;
+		if (id1 == id2)
+			return this.publicationsNumber[id1];
+		return Math.max(0, this.adjacency.get(id1).get(id2));
+	}
+
+	/**
+	 * Return the collaboration distance between the given authors, i.e., the
+	 * length of the shortest chain of co-authorships between them. The chain
+	 * is searched from both authors at once, always expanding the smaller of
+	 * the two frontiers.
+	 *
+	 * @return 0 if the given authors are the same, the length of the shortest
+	 *         chain between them, or -1 if they are not connected.
+	 * @throws IllegalAuthorException
+	 *             One of the given author names is not valid.
+	 */
+	public int getCollaborationDistance(String authorName1, String authorName2) throws IllegalAuthorException {
+		int source = idOf(authorName1);
+		int target = idOf(authorName2);
+		if (source < 0 || target < 0)
+			return -1;
+		if (source == target)
+			return 0;
+		int n = this.names.size();
+		if (this.distance[0].length < n) {
+			this.distance = new int[2][n * 2];
+			this.visit = new int[2][n * 2];
+		}
+		int stamp = ++this.stamp;
+		int[] frontier0 = new int[] { source };
+		int[] frontier1 = new int[] { target };
+		int size0 = 1, size1 = 1;
+		mark(0, source, 0, stamp);
+		mark(1, target, 0, stamp);
+		while (size0 > 0 && size1 > 0) {
+			int side = size0 <= size1 ? 0 : 1;
+			int[] frontier = side == 0 ? frontier0 : frontier1;
+			int size = side == 0 ? size0 : size1;
+			int[] next = new int[Math.max(16, size * 2)];
+			int nextSize = 0;
+			int best = Integer.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				int u = frontier[i];
+				int level = this.distance[side][u] + 1;
+				IntIntMap neighbors = this.adjacency.get(u);
+				for (int slot = 0; slot < neighbors.capacity(); slot++) {
+					if (!neighbors.isUsedAt(slot))
+						continue;
+					int w = neighbors.keyAt(slot);
+					if (this.visit[1 - side][w] == stamp)
+						best = Math.min(best, level + this.distance[1 - side][w]);
+					if (this.visit[side][w] != stamp) {
+						mark(side, w, level, stamp);
+						if (nextSize == next.length)
+							next = Arrays.copyOf(next, nextSize * 2);
+						next[nextSize++] = w;
+					}
+				}
+			}
+			if (best != Integer.MAX_VALUE)
+				return best;
+			if (side == 0) {
+				frontier0 = next;
+				size0 = nextSize;
+			} else {
+				frontier1 = next;
+				size1 = nextSize;
+			}
+		}
+		return -1;
+	}
+
+	private void mark(int side, int author, int level, int stamp) {
+		this.visit[side][author] = stamp;
+		this.distance[side][author] = level;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		link(authorIds(publication.getAuthors()), 1);
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		link(authorIds(publication.getAuthors()), -1);
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (attribute == PublicationAttribute.AUTHORS) {
+			link(authorIds((String[]) oldValue), -1);
+			link(authorIds(publication.getAuthors()), 1);
+		}
+	}
+
+	/**
+	 * Add the given number of joint publications to each pair of the given
+	 * authors, and to the publication count of each of them.
+	 */
+	private void link(int[] ids, int times) {
+		for (int i = 0; i < ids.length; i++) {
+			this.publicationsNumber[ids[i]] += times;
+			IntIntMap neighbors = this.adjacency.get(ids[i]);
+			for (int j = 0; j < ids.length; j++)
+				if (i != j && neighbors.addTo(ids[j], times) == 0)
+					neighbors.remove(ids[j]);
+		}
+	}
+
+	/**
+	 * Return the IDs of the distinct short names of the given authors,
+	 * assigning new IDs to unknown names.
+	 */
+	private int[] authorIds(String[] authors) {
+		Set<String> names = new LinkedHashSet<String>();
+		for (String author : authors)
+			names.add(Publication.getShortName(author));
+		int[] result = new int[names.size()];
+		int index = 0;
+		for (String name : names) {
+			Integer id = this.ids.get(name);
+			if (id == null) {
+				id = this.names.size();
+				this.ids.put(name, id);
+				this.names.add(name);
+				this.adjacency.add(new IntIntMap(0, 4));
+				if (id == this.publicationsNumber.length)
+					this.publicationsNumber = Arrays.copyOf(this.publicationsNumber, id * 2);
+			}
+			result[index++] = id;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the ID of the given author name, or -1 if the name is unknown.
+	 *
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	private int idOf(String authorName) throws IllegalAuthorException {
+		if (!ReferenceDataBase.isValidAuthor(authorName))
+			throw new IllegalAuthorException(authorName);
+		Integer id = this.ids.get(authorName);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Map from the author names to their IDs, and list of the names by ID.
+	 */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	private final List<String> names = new ArrayList<String>();
+
+	/**
+	 * The collaborators of each author, by ID, with the number of joint
+	 * publications.
+	 */
+	private final List<IntIntMap> adjacency = new ArrayList<IntIntMap>();
+
+	/**
+	 * The number of publications of each author, by ID.
+	 */
+	private int[] publicationsNumber = new int[16];
+
+	/**
+	 * The scratch space of the distance search: the distance from each side
+	 * and the stamp of the search that last visited an author from each side.
+	 */
+	private int[][] distance = new int[2][0];
+
+	private int[][] visit = new int[2][0];
+
+	private int stamp;
+}
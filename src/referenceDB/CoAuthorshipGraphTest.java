@@ -0,0 +1,90 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalAuthorException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class CoAuthorshipGraphTest {
+
+	private ReferenceDataBase DB;
+	private CoAuthorshipGraph graph;
+	private Publication publication1, publication3, publication4, publication5;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		publication4 = new JournalArticle("publication4", new String[] { "Archesis, Test", "Shengping, Mao" },
+				"journal of MEMS", 123, 2010);
+		publication5 = new Book("publication5", new String[] { "Ann, WitVrouw", "Thus, Oliever" }, 2008,
+				"Springer");
+
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		graph = new CoAuthorshipGraph(DB);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+		DB.addAsPublication(publication5);
+	}
+
+	@Test
+	public void getCollaborators() throws Exception {
+		Map<String, Integer> collaborators = graph.getCollaborators("B. Wang");
+		assertEquals(3, collaborators.size());
+		assertEquals(Integer.valueOf(1), collaborators.get("J. De Coster"));
+		assertEquals(Integer.valueOf(1), collaborators.get("W. Ann"));
+		assertEquals(2, graph.getPublicationsNumber("B. Wang"));
+		assertTrue(graph.getCollaborators("A. Einstein").isEmpty());
+	}
+
+	@Test
+	public void getJointPublicationsNumber() throws Exception {
+		publication4.setAuthors(new String[] { "Wang, Bo", "De Coster, Jeroen" });
+		assertEquals(2, graph.getJointPublicationsNumber("B. Wang", "J. De Coster"));
+		assertEquals(0, graph.getJointPublicationsNumber("B. Wang", "S. Archesis"));
+	}
+
+	@Test
+	public void getCollaborationDistance() throws Exception {
+		assertEquals(0, graph.getCollaborationDistance("B. Wang", "B. Wang"));
+		assertEquals(1, graph.getCollaborationDistance("B. Wang", "W. Ann"));
+		assertEquals(2, graph.getCollaborationDistance("B. Wang", "O. Thus"));
+		assertEquals(3, graph.getCollaborationDistance("J. De Coster", "O. Thus"));
+		assertEquals(-1, graph.getCollaborationDistance("B. Wang", "T. Archesis"));
+	}
+
+	@Test
+	public void getCollaborationDistance_afterRemove() throws Exception {
+		DB.removePublication(publication3);
+		assertEquals(-1, graph.getCollaborationDistance("B. Wang", "O. Thus"));
+		assertEquals(1, graph.getPublicationsNumber("B. Wang"));
+	}
+
+	@Test
+	public void getCollaborationDistance_longChain() throws Exception {
+		String[] names = new String[200];
+		for (int i = 0; i < names.length; i++)
+			names[i] = "Chain" + (char) ('a' + i % 26) + (char) ('a' + i / 26) + ", Ann";
+		for (int i = 0; i + 1 < names.length; i++)
+			DB.addAsPublication(new Book("chain" + i, new String[] { names[i], names[i + 1] }, 2000, "acco"));
+		assertEquals(199, graph.getCollaborationDistance(Publication.getShortName(names[0]),
+				Publication.getShortName(names[199])));
+	}
+
+	@Test(expected = IllegalAuthorException.class)
+	public void getCollaborators_illegalAuthorCase() throws Exception {
+		graph.getCollaborators("Wang");
+	}
+}
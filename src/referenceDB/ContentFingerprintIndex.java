@@ -0,0 +1,291 @@
+package referenceDB;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of indices of the publications of a reference database by the
+ * fingerprint of their content, finding in constant time whether a database
+ * already has a publication with the same content as a given one.
+ *
+ * The fingerprint is a 128-bit hash of the type, the year, the title in
+ * lowercase with only its letters and digits, and the authors in lowercase,
+ * in alphabetical order. Two publications with the same fingerprint are
+ * taken to be the same paper: the chance that two different ones share a
+ * fingerprint is negligible, about n^2 / 2^129 for n publications.
+ *
+ * The fingerprints are kept in an open-addressing table of primitive arrays,
+ * and the publications sharing a fingerprint in a list linked through their
+ * IDs, oldest first. The index follows the notifications of its database,
+ * recomputing the fingerprint of a publication whose title, authors or year
+ * changes from its old and new values.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class ContentFingerprintIndex extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new index for the given database, and attach it to
+	 * that database.
+	 *
+	 * @param dataBase
+	 *            The database to be indexed.
+	 * @post This index is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public ContentFingerprintIndex(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		allocate(16);
+		for (Publication publication : dataBase.getAllPublications())
+			insert(fingerprintOf(publication), publication.getId());
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this index.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this index.
+	 *
+	 * @post This index is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Return the oldest publication of the database with the same content as
+	 * the given publication, other than the given publication itself.
+	 *
+	 * @return A publication with the same fingerprint as the given one, or
+	 *         null if there is none.
+	 */
+	public Publication findDuplicate(Publication publication) {
+		long[] fingerprint = fingerprintOf(publication);
+		int slot = slot(fingerprint[0], fingerprint[1]);
+		if (!this.used[slot])
+			return null;
+		for (int id = this.heads[slot]; id != NONE; id = this.next.get(id)) {
+			Publication other = this.dataBase.attachedWithID(id);
+			if (other != publication)
+				return other;
+		}
+		return null;
+	}
+
+	/**
+	 * Return the number of distinct fingerprints of this index.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		insert(fingerprintOf(publication), publication.getId());
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		remove(fingerprintOf(publication), publication.getId());
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (!this.dataBase.isAttached(publication))
+			return;
+		String title = publication.getTitle();
+		String[] authors = publication.getAuthors();
+		int year = publication.getYear();
+		if (attribute == PublicationAttribute.TITLE)
+			title = (String) oldValue;
+		else if (attribute == PublicationAttribute.AUTHORS)
+			authors = (String[]) oldValue;
+		else if (attribute == PublicationAttribute.YEAR)
+			year = (Integer) oldValue;
+		else
+			return;
+		remove(fingerprintOf(publication.getClass(), title, authors, year), publication.getId());
+		insert(fingerprintOf(publication), publication.getId());
+	}
+
+	/**
+	 * Return the fingerprint of the given publication, as two longs.
+	 */
+	static long[] fingerprintOf(Publication publication) {
+		return fingerprintOf(publication.getClass(), publication.getTitle(), publication.getAuthors(),
+				publication.getYear());
+	}
+
+	/**
+	 * Return the fingerprint of a publication with the given content, as two
+	 * longs.
+	 */
+	static long[] fingerprintOf(Class<?> type, String title, String[] authors, int year) {
+		StringBuilder content = new StringBuilder(128);
+		content.append(type.getName()).append('\0').append(year).append('\0');
+		appendNormalized(content, title);
+		String[] sorted = new String[authors.length];
+		for (int i = 0; i < authors.length; i++)
+			sorted[i] = authors[i].trim().toLowerCase();
+		Arrays.sort(sorted);
+		for (String author : sorted)
+			content.append('\0').append(author);
+		String key = content.toString();
+		long second = 0x6A09E667F3BCC908L;
+		for (int i = 0; i < key.length(); i++)
+			second = Long.rotateLeft((second ^ key.charAt(i)) * 0x9E3779B97F4A7C15L, 27);
+		// The second half is an independent multiply-rotate hash, finalized
+		// by the bijective mix of hash(int, long).
+		return new long[] { MinimalPerfectHash.hash(key, 0x5851F42D4C957F2DL),
+				MinimalPerfectHash.hash(key.length(), second) };
+	}
+
+	/**
+	 * Append the letters and digits of the given title in lowercase, its
+	 * words separated by one space.
+	 */
+	private static void appendNormalized(StringBuilder content, String title) {
+		boolean space = false;
+		for (int i = 0; i < title.length(); i++) {
+			char c = title.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				if (space)
+					content.append(' ');
+				content.append(Character.toLowerCase(c));
+				space = false;
+			} else
+				space = content.length() > 0 && content.charAt(content.length() - 1) != '\0';
+		}
+	}
+
+	private void insert(long[] fingerprint, int id) {
+		int slot = slot(fingerprint[0], fingerprint[1]);
+		if (this.used[slot]) {
+			int last = this.heads[slot];
+			while (this.next.get(last) != NONE)
+				last = this.next.get(last);
+			this.next.put(last, id);
+			return;
+		}
+		this.keys[2 * slot] = fingerprint[0];
+		this.keys[2 * slot + 1] = fingerprint[1];
+		this.heads[slot] = id;
+		this.used[slot] = true;
+		if (++this.size > this.heads.length * 3 / 4)
+			rehash(this.heads.length << 1);
+	}
+
+	private void remove(long[] fingerprint, int id) {
+		int slot = slot(fingerprint[0], fingerprint[1]);
+		if (!this.used[slot])
+			return;
+		int head = this.heads[slot];
+		if (head == id) {
+			int following = this.next.remove(id);
+			if (following != NONE) {
+				this.heads[slot] = following;
+				return;
+			}
+			removeSlot(slot);
+			return;
+		}
+		for (int previous = head; this.next.get(previous) != NONE; previous = this.next.get(previous))
+			if (this.next.get(previous) == id) {
+				int following = this.next.remove(id);
+				if (following == NONE)
+					this.next.remove(previous);
+				else
+					this.next.put(previous, following);
+				return;
+			}
+	}
+
+	/**
+	 * Empty the given slot, shifting the following entries of its probe
+	 * sequence back, so no tombstones are needed.
+	 */
+	private void removeSlot(int slot) {
+		int mask = this.heads.length - 1;
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (this.used[next]) {
+			int home = (int) this.keys[2 * next] & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				this.keys[2 * hole] = this.keys[2 * next];
+				this.keys[2 * hole + 1] = this.keys[2 * next + 1];
+				this.heads[hole] = this.heads[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.used[hole] = false;
+		this.size--;
+	}
+
+	/**
+	 * Return the slot holding the given fingerprint, or the empty slot where
+	 * it would be inserted.
+	 */
+	private int slot(long first, long second) {
+		int mask = this.heads.length - 1;
+		int slot = (int) first & mask;
+		while (this.used[slot] && (this.keys[2 * slot] != first || this.keys[2 * slot + 1] != second))
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = this.keys;
+		int[] oldHeads = this.heads;
+		boolean[] oldUsed = this.used;
+		allocate(capacity);
+		for (int slot = 0; slot < oldHeads.length; slot++)
+			if (oldUsed[slot]) {
+				int newSlot = slot(oldKeys[2 * slot], oldKeys[2 * slot + 1]);
+				this.keys[2 * newSlot] = oldKeys[2 * slot];
+				this.keys[2 * newSlot + 1] = oldKeys[2 * slot + 1];
+				this.heads[newSlot] = oldHeads[slot];
+				this.used[newSlot] = true;
+			}
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new long[2 * capacity];
+		this.heads = new int[capacity];
+		this.used = new boolean[capacity];
+	}
+
+	/**
+	 * The fingerprints, two longs per slot, and the ID of the oldest
+	 * publication with each of them.
+	 */
+	private long[] keys;
+
+	private int[] heads;
+
+	private boolean[] used;
+
+	private int size;
+
+	/**
+	 * The ID of the next publication with the same fingerprint, by ID.
+	 */
+	private final IntIntMap next = new IntIntMap(NONE);
+
+	private static final int NONE = -1;
+}
@@ -0,0 +1,102 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class ContentFingerprintIndexTest {
+
+	private ReferenceDataBase DB;
+	private ContentFingerprintIndex index;
+	private Publication publication1, publication2, publication3;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Gas leak rate study of MEMS", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		index = new ContentFingerprintIndex(DB);
+		DB.addAsPublication(publication3);
+	}
+
+	@Test
+	public void findDuplicate_normalizedContent() throws Exception {
+		Publication copy = new JournalArticle("  gas Leak-rate study of MEMS!",
+				new String[] { "Wevers, Martine", "Wang, Bo", "De Coster, Jeroen" }, "other journal", 5, 2016);
+		assertSame(publication1, index.findDuplicate(copy));
+		assertSame(publication3, index.findDuplicate(
+				new ConferencePaper("publication3", new String[] { "Ann, WitVrouw", "Wang, Bo" }, 2012, "x")));
+		assertNull(index.findDuplicate(publication1));
+		assertEquals(3, index.size());
+	}
+
+	@Test
+	public void findDuplicate_differentContent() throws Exception {
+		assertNull(index.findDuplicate(new JournalArticle("Gas leak rate study", authors, "j", 1, 2016)));
+		assertNull(index.findDuplicate(new JournalArticle("Gas leak rate study of MEMS", authors, "j", 1, 2015)));
+		assertNull(index.findDuplicate(new Book("Gas leak rate study of MEMS", authors, 2016, "acco")));
+		assertNull(index.findDuplicate(new JournalArticle("Gas leak rate study of MEMS",
+				new String[] { "Wang, Bo" }, "j", 1, 2016)));
+	}
+
+	@Test
+	public void attributeChanged() throws Exception {
+		Publication copy = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "other");
+		publication2.setYear(2015);
+		assertNull(index.findDuplicate(copy));
+		copy.setYear(2015);
+		assertSame(publication2, index.findDuplicate(copy));
+		publication2.setTitle("changed");
+		assertNull(index.findDuplicate(copy));
+		publication2.setTitle("publication2");
+		publication2.setAuthors(new String[] { "Wang, Bo" });
+		assertNull(index.findDuplicate(copy));
+	}
+
+	@Test
+	public void duplicatesChained() throws Exception {
+		Publication copy1 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		Publication copy2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		DB.addAsPublication(copy1);
+		DB.addAsPublication(copy2);
+		assertEquals(3, index.size());
+		assertSame(publication2, index.findDuplicate(copy2));
+		DB.removePublication(publication2);
+		assertSame(copy1, index.findDuplicate(copy2));
+		assertSame(copy2, index.findDuplicate(copy1));
+		DB.removePublications(Arrays.asList(copy1, copy2));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	public void fingerprintOf() throws Exception {
+		assertArrayEquals(ContentFingerprintIndex.fingerprintOf(publication1), ContentFingerprintIndex
+				.fingerprintOf(JournalArticle.class, "GAS LEAK RATE STUDY OF MEMS", authors, 2016));
+		assertFalse(Arrays.equals(ContentFingerprintIndex.fingerprintOf(publication1),
+				ContentFingerprintIndex.fingerprintOf(publication2)));
+	}
+
+	@Test
+	public void terminate() throws Exception {
+		index.terminate();
+		DB.removePublication(publication3);
+		assertEquals(3, index.size());
+	}
+}
@@ -0,0 +1,221 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class of count-bucketed lists, ranking elements by an integer count. The
+ * elements with the same count share a bucket, and the non-empty buckets are
+ * linked in the order of their counts, so a count can be incremented or
+ * decremented in constant time and the K elements with the highest counts
+ * are returned in O(K).
+ *
+ * @invar The buckets are linked in strictly increasing order of their counts
+ *        and none of them is empty.
+ * @version 1.0
+ * @author wangbo
+ */
+class CountBuckets<E> {
+
+	/**
+	 * Check whether the given element is ranked in these buckets.
+	 *
+	 * @param element
+	 *            The element to check.
+	 */
+	boolean contains(E element) {
+		return this.bucketOf.containsKey(element);
+	}
+
+	/**
+	 * Return the number of elements ranked in these buckets.
+	 */
+	int size() {
+		return this.bucketOf.size();
+	}
+
+	/**
+	 * Return the count of the given element.
+	 *
+	 * @param element
+	 *            The element to look up.
+	 * @return The count of the given element, or -1 if the element is not
+	 *         ranked in these buckets.
+	 */
+	int getCount(E element) {
+		Bucket<E> bucket = this.bucketOf.get(element);
+		return bucket == null ? -1 : bucket.count;
+	}
+
+	/**
+	 * Add the given element with the given count. Finding the bucket walks up
+	 * from the lowest count, which is constant time for the usual case of
+	 * elements that enter with a count of zero.
+	 *
+	 * @param element
+	 *            The element to be added.
+	 * @param count
+	 *            The count of the element.
+	 * @throws IllegalArgumentException
+	 *             The given element is already ranked, or the count is
+	 *             negative.
+	 */
+	void add(E element, int count) throws IllegalArgumentException {
+		if (count < 0 || contains(element))
+			throw new IllegalArgumentException();
+		Bucket<E> higher = this.lowest;
+		while (higher != null && higher.count < count)
+			higher = higher.higher;
+		Bucket<E> bucket;
+		if (higher != null && higher.count == count)
+			bucket = higher;
+		else
+			bucket = linkBelow(count, higher);
+		bucket.members.add(element);
+		this.bucketOf.put(element, bucket);
+	}
+
+	/**
+	 * Remove the given element, if it is ranked in these buckets.
+	 *
+	 * @param element
+	 *            The element to be removed.
+	 */
+	void remove(E element) {
+		Bucket<E> bucket = this.bucketOf.remove(element);
+		if (bucket != null)
+			leave(element, bucket);
+	}
+
+	/**
+	 * Increment the count of the given element by one.
+	 *
+	 * @param element
+	 *            The element whose count is incremented.
+	 * @throws IllegalArgumentException
+	 *             The given element is not ranked in these buckets.
+	 */
+	void increment(E element) throws IllegalArgumentException {
+		Bucket<E> bucket = this.bucketOf.get(element);
+		if (bucket == null)
+			throw new IllegalArgumentException();
+		Bucket<E> target = bucket.higher;
+		if (target == null || target.count != bucket.count + 1)
+			target = linkBelow(bucket.count + 1, target);
+		move(element, bucket, target);
+	}
+
+	/**
+	 * Decrement the count of the given element by one.
+	 *
+	 * @param element
+	 *            The element whose count is decremented.
+	 * @throws IllegalArgumentException
+	 *             The given element is not ranked in these buckets, or its
+	 *             count is zero.
+	 */
+	void decrement(E element) throws IllegalArgumentException {
+		Bucket<E> bucket = this.bucketOf.get(element);
+		if (bucket == null || bucket.count == 0)
+			throw new IllegalArgumentException();
+		Bucket<E> target = bucket.lower;
+		if (target == null || target.count != bucket.count - 1)
+			target = linkBelow(bucket.count - 1, bucket);
+		move(element, bucket, target);
+	}
+
+	/**
+	 * Return the K elements with the highest counts, in decreasing order of
+	 * their counts. Elements with equal counts are returned in the order they
+	 * reached that count.
+	 *
+	 * @param k
+	 *            The maximal number of elements to return.
+	 * @return A list of at most k elements.
+	 */
+	List<E> getTop(int k) {
+		List<E> result = new ArrayList<E>(Math.min(k, size()));
+		for (Bucket<E> bucket = this.highest; bucket != null && result.size() < k; bucket = bucket.lower) {
+			Iterator<E> members = bucket.members.iterator();
+			while (members.hasNext() && result.size() < k)
+				result.add(members.next());
+		}
+		return result;
+	}
+
+	/**
+	 * Move the given element from the given bucket to the given target.
+	 */
+	private void move(E element, Bucket<E> bucket, Bucket<E> target) {
+		target.members.add(element);
+		this.bucketOf.put(element, target);
+		leave(element, bucket);
+	}
+
+	/**
+	 * Remove the given element from the given bucket, and unlink that bucket
+	 * if it became empty.
+	 */
+	private void leave(E element, Bucket<E> bucket) {
+		bucket.members.remove(element);
+		if (!bucket.members.isEmpty())
+			return;
+		if (bucket.lower != null)
+			bucket.lower.higher = bucket.higher;
+		else
+			this.lowest = bucket.higher;
+		if (bucket.higher != null)
+			bucket.higher.lower = bucket.lower;
+		else
+			this.highest = bucket.lower;
+	}
+
+	/**
+	 * Create a new bucket for the given count and link it just below the
+	 * given bucket, or as the highest bucket if the given bucket is null.
+	 */
+	private Bucket<E> linkBelow(int count, Bucket<E> higher) {
+		Bucket<E> bucket = new Bucket<E>(count);
+		bucket.higher = higher;
+		bucket.lower = (higher == null) ? this.highest : higher.lower;
+		if (bucket.lower != null)
+			bucket.lower.higher = bucket;
+		else
+			this.lowest = bucket;
+		if (higher != null)
+			higher.lower = bucket;
+		else
+			this.highest = bucket;
+		return bucket;
+	}
+
+	/**
+	 * A class of buckets, collecting the elements with the same count.
+	 */
+	private static class Bucket<E> {
+
+		Bucket(int count) {
+			this.count = count;
+		}
+
+		final int count;
+
+		final LinkedHashSet<E> members = new LinkedHashSet<E>();
+
+		Bucket<E> lower, higher;
+	}
+
+	/**
+	 * Map registering the bucket of each ranked element.
+	 */
+	private final Map<E, Bucket<E>> bucketOf = new HashMap<E, Bucket<E>>();
+
+	/**
+	 * The buckets with the lowest and the highest count.
+	 */
+	private Bucket<E> lowest, highest;
+}
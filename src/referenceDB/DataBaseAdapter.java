@@ -0,0 +1,35 @@
+package referenceDB;
+
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * An abstract adapter class for database listeners. The methods of this class
+ * are empty, so subclasses only override the notifications they are
+ * interested in.
+ * 
+ * @version 1.0
+ * @author wangbo
+ */
+public abstract class DataBaseAdapter implements DataBaseListener {
+
+	@Override
+	public void publicationAdded(Publication publication) {
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+	}
+
+	@Override
+	public void citationAdded(Publication citing, Publication cited) {
+	}
+
+	@Override
+	public void citationRemoved(Publication citing, Publication cited) {
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+	}
+}
@@ -0,0 +1,34 @@
+package referenceDB;
+
+import publications.Publication;
+import publications.PublicationListener;
+
+/**
+ * An interface of listeners that are notified of the changes of a reference
+ * database, i.e., of the publications added to or removed from it and of the
+ * changes of the publications attached to it.
+ * 
+ * @version 1.0
+ * @author wangbo
+ */
+public interface DataBaseListener extends PublicationListener {
+
+	/**
+	 * Notify this listener that the given publication has been added to the
+	 * database.
+	 * 
+	 * @param publication
+	 *            The publication that has been added.
+	 */
+	void publicationAdded(Publication publication);
+
+	/**
+	 * Notify this listener that the given publication has been removed from
+	 * the database. The citations of the given publication have already been
+	 * removed, and reported, at that time.
+	 * 
+	 * @param publication
+	 *            The publication that has been removed.
+	 */
+	void publicationRemoved(Publication publication);
+}
@@ -0,0 +1,28 @@
+package referenceDB;
+
+/**
+ * An enumeration of the ways a reference database treats a publication
+ * added with the same content as one it already has, see
+ * ContentFingerprintIndex.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public enum DuplicatePolicy {
+
+	/**
+	 * The publication is added like any other.
+	 */
+	ALLOW,
+
+	/**
+	 * The publication is rejected.
+	 */
+	REJECT,
+
+	/**
+	 * The publication is merged into the one already there: that one takes
+	 * over its citations, and the publication gets its ID and is terminated.
+	 */
+	MERGE
+}
@@ -0,0 +1,88 @@
+package referenceDB;
+
+/**
+ * A class of count-min sketches estimating how often keys have been seen
+ * recently, with four 4-bit counters per key packed sixteen to a long.
+ *
+ * When the number of additions reaches ten times the number of counters per
+ * row, all counters are halved, so that old popularity fades out.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class FrequencySketch {
+
+	/**
+	 * Initialize this new sketch for about the given number of distinct keys.
+	 */
+	FrequencySketch(int keys) {
+		int length = Integer.highestOneBit(Math.max(1, Math.min(keys, 1 << 26) / 4)) * 2;
+		this.table = new long[length];
+		this.mask = length - 1;
+		this.sampleSize = 10 * Math.max(16, keys);
+	}
+
+	/**
+	 * Return the estimated number of times the key with the given hash has
+	 * been seen, at most 15.
+	 */
+	int frequency(int hash) {
+		int frequency = 15;
+		for (int i = 0; i < 4; i++) {
+			long spread = spread(hash, i);
+			frequency = Math.min(frequency, (int) (this.table[index(spread)] >>> offset(spread)) & 15);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Register that the key with the given hash has been seen once more.
+	 */
+	void increment(int hash) {
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			long spread = spread(hash, i);
+			int index = index(spread);
+			int offset = offset(spread);
+			if (((this.table[index] >>> offset) & 15) != 15) {
+				this.table[index] += 1L << offset;
+				added = true;
+			}
+		}
+		if (added && ++this.additions == this.sampleSize)
+			reset();
+	}
+
+	/**
+	 * Halve all counters.
+	 */
+	private void reset() {
+		for (int i = 0; i < this.table.length; i++)
+			this.table[i] = (this.table[i] >>> 1) & 0x7777777777777777L;
+		this.additions /= 2;
+	}
+
+	private static long spread(int hash, int row) {
+		long spread = (hash + SEEDS[row]) * SEEDS[row];
+		return spread ^ (spread >>> 29);
+	}
+
+	private int index(long spread) {
+		return (int) spread & this.mask;
+	}
+
+	private static int offset(long spread) {
+		return (int) (spread >>> 58) << 2 & 63;
+	}
+
+	private static final long[] SEEDS = { 0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL,
+			0xCBF29CE484222325L };
+
+	private final long[] table;
+
+	private final int mask;
+
+	private final int sampleSize;
+
+	private int additions;
+}
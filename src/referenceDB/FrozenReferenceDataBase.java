@@ -0,0 +1,539 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Immutable;
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of immutable, read-optimized reference databases, as returned by
+ * ReferenceDataBase.freeze(), for serving replicas that never change.
+ *
+ * The publications are stored column-wise in primitive arrays, at the slot
+ * given to their ID by a minimal perfect hash function. All strings are
+ * stored once in a string dictionary and referred to by their code. The
+ * short author names and the title terms, i.e., the maximal runs of letters
+ * and digits of the lowercase titles, also have minimal perfect hash
+ * functions, giving the slots of their publications in compressed rows; so
+ * do the citations in both directions. No query copies any of these arrays.
+ *
+ * The record of a publication is decoded from the columns when a query hits
+ * it, and kept in a direct-mapped cache of at most CACHE_SIZE records, at the
+ * line given by its slot. Repeated hits of the same publications therefore
+ * return the same record without allocating anything, while the heap taken
+ * by the records stays bounded, whatever the number of publications hit.
+ *
+ * A title word made only of letters and digits can only occur within a
+ * title term, so findByTitleWord scans the dictionary of distinct terms
+ * instead of all titles; other words are searched in the lowercase titles.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+@Immutable
+public final class FrozenReferenceDataBase implements ReferenceDataBaseView {
+
+	/**
+	 * Initialize this new frozen database with the publications of the given
+	 * view.
+	 *
+	 * @param view
+	 *            The view to be frozen.
+	 * @throws IllegalArgumentException
+	 *             The given view is not effective.
+	 */
+	public FrozenReferenceDataBase(ReferenceDataBaseView view) throws IllegalArgumentException {
+		this(recordsOf(view), weightsOf(view));
+	}
+
+	private static List<PublicationRecord> recordsOf(ReferenceDataBaseView view) throws IllegalArgumentException {
+		if (view == null)
+			throw new IllegalArgumentException();
+		return view.getAllPublications();
+	}
+
+	private static Map<Class<? extends Publication>, Double> weightsOf(ReferenceDataBaseView view) {
+		Map<Class<? extends Publication>, Double> weights = new HashMap<Class<? extends Publication>, Double>();
+		for (PublicationRecord record : view.getAllPublications())
+			if (!weights.containsKey(record.getType()))
+				weights.put(record.getType(), view.getWeight(record.getType()));
+		return weights;
+	}
+
+	/**
+	 * Initialize this new frozen database with the given records and weights.
+	 */
+	FrozenReferenceDataBase(Collection<PublicationRecord> records, Map<Class<? extends Publication>, Double> weights) {
+		int n = records.size();
+		int[] ids = new int[n];
+		int index = 0;
+		for (PublicationRecord record : records)
+			ids[index++] = record.getId();
+		this.idHash = MinimalPerfectHash.forInts(ids);
+		PublicationRecord[] bySlot = new PublicationRecord[n];
+		for (PublicationRecord record : records)
+			bySlot[this.idHash.slotOf(record.getId())] = record;
+
+		StringDictionary dictionary = new StringDictionary();
+		Map<Class<? extends Publication>, Integer> typeCodes = new LinkedHashMap<Class<? extends Publication>, Integer>();
+		this.ids = new int[n];
+		this.typeOf = new byte[n];
+		this.years = new int[n];
+		this.titles = new int[n];
+		this.lowerCaseTitles = new int[n];
+		this.venueAttribute = new byte[n];
+		this.venues = new int[n];
+		this.issueNumbers = new int[n];
+		this.authorsStart = new int[n + 1];
+		List<int[]> authorCodes = new ArrayList<int[]>(n);
+		Map<String, List<Integer>> byAuthor = new LinkedHashMap<String, List<Integer>>();
+		Map<String, List<Integer>> byTerm = new LinkedHashMap<String, List<Integer>>();
+		for (int slot = 0; slot < n; slot++) {
+			PublicationRecord record = bySlot[slot];
+			this.ids[slot] = record.getId();
+			Integer type = typeCodes.get(record.getType());
+			if (type == null) {
+				type = typeCodes.size();
+				typeCodes.put(record.getType(), type);
+			}
+			this.typeOf[slot] = type.byteValue();
+			this.years[slot] = record.getYear();
+			this.titles[slot] = dictionary.add(record.getTitle());
+			String lowerCaseTitle = record.getTitle().toLowerCase();
+			this.lowerCaseTitles[slot] = dictionary.add(lowerCaseTitle);
+			this.venueAttribute[slot] = -1;
+			for (PublicationAttribute attribute : VENUES)
+				if (record.getAttribute(attribute) != null) {
+					this.venueAttribute[slot] = (byte) attribute.ordinal();
+					this.venues[slot] = dictionary.add((String) record.getAttribute(attribute));
+				}
+			Object issueNumber = record.getAttribute(PublicationAttribute.ISSUE_NUMBER);
+			this.issueNumbers[slot] = issueNumber == null ? NO_ISSUE : (Integer) issueNumber;
+			String[] authors = record.getAuthors();
+			int[] codes = new int[authors.length];
+			for (int i = 0; i < authors.length; i++)
+				codes[i] = dictionary.add(authors[i]);
+			authorCodes.add(codes);
+			this.authorsStart[slot + 1] = this.authorsStart[slot] + codes.length;
+			for (String name : new HashSet<String>(Arrays.asList(record.getAuthorsNames())))
+				postingsOf(byAuthor, name).add(slot);
+			for (String term : termsOf(lowerCaseTitle))
+				postingsOf(byTerm, term).add(slot);
+		}
+		this.authors = new int[this.authorsStart[n]];
+		for (int slot = 0; slot < n; slot++)
+			System.arraycopy(authorCodes.get(slot), 0, this.authors, this.authorsStart[slot],
+					authorCodes.get(slot).length);
+		this.types = new ArrayList<Class<? extends Publication>>(typeCodes.keySet());
+		this.weights = new double[this.types.size()];
+		for (int type = 0; type < this.types.size(); type++) {
+			Double weight = weights.get(this.types.get(type));
+			this.weights[type] = weight == null ? Double.NaN : weight;
+		}
+
+		this.authorHash = MinimalPerfectHash.forStrings(byAuthor.keySet().toArray(new String[byAuthor.size()]));
+		this.authorNames = new int[byAuthor.size()];
+		this.authorPostingsStart = new int[byAuthor.size() + 1];
+		this.authorPostings = postings(byAuthor, this.authorHash, dictionary, this.authorNames,
+				this.authorPostingsStart);
+		this.termHash = MinimalPerfectHash.forStrings(byTerm.keySet().toArray(new String[byTerm.size()]));
+		this.terms = new int[byTerm.size()];
+		this.termPostingsStart = new int[byTerm.size() + 1];
+		this.termPostings = postings(byTerm, this.termHash, dictionary, this.terms, this.termPostingsStart);
+		dictionary.seal();
+		this.dictionary = dictionary;
+
+		this.citesStart = new int[n + 1];
+		this.citedByStart = new int[n + 1];
+		for (int slot = 0; slot < n; slot++) {
+			this.citesStart[slot + 1] = this.citesStart[slot] + bySlot[slot].getCitesNumber();
+			this.citedByStart[slot + 1] = this.citedByStart[slot] + bySlot[slot].getCitedByNumber();
+		}
+		this.cites = slotsOf(bySlot, true, this.citesStart);
+		this.citedBy = slotsOf(bySlot, false, this.citedByStart);
+		int lines = Math.min(CACHE_SIZE, Integer.highestOneBit(Math.max(1, n - 1)) << 1);
+		this.cache = new PublicationRecord[lines];
+		this.cacheMask = lines - 1;
+	}
+
+	private static List<Integer> postingsOf(Map<String, List<Integer>> postings, String key) {
+		List<Integer> list = postings.get(key);
+		if (list == null) {
+			list = new ArrayList<Integer>(2);
+			postings.put(key, list);
+		}
+		return list;
+	}
+
+	/**
+	 * Lay out the given postings in compressed rows by the slots of their
+	 * keys, and return the rows.
+	 */
+	private static int[] postings(Map<String, List<Integer>> postings, MinimalPerfectHash hash,
+			StringDictionary dictionary, int[] keys, int[] start) {
+		for (Map.Entry<String, List<Integer>> entry : postings.entrySet()) {
+			int slot = hash.slotOf(entry.getKey());
+			keys[slot] = dictionary.add(entry.getKey());
+			start[slot + 1] = entry.getValue().size();
+		}
+		for (int slot = 0; slot < keys.length; slot++)
+			start[slot + 1] += start[slot];
+		int[] rows = new int[start[keys.length]];
+		for (Map.Entry<String, List<Integer>> entry : postings.entrySet()) {
+			int position = start[hash.slotOf(entry.getKey())];
+			for (int value : entry.getValue())
+				rows[position++] = value;
+		}
+		return rows;
+	}
+
+	/**
+	 * Return the slots of the cited, or citing, publications of the given
+	 * records in compressed rows with the given starts. Citations of
+	 * publications outside the records are left out.
+	 */
+	private int[] slotsOf(PublicationRecord[] bySlot, boolean cites, int[] start) {
+		int[] rows = new int[start[bySlot.length]];
+		int size = 0;
+		for (int slot = 0; slot < bySlot.length; slot++) {
+			int from = size;
+			for (int id : cites ? bySlot[slot].getCites() : bySlot[slot].getCitedBy()) {
+				int other = slotOfId(id);
+				if (other >= 0)
+					rows[size++] = other;
+			}
+			start[slot] = from;
+		}
+		start[bySlot.length] = size;
+		return size == rows.length ? rows : Arrays.copyOf(rows, size);
+	}
+
+	/**
+	 * Return the distinct title terms of the given lowercase title.
+	 */
+	static Set<String> termsOf(String lowerCaseTitle) {
+		Set<String> terms = new HashSet<String>();
+		int start = -1;
+		for (int i = 0; i <= lowerCaseTitle.length(); i++) {
+			boolean inTerm = i < lowerCaseTitle.length() && Character.isLetterOrDigit(lowerCaseTitle.charAt(i));
+			if (inTerm && start < 0)
+				start = i;
+			else if (!inTerm && start >= 0) {
+				terms.add(lowerCaseTitle.substring(start, i));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	@Override
+	public int size() {
+		return this.ids.length;
+	}
+
+	@Override
+	public boolean hasPublicationID(int id) {
+		return slotOfId(id) >= 0;
+	}
+
+	@Override
+	public PublicationRecord getPublicationWithID(int id) throws IllegalPublicationIdException {
+		int slot = slotOfId(id);
+		if (slot < 0)
+			throw new IllegalPublicationIdException(id);
+		return recordAt(slot);
+	}
+
+	@Override
+	public List<PublicationRecord> getAllPublications() {
+		List<PublicationRecord> result = new ArrayList<PublicationRecord>(this.ids.length);
+		for (int slot = 0; slot < this.ids.length; slot++)
+			result.add(recordAt(slot));
+		return result;
+	}
+
+	@Override
+	public double getWeight(Class<? extends Publication> type) throws IllegalArgumentException {
+		int code = this.types.indexOf(type);
+		if (code < 0)
+			throw new IllegalArgumentException();
+		return this.weights[code];
+	}
+
+	@Override
+	public Set<PublicationRecord> findByAuthor(String authorName) throws IllegalAuthorException {
+		int key = slotOfAuthor(authorName);
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		if (key >= 0)
+			for (int p = this.authorPostingsStart[key]; p < this.authorPostingsStart[key + 1]; p++)
+				result.add(recordAt(this.authorPostings[p]));
+		return result;
+	}
+
+	@Override
+	public Set<PublicationRecord> findByTitleWord(String word) {
+		String lowerCaseWord = word.toLowerCase();
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		if (isTermWord(lowerCaseWord)) {
+			boolean[] found = new boolean[this.ids.length];
+			for (int key = 0; key < this.terms.length; key++) {
+				Cancellation.check(key);
+				if (this.dictionary.contains(this.terms[key], lowerCaseWord))
+					for (int p = this.termPostingsStart[key]; p < this.termPostingsStart[key + 1]; p++)
+						if (!found[this.termPostings[p]]) {
+							found[this.termPostings[p]] = true;
+							result.add(recordAt(this.termPostings[p]));
+						}
+			}
+		} else {
+			for (int slot = 0; slot < this.ids.length; slot++) {
+				Cancellation.check(slot);
+				if (this.dictionary.contains(this.lowerCaseTitles[slot], lowerCaseWord))
+					result.add(recordAt(slot));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return all publications whose lowercase title has the given term, i.e.,
+	 * the given maximal run of letters and digits.
+	 *
+	 * @param term
+	 *            The term to be searched, in any case.
+	 */
+	public Set<PublicationRecord> findByTitleTerm(String term) {
+		String lowerCaseTerm = term.toLowerCase();
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		int key = this.termHash.slotOf(lowerCaseTerm);
+		if (key >= 0 && this.dictionary.equals(this.terms[key], lowerCaseTerm))
+			for (int p = this.termPostingsStart[key]; p < this.termPostingsStart[key + 1]; p++)
+				result.add(recordAt(this.termPostings[p]));
+		return result;
+	}
+
+	/**
+	 * Check whether the given word is made of letters and digits only, so it
+	 * can only occur within a title term.
+	 */
+	private static boolean isTermWord(String word) {
+		if (word.isEmpty())
+			return false;
+		for (int i = 0; i < word.length(); i++)
+			if (!Character.isLetterOrDigit(word.charAt(i)))
+				return false;
+		return true;
+	}
+
+	@Override
+	public double authorCitationIndex(String authorName) throws IllegalAuthorException {
+		int key = slotOfAuthor(authorName);
+		double citationIndex = 0;
+		if (key >= 0)
+			for (int p = this.authorPostingsStart[key]; p < this.authorPostingsStart[key + 1]; p++)
+				citationIndex += this.weights[this.typeOf[this.authorPostings[p]]];
+		return citationIndex;
+	}
+
+	@Override
+	public Set<PublicationRecord> findDirIndirCites(int id) throws IllegalPublicationIdException {
+		int source = slotOfId(id);
+		if (source < 0)
+			throw new IllegalPublicationIdException(id);
+		boolean[] found = new boolean[this.ids.length];
+		int[] queue = new int[16];
+		int size = 0;
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		int current = source;
+		for (int head = 0;; current = queue[head++]) {
+			Cancellation.check(head);
+			for (int e = this.citedByStart[current]; e < this.citedByStart[current + 1]; e++) {
+				int citing = this.citedBy[e];
+				if (!found[citing]) {
+					found[citing] = true;
+					if (size == queue.length)
+						queue = Arrays.copyOf(queue, size * 2);
+					queue[size++] = citing;
+					result.add(recordAt(citing));
+				}
+			}
+			if (head == size)
+				break;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the slot of the publication with the given ID, or -1 if there is
+	 * none.
+	 */
+	private int slotOfId(int id) {
+		int slot = this.idHash.slotOf(id);
+		return slot >= 0 && this.ids[slot] == id ? slot : -1;
+	}
+
+	/**
+	 * Return the slot of the given author name, or -1 if no publication has
+	 * that author.
+	 *
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	private int slotOfAuthor(String authorName) throws IllegalAuthorException {
+		if (!ReferenceDataBase.isValidAuthor(authorName))
+			throw new IllegalAuthorException(authorName);
+		int key = this.authorHash.slotOf(authorName);
+		return key >= 0 && this.dictionary.equals(this.authorNames[key], authorName) ? key : -1;
+	}
+
+	/**
+	 * Return the record of the publication at the given slot, from the cache
+	 * or decoded and put in the cache.
+	 */
+	private PublicationRecord recordAt(int slot) {
+		int line = slot & this.cacheMask;
+		PublicationRecord record = this.cache[line];
+		if (record == null || record.getId() != this.ids[slot]) {
+			// Records only have final fields, so a racing thread sees either
+			// a complete record or another one, and then decodes its own.
+			record = decodeRecordAt(slot);
+			this.cache[line] = record;
+		}
+		return record;
+	}
+
+	/**
+	 * Return a new record of the publication at the given slot.
+	 */
+	private PublicationRecord decodeRecordAt(int slot) {
+		Map<PublicationAttribute, Object> attributes = new EnumMap<PublicationAttribute, Object>(
+				PublicationAttribute.class);
+		attributes.put(PublicationAttribute.TITLE, this.dictionary.get(this.titles[slot]));
+		String[] authors = new String[this.authorsStart[slot + 1] - this.authorsStart[slot]];
+		String[] authorsNames = new String[authors.length];
+		for (int i = 0; i < authors.length; i++) {
+			authors[i] = this.dictionary.get(this.authors[this.authorsStart[slot] + i]);
+			authorsNames[i] = Publication.getShortName(authors[i]);
+		}
+		attributes.put(PublicationAttribute.AUTHORS, authors);
+		attributes.put(PublicationAttribute.YEAR, this.years[slot]);
+		if (this.venueAttribute[slot] >= 0)
+			attributes.put(PublicationAttribute.values()[this.venueAttribute[slot]],
+					this.dictionary.get(this.venues[slot]));
+		if (this.issueNumbers[slot] != NO_ISSUE)
+			attributes.put(PublicationAttribute.ISSUE_NUMBER, this.issueNumbers[slot]);
+		return new PublicationRecord(this.ids[slot], this.types.get(this.typeOf[slot]), attributes, authorsNames,
+				idsAt(this.cites, this.citesStart, slot), idsAt(this.citedBy, this.citedByStart, slot));
+	}
+
+	private int[] idsAt(int[] rows, int[] start, int slot) {
+		int[] result = new int[start[slot + 1] - start[slot]];
+		for (int i = 0; i < result.length; i++)
+			result[i] = this.ids[rows[start[slot] + i]];
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * The attributes giving the venue of a publication.
+	 */
+	private static final PublicationAttribute[] VENUES = { PublicationAttribute.JOURNAL,
+			PublicationAttribute.PUBLISHER, PublicationAttribute.CONFERENCE };
+
+	private static final int NO_ISSUE = Integer.MIN_VALUE;
+
+	/**
+	 * The minimal perfect hash function of the IDs, and the columns of the
+	 * publications by slot. The strings are codes of the dictionary.
+	 */
+	private final MinimalPerfectHash idHash;
+
+	private final int[] ids;
+
+	private final byte[] typeOf;
+
+	private final int[] years;
+
+	private final int[] titles;
+
+	private final int[] lowerCaseTitles;
+
+	private final byte[] venueAttribute;
+
+	private final int[] venues;
+
+	private final int[] issueNumbers;
+
+	private final int[] authorsStart;
+
+	private final int[] authors;
+
+	/**
+	 * The types of the publications by code, and their weights.
+	 */
+	private final List<Class<? extends Publication>> types;
+
+	private final double[] weights;
+
+	/**
+	 * The short author names and the publications of each, by slot of their
+	 * minimal perfect hash function.
+	 */
+	private final MinimalPerfectHash authorHash;
+
+	private final int[] authorNames;
+
+	private final int[] authorPostingsStart;
+
+	private final int[] authorPostings;
+
+	/**
+	 * The title terms and the publications of each, by slot of their minimal
+	 * perfect hash function.
+	 */
+	private final MinimalPerfectHash termHash;
+
+	private final int[] terms;
+
+	private final int[] termPostingsStart;
+
+	private final int[] termPostings;
+
+	/**
+	 * The citations in compressed rows of slots.
+	 */
+	private final int[] citesStart;
+
+	private final int[] cites;
+
+	private final int[] citedByStart;
+
+	private final int[] citedBy;
+
+	private final StringDictionary dictionary;
+
+	/**
+	 * The cached records, by line; the record of the publication at a slot
+	 * can only be cached at the line slot & cacheMask.
+	 */
+	private final PublicationRecord[] cache;
+
+	private final int cacheMask;
+
+	/**
+	 * The maximal number of records cached; a power of two.
+	 */
+	static final int CACHE_SIZE = 1 << 12;
+}
@@ -0,0 +1,156 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+public class FrozenReferenceDataBaseTest {
+
+	private ReferenceDataBase DB;
+	private Publication publication1, publication2, publication3, publication4;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Gas leak rate study of MEMS", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("MEMS packaging", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		publication4 = new Book("Java-based design", new String[] { "Els, Wang" }, 2008, "acco");
+
+		DB = new ReferenceDataBase();
+		JournalArticle.setWeight(1.0);
+		Book.setWeight(1.2);
+		ConferencePaper.setWeight(0.8);
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+		publication1.addAsCites(publication2);
+		publication2.addAsCites(publication3);
+		publication3.addAsCites(publication4);
+	}
+
+	@Test
+	public void getPublicationWithID() throws Exception {
+		FrozenReferenceDataBase frozen = DB.freeze();
+		assertEquals(4, frozen.size());
+		PublicationRecord record = frozen.getPublicationWithID(publication1.getId());
+		assertEquals(JournalArticle.class, record.getType());
+		assertEquals("Gas leak rate study of MEMS", record.getTitle());
+		assertArrayEquals(authors, record.getAuthors());
+		assertEquals(2016, record.getYear());
+		assertEquals("journal of MEMS", record.getAttribute(PublicationAttribute.JOURNAL));
+		assertEquals(123, record.getAttribute(PublicationAttribute.ISSUE_NUMBER));
+		assertArrayEquals(new int[] { publication2.getId() }, record.getCites());
+		assertEquals("acco", frozen.getPublicationWithID(publication2.getId())
+				.getAttribute(PublicationAttribute.PUBLISHER));
+		assertFalse(frozen.hasPublicationID(999));
+		// A record hit again is taken from the cache.
+		assertSame(record, frozen.getPublicationWithID(publication1.getId()));
+		assertTrue(frozen.findByAuthor("B. Wang").contains(record));
+	}
+
+	@Test
+	public void freeze_independentOfChanges() throws Exception {
+		FrozenReferenceDataBase frozen = DB.freeze();
+		DB.removePublication(publication2);
+		Book.setWeight(2.0);
+		assertTrue(frozen.hasPublicationID(publication2.getId()));
+		assertEquals(1.2, frozen.getWeight(Book.class), 0.0001);
+		assertEquals(2, frozen.findDirIndirCites(publication3.getId()).size());
+	}
+
+	@Test
+	public void findByAuthor() throws Exception {
+		FrozenReferenceDataBase frozen = DB.freeze();
+		assertEquals(ids(DB.findByAuthor("B. Wang")), recordIds(frozen.findByAuthor("B. Wang")));
+		assertTrue(frozen.findByAuthor("X. Unknown").isEmpty());
+		assertEquals(DB.authorCitationIndex("B. Wang"), frozen.authorCitationIndex("B. Wang"), 0.0001);
+	}
+
+	@Test(expected = IllegalAuthorException.class)
+	public void findByAuthor_illegalAuthorCase() throws Exception {
+		DB.freeze().findByAuthor("Bo, Wang");
+	}
+
+	@Test
+	public void findByTitleWord() throws Exception {
+		FrozenReferenceDataBase frozen = DB.freeze();
+		for (String word : new String[] { "MEMS", "mem", "ems pa", "java-b", "", "publication", "zzz", "2" })
+			assertEquals(word, ids(DB.findByTitleWord(word)), recordIds(frozen.findByTitleWord(word)));
+		assertEquals(2, frozen.findByTitleTerm("Mems").size());
+		assertTrue(frozen.findByTitleTerm("mem").isEmpty());
+	}
+
+	@Test
+	public void findDirIndirCites() throws Exception {
+		FrozenReferenceDataBase frozen = DB.freeze();
+		for (Publication publication : DB.getAllPublications())
+			assertEquals(ids(DB.findDirIndirCites(publication.getId())),
+					recordIds(frozen.findDirIndirCites(publication.getId())));
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void findDirIndirCites_illegalIdCase() throws Exception {
+		DB.freeze().findDirIndirCites(999);
+	}
+
+	@Test
+	public void freeze_snapshot() throws Exception {
+		FrozenReferenceDataBase frozen = new FrozenReferenceDataBase(DB.snapshot());
+		assertEquals(4, frozen.size());
+		assertEquals(0.8, frozen.getWeight(ConferencePaper.class), 0.0001);
+	}
+
+	@Test
+	public void freeze_manyPublications() throws Exception {
+		Random random = new Random(35);
+		ReferenceDataBase dataBase = new ReferenceDataBase();
+		ReferenceDataBase.setCurrentIncrementID(1 + random.nextInt(100000));
+		for (int i = 0; i < 5000; i++)
+			dataBase.addAsPublication(new Book("book " + random.nextInt(1000), new String[] { "Bo, Wang" }, 2000, "acco"));
+		FrozenReferenceDataBase frozen = dataBase.freeze();
+		// More publications than cached records: the second pass hits evicted
+		// and colliding lines.
+		for (int pass = 0; pass < 2; pass++)
+			for (Publication publication : dataBase.getAllPublications()) {
+				PublicationRecord record = frozen.getPublicationWithID(publication.getId());
+				assertEquals(publication.getId(), record.getId());
+				assertEquals(publication.getTitle(), record.getTitle());
+			}
+		assertEquals(dataBase.findByTitleWord("book 12").size(), frozen.findByTitleWord("book 12").size());
+		assertEquals(dataBase.findByTitleWord("12").size(), frozen.findByTitleWord("12").size());
+	}
+
+	private static Set<Integer> ids(Set<Publication> publications) {
+		Set<Integer> result = new HashSet<Integer>();
+		for (Publication publication : publications)
+			result.add(publication.getId());
+		return result;
+	}
+
+	private static Set<Integer> recordIds(Set<PublicationRecord> records) {
+		Set<Integer> result = new HashSet<Integer>();
+		for (PublicationRecord record : records)
+			result.add(record.getId());
+		return result;
+	}
+}
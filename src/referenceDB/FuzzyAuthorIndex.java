@@ -0,0 +1,466 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of indices of the author names of a reference database, finding
+ * the authors whose names are within a small edit distance of a possibly
+ * misspelled name.
+ *
+ * Each distinct author name, given as "initialOfFirstName. lastName", gets a
+ * code, and each distinct trigram of the lowercased name, padded with two
+ * marks in front and two at the end, a posting list of the codes of the
+ * names having it. Since codes are handed out in increasing order and never
+ * reused, the posting lists are sorted.
+ *
+ * An edit changes at most three trigrams, so a name within distance k of a
+ * query with t distinct trigrams shares at least t - 3k of them. A search
+ * only counts the candidates of the t - (t - 3k) + 1 shortest posting lists
+ * of the query, looks the candidates up in the other lists by binary search,
+ * and verifies the candidates with enough trigrams with a Levenshtein
+ * computation bounded to the diagonal band of width k, which gives up as
+ * soon as the whole band exceeds k. The frequent trigrams shared by all
+ * names, such as those of the initial, are thereby never scanned.
+ *
+ * Like the database, the index is changed by the thread changing the
+ * database. Lookups may run at the same time as each other, since each
+ * thread counts the trigrams of its candidates in a scratch array of its
+ * own, but not at the same time as changes of the database.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class FuzzyAuthorIndex extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new index with all the authors of the given database,
+	 * and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database whose authors are indexed.
+	 * @post This index is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public FuzzyAuthorIndex(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		for (Publication publication : dataBase.getAllPublications())
+			publicationAdded(publication);
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this index.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this index.
+	 *
+	 * @post This index is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Return the number of distinct author names of the database.
+	 */
+	public int size() {
+		return this.authorsNumber;
+	}
+
+	/**
+	 * Return the author names of the database within the given edit distance
+	 * of the given name, ignoring case.
+	 *
+	 * @param authorName
+	 *            The name to look up, in any form.
+	 * @param maxDistance
+	 *            The maximal number of inserted, deleted or replaced
+	 *            characters.
+	 * @param limit
+	 *            The maximal number of names to return.
+	 * @return The names, given as "initialOfFirstName. lastName", by
+	 *         increasing distance, then by decreasing number of publications,
+	 *         then alphabetically.
+	 * @throws IllegalArgumentException
+	 *             The given name is not effective, the given distance is
+	 *             negative or the given limit is not positive.
+	 */
+	public List<String> findAuthors(String authorName, int maxDistance, int limit) throws IllegalArgumentException {
+		if (authorName == null || maxDistance < 0 || limit <= 0)
+			throw new IllegalArgumentException();
+		int[] matches = search(authorName.toLowerCase().toCharArray(), maxDistance);
+		List<Integer> codes = new ArrayList<Integer>(matches.length / 2);
+		int[] distances = new int[matches.length / 2];
+		for (int i = 0; i < distances.length; i++) {
+			codes.add(matches[2 * i]);
+			distances[i] = matches[2 * i + 1];
+		}
+		return rank(codes, distances, limit);
+	}
+
+	/**
+	 * Return all publications of the database authored by an author whose
+	 * name is within the given edit distance of the given name, ignoring
+	 * case.
+	 *
+	 * @param authorName
+	 *            The name to look up, in any form.
+	 * @param maxDistance
+	 *            The maximal number of inserted, deleted or replaced
+	 *            characters.
+	 * @throws IllegalArgumentException
+	 *             The given name is not effective or the given distance is
+	 *             negative.
+	 */
+	public Set<Publication> findByAuthor(String authorName, int maxDistance) throws IllegalArgumentException {
+		Set<Publication> result = new HashSet<Publication>();
+		for (String name : findAuthors(authorName, maxDistance, Integer.MAX_VALUE))
+			result.addAll(this.publications[this.codes.get(name)]);
+		return result;
+	}
+
+	/**
+	 * Return the codes of the names with publications within the given
+	 * distance of the given query, each followed by its distance.
+	 */
+	private int[] search(char[] query, int maxDistance) {
+		int[] grams = trigramsOf(query);
+		int required = grams.length - TRIGRAM * maxDistance;
+		int[] matches = new int[16];
+		int matchesNumber = 0;
+		if (required <= 0) {
+			// The trigrams cannot rule out any name.
+			for (int code = 0; code < this.namesNumber; code++) {
+				int distance = verify(query, code, maxDistance);
+				if (distance >= 0) {
+					if (matchesNumber == matches.length)
+						matches = Arrays.copyOf(matches, matchesNumber * 2);
+					matches[matchesNumber++] = code;
+					matches[matchesNumber++] = distance;
+				}
+			}
+			return Arrays.copyOf(matches, matchesNumber);
+		}
+		int[][] lists = new int[grams.length][];
+		int[] sizes = new int[grams.length];
+		for (int i = 0; i < grams.length; i++) {
+			int list = this.listOf.get(grams[i]);
+			lists[i] = list == NONE ? EMPTY : this.postings[list];
+			sizes[i] = list == NONE ? 0 : this.postingSizes[list];
+		}
+		// Sort the lists from short to long.
+		for (int i = 1; i < lists.length; i++)
+			for (int j = i; j > 0 && sizes[j] < sizes[j - 1]; j--) {
+				int[] list = lists[j];
+				lists[j] = lists[j - 1];
+				lists[j - 1] = list;
+				int size = sizes[j];
+				sizes[j] = sizes[j - 1];
+				sizes[j - 1] = size;
+			}
+		// A name with enough trigrams is in one of the shortest lists.
+		int scanned = grams.length - required + 1;
+		int[] counts = scratch();
+		int[] candidates = new int[16];
+		int candidatesNumber = 0;
+		for (int i = 0; i < scanned; i++)
+			for (int j = 0; j < sizes[i]; j++) {
+				int code = lists[i][j];
+				if (counts[code]++ == -1) {
+					if (candidatesNumber == candidates.length)
+						candidates = Arrays.copyOf(candidates, candidatesNumber * 2);
+					candidates[candidatesNumber++] = code;
+				}
+			}
+		// The other lists only count for the candidates: by a binary search
+		// per candidate in the lists much longer than the candidates, by a
+		// scan of the others.
+		for (int i = scanned; i < lists.length; i++)
+			if (sizes[i] / 8 > candidatesNumber) {
+				for (int c = 0; c < candidatesNumber; c++)
+					if (Arrays.binarySearch(lists[i], 0, sizes[i], candidates[c]) >= 0)
+						counts[candidates[c]]++;
+			} else
+				for (int j = 0; j < sizes[i]; j++)
+					if (counts[lists[i][j]] != -1)
+						counts[lists[i][j]]++;
+		// The counts start at -1, and are restored to it.
+		for (int c = 0; c < candidatesNumber; c++) {
+			int code = candidates[c];
+			int distance = counts[code] + 1 >= required ? verify(query, code, maxDistance) : -1;
+			counts[code] = -1;
+			if (distance >= 0) {
+				if (matchesNumber == matches.length)
+					matches = Arrays.copyOf(matches, matchesNumber * 2);
+				matches[matchesNumber++] = code;
+				matches[matchesNumber++] = distance;
+			}
+		}
+		return Arrays.copyOf(matches, matchesNumber);
+	}
+
+	/**
+	 * Return the distance between the given query and the name with the
+	 * given code, or -1 if it is more than the given distance or the name has
+	 * no publications.
+	 */
+	private int verify(char[] query, int code, int maxDistance) {
+		if (this.publications[code] == null)
+			return -1;
+		char[] name = this.keys[code];
+		if (Math.abs(name.length - query.length) > maxDistance)
+			return -1;
+		return boundedDistance(query, name, maxDistance);
+	}
+
+	/**
+	 * Return the Levenshtein distance between the given strings, or -1 if it
+	 * is more than the given bound.
+	 *
+	 * Only the cells of the diagonal band of width bound are computed, one
+	 * row at a time, which amounts to running the Levenshtein automaton of
+	 * the first string over the second.
+	 */
+	static int boundedDistance(char[] first, char[] second, int bound) {
+		int n = second.length;
+		if (Math.abs(first.length - n) > bound)
+			return -1;
+		int outside = bound + 1;
+		int[] previous = new int[n + 1];
+		int[] current = new int[n + 1];
+		for (int j = 0; j <= n; j++)
+			previous[j] = j <= bound ? j : outside;
+		for (int i = 1; i <= first.length; i++) {
+			int from = Math.max(1, i - bound);
+			int to = Math.min(n, i + bound);
+			current[0] = i <= bound ? i : outside;
+			if (from > 1)
+				current[from - 1] = outside;
+			int minimum = current[0];
+			for (int j = from; j <= to; j++) {
+				int cost = previous[j - 1] + (first[i - 1] == second[j - 1] ? 0 : 1);
+				cost = Math.min(cost, Math.min(previous[j], current[j - 1]) + 1);
+				current[j] = Math.min(cost, outside);
+				minimum = Math.min(minimum, current[j]);
+			}
+			if (to < n)
+				current[to + 1] = outside;
+			if (minimum > bound)
+				return -1;
+			int[] row = previous;
+			previous = current;
+			current = row;
+		}
+		return previous[n] <= bound ? previous[n] : -1;
+	}
+
+	/**
+	 * Return the names with the given codes, ranked by the given distances,
+	 * then by decreasing number of publications, then alphabetically.
+	 */
+	private List<String> rank(final List<Integer> codes, final int[] distances, int limit) {
+		Integer[] order = new Integer[codes.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				if (distances[i1] != distances[i2])
+					return Integer.compare(distances[i1], distances[i2]);
+				int code1 = codes.get(i1), code2 = codes.get(i2);
+				int size1 = publications[code1].size(), size2 = publications[code2].size();
+				if (size1 != size2)
+					return Integer.compare(size2, size1);
+				return names[code1].compareTo(names[code2]);
+			}
+		});
+		List<String> result = new ArrayList<String>(Math.min(limit, order.length));
+		for (int i = 0; i < order.length && i < limit; i++)
+			result.add(this.names[codes.get(order[i])]);
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Return the distinct trigrams of the given lowercased name, padded with
+	 * two marks on both sides.
+	 */
+	private static int[] trigramsOf(char[] name) {
+		int[] grams = new int[name.length + TRIGRAM - 1];
+		for (int i = 0; i < grams.length; i++) {
+			int gram = 0;
+			for (int j = i - TRIGRAM + 1; j <= i; j++)
+				gram = gram * 0x10001 + (j >= 0 && j < name.length ? name[j] + 1 : 0);
+			grams[i] = gram;
+		}
+		Arrays.sort(grams);
+		int size = 0;
+		for (int i = 0; i < grams.length; i++)
+			if (i == 0 || grams[i] != grams[i - 1])
+				grams[size++] = grams[i];
+		return Arrays.copyOf(grams, size);
+	}
+
+	/**
+	 * Return the scratch array of this index for the current thread, with an
+	 * entry of -1 per name.
+	 */
+	private int[] scratch() {
+		int[] scratch = this.scratch.get();
+		if (scratch == null || scratch.length < this.namesNumber) {
+			scratch = new int[this.names.length];
+			Arrays.fill(scratch, -1);
+			this.scratch.set(scratch);
+		}
+		return scratch;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		for (String name : authorNames(publication.getAuthors()))
+			addPublication(name, publication);
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		removePublication(publication.getAuthors(), publication);
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (attribute == PublicationAttribute.AUTHORS) {
+			removePublication((String[]) oldValue, publication);
+			publicationAdded(publication);
+		}
+	}
+
+	private void addPublication(String name, Publication publication) {
+		Integer code = this.codes.get(name);
+		if (code == null)
+			code = addName(name);
+		if (this.publications[code] == null) {
+			this.publications[code] = new HashSet<Publication>();
+			this.authorsNumber++;
+		}
+		this.publications[code].add(publication);
+	}
+
+	private void removePublication(String[] authors, Publication publication) {
+		for (String name : authorNames(authors)) {
+			int code = this.codes.get(name);
+			this.publications[code].remove(publication);
+			if (this.publications[code].isEmpty()) {
+				this.publications[code] = null;
+				this.authorsNumber--;
+			}
+		}
+	}
+
+	/**
+	 * Give the given name the next code, and add it to the posting lists of
+	 * its trigrams.
+	 */
+	private int addName(String name) {
+		int code = this.namesNumber++;
+		if (code == this.names.length) {
+			int capacity = Math.max(16, code * 2);
+			this.names = Arrays.copyOf(this.names, capacity);
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.publications = Arrays.copyOf(this.publications, capacity);
+		}
+		this.codes.put(name, code);
+		this.names[code] = name;
+		this.keys[code] = name.toLowerCase().toCharArray();
+		for (int gram : trigramsOf(this.keys[code])) {
+			int list = this.listOf.get(gram);
+			if (list == NONE) {
+				list = this.listsNumber++;
+				this.listOf.put(gram, list);
+				if (list == this.postings.length) {
+					this.postings = Arrays.copyOf(this.postings, Math.max(16, list * 2));
+					this.postingSizes = Arrays.copyOf(this.postingSizes, this.postings.length);
+				}
+				this.postings[list] = new int[4];
+			}
+			int size = this.postingSizes[list];
+			if (size == this.postings[list].length)
+				this.postings[list] = Arrays.copyOf(this.postings[list], size * 2);
+			this.postings[list][size] = code;
+			this.postingSizes[list] = size + 1;
+		}
+		return code;
+	}
+
+	/**
+	 * Return the distinct short names of the given author names.
+	 */
+	private static Set<String> authorNames(String[] authors) {
+		Set<String> names = new LinkedHashSet<String>();
+		for (String author : authors)
+			names.add(Publication.getShortName(author));
+		return names;
+	}
+
+	/**
+	 * The code of each name ever added, and the name, lowercased name and
+	 * publications of each code. The publications of names without
+	 * publications are null.
+	 */
+	private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+	private String[] names = new String[0];
+
+	private char[][] keys = new char[0][];
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Set<Publication>[] publications = new Set[0];
+
+	private int namesNumber;
+
+	private int authorsNumber;
+
+	/**
+	 * The posting list of each trigram, and the number of codes in each list.
+	 */
+	private final IntIntMap listOf = new IntIntMap(NONE);
+
+	private int[][] postings = new int[0][];
+
+	private int[] postingSizes = new int[0];
+
+	private int listsNumber;
+
+	/**
+	 * An array per thread with an entry of -1 per name, used to count the
+	 * trigrams of the candidates of a search and restored afterwards.
+	 */
+	private final ThreadLocal<int[]> scratch = new ThreadLocal<int[]>();
+
+	private static final int[] EMPTY = new int[0];
+
+	private static final int TRIGRAM = 3;
+
+	private static final int NONE = -1;
+}
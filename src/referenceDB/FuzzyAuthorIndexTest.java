@@ -0,0 +1,158 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class FuzzyAuthorIndexTest {
+
+	private ReferenceDataBase DB;
+	private FuzzyAuthorIndex index;
+	private Publication publication1, publication2, publication3;
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion", new String[] { "Einstein, Albert", "Wang, Bo" },
+				"journal of MEMS", 123, 1905);
+		publication2 = new Book("Relativity", new String[] { "Einstein, Albert", "Wong, Bo" }, 1916, "acco");
+		publication3 = new Book("Gas leak rate study of MEMS", new String[] { "Eisenstein, Anna", "Wong, Bob" }, 2008,
+				"Springer");
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		index = new FuzzyAuthorIndex(DB);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+	}
+
+	@Test
+	public void findAuthors_misspelled() {
+		assertEquals(Arrays.asList("A. Einstein"), index.findAuthors("A. Einstien", 2, 10));
+		assertEquals(Arrays.asList("A. Einstein"), index.findAuthors("a. einstein", 0, 10));
+		assertTrue(index.findAuthors("A. Einstien", 1, 10).isEmpty());
+		assertEquals(Arrays.asList("A. Einstein", "A. Eisenstein"), index.findAuthors("A. Einstein", 3, 10));
+		assertEquals(Arrays.asList("A. Einstein"), index.findAuthors("A. Einstein", 3, 1));
+	}
+
+	@Test
+	public void findAuthors_rankedByPublications() {
+		// Both at distance 1; B. Wong has two publications.
+		assertEquals(Arrays.asList("B. Wong", "B. Wang"), index.findAuthors("B. Wing", 1, 10));
+	}
+
+	@Test
+	public void findAuthors_shortQuery() {
+		assertEquals(Arrays.asList("B. Wang"), index.findAuthors("Wang", 3, 10));
+	}
+
+	@Test
+	public void findByAuthor() {
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication1, publication2)),
+				index.findByAuthor("A. Einstien", 2));
+		assertEquals(Collections.emptySet(), index.findByAuthor("Z. Nobody", 2));
+	}
+
+	@Test
+	public void update() throws Exception {
+		assertEquals(4, index.size());
+		publication3.setAuthors(new String[] { "Einstein, Albert" });
+		assertEquals(3, index.size());
+		assertEquals(3, index.findByAuthor("A. Einstein", 0).size());
+		assertTrue(index.findAuthors("A. Eisenstein", 0, 10).isEmpty());
+		DB.removePublication(publication1);
+		assertTrue(index.findAuthors("B. Wang", 0, 10).isEmpty());
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication2, publication3)),
+				index.findByAuthor("A. Einstein", 1));
+	}
+
+	@Test
+	public void findAuthors_sameAsBruteForce() throws Exception {
+		Random random = new Random(7);
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < 2000; i++) {
+			String name = randomName(random);
+			DB.addAsPublication(new Book("Book " + i, new String[] { name }, 2000, "acco"));
+			names.add(Publication.getShortName(name));
+		}
+		for (int i = 0; i < 50; i++) {
+			String query = names.get(random.nextInt(names.size())).toLowerCase();
+			char[] chars = query.toCharArray();
+			chars[3 + random.nextInt(chars.length - 3)] = 'q';
+			query = new String(chars);
+			for (int k = 0; k <= 2; k++) {
+				Set<String> expected = new HashSet<String>();
+				for (String name : names)
+					if (FuzzyAuthorIndex.boundedDistance(query.toCharArray(), name.toLowerCase().toCharArray(), k) >= 0)
+						expected.add(name);
+				assertEquals(expected, new HashSet<String>(index.findAuthors(query, k, Integer.MAX_VALUE)));
+			}
+		}
+	}
+
+	@Test
+	public void findAuthors_concurrent() throws Exception {
+		Random random = new Random(5);
+		final List<String> queries = new ArrayList<String>();
+		for (int i = 0; i < 2000; i++) {
+			String name = randomName(random);
+			DB.addAsPublication(new Book("Book " + i, new String[] { name }, 2000, "acco"));
+			if (i % 20 == 0)
+				queries.add(Publication.getShortName(name));
+		}
+		final List<List<String>> expected = new ArrayList<List<String>>();
+		for (String query : queries)
+			expected.add(index.findAuthors(query, 2, Integer.MAX_VALUE));
+		final AtomicInteger mismatches = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int round = 0; round < 20; round++)
+						for (int i = 0; i < queries.size(); i++)
+							if (!expected.get(i).equals(index.findAuthors(queries.get(i), 2, Integer.MAX_VALUE)))
+								mismatches.incrementAndGet();
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(0, mismatches.get());
+	}
+
+	@Test
+	public void boundedDistance() {
+		assertEquals(3, FuzzyAuthorIndex.boundedDistance("kitten".toCharArray(), "sitting".toCharArray(), 3));
+		assertEquals(-1, FuzzyAuthorIndex.boundedDistance("kitten".toCharArray(), "sitting".toCharArray(), 2));
+		assertEquals(0, FuzzyAuthorIndex.boundedDistance("".toCharArray(), "".toCharArray(), 0));
+		assertEquals(2, FuzzyAuthorIndex.boundedDistance("ab".toCharArray(), "".toCharArray(), 5));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void findAuthors_negativeDistance() {
+		index.findAuthors("A. Einstein", -1, 10);
+	}
+
+	private static String randomName(Random random) {
+		StringBuilder last = new StringBuilder();
+		last.append((char) ('A' + random.nextInt(26)));
+		for (int i = 1 + random.nextInt(6); i > 0; i--)
+			last.append((char) ('a' + random.nextInt(6)));
+		return last + ", " + (char) ('A' + random.nextInt(3)) + "x";
+	}
+}
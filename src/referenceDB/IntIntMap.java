@@ -0,0 +1,226 @@
+package referenceDB;
+
+import java.util.Arrays;
+
+/**
+ * A class of hash maps from int keys to int values, stored in primitive
+ * arrays with open addressing and linear probing, so no key or value is
+ * boxed.
+ *
+ * @invar The capacity of the map is a power of two, and at most three
+ *        quarters of it is used.
+ * @version 1.0
+ * @author wangbo
+ */
+class IntIntMap {
+
+	/**
+	 * Initialize this new map with no entries, returning the given value for
+	 * missing keys.
+	 *
+	 * @param missingValue
+	 *            The value returned by get for keys that are not in the map.
+	 */
+	IntIntMap(int missingValue) {
+		this(missingValue, 8);
+	}
+
+	/**
+	 * Initialize this new map with no entries and room for the given number of
+	 * entries, returning the given value for missing keys.
+	 *
+	 * @param missingValue
+	 *            The value returned by get for keys that are not in the map.
+	 * @param expectedSize
+	 *            The number of entries the map should hold without growing.
+	 */
+	IntIntMap(int missingValue, int expectedSize) {
+		this.missingValue = missingValue;
+		int capacity = 8;
+		while (capacity * 3 / 4 < expectedSize)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * Return the number of entries in this map.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Check whether this map has an entry for the given key.
+	 */
+	boolean containsKey(int key) {
+		return this.used[slot(key)];
+	}
+
+	/**
+	 * Return the value of the given key, or the missing value if the key is
+	 * not in this map.
+	 */
+	int get(int key) {
+		int slot = slot(key);
+		return this.used[slot] ? this.values[slot] : this.missingValue;
+	}
+
+	/**
+	 * Set the value of the given key.
+	 *
+	 * @return The previous value of the key, or the missing value if the key
+	 *         was not in this map.
+	 */
+	int put(int key, int value) {
+		int slot = slot(key);
+		if (this.used[slot]) {
+			int previous = this.values[slot];
+			this.values[slot] = value;
+			return previous;
+		}
+		insert(slot, key, value);
+		return this.missingValue;
+	}
+
+	/**
+	 * Add the given delta to the value of the given key, where a missing key
+	 * counts as zero.
+	 *
+	 * @return The new value of the key.
+	 */
+	int addTo(int key, int delta) {
+		int slot = slot(key);
+		if (this.used[slot])
+			return this.values[slot] += delta;
+		insert(slot, key, delta);
+		return delta;
+	}
+
+	/**
+	 * Remove the entry of the given key, if any.
+	 *
+	 * @return The value of the removed entry, or the missing value if the key
+	 *         was not in this map.
+	 */
+	int remove(int key) {
+		int slot = slot(key);
+		if (!this.used[slot])
+			return this.missingValue;
+		int previous = this.values[slot];
+		int mask = this.keys.length - 1;
+		// Shift the following entries of the probe sequence back, so no
+		// tombstones are needed.
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (this.used[next]) {
+			int home = hash(this.keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				this.keys[hole] = this.keys[next];
+				this.values[hole] = this.values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.used[hole] = false;
+		this.size--;
+		return previous;
+	}
+
+	/**
+	 * Return the keys of this map, in no particular order.
+	 */
+	int[] keys() {
+		int[] result = new int[this.size];
+		int index = 0;
+		for (int slot = 0; slot < this.keys.length; slot++)
+			if (this.used[slot])
+				result[index++] = this.keys[slot];
+		return result;
+	}
+
+	/**
+	 * Return the number of slots of this map. Together with isUsedAt, keyAt
+	 * and valueAt, this lets hot loops visit the entries without allocating.
+	 */
+	int capacity() {
+		return this.keys.length;
+	}
+
+	boolean isUsedAt(int slot) {
+		return this.used[slot];
+	}
+
+	int keyAt(int slot) {
+		return this.keys[slot];
+	}
+
+	int valueAt(int slot) {
+		return this.values[slot];
+	}
+
+	/**
+	 * Remove all entries of this map.
+	 */
+	void clear() {
+		Arrays.fill(this.used, false);
+		this.size = 0;
+	}
+
+	/**
+	 * Return the slot holding the given key, or the empty slot where it would
+	 * be inserted.
+	 */
+	private int slot(int key) {
+		int mask = this.keys.length - 1;
+		int slot = hash(key) & mask;
+		while (this.used[slot] && this.keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void insert(int slot, int key, int value) {
+		this.keys[slot] = key;
+		this.values[slot] = value;
+		this.used[slot] = true;
+		if (++this.size > this.keys.length * 3 / 4)
+			rehash(this.keys.length << 1);
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = this.keys;
+		int[] oldValues = this.values;
+		boolean[] oldUsed = this.used;
+		allocate(capacity);
+		for (int slot = 0; slot < oldKeys.length; slot++)
+			if (oldUsed[slot]) {
+				int newSlot = slot(oldKeys[slot]);
+				this.keys[newSlot] = oldKeys[slot];
+				this.values[newSlot] = oldValues[slot];
+				this.used[newSlot] = true;
+			}
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new int[capacity];
+		this.values = new int[capacity];
+		this.used = new boolean[capacity];
+	}
+
+	/**
+	 * Spread the bits of the given key, so consecutive ids do not cluster.
+	 */
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private final int missingValue;
+
+	private int[] keys;
+
+	private int[] values;
+
+	private boolean[] used;
+
+	private int size;
+}
@@ -0,0 +1,117 @@
+package referenceDB;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A class of read-only memory mappings of whole files, of any size.
+ *
+ * A file is mapped in segments of SEGMENT bytes, since one mapping cannot
+ * exceed 2GB; values spanning two segments are read byte by byte. All reads
+ * are absolute, so a mapping can be read by any number of threads at once.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class MappedFile {
+
+	/**
+	 * Initialize this new mapping of the given file.
+	 *
+	 * @throws IOException
+	 *             The file could not be mapped.
+	 */
+	MappedFile(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			this.length = channel.size();
+			this.segments = new MappedByteBuffer[(int) ((this.length + SEGMENT - 1) / SEGMENT)];
+			for (int i = 0; i < this.segments.length; i++) {
+				long start = (long) i * SEGMENT;
+				this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+						Math.min(SEGMENT, this.length - start));
+			}
+		} finally {
+			// The mappings stay valid after the file is closed.
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Return the length of the mapped file.
+	 */
+	long length() {
+		return this.length;
+	}
+
+	private final long length;
+
+	private final MappedByteBuffer[] segments;
+
+	byte get(long position) {
+		return this.segments[(int) (position / SEGMENT)].get((int) (position % SEGMENT));
+	}
+
+	int getInt(long position) {
+		int offset = (int) (position % SEGMENT);
+		ByteBuffer segment = this.segments[(int) (position / SEGMENT)];
+		if (offset + 4 <= segment.limit())
+			return segment.getInt(offset);
+		int value = 0;
+		for (int i = 0; i < 4; i++)
+			value = value << 8 | get(position + i) & 0xFF;
+		return value;
+	}
+
+	long getLong(long position) {
+		int offset = (int) (position % SEGMENT);
+		ByteBuffer segment = this.segments[(int) (position / SEGMENT)];
+		if (offset + 8 <= segment.limit())
+			return segment.getLong(offset);
+		return (long) getInt(position) << 32 | getInt(position + 4) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Return a copy of the given number of bytes from the given position on.
+	 */
+	byte[] getBytes(long position, int length) {
+		byte[] bytes = new byte[length];
+		int done = 0;
+		while (done < length) {
+			long at = position + done;
+			ByteBuffer segment = this.segments[(int) (at / SEGMENT)].duplicate();
+			int offset = (int) (at % SEGMENT);
+			int size = Math.min(length - done, segment.limit() - offset);
+			segment.position(offset);
+			segment.get(bytes, done, size);
+			done += size;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Check whether the given bytes occur between the given positions.
+	 */
+	boolean contains(long from, long to, byte[] bytes) {
+		long last = to - bytes.length;
+		for (long position = from; position <= last; position++)
+			if (get(position) == bytes[0]) {
+				int i = 1;
+				while (i < bytes.length && get(position + i) == bytes[i])
+					i++;
+				if (i == bytes.length)
+					return true;
+			}
+		return false;
+	}
+
+	/**
+	 * The number of bytes of each mapped segment but the last.
+	 */
+	static final long SEGMENT = 1L << 30;
+}
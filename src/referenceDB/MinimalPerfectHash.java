@@ -0,0 +1,182 @@
+package referenceDB;
+
+import java.util.Arrays;
+
+/**
+ * A class of minimal perfect hash functions over a fixed set of int or
+ * String keys, built with hash-and-displace: the keys are hashed into
+ * buckets of about two keys, and the buckets, largest first, each search a
+ * displacement that sends all their keys to free slots.
+ *
+ * Each of the n keys gets its own slot from 0 to n - 1, at the cost of one
+ * int per bucket. Other keys also get a slot, so the caller verifies the key
+ * stored at that slot.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class MinimalPerfectHash {
+
+	/**
+	 * Return a minimal perfect hash function over the given distinct keys.
+	 */
+	static MinimalPerfectHash forInts(int[] keys) {
+		for (long seed = 1;; seed++) {
+			long[] hashes = new long[keys.length];
+			for (int i = 0; i < keys.length; i++)
+				hashes[i] = hash(keys[i], seed);
+			MinimalPerfectHash result = build(hashes, seed);
+			if (result != null)
+				return result;
+		}
+	}
+
+	/**
+	 * Return a minimal perfect hash function over the given distinct keys.
+	 */
+	static MinimalPerfectHash forStrings(String[] keys) {
+		for (long seed = 1;; seed++) {
+			long[] hashes = new long[keys.length];
+			for (int i = 0; i < keys.length; i++)
+				hashes[i] = hash(keys[i], seed);
+			MinimalPerfectHash result = build(hashes, seed);
+			if (result != null)
+				return result;
+		}
+	}
+
+	/**
+	 * Return the slot of the given key, or -1 if this function has no keys.
+	 */
+	int slotOf(int key) {
+		return slotOf(hash(key, this.seed));
+	}
+
+	/**
+	 * Return the slot of the given key, or -1 if this function has no keys.
+	 */
+	int slotOf(String key) {
+		return slotOf(hash(key, this.seed));
+	}
+
+	/**
+	 * Return the number of keys of this function.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	private MinimalPerfectHash(long seed, int size, int[] displacements) {
+		this.seed = seed;
+		this.size = size;
+		this.displacements = displacements;
+	}
+
+	private int slotOf(long hash) {
+		if (this.size == 0)
+			return -1;
+		return slot(hash, this.displacements[bucket(hash, this.displacements.length)], this.size);
+	}
+
+	/**
+	 * Build a function over the given key hashes, or return null if two of
+	 * them are equal or some bucket finds no displacement.
+	 */
+	private static MinimalPerfectHash build(long[] hashes, long seed) {
+		int n = hashes.length;
+		long[] sorted = hashes.clone();
+		Arrays.sort(sorted);
+		for (int i = 1; i < n; i++)
+			if (sorted[i] == sorted[i - 1])
+				return null;
+		int buckets = Math.max(1, n / 2);
+		int[] start = new int[buckets + 1];
+		for (long hash : hashes)
+			start[bucket(hash, buckets) + 1]++;
+		int largest = 0;
+		for (int b = 0; b < buckets; b++) {
+			largest = Math.max(largest, start[b + 1]);
+			start[b + 1] += start[b];
+		}
+		long[] members = new long[n];
+		int[] fill = Arrays.copyOf(start, buckets);
+		for (long hash : hashes)
+			members[fill[bucket(hash, buckets)]++] = hash;
+		// Place the buckets from the largest to the smallest.
+		int[] bySize = new int[largest + 2];
+		for (int b = 0; b < buckets; b++)
+			bySize[largest - (start[b + 1] - start[b]) + 1]++;
+		for (int s = 0; s <= largest; s++)
+			bySize[s + 1] += bySize[s];
+		int[] order = new int[buckets];
+		for (int b = 0; b < buckets; b++)
+			order[bySize[largest - (start[b + 1] - start[b])]++] = b;
+		int[] displacements = new int[buckets];
+		boolean[] taken = new boolean[n];
+		int[] slots = new int[largest];
+		for (int b : order) {
+			int size = start[b + 1] - start[b];
+			if (size == 0)
+				break;
+			int d = 0;
+			search: for (;; d++) {
+				if (d == MAX_DISPLACEMENT)
+					return null;
+				for (int i = 0; i < size; i++) {
+					int slot = slot(members[start[b] + i], d, n);
+					if (taken[slot])
+						continue search;
+					for (int j = 0; j < i; j++)
+						if (slots[j] == slot)
+							continue search;
+					slots[i] = slot;
+				}
+				break;
+			}
+			displacements[b] = d;
+			for (int i = 0; i < size; i++)
+				taken[slots[i]] = true;
+		}
+		return new MinimalPerfectHash(seed, n, displacements);
+	}
+
+	private static int bucket(long hash, int buckets) {
+		return (int) (((hash >>> 32) * buckets) >>> 32);
+	}
+
+	private static int slot(long hash, int displacement, int size) {
+		return (int) (((mix(hash + displacement * 0x9E3779B97F4A7C15L) >>> 32) * size) >>> 32);
+	}
+
+	static long hash(int key, long seed) {
+		return mix(key + seed * 0xC2B2AE3D27D4EB4FL);
+	}
+
+	static long hash(String key, long seed) {
+		long hash = 0xCBF29CE484222325L ^ seed;
+		for (int i = 0; i < key.length(); i++)
+			hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+		return mix(hash);
+	}
+
+	/**
+	 * The finalization step of MurmurHash3.
+	 */
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+		hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * The number of displacements a bucket tries before the function is built
+	 * again with another seed.
+	 */
+	private static final int MAX_DISPLACEMENT = 1 << 24;
+
+	private final long seed;
+
+	private final int size;
+
+	private final int[] displacements;
+}
@@ -0,0 +1,410 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of indices of the titles of the publications of a reference
+ * database, finding the publications whose titles are nearly the same,
+ * e.g. differing in case, punctuation or a typo, with locality-sensitive
+ * hashing.
+ *
+ * A title is lowercased and reduced to its letters and digits, its words
+ * separated by single spaces, and cut into its shingles of three characters.
+ * Its MinHash signature holds, for each of 64 hash functions, the minimal
+ * hash of its shingles; two titles agree on a signature entry with a
+ * probability equal to the Jaccard similarity of their shingle sets. The
+ * signature is split into 16 bands of 4 entries, and the titles are hashed
+ * into a bucket per band: two titles with similarity s share at least one
+ * bucket with probability 1 - (1 - s^4)^16, i.e. 0.99 for s = 0.7 and 0.07
+ * for s = 0.3. Only titles sharing a bucket are compared, by the fraction of
+ * signature entries they agree on.
+ *
+ * The signatures and the bucket lists are stored in primitive arrays, by
+ * slot, and kept up to date on the notifications of the database.
+ *
+ * @invar The threshold of each index is between 0 and 1.
+ *        | getThreshold() > 0 && getThreshold() <= 1
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class NearDuplicateTitleIndex extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new index for the given database with the given
+	 * similarity threshold, and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database to be indexed.
+	 * @param threshold
+	 *            The estimated Jaccard similarity from which two titles are
+	 *            near-duplicates.
+	 * @post This index is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated, or the
+	 *             given threshold is not above 0 and at most 1.
+	 */
+	public NearDuplicateTitleIndex(ReferenceDataBase dataBase, double threshold) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated() || !(threshold > 0 && threshold <= 1))
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		this.threshold = threshold;
+		this.minimumAgreement = (int) Math.ceil(threshold * HASHES - 1e-9);
+		allocate(16);
+		for (int band = 0; band < BANDS; band++)
+			this.buckets[band] = new IntIntMap(NONE);
+		for (Publication publication : dataBase.getAllPublications())
+			insert(publication);
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this index.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Return the estimated Jaccard similarity from which two titles are
+	 * near-duplicates for this index.
+	 */
+	@Basic
+	public double getThreshold() {
+		return threshold;
+	}
+
+	private final double threshold;
+
+	/**
+	 * The number of signature entries two near-duplicate titles agree on.
+	 */
+	private final int minimumAgreement;
+
+	/**
+	 * Terminate this index.
+	 *
+	 * @post This index is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Return the publications of the database whose title is a
+	 * near-duplicate of the title of the given publication, other than the
+	 * given publication itself. The given publication need not be in the
+	 * database, so it can be checked before it is added.
+	 */
+	public Set<Publication> findNearDuplicates(Publication publication) {
+		int[] signature = signatureOf(publication.getTitle());
+		int[] keys = new int[BANDS];
+		for (int band = 0; band < BANDS; band++)
+			keys[band] = bandKey(signature, 0, band);
+		Set<Publication> result = new HashSet<Publication>();
+		for (int band = 0; band < BANDS; band++)
+			for (int slot = this.buckets[band].get(keys[band]); slot != NONE; slot = this.next[slot * BANDS + band])
+				if (firstSharedBand(keys, slot) == band && agreement(signature, 0, slot) >= this.minimumAgreement) {
+					Publication other = this.dataBase.attachedWithID(this.ids[slot]);
+					if (other != publication)
+						result.add(other);
+				}
+		return result;
+	}
+
+	/**
+	 * Return all pairs of publications of the database with near-duplicate
+	 * titles, searched in parallel.
+	 *
+	 * @return The pairs, each as an array of two publications with the
+	 *         lowest ID first, ordered by those IDs.
+	 */
+	public List<Publication[]> findNearDuplicatePairs() {
+		List<int[]> pairs = ForkJoinPool.commonPool().invoke(new FindPairs(0, this.end));
+		Collections.sort(pairs, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] pair1, int[] pair2) {
+				return pair1[0] != pair2[0] ? Integer.compare(pair1[0], pair2[0])
+						: Integer.compare(pair1[1], pair2[1]);
+			}
+		});
+		List<Publication[]> result = new ArrayList<Publication[]>(pairs.size());
+		for (int[] pair : pairs)
+			result.add(new Publication[] { this.dataBase.attachedWithID(pair[0]),
+					this.dataBase.attachedWithID(pair[1]) });
+		return result;
+	}
+
+	/**
+	 * A class of tasks finding the pairs of near-duplicates of the slots of a
+	 * range with the slots after them.
+	 */
+	@SuppressWarnings("serial")
+	private class FindPairs extends RecursiveTask<List<int[]>> {
+
+		FindPairs(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<int[]> compute() {
+			if (this.to - this.from > GRAIN) {
+				int middle = (this.from + this.to) >>> 1;
+				FindPairs right = new FindPairs(middle, this.to);
+				right.fork();
+				List<int[]> result = new FindPairs(this.from, middle).compute();
+				result.addAll(right.join());
+				return result;
+			}
+			List<int[]> result = new ArrayList<int[]>();
+			int[] keys = new int[BANDS];
+			for (int slot = this.from; slot < this.to; slot++) {
+				if (ids[slot] == NONE)
+					continue;
+				System.arraycopy(bandKeys, slot * BANDS, keys, 0, BANDS);
+				for (int band = 0; band < BANDS; band++)
+					for (int other = buckets[band].get(keys[band]); other != NONE; other = next[other * BANDS + band])
+						// Each pair is reported once, by its lower slot, for
+						// the first band its slots share.
+						if (other > slot && firstSharedBand(keys, other) == band
+								&& agreement(signatures, slot * HASHES, other) >= minimumAgreement)
+							result.add(ids[slot] < ids[other] ? new int[] { ids[slot], ids[other] }
+									: new int[] { ids[other], ids[slot] });
+			}
+			return result;
+		}
+
+		private final int from, to;
+	}
+
+	/**
+	 * The number of slots above which a search for pairs is split over the
+	 * pool.
+	 */
+	private static final int GRAIN = 1024;
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		insert(publication);
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		remove(publication.getId());
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (attribute == PublicationAttribute.TITLE && this.dataBase.isAttached(publication)) {
+			remove(publication.getId());
+			insert(publication);
+		}
+	}
+
+	/**
+	 * Return the MinHash signature of the given title.
+	 */
+	static int[] signatureOf(String title) {
+		StringBuilder normalized = new StringBuilder(title.length());
+		boolean space = false;
+		for (int i = 0; i < title.length(); i++) {
+			char c = title.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				if (space && normalized.length() > 0)
+					normalized.append(' ');
+				normalized.append(Character.toLowerCase(c));
+				space = false;
+			} else
+				space = true;
+		}
+		int[] signature = new int[HASHES];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+		int shingles = Math.max(1, normalized.length() - SHINGLE + 1);
+		for (int i = 0; i < shingles; i++) {
+			int shingle = 0;
+			for (int j = i; j < Math.min(normalized.length(), i + SHINGLE); j++)
+				shingle = shingle * 65599 + normalized.charAt(j);
+			for (int k = 0; k < HASHES; k++) {
+				int hash = mix(shingle * MULTIPLIERS[k] + MULTIPLIERS[HASHES - 1 - k]);
+				if (hash < signature[k])
+					signature[k] = hash;
+			}
+		}
+		return signature;
+	}
+
+	private static int mix(int hash) {
+		hash = (hash ^ (hash >>> 16)) * 0x85EBCA6B;
+		hash = (hash ^ (hash >>> 13)) * 0xC2B2AE35;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Return the key of the given band of the signature at the given offset
+	 * of the given array.
+	 */
+	private static int bandKey(int[] signatures, int offset, int band) {
+		int key = band;
+		for (int row = 0; row < ROWS; row++)
+			key = key * 0x01000193 ^ signatures[offset + band * ROWS + row];
+		return mix(key);
+	}
+
+	/**
+	 * Return the first band in which the title with the given band keys and
+	 * the title at the given slot share a bucket.
+	 */
+	private int firstSharedBand(int[] keys, int slot) {
+		int band = 0;
+		while (this.bandKeys[slot * BANDS + band] != keys[band])
+			band++;
+		return band;
+	}
+
+	/**
+	 * Return the number of entries the signature at the given offset of the
+	 * given array agrees on with the signature at the given slot.
+	 */
+	private int agreement(int[] signature, int offset, int slot) {
+		int agreement = 0;
+		for (int k = 0, other = slot * HASHES; k < HASHES; k++, other++)
+			if (signature[offset + k] == this.signatures[other])
+				agreement++;
+		return agreement;
+	}
+
+	private void insert(Publication publication) {
+		int slot;
+		if (this.freeSize > 0)
+			slot = this.free[--this.freeSize];
+		else {
+			if (this.end == this.ids.length)
+				grow();
+			slot = this.end++;
+		}
+		this.ids[slot] = publication.getId();
+		this.slotOf.put(publication.getId(), slot);
+		System.arraycopy(signatureOf(publication.getTitle()), 0, this.signatures, slot * HASHES, HASHES);
+		for (int band = 0; band < BANDS; band++) {
+			int key = bandKey(this.signatures, slot * HASHES, band);
+			this.bandKeys[slot * BANDS + band] = key;
+			this.next[slot * BANDS + band] = this.buckets[band].get(key);
+			this.buckets[band].put(key, slot);
+		}
+	}
+
+	private void remove(int id) {
+		int slot = this.slotOf.remove(id);
+		if (slot == NONE)
+			return;
+		for (int band = 0; band < BANDS; band++) {
+			int key = this.bandKeys[slot * BANDS + band];
+			int following = this.next[slot * BANDS + band];
+			int head = this.buckets[band].get(key);
+			if (head == slot) {
+				if (following == NONE)
+					this.buckets[band].remove(key);
+				else
+					this.buckets[band].put(key, following);
+			} else {
+				int previous = head;
+				while (this.next[previous * BANDS + band] != slot)
+					previous = this.next[previous * BANDS + band];
+				this.next[previous * BANDS + band] = following;
+			}
+		}
+		this.ids[slot] = NONE;
+		if (this.freeSize == this.free.length)
+			this.free = Arrays.copyOf(this.free, Math.max(16, this.free.length * 2));
+		this.free[this.freeSize++] = slot;
+	}
+
+	private void allocate(int capacity) {
+		this.ids = new int[capacity];
+		this.signatures = new int[capacity * HASHES];
+		this.bandKeys = new int[capacity * BANDS];
+		this.next = new int[capacity * BANDS];
+	}
+
+	private void grow() {
+		int capacity = this.ids.length * 2;
+		this.ids = Arrays.copyOf(this.ids, capacity);
+		this.signatures = Arrays.copyOf(this.signatures, capacity * HASHES);
+		this.bandKeys = Arrays.copyOf(this.bandKeys, capacity * BANDS);
+		this.next = Arrays.copyOf(this.next, capacity * BANDS);
+	}
+
+	/**
+	 * The ID of the publication at each slot, or NONE for a free slot, and
+	 * the slot of each ID.
+	 */
+	private int[] ids;
+
+	private final IntIntMap slotOf = new IntIntMap(NONE);
+
+	/**
+	 * The signature of the title at each slot, HASHES entries per slot.
+	 */
+	private int[] signatures;
+
+	/**
+	 * The key of each band of the title at each slot, and the next slot in
+	 * the bucket of that band, BANDS entries per slot.
+	 */
+	private int[] bandKeys;
+
+	private int[] next;
+
+	/**
+	 * The first slot of each bucket, by band and key.
+	 */
+	private final IntIntMap[] buckets = new IntIntMap[BANDS];
+
+	/**
+	 * The number of slots ever used, and the free slots below it.
+	 */
+	private int end;
+
+	private int[] free = new int[0];
+
+	private int freeSize;
+
+	private static final int SHINGLE = 3;
+
+	private static final int BANDS = 16;
+
+	private static final int ROWS = 4;
+
+	private static final int HASHES = BANDS * ROWS;
+
+	/**
+	 * The odd multipliers of the hash functions of the signatures.
+	 */
+	private static final int[] MULTIPLIERS = new int[HASHES];
+
+	static {
+		long seed = 0x9E3779B97F4A7C15L;
+		for (int k = 0; k < HASHES; k++) {
+			seed = seed * 6364136223846793005L + 1442695040888963407L;
+			MULTIPLIERS[k] = (int) (seed >>> 32) | 1;
+		}
+	}
+
+	private static final int NONE = -1;
+}
@@ -0,0 +1,104 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class NearDuplicateTitleIndexTest {
+
+	private ReferenceDataBase DB;
+	private NearDuplicateTitleIndex index;
+	private Publication publication1, publication2, publication3, publication4;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion in fluids", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("Object oriented programming", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("Brownian Motion In Fluids.", new String[] { "Wang, Bo" }, 2012,
+				"Transducers");
+		publication4 = new Book("Gas leak rate study of MEMS", new String[] { "Els, Wang" }, 2008, "Springer");
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		index = new NearDuplicateTitleIndex(DB, 0.7);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+	}
+
+	@Test
+	public void findNearDuplicates_caseAndPunctuation() {
+		assertEquals(Collections.singleton(publication3), index.findNearDuplicates(publication1));
+		assertEquals(Collections.singleton(publication1), index.findNearDuplicates(publication3));
+		assertTrue(index.findNearDuplicates(publication2).isEmpty());
+	}
+
+	@Test
+	public void findNearDuplicates_typo() throws Exception {
+		Publication typo = new Book("Object orientd programing", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		assertEquals(Collections.singleton(publication2), index.findNearDuplicates(typo));
+		Publication other = new Book("Object databases", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		assertTrue(index.findNearDuplicates(other).isEmpty());
+	}
+
+	@Test
+	public void findNearDuplicatePairs() {
+		List<Publication[]> pairs = index.findNearDuplicatePairs();
+		assertEquals(1, pairs.size());
+		assertArrayEquals(new Publication[] { publication1, publication3 }, pairs.get(0));
+	}
+
+	@Test
+	public void findNearDuplicatePairs_parallel() throws Exception {
+		String[] words = { "alpha", "beta", "gamma", "delta", "sensor", "fluid", "graph", "laser", "model", "noise",
+				"optical", "plasma", "quantum", "robust", "silicon", "thermal", "vacuum", "wave", "zinc", "yield" };
+		Random random = new Random(42);
+		String first = null;
+		for (int i = 0; i < 3000; i++) {
+			StringBuilder title = new StringBuilder();
+			for (int j = 0; j < 6; j++)
+				title.append(words[random.nextInt(words.length)]).append(' ');
+			DB.addAsPublication(new Book(title.toString().trim(), authors, 2000, "acco"));
+			if (first == null)
+				first = title.toString().trim();
+		}
+		Publication copy = new Book(first.toUpperCase() + ".", authors, 2000, "acco");
+		DB.addAsPublication(copy);
+		int found = 0;
+		for (Publication[] pair : index.findNearDuplicatePairs()) {
+			assertTrue(pair[0].getId() < pair[1].getId());
+			if (pair[1] == copy)
+				found++;
+		}
+		assertTrue(found >= 1);
+		assertTrue(index.findNearDuplicates(copy).size() >= 1);
+	}
+
+	@Test
+	public void update() throws Exception {
+		publication3.setTitle("Completely different");
+		assertTrue(index.findNearDuplicates(publication1).isEmpty());
+		publication2.setTitle("Brownian motion in fluid");
+		assertEquals(Collections.singleton(publication2), index.findNearDuplicates(publication1));
+		DB.removePublication(publication2);
+		assertTrue(index.findNearDuplicates(publication1).isEmpty());
+		assertTrue(index.findNearDuplicatePairs().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_illegalThreshold() {
+		new NearDuplicateTitleIndex(DB, 0);
+	}
+}
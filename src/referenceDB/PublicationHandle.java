@@ -0,0 +1,151 @@
+package referenceDB;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of lightweight handles of the publications of a publication store.
+ *
+ * A handle only holds its store, the slot of its publication in that store
+ * and its ID. The type and the number of citing publications are read from
+ * the columns of the store; all other accessors decode the publication, or
+ * take it from the cache of the store. Two handles are equal if they refer
+ * to the same publication of the same store.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+@Immutable
+public final class PublicationHandle {
+
+	PublicationHandle(PublicationStore store, int slot, int id) {
+		this.store = store;
+		this.slot = slot;
+		this.id = id;
+	}
+
+	/**
+	 * Return the store of this handle.
+	 */
+	@Basic
+	public PublicationStore getStore() {
+		return store;
+	}
+
+	private final PublicationStore store;
+
+	/**
+	 * Return the slot of the publication of this handle in its store.
+	 */
+	@Basic
+	int getSlot() {
+		return slot;
+	}
+
+	private final int slot;
+
+	/**
+	 * Return the ID of the publication of this handle.
+	 */
+	@Basic
+	public int getId() {
+		return id;
+	}
+
+	private final int id;
+
+	/**
+	 * Return the type of the publication of this handle, without decoding it.
+	 */
+	public Class<? extends Publication> getType() {
+		return this.store.typeAt(this.slot);
+	}
+
+	/**
+	 * Return the number of publications citing the publication of this
+	 * handle, without decoding it.
+	 */
+	public int getCitedByNumber() {
+		return this.store.citedByNumberAt(this.slot);
+	}
+
+	/**
+	 * Return the record of the publication of this handle, decoding it if it
+	 * is not in the cache of the store.
+	 */
+	public PublicationRecord getRecord() {
+		return this.store.recordAt(this.slot);
+	}
+
+	/**
+	 * Return the title of the publication of this handle.
+	 */
+	public String getTitle() {
+		return getRecord().getTitle();
+	}
+
+	/**
+	 * Return the authors of the publication of this handle, given as last
+	 * name, first name.
+	 */
+	public String[] getAuthors() {
+		return getRecord().getAuthors();
+	}
+
+	/**
+	 * Return the authors of the publication of this handle, given as
+	 * "initialOfFirstName. lastName".
+	 */
+	public String[] getAuthorsNames() {
+		return getRecord().getAuthorsNames();
+	}
+
+	/**
+	 * Return the year of the publication of this handle.
+	 */
+	public int getYear() {
+		return getRecord().getYear();
+	}
+
+	/**
+	 * Return the value of the given attribute of the publication of this
+	 * handle, or null if its type has no such attribute.
+	 */
+	public Object getAttribute(PublicationAttribute attribute) {
+		return getRecord().getAttribute(attribute);
+	}
+
+	/**
+	 * Return the IDs of the publications cited by the publication of this
+	 * handle, in increasing order.
+	 */
+	public int[] getCites() {
+		return getRecord().getCites();
+	}
+
+	/**
+	 * Return the IDs of the publications citing the publication of this
+	 * handle, in increasing order.
+	 */
+	public int[] getCitedBy() {
+		return getRecord().getCitedBy();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof PublicationHandle && ((PublicationHandle) other).store == this.store
+				&& ((PublicationHandle) other).id == this.id;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.id;
+	}
+
+	@Override
+	public String toString() {
+		return getType().getSimpleName() + " " + this.id;
+	}
+}
@@ -0,0 +1,400 @@
+package referenceDB;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of immutable records of the state of a publication of a reference
+ * database at some point in time: its ID, type, attributes and the IDs of the
+ * publications of the database it cites and is cited by.
+ *
+ * Records are what the read-only views of a database hand out, so they can be
+ * shared between threads without any synchronization.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+@Immutable
+public final class PublicationRecord {
+
+	/**
+	 * Initialize this new record with the current state of the given
+	 * publication of the given database.
+	 *
+	 * @param publication
+	 *            The publication to be recorded.
+	 * @param dataBase
+	 *            The database of the publication; only citations with
+	 *            publications of that database are recorded.
+	 */
+	PublicationRecord(Publication publication, ReferenceDataBase dataBase) {
+		this.id = publication.getId();
+		this.type = publication.getClass();
+		this.attributes = new EnumMap<PublicationAttribute, Object>(PublicationAttribute.class);
+		for (PublicationAttribute attribute : PublicationAttribute.values()) {
+			Object value = attributeOf(publication, attribute);
+			if (value != null)
+				this.attributes.put(attribute, value);
+		}
+		this.authorsNames = publication.getAuthorsNames();
+		this.cites = idsOf(publication.getAllCites(), dataBase);
+		this.citedBy = idsOf(publication.getAllCitedBy(), dataBase);
+	}
+
+	/**
+	 * Initialize this new record with the given state. The given map and
+	 * arrays are taken over, not copied.
+	 */
+	PublicationRecord(int id, Class<? extends Publication> type, Map<PublicationAttribute, Object> attributes,
+			String[] authorsNames, int[] cites, int[] citedBy) {
+		this.id = id;
+		this.type = type;
+		this.attributes = attributes;
+		this.authorsNames = authorsNames;
+		this.cites = cites;
+		this.citedBy = citedBy;
+	}
+
+	/**
+	 * Return the current value of the given attribute of the given
+	 * publication.
+	 *
+	 * @return The value of the attribute, or null if the type of the
+	 *         publication has no such attribute. The authors are returned as
+	 *         a copy.
+	 */
+	static Object attributeOf(Publication publication, PublicationAttribute attribute) {
+		switch (attribute) {
+		case TITLE:
+			return publication.getTitle();
+		case AUTHORS:
+			return publication.getAuthors().clone();
+		case YEAR:
+			return publication.getYear();
+		case JOURNAL:
+			return publication instanceof JournalArticle ? ((JournalArticle) publication).getJournal() : null;
+		case ISSUE_NUMBER:
+			return publication instanceof JournalArticle ? ((JournalArticle) publication).getIssueNumber() : null;
+		case PUBLISHER:
+			return publication instanceof Book ? ((Book) publication).getPublisher() : null;
+		case CONFERENCE:
+			return publication instanceof ConferencePaper ? ((ConferencePaper) publication).getConference() : null;
+		default:
+			return null;
+		}
+	}
+
+	private static int[] idsOf(Iterable<Publication> publications, ReferenceDataBase dataBase) {
+		int[] ids = new int[8];
+		int size = 0;
+		for (Publication publication : publications)
+			if (dataBase.isAttached(publication)) {
+				if (size == ids.length)
+					ids = Arrays.copyOf(ids, size * 2);
+				ids[size++] = publication.getId();
+			}
+		ids = Arrays.copyOf(ids, size);
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	/**
+	 * Return the ID of the recorded publication.
+	 */
+	@Basic
+	public int getId() {
+		return id;
+	}
+
+	private final int id;
+
+	/**
+	 * Return the type of the recorded publication.
+	 */
+	@Basic
+	public Class<? extends Publication> getType() {
+		return type;
+	}
+
+	private final Class<? extends Publication> type;
+
+	/**
+	 * Return the title of the recorded publication.
+	 */
+	public String getTitle() {
+		return (String) this.attributes.get(PublicationAttribute.TITLE);
+	}
+
+	/**
+	 * Return the authors of the recorded publication, given as last name,
+	 * first name.
+	 */
+	public String[] getAuthors() {
+		return ((String[]) this.attributes.get(PublicationAttribute.AUTHORS)).clone();
+	}
+
+	/**
+	 * Return the authors of the recorded publication, given as
+	 * "initialOfFirstName. lastName".
+	 */
+	public String[] getAuthorsNames() {
+		return this.authorsNames.clone();
+	}
+
+	private final String[] authorsNames;
+
+	/**
+	 * Return the year of the recorded publication.
+	 */
+	public int getYear() {
+		return (Integer) this.attributes.get(PublicationAttribute.YEAR);
+	}
+
+	/**
+	 * Return the value of the given attribute of the recorded publication.
+	 *
+	 * @return The value of the attribute, or null if the type of the
+	 *         publication has no such attribute. The authors are returned as
+	 *         a copy.
+	 */
+	public Object getAttribute(PublicationAttribute attribute) {
+		Object value = this.attributes.get(attribute);
+		return value instanceof String[] ? ((String[]) value).clone() : value;
+	}
+
+	private final Map<PublicationAttribute, Object> attributes;
+
+	/**
+	 * Return the IDs of the publications cited by the recorded publication, in
+	 * increasing order.
+	 */
+	public int[] getCites() {
+		return this.cites.clone();
+	}
+
+	/**
+	 * Return the number of publications cited by the recorded publication.
+	 */
+	public int getCitesNumber() {
+		return this.cites.length;
+	}
+
+	/**
+	 * Check whether the recorded publication cites the publication with the
+	 * given ID.
+	 */
+	public boolean cites(int id) {
+		return Arrays.binarySearch(this.cites, id) >= 0;
+	}
+
+	private final int[] cites;
+
+	/**
+	 * Return the IDs of the publications citing the recorded publication, in
+	 * increasing order.
+	 */
+	public int[] getCitedBy() {
+		return this.citedBy.clone();
+	}
+
+	/**
+	 * Return the number of publications citing the recorded publication.
+	 */
+	public int getCitedByNumber() {
+		return this.citedBy.length;
+	}
+
+	/**
+	 * Return the ID of the publication citing the recorded publication at the
+	 * given position, without copying.
+	 */
+	int citedByAt(int index) {
+		return this.citedBy[index];
+	}
+
+	private final int[] citedBy;
+
+	/**
+	 * Return a copy of this record with the given value of the given
+	 * attribute. A change of the authors also changes the short names.
+	 */
+	PublicationRecord withAttribute(PublicationAttribute attribute, Object value) {
+		Map<PublicationAttribute, Object> attributes = new EnumMap<PublicationAttribute, Object>(this.attributes);
+		String[] authorsNames = this.authorsNames;
+		if (value == null)
+			attributes.remove(attribute);
+		else
+			attributes.put(attribute, value instanceof String[] ? ((String[]) value).clone() : value);
+		if (attribute == PublicationAttribute.AUTHORS && value != null) {
+			String[] authors = (String[]) value;
+			authorsNames = new String[authors.length];
+			for (int i = 0; i < authors.length; i++)
+				authorsNames[i] = Publication.getShortName(authors[i]);
+		}
+		return new PublicationRecord(this.id, this.type, attributes, authorsNames, this.cites, this.citedBy);
+	}
+
+	/**
+	 * Return a copy of this record with the given IDs of the publications it
+	 * cites and is cited by, in increasing order. The arrays are taken over,
+	 * not copied.
+	 */
+	PublicationRecord withCitations(int[] cites, int[] citedBy) {
+		return new PublicationRecord(this.id, this.type, this.attributes, this.authorsNames, cites, citedBy);
+	}
+
+	/**
+	 * Write this record to the given output, to be read back with readFrom.
+	 *
+	 * @throws IOException
+	 *             The output could not be written.
+	 */
+	public void writeTo(DataOutput output) throws IOException {
+		output.writeInt(this.id);
+		output.writeUTF(this.type.getName());
+		output.writeByte(this.attributes.size());
+		for (Map.Entry<PublicationAttribute, Object> entry : this.attributes.entrySet()) {
+			output.writeByte(entry.getKey().ordinal());
+			writeValue(output, entry.getValue());
+		}
+		writeStrings(output, this.authorsNames);
+		writeInts(output, this.cites);
+		writeInts(output, this.citedBy);
+	}
+
+	/**
+	 * Return a record read from the given input, as written by writeTo.
+	 *
+	 * @throws IOException
+	 *             The input could not be read, or does not hold a record.
+	 */
+	public static PublicationRecord readFrom(DataInput input) throws IOException {
+		int id = input.readInt();
+		Class<? extends Publication> type = typeNamed(input.readUTF());
+		Map<PublicationAttribute, Object> attributes = new EnumMap<PublicationAttribute, Object>(
+				PublicationAttribute.class);
+		for (int i = input.readByte(); i > 0; i--) {
+			int attribute = input.readByte();
+			if (attribute < 0 || attribute >= PublicationAttribute.values().length)
+				throw new IOException("Unknown attribute " + attribute);
+			attributes.put(PublicationAttribute.values()[attribute], readValue(input));
+		}
+		return new PublicationRecord(id, type, attributes, readStrings(input), readInts(input), readInts(input));
+	}
+
+	/**
+	 * Write the given attribute or weight value, or null, to the given output.
+	 */
+	static void writeValue(DataOutput output, Object value) throws IOException {
+		if (value == null)
+			output.writeByte('n');
+		else if (value instanceof Integer) {
+			output.writeByte('i');
+			output.writeInt((Integer) value);
+		} else if (value instanceof Double) {
+			output.writeByte('d');
+			output.writeDouble((Double) value);
+		} else if (value instanceof String[]) {
+			output.writeByte('a');
+			writeStrings(output, (String[]) value);
+		} else {
+			output.writeByte('s');
+			output.writeUTF((String) value);
+		}
+	}
+
+	static Object readValue(DataInput input) throws IOException {
+		switch (input.readByte()) {
+		case 'n':
+			return null;
+		case 'i':
+			return input.readInt();
+		case 'd':
+			return input.readDouble();
+		case 'a':
+			return readStrings(input);
+		case 's':
+			return input.readUTF();
+		default:
+			throw new IOException("Unknown value tag");
+		}
+	}
+
+	/**
+	 * Return the type of publications with the given name, as written by
+	 * writeTo.
+	 *
+	 * @throws IOException
+	 *             There is no such type of publications.
+	 */
+	static Class<? extends Publication> typeNamed(String name) throws IOException {
+		try {
+			return Class.forName(name).asSubclass(Publication.class);
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static void writeStrings(DataOutput output, String[] strings) throws IOException {
+		output.writeInt(strings.length);
+		for (String string : strings)
+			output.writeUTF(string);
+	}
+
+	private static String[] readStrings(DataInput input) throws IOException {
+		String[] strings = new String[readLength(input)];
+		for (int i = 0; i < strings.length; i++)
+			strings[i] = input.readUTF();
+		return strings;
+	}
+
+	private static void writeInts(DataOutput output, int[] ints) throws IOException {
+		output.writeInt(ints.length);
+		for (int value : ints)
+			output.writeInt(value);
+	}
+
+	private static int[] readInts(DataInput input) throws IOException {
+		int[] ints = new int[readLength(input)];
+		for (int i = 0; i < ints.length; i++)
+			ints[i] = input.readInt();
+		return ints;
+	}
+
+	/**
+	 * Return the length of an array read from the given input, before the
+	 * array is allocated.
+	 *
+	 * @throws IOException
+	 *             The length is negative or above MAX_LENGTH.
+	 */
+	private static int readLength(DataInput input) throws IOException {
+		int length = input.readInt();
+		if (length < 0 || length > MAX_LENGTH)
+			throw new IOException("Invalid length " + length);
+		return length;
+	}
+
+	/**
+	 * The maximal number of authors, or of citations in one direction, of a
+	 * record read from an input.
+	 */
+	static final int MAX_LENGTH = 1 << 24;
+
+	@Override
+	public String toString() {
+		return this.type.getSimpleName() + " " + this.id + ": " + getTitle() + ", " + getYear();
+	}
+}
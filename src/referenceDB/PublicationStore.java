@@ -0,0 +1,555 @@
+package referenceDB;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+
+/**
+ * A class of persistent, read-only stores of the publications of a reference
+ * database, handing out lightweight handles that decode the publications
+ * from a memory-mapped file on demand.
+ *
+ * The file holds the publications at slots in increasing ID, each encoded as
+ * by PublicationRecord.writeTo, next to a few columns that answer the queries
+ * without decoding any publication: the sorted IDs, the type of each slot,
+ * the lowercase UTF-8 titles back to back, the sorted short author names
+ * with the slots of their publications, and the slots citing each slot. Only
+ * the accessors of a handle that need more than its ID, type and number of
+ * citing publications decode its publication.
+ *
+ * Decoded publications are kept in a cache of at most the given number of
+ * least recently used ones, through soft references, so the heap used by a
+ * store follows the publications in use, not all publications, and the
+ * garbage collector can still reclaim the cache when memory runs low.
+ *
+ * A store can be read by any number of threads at once.
+ *
+ * @invar The cache capacity of each store is positive.
+ *        | getCacheCapacity() > 0
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class PublicationStore {
+
+	/**
+	 * Write all publications of the given view, with their weights, to the
+	 * given file, replacing its content.
+	 *
+	 * @param view
+	 *            The view to write.
+	 * @param file
+	 *            The file to write to.
+	 * @throws IllegalArgumentException
+	 *             The given view or file is not effective.
+	 * @throws IOException
+	 *             The file could not be written.
+	 */
+	public static void write(ReferenceDataBaseView view, File file) throws IllegalArgumentException, IOException {
+		if (view == null || file == null)
+			throw new IllegalArgumentException();
+		List<PublicationRecord> records = new ArrayList<PublicationRecord>(view.getAllPublications());
+		Collections.sort(records, new Comparator<PublicationRecord>() {
+			@Override
+			public int compare(PublicationRecord record1, PublicationRecord record2) {
+				return Integer.compare(record1.getId(), record2.getId());
+			}
+		});
+		int n = records.size();
+		int[] ids = new int[n];
+		List<Class<? extends Publication>> types = new ArrayList<Class<? extends Publication>>();
+		byte[] typeCodes = new byte[n];
+		TreeMap<String, List<Integer>> byName = new TreeMap<String, List<Integer>>();
+		for (int slot = 0; slot < n; slot++) {
+			PublicationRecord record = records.get(slot);
+			ids[slot] = record.getId();
+			if (!types.contains(record.getType()))
+				types.add(record.getType());
+			typeCodes[slot] = (byte) types.indexOf(record.getType());
+			for (String name : new HashSet<String>(Arrays.asList(record.getAuthorsNames()))) {
+				List<Integer> slots = byName.get(name);
+				if (slots == null)
+					byName.put(name, slots = new ArrayList<Integer>());
+				slots.add(slot);
+			}
+		}
+		long[] sections = new long[SECTIONS];
+		CountingOutputStream counter = new CountingOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		DataOutputStream output = new DataOutputStream(counter);
+		try {
+			// The header, with the sections patched in at the end.
+			output.writeInt(MAGIC);
+			output.writeInt(n);
+			output.writeInt(byName.size());
+			for (int i = 0; i < SECTIONS; i++)
+				output.writeLong(0);
+			long[] recordOffsets = new long[n + 1];
+			sections[RECORDS] = counter.count;
+			for (int slot = 0; slot < n; slot++) {
+				recordOffsets[slot] = counter.count;
+				records.get(slot).writeTo(output);
+			}
+			recordOffsets[n] = counter.count;
+			long[] titleOffsets = new long[n + 1];
+			sections[TITLES] = counter.count;
+			for (int slot = 0; slot < n; slot++) {
+				titleOffsets[slot] = counter.count;
+				output.write(records.get(slot).getTitle().toLowerCase().getBytes(StandardCharsets.UTF_8));
+			}
+			titleOffsets[n] = counter.count;
+			long[] nameOffsets = new long[byName.size() + 1];
+			int name = 0;
+			sections[NAME_BYTES] = counter.count;
+			for (String authorName : byName.keySet()) {
+				nameOffsets[name++] = counter.count;
+				output.write(authorName.getBytes(StandardCharsets.UTF_8));
+			}
+			nameOffsets[name] = counter.count;
+			sections[IDS] = counter.count;
+			for (int id : ids)
+				output.writeInt(id);
+			sections[TYPE_CODES] = counter.count;
+			output.write(typeCodes);
+			sections[RECORD_OFFSETS] = counter.count;
+			for (long offset : recordOffsets)
+				output.writeLong(offset);
+			sections[TITLE_OFFSETS] = counter.count;
+			for (long offset : titleOffsets)
+				output.writeLong(offset);
+			sections[NAME_OFFSETS] = counter.count;
+			for (long offset : nameOffsets)
+				output.writeLong(offset);
+			sections[POSTING_STARTS] = counter.count;
+			int start = 0;
+			output.writeInt(start);
+			for (List<Integer> slots : byName.values())
+				output.writeInt(start += slots.size());
+			sections[POSTINGS] = counter.count;
+			for (List<Integer> slots : byName.values())
+				for (int slot : slots)
+					output.writeInt(slot);
+			List<List<Integer>> citedBy = new ArrayList<List<Integer>>(n);
+			for (PublicationRecord record : records) {
+				List<Integer> citing = new ArrayList<Integer>(record.getCitedByNumber());
+				for (int i = 0; i < record.getCitedByNumber(); i++) {
+					int slot = Arrays.binarySearch(ids, record.citedByAt(i));
+					if (slot >= 0)
+						citing.add(slot);
+				}
+				citedBy.add(citing);
+			}
+			sections[CITED_BY_STARTS] = counter.count;
+			start = 0;
+			output.writeInt(start);
+			for (List<Integer> citing : citedBy)
+				output.writeInt(start += citing.size());
+			sections[CITED_BY] = counter.count;
+			for (List<Integer> citing : citedBy)
+				for (int slot : citing)
+					output.writeInt(slot);
+			sections[TYPES] = counter.count;
+			output.writeInt(types.size());
+			for (Class<? extends Publication> type : types) {
+				output.writeUTF(type.getName());
+				output.writeDouble(view.getWeight(type));
+			}
+		} finally {
+			output.close();
+		}
+		RandomAccessFile header = new RandomAccessFile(file, "rw");
+		try {
+			header.seek(HEADER);
+			for (long section : sections)
+				header.writeLong(section);
+		} finally {
+			header.close();
+		}
+	}
+
+	/**
+	 * A class of output streams counting the bytes written through them.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+
+		long count;
+	}
+
+	/**
+	 * Initialize this new store with the publications written to the given
+	 * file.
+	 *
+	 * @param file
+	 *            The file written by write.
+	 * @param cacheCapacity
+	 *            The maximal number of decoded publications kept.
+	 * @throws IllegalArgumentException
+	 *             The given file is not effective, or the given capacity is
+	 *             not positive.
+	 * @throws IOException
+	 *             The file could not be mapped, or was not written by write.
+	 */
+	public PublicationStore(File file, int cacheCapacity) throws IllegalArgumentException, IOException {
+		if (file == null || cacheCapacity <= 0)
+			throw new IllegalArgumentException();
+		this.file = new MappedFile(file);
+		if (this.file.length() < HEADER + 8 * SECTIONS || this.file.getInt(0) != MAGIC)
+			throw new IOException("Not a publication store: " + file);
+		this.size = this.file.getInt(4);
+		this.namesNumber = this.file.getInt(8);
+		this.sections = new long[SECTIONS];
+		for (int i = 0; i < SECTIONS; i++)
+			this.sections[i] = this.file.getLong(HEADER + 8 * i);
+		DataInputStream types = new DataInputStream(new ByteArrayInputStream(
+				this.file.getBytes(this.sections[TYPES], (int) (this.file.length() - this.sections[TYPES]))));
+		int typesNumber = types.readInt();
+		this.types = new ArrayList<Class<? extends Publication>>(typesNumber);
+		this.weights = new double[typesNumber];
+		for (int i = 0; i < typesNumber; i++) {
+			this.types.add(PublicationRecord.typeNamed(types.readUTF()));
+			this.weights[i] = types.readDouble();
+		}
+		this.cacheCapacity = cacheCapacity;
+	}
+
+	private final MappedFile file;
+
+	/**
+	 * The start of each section of the file.
+	 */
+	private final long[] sections;
+
+	/**
+	 * The types of the publications, by type code, and their weights.
+	 */
+	private final List<Class<? extends Publication>> types;
+
+	private final double[] weights;
+
+	private final int namesNumber;
+
+	/**
+	 * Return the number of publications of this store.
+	 */
+	@Basic
+	public int size() {
+		return size;
+	}
+
+	private final int size;
+
+	/**
+	 * Return the maximal number of decoded publications this store keeps.
+	 */
+	@Basic
+	public int getCacheCapacity() {
+		return cacheCapacity;
+	}
+
+	private final int cacheCapacity;
+
+	/**
+	 * Check whether this store has a publication with the given ID.
+	 */
+	public boolean hasPublicationID(int id) {
+		return slotOf(id) >= 0;
+	}
+
+	/**
+	 * Return a handle of the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this store.
+	 */
+	public PublicationHandle getPublicationWithID(int id) throws IllegalPublicationIdException {
+		int slot = slotOf(id);
+		if (slot < 0)
+			throw new IllegalPublicationIdException(id);
+		return new PublicationHandle(this, slot, id);
+	}
+
+	/**
+	 * Return handles of all publications of this store, in increasing ID.
+	 */
+	public List<PublicationHandle> getAllPublications() {
+		List<PublicationHandle> result = new ArrayList<PublicationHandle>(this.size);
+		for (int slot = 0; slot < this.size; slot++)
+			result.add(handleAt(slot));
+		return result;
+	}
+
+	/**
+	 * Return the weight of the given type of publications when this store was
+	 * written.
+	 *
+	 * @throws IllegalArgumentException
+	 *             This store has no publications of the given type.
+	 */
+	public double getWeight(Class<? extends Publication> type) throws IllegalArgumentException {
+		int code = this.types.indexOf(type);
+		if (code < 0)
+			throw new IllegalArgumentException();
+		return this.weights[code];
+	}
+
+	/**
+	 * Find all publications of this store authored by an author, like
+	 * findByAuthor of the database, without decoding any of them.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	public Set<PublicationHandle> findByAuthor(String authorName) throws IllegalAuthorException {
+		if (!ReferenceDataBase.isValidAuthor(authorName))
+			throw new IllegalAuthorException(authorName);
+		Set<PublicationHandle> result = new HashSet<PublicationHandle>();
+		int low = 0, high = this.namesNumber - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long start = this.file.getLong(this.sections[NAME_OFFSETS] + 8L * middle);
+			long end = this.file.getLong(this.sections[NAME_OFFSETS] + 8L * (middle + 1));
+			int comparison = new String(this.file.getBytes(start, (int) (end - start)), StandardCharsets.UTF_8)
+					.compareTo(authorName);
+			if (comparison < 0)
+				low = middle + 1;
+			else if (comparison > 0)
+				high = middle - 1;
+			else {
+				int from = this.file.getInt(this.sections[POSTING_STARTS] + 4L * middle);
+				int to = this.file.getInt(this.sections[POSTING_STARTS] + 4L * (middle + 1));
+				for (int i = from; i < to; i++)
+					result.add(handleAt(this.file.getInt(this.sections[POSTINGS] + 4L * i)));
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return all publications of this store that have the given word in their
+	 * title, ignoring case, like findByTitleWord of the database, without
+	 * decoding any of them.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given word is not effective.
+	 */
+	public Set<PublicationHandle> findByTitleWord(String word) throws IllegalArgumentException {
+		if (word == null)
+			throw new IllegalArgumentException();
+		byte[] query = word.toLowerCase().getBytes(StandardCharsets.UTF_8);
+		Set<PublicationHandle> result = new HashSet<PublicationHandle>();
+		long start = this.file.getLong(this.sections[TITLE_OFFSETS]);
+		for (int slot = 0; slot < this.size; slot++) {
+			long end = this.file.getLong(this.sections[TITLE_OFFSETS] + 8L * (slot + 1));
+			if (query.length == 0 || this.file.contains(start, end, query))
+				result.add(handleAt(slot));
+			start = end;
+		}
+		return result;
+	}
+
+	/**
+	 * Calculate the citation index of the given author in this store, like
+	 * authorCitationIndex of the database, with the weights of this store.
+	 *
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	public double authorCitationIndex(String authorName) throws IllegalAuthorException {
+		double citationIndex = 0;
+		for (PublicationHandle handle : findByAuthor(authorName))
+			citationIndex += this.weights[typeCodeAt(handle.getSlot())];
+		return citationIndex;
+	}
+
+	/**
+	 * Return all publications of this store that directly or indirectly cite
+	 * the publication with the given ID, without decoding any of them.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this store.
+	 */
+	public Set<PublicationHandle> findDirIndirCites(int id) throws IllegalPublicationIdException {
+		int first = getPublicationWithID(id).getSlot();
+		BitSet found = new BitSet(this.size);
+		int[] queue = new int[16];
+		queue[0] = first;
+		int tail = 1;
+		Set<PublicationHandle> result = new HashSet<PublicationHandle>();
+		for (int head = 0; head < tail; head++) {
+			int slot = queue[head];
+			int to = citedByStart(slot + 1);
+			for (int i = citedByStart(slot); i < to; i++) {
+				int citing = this.file.getInt(this.sections[CITED_BY] + 4L * i);
+				if (!found.get(citing)) {
+					found.set(citing);
+					result.add(handleAt(citing));
+					if (tail == queue.length)
+						queue = Arrays.copyOf(queue, tail * 2);
+					queue[tail++] = citing;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the slot of the publication with the given ID, or a negative
+	 * number if this store has no such publication.
+	 */
+	private int slotOf(int id) {
+		int low = 0, high = this.size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleId = idAt(middle);
+			if (middleId < id)
+				low = middle + 1;
+			else if (middleId > id)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	private PublicationHandle handleAt(int slot) {
+		return new PublicationHandle(this, slot, idAt(slot));
+	}
+
+	int idAt(int slot) {
+		return this.file.getInt(this.sections[IDS] + 4L * slot);
+	}
+
+	private int typeCodeAt(int slot) {
+		return this.file.get(this.sections[TYPE_CODES] + slot);
+	}
+
+	Class<? extends Publication> typeAt(int slot) {
+		return this.types.get(typeCodeAt(slot));
+	}
+
+	private int citedByStart(int slot) {
+		return this.file.getInt(this.sections[CITED_BY_STARTS] + 4L * slot);
+	}
+
+	int citedByNumberAt(int slot) {
+		return citedByStart(slot + 1) - citedByStart(slot);
+	}
+
+	/**
+	 * Return the publication at the given slot, decoded or taken from the
+	 * cache.
+	 */
+	PublicationRecord recordAt(int slot) {
+		synchronized (this.cache) {
+			SoftReference<PublicationRecord> reference = this.cache.get(slot);
+			PublicationRecord record = reference == null ? null : reference.get();
+			if (record != null)
+				return record;
+		}
+		long start = this.file.getLong(this.sections[RECORD_OFFSETS] + 8L * slot);
+		long end = this.file.getLong(this.sections[RECORD_OFFSETS] + 8L * (slot + 1));
+		PublicationRecord record;
+		try {
+			record = PublicationRecord.readFrom(
+					new DataInputStream(new ByteArrayInputStream(this.file.getBytes(start, (int) (end - start)))));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		synchronized (this.cache) {
+			this.decodedNumber++;
+			this.cache.put(slot, new SoftReference<PublicationRecord>(record));
+		}
+		return record;
+	}
+
+	/**
+	 * Return the number of decoded publications this store keeps now.
+	 */
+	public int getCacheSize() {
+		synchronized (this.cache) {
+			return this.cache.size();
+		}
+	}
+
+	/**
+	 * Return the number of times a publication has been decoded.
+	 */
+	long getDecodedNumber() {
+		synchronized (this.cache) {
+			return this.decodedNumber;
+		}
+	}
+
+	private long decodedNumber;
+
+	/**
+	 * The decoded publications, by slot, from the least to the most recently
+	 * used.
+	 */
+	@SuppressWarnings("serial")
+	private final Map<Integer, SoftReference<PublicationRecord>> cache = new LinkedHashMap<Integer, SoftReference<PublicationRecord>>(
+			16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, SoftReference<PublicationRecord>> eldest) {
+			return size() > cacheCapacity;
+		}
+	};
+
+	/**
+	 * The sections of a file, after a header with a magic number, the number
+	 * of publications, the number of author names and the start of each
+	 * section.
+	 */
+	private static final int RECORDS = 0, TITLES = 1, NAME_BYTES = 2, IDS = 3, TYPE_CODES = 4, RECORD_OFFSETS = 5,
+			TITLE_OFFSETS = 6, NAME_OFFSETS = 7, POSTING_STARTS = 8, POSTINGS = 9, CITED_BY_STARTS = 10,
+			CITED_BY = 11, TYPES = 12, SECTIONS = 13;
+
+	private static final int HEADER = 12;
+
+	private static final int MAGIC = 0x50554253;
+}
@@ -0,0 +1,166 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+public class PublicationStoreTest {
+
+	private ReferenceDataBaseSnapshot snapshot;
+	private File file;
+	private PublicationStore store;
+	private Publication publication1, publication2, publication3;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion in fluids", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("Object oriented programming", new String[] { "Steegmans, Eric" }, 2014, "acco");
+		publication3 = new ConferencePaper("\u00dcber Brownian Motion", new String[] { "Wang, Bo" }, 2012,
+				"Transducers");
+		ReferenceDataBase DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		publication1.addAsCites(publication3);
+		publication2.addAsCites(publication3);
+		Random random = new Random(13);
+		String[] names = { "Wang, Bo", "Wong, Bo", "Wevers, Martine", "Steegmans, Eric" };
+		Publication previous = publication1;
+		for (int i = 0; i < 1000; i++) {
+			Publication publication = new Book("Book " + random.nextInt(500), new String[] { names[i % 4] },
+					2016 + i / 500, "acco");
+			DB.addAsPublication(publication);
+			if (random.nextBoolean())
+				publication.addAsCites(previous);
+			previous = publication;
+		}
+		snapshot = DB.snapshot();
+		file = File.createTempFile("publications", ".store");
+		file.deleteOnExit();
+		PublicationStore.write(snapshot, file);
+		store = new PublicationStore(file, 50);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void getPublicationWithID() throws Exception {
+		assertEquals(1003, store.size());
+		PublicationHandle handle = store.getPublicationWithID(publication1.getId());
+		assertEquals(publication1.getId(), handle.getId());
+		assertEquals(JournalArticle.class, handle.getType());
+		assertEquals(0, handle.getCitedByNumber());
+		assertEquals(0, store.getDecodedNumber());
+		assertEquals("Brownian motion in fluids", handle.getTitle());
+		assertArrayEquals(authors, handle.getAuthors());
+		assertEquals(2016, handle.getYear());
+		assertEquals(123, handle.getAttribute(PublicationAttribute.ISSUE_NUMBER));
+		assertArrayEquals(new int[] { publication3.getId() }, handle.getCites());
+		assertEquals(1, store.getDecodedNumber());
+		assertEquals(handle, store.getPublicationWithID(publication1.getId()));
+		assertTrue(store.hasPublicationID(publication3.getId()));
+		assertFalse(store.hasPublicationID(99));
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void getPublicationWithID_unknown() throws Exception {
+		store.getPublicationWithID(99);
+	}
+
+	@Test
+	public void getAllPublications() {
+		List<PublicationHandle> handles = store.getAllPublications();
+		List<PublicationRecord> records = snapshot.getAllPublications();
+		assertEquals(records.size(), handles.size());
+		for (int i = 0; i < records.size(); i++) {
+			PublicationRecord record = records.get(i);
+			PublicationHandle handle = handles.get(i);
+			assertEquals(record.getId(), handle.getId());
+			assertEquals(record.getType(), handle.getType());
+			assertEquals(record.getTitle(), handle.getTitle());
+			assertArrayEquals(record.getAuthorsNames(), handle.getAuthorsNames());
+			assertArrayEquals(record.getCites(), handle.getCites());
+			assertArrayEquals(record.getCitedBy(), handle.getCitedBy());
+			assertEquals(record.getCitedByNumber(), handle.getCitedByNumber());
+		}
+		// Only the most recently used publications are kept.
+		assertEquals(50, store.getCacheSize());
+		assertEquals(records.size(), store.getDecodedNumber());
+	}
+
+	@Test
+	public void queries() throws Exception {
+		for (String author : new String[] { "B. Wang", "B. Wong", "M. Wevers", "E. Steegmans", "A. Nobody" }) {
+			assertEquals(idsOf(snapshot.findByAuthor(author)), ids(store.findByAuthor(author)));
+			assertEquals(snapshot.authorCitationIndex(author), store.authorCitationIndex(author), 1e-9);
+		}
+		for (String word : new String[] { "brownian", "\u00fcber", "book 1", "OBJECT", "", "absent" })
+			assertEquals(idsOf(snapshot.findByTitleWord(word)), ids(store.findByTitleWord(word)));
+		for (PublicationRecord record : snapshot.getAllPublications())
+			assertEquals(idsOf(snapshot.findDirIndirCites(record.getId())),
+					ids(store.findDirIndirCites(record.getId())));
+		assertEquals(snapshot.getWeight(Book.class), store.getWeight(Book.class), 1e-9);
+		// No query decodes any publication.
+		assertEquals(0, store.getDecodedNumber());
+		assertEquals(0, store.getCacheSize());
+	}
+
+	@Test(expected = IllegalAuthorException.class)
+	public void findByAuthor_illegal() throws Exception {
+		store.findByAuthor("Wang");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_noCache() throws Exception {
+		new PublicationStore(file, 0);
+	}
+
+	@Test(expected = IOException.class)
+	public void constructor_notAStore() throws Exception {
+		File other = File.createTempFile("publications", ".txt");
+		other.deleteOnExit();
+		FileOutputStream output = new FileOutputStream(other);
+		output.write(new byte[200]);
+		output.close();
+		new PublicationStore(other, 10);
+	}
+
+	private static Set<Integer> idsOf(Set<PublicationRecord> records) {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (PublicationRecord record : records)
+			ids.add(record.getId());
+		return ids;
+	}
+
+	private static Set<Integer> ids(Set<PublicationHandle> handles) {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (PublicationHandle handle : handles)
+			ids.add(handle.getId());
+		return ids;
+	}
+}
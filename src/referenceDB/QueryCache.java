@@ -0,0 +1,326 @@
+package referenceDB;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalAuthorException;
+import publications.Publication;
+
+/**
+ * A class of bounded caches of the results of findByAuthor and
+ * findByTitleWord of a reference database.
+ *
+ * The results are kept by query, title words in lowercase, and weigh one
+ * plus the number of publications they hold. Which results are kept is
+ * decided as in W-TinyLFU: a new result first enters a small window, kept in
+ * least recently used order; the result leaving the window only enters the
+ * main part of the cache if a frequency sketch estimates that its query was
+ * asked more often lately than the query of the result it would evict. The
+ * main part is a segmented LRU, where results asked again are protected from
+ * new ones. A burst of queries asked once thus does not flush the popular
+ * results.
+ *
+ * Each result remembers the generation of the authors or titles of the
+ * database it was computed at, see getAuthorsGeneration and
+ * getTitlesGeneration, and is only returned while the database is still at
+ * that generation. Citations do not affect these queries and do not
+ * invalidate any result.
+ *
+ * @invar The weight of each cache is not above its maximal weight.
+ *        | getWeight() <= getMaximumWeight()
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class QueryCache {
+
+	/**
+	 * Initialize this new cache for the given database with the given
+	 * maximal weight.
+	 *
+	 * @param dataBase
+	 *            The database whose queries are to be cached.
+	 * @param maximumWeight
+	 *            The maximal total weight of the cached results.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated, or the
+	 *             given weight is not positive.
+	 */
+	public QueryCache(ReferenceDataBase dataBase, int maximumWeight) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated() || maximumWeight <= 0)
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		this.maximumWeight = maximumWeight;
+		this.windowMaximum = Math.max(1, maximumWeight / 100);
+		this.protectedMaximum = (maximumWeight - this.windowMaximum) * 4 / 5;
+		this.sketch = new FrequencySketch(maximumWeight);
+	}
+
+	/**
+	 * Return the database of this cache.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Return the maximal total weight of the results of this cache.
+	 */
+	@Basic
+	public int getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	private final int maximumWeight;
+
+	/**
+	 * Return the total weight of the results of this cache.
+	 */
+	public long getWeight() {
+		return this.window.weight + this.probation.weight + this.protectedSegment.weight;
+	}
+
+	/**
+	 * Return the number of results of this cache.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Return the number of queries answered from this cache.
+	 */
+	@Basic
+	public long getHits() {
+		return hits;
+	}
+
+	private long hits;
+
+	/**
+	 * Return the number of queries that had to be computed.
+	 */
+	@Basic
+	public long getMisses() {
+		return misses;
+	}
+
+	private long misses;
+
+	/**
+	 * Find all publications of the database authored by an author.
+	 *
+	 * @return The same publications as findByAuthor of the database, as an
+	 *         unmodifiable set.
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	public Set<Publication> findByAuthor(String authorName) throws IllegalAuthorException {
+		String key = "a" + authorName;
+		long generation = this.dataBase.getAuthorsGeneration();
+		Set<Publication> result = lookup(key, generation);
+		if (result == null) {
+			result = Collections.unmodifiableSet(this.dataBase.findByAuthor(authorName));
+			insert(key, generation, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Return all publications of the database that have the given word in
+	 * their title.
+	 *
+	 * @return The same publications as findByTitleWord of the database, as an
+	 *         unmodifiable set.
+	 */
+	public Set<Publication> findByTitleWord(String word) {
+		String key = "t" + word.toLowerCase();
+		long generation = this.dataBase.getTitlesGeneration();
+		Set<Publication> result = lookup(key, generation);
+		if (result == null) {
+			result = Collections.unmodifiableSet(this.dataBase.findByTitleWord(word));
+			insert(key, generation, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Remove all results from this cache.
+	 */
+	public void clear() {
+		this.entries.clear();
+		this.window.clear();
+		this.probation.clear();
+		this.protectedSegment.clear();
+	}
+
+	/**
+	 * Return the result cached for the given key at the given generation, or
+	 * null if there is none.
+	 */
+	private Set<Publication> lookup(String key, long generation) {
+		this.sketch.increment(key.hashCode());
+		Entry entry = this.entries.get(key);
+		if (entry != null && entry.generation != generation) {
+			remove(entry);
+			entry = null;
+		}
+		if (entry == null) {
+			this.misses++;
+			return null;
+		}
+		this.hits++;
+		if (entry.queue == this.window)
+			this.window.moveToBack(entry);
+		else if (entry.queue == this.probation) {
+			// Asked again: protect it, demoting the least recently used
+			// protected results if needed.
+			this.probation.unlink(entry);
+			this.protectedSegment.append(entry);
+			while (this.protectedSegment.weight > this.protectedMaximum) {
+				Entry demoted = this.protectedSegment.first();
+				this.protectedSegment.unlink(demoted);
+				this.probation.append(demoted);
+			}
+		} else
+			this.protectedSegment.moveToBack(entry);
+		return entry.result;
+	}
+
+	/**
+	 * Cache the given result of the given key at the given generation.
+	 */
+	private void insert(String key, long generation, Set<Publication> result) {
+		int weight = result.size() + 1;
+		if (weight > this.maximumWeight - this.windowMaximum)
+			return;
+		Entry entry = new Entry(key, generation, result, weight);
+		this.entries.put(key, entry);
+		this.window.append(entry);
+		while (this.window.weight > this.windowMaximum)
+			admit(this.window.first());
+	}
+
+	/**
+	 * Move the given candidate from the window to the main part of this
+	 * cache, evicting the less frequent of the candidate and the probation
+	 * victims while the main part is too heavy.
+	 */
+	private void admit(Entry candidate) {
+		this.window.unlink(candidate);
+		this.probation.append(candidate);
+		int candidateFrequency = this.sketch.frequency(candidate.key.hashCode());
+		while (this.probation.weight + this.protectedSegment.weight > this.maximumWeight - this.windowMaximum) {
+			Entry victim = this.probation.first() != candidate ? this.probation.first()
+					: this.protectedSegment.first();
+			if (victim == null || candidateFrequency <= this.sketch.frequency(victim.key.hashCode())) {
+				remove(candidate);
+				return;
+			}
+			remove(victim);
+		}
+	}
+
+	private void remove(Entry entry) {
+		this.entries.remove(entry.key);
+		entry.queue.unlink(entry);
+	}
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	private final Queue window = new Queue();
+
+	private final Queue probation = new Queue();
+
+	private final Queue protectedSegment = new Queue();
+
+	private final int windowMaximum;
+
+	private final int protectedMaximum;
+
+	private final FrequencySketch sketch;
+
+	/**
+	 * A class of cached results, linked in the queue they are in.
+	 */
+	private static class Entry {
+
+		Entry(String key, long generation, Set<Publication> result, int weight) {
+			this.key = key;
+			this.generation = generation;
+			this.result = result;
+			this.weight = weight;
+		}
+
+		final String key;
+
+		final long generation;
+
+		final Set<Publication> result;
+
+		final int weight;
+
+		Queue queue;
+
+		Entry previous, next;
+	}
+
+	/**
+	 * A class of doubly linked queues of entries in least recently used
+	 * order, keeping their total weight.
+	 */
+	private static class Queue {
+
+		Entry first() {
+			return this.head;
+		}
+
+		void append(Entry entry) {
+			entry.queue = this;
+			entry.previous = this.tail;
+			entry.next = null;
+			if (this.tail == null)
+				this.head = entry;
+			else
+				this.tail.next = entry;
+			this.tail = entry;
+			this.weight += entry.weight;
+		}
+
+		void unlink(Entry entry) {
+			if (entry.previous == null)
+				this.head = entry.next;
+			else
+				entry.previous.next = entry.next;
+			if (entry.next == null)
+				this.tail = entry.previous;
+			else
+				entry.next.previous = entry.previous;
+			entry.previous = entry.next = null;
+			entry.queue = null;
+			this.weight -= entry.weight;
+		}
+
+		void moveToBack(Entry entry) {
+			if (entry != this.tail) {
+				unlink(entry);
+				append(entry);
+			}
+		}
+
+		void clear() {
+			this.head = this.tail = null;
+			this.weight = 0;
+		}
+
+		Entry head, tail;
+
+		long weight;
+	}
+}
@@ -0,0 +1,124 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalAuthorException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class QueryCacheTest {
+
+	private ReferenceDataBase DB;
+	private QueryCache cache;
+	private Publication publication1, publication2, publication3, publication4;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		publication4 = new Book("other", new String[] { "Els, Wang" }, 2008, "Springer");
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		cache = new QueryCache(DB, 1000);
+	}
+
+	@Test
+	public void findByAuthor_cached() throws Exception {
+		Set<Publication> result = cache.findByAuthor("B. Wang");
+		assertEquals(DB.findByAuthor("B. Wang"), result);
+		assertSame(result, cache.findByAuthor("B. Wang"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(3, cache.getWeight());
+	}
+
+	@Test(expected = IllegalAuthorException.class)
+	public void findByAuthor_illegalName() throws Exception {
+		cache.findByAuthor("Wang");
+	}
+
+	@Test
+	public void findByTitleWord_normalized() {
+		Set<Publication> result = cache.findByTitleWord("Publication");
+		assertEquals(3, result.size());
+		assertSame(result, cache.findByTitleWord("PUBLICATION"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void findByTitleWord_unmodifiable() {
+		cache.findByTitleWord("publication").clear();
+	}
+
+	@Test
+	public void invalidation_attributes() throws Exception {
+		cache.findByAuthor("B. Wang");
+		cache.findByTitleWord("publication");
+		publication3.setAuthors(new String[] { "Ann, WitVrouw" });
+		assertEquals(1, cache.findByAuthor("B. Wang").size());
+		assertEquals(3, cache.findByTitleWord("publication").size());
+		assertEquals(1, cache.getHits());
+		publication2.setTitle("other");
+		assertEquals(2, cache.findByTitleWord("publication").size());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void invalidation_membership() throws Exception {
+		cache.findByTitleWord("other");
+		DB.addAsPublication(publication4);
+		assertEquals(1, cache.findByTitleWord("other").size());
+		DB.removePublication(publication4);
+		assertEquals(0, cache.findByTitleWord("other").size());
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void citationsKeepResults() throws Exception {
+		cache.findByAuthor("B. Wang");
+		publication1.addAsCites(publication2);
+		cache.findByAuthor("B. Wang");
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void eviction_bounded() {
+		cache = new QueryCache(DB, 20);
+		for (int i = 0; i < 100; i++)
+			cache.findByTitleWord("word" + i);
+		assertTrue(cache.getWeight() <= 20);
+		assertTrue(cache.size() > 0);
+	}
+
+	@Test
+	public void eviction_frequentSurvivesScan() {
+		cache = new QueryCache(DB, 200);
+		for (int i = 0; i < 10; i++)
+			for (int j = 0; j < 10; j++)
+				cache.findByTitleWord("popular" + j);
+		for (int i = 0; i < 1000; i++)
+			cache.findByTitleWord("once" + i);
+		long hits = cache.getHits();
+		for (int j = 0; j < 10; j++)
+			cache.findByTitleWord("popular" + j);
+		assertEquals(hits + 10, cache.getHits());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_illegalWeight() {
+		new QueryCache(DB, 0);
+	}
+}
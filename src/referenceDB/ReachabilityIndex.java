@@ -0,0 +1,363 @@
+package referenceDB;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+
+/**
+ * A class of reachability indices over the citation graph of a reference
+ * database, answering whether a publication transitively cites another one,
+ * i.e., whether the first one is in the set returned by findDirIndirCites for
+ * the second one, without computing that set.
+ *
+ * The publications that cite each other in a cycle, which the year rule of
+ * canCites allows within a year, are first collapsed into one component, so
+ * the components form a DAG. A depth-first search over that DAG then labels
+ * each component with two intervals:
+ * <ul>
+ * <li>its pre- and post-order number in the depth-first spanning tree: a
+ * component inside the tree interval of another one is reachable from it;</li>
+ * <li>its post-order number and the lowest post-order number of everything it
+ * reaches: a component whose interval is not inside that of another one is not
+ * reachable from it.</li>
+ * </ul>
+ * Most queries are answered by these labels in constant time; the others
+ * fall back to a depth-first search that is pruned by the same labels.
+ *
+ * The index is kept up to date on the notifications of its database. Adding
+ * a publication without citations, or a citation that does not make anything
+ * newly reachable, leaves the labels valid. Other changes mark the index as outdated, and it
+ * is rebuilt in bulk, in time linear in the size of the graph, by the next
+ * query.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class ReachabilityIndex extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new reachability index for the given database, and
+	 * attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database to be indexed.
+	 * @post This index is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public ReachabilityIndex(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		rebuild();
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this index.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this index.
+	 *
+	 * @post This index is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Check whether the labels of this index reflect the current citations of
+	 * its database.
+	 */
+	@Basic
+	public boolean isUpToDate() {
+		return !outdated;
+	}
+
+	private boolean outdated;
+
+	/**
+	 * Check whether the publication with the first ID directly or indirectly
+	 * cites the publication with the second ID.
+	 *
+	 * @param id1
+	 *            The ID of the citing publication.
+	 * @param id2
+	 *            The ID of the cited publication.
+	 * @return True if and only if there is a chain of one or more citations
+	 *         from the first publication to the second one.
+	 * @throws IllegalPublicationIdException
+	 *             One of the given IDs is not in the database.
+	 */
+	public boolean transitivelyCites(int id1, int id2) throws IllegalPublicationIdException {
+		if (!this.dataBase.hasPublicationID(id1))
+			throw new IllegalPublicationIdException(id1);
+		if (!this.dataBase.hasPublicationID(id2))
+			throw new IllegalPublicationIdException(id2);
+		if (this.outdated)
+			rebuild();
+		int v1 = this.graph.indexOf(id1);
+		int v2 = this.graph.indexOf(id2);
+		if (v1 < 0 || v2 < 0)
+			// Publications added since the last build, which had no citations
+			// when they were added, and have had none since, since adding one
+			// marks this index as outdated.
+			return false;
+		return reaches(this.component[v1], this.component[v2]);
+	}
+
+	/**
+	 * Rebuild the labels of this index from the current citations of its
+	 * database.
+	 *
+	 * @post This index is up to date.
+	 */
+	public void rebuild() {
+		this.graph = new CitationGraph(this.dataBase);
+		collapseCycles();
+		label();
+		this.outdated = false;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		if (hasCitations(publication))
+			this.outdated = true;
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		if (hasCitations(publication))
+			this.outdated = true;
+	}
+
+	private static boolean hasCitations(Publication publication) {
+		return !publication.getAllCites().isEmpty() || !publication.getAllCitedBy().isEmpty();
+	}
+
+	@Override
+	public void citationAdded(Publication citing, Publication cited) {
+		if (this.outdated || !this.dataBase.isAttached(citing) || !this.dataBase.isAttached(cited))
+			return;
+		int v1 = this.graph.indexOf(citing.getId());
+		int v2 = this.graph.indexOf(cited.getId());
+		if (v1 < 0 || v2 < 0 || !reaches(this.component[v1], this.component[v2]))
+			this.outdated = true;
+	}
+
+	@Override
+	public void citationRemoved(Publication citing, Publication cited) {
+		if (this.dataBase.isAttached(citing) && this.dataBase.isAttached(cited))
+			this.outdated = true;
+	}
+
+	/**
+	 * Check whether the first component reaches the second one.
+	 */
+	private boolean reaches(int c1, int c2) {
+		if (c1 == c2)
+			return this.componentSize[c1] > 1;
+		if (!contains(c1, c2))
+			return false;
+		if (this.pre[c1] <= this.pre[c2] && this.post[c2] <= this.post[c1])
+			return true;
+		// Depth-first search, skipping the components whose labels exclude
+		// the target.
+		int stamp = ++this.stamp;
+		int size = 0;
+		this.stack[size++] = c1;
+		this.visit[c1] = stamp;
+		while (size > 0) {
+			int c = this.stack[--size];
+			for (int e = this.dagStart[c]; e < this.dagStart[c + 1]; e++) {
+				int d = this.dag[e];
+				if (d == c2)
+					return true;
+				if (this.visit[d] != stamp && contains(d, c2)) {
+					this.visit[d] = stamp;
+					if (this.pre[d] <= this.pre[c2] && this.post[c2] <= this.post[d])
+						return true;
+					this.stack[size++] = d;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check whether the reach interval of the first component contains that
+	 * of the second one, which is necessary for the first to reach the
+	 * second.
+	 */
+	private boolean contains(int c1, int c2) {
+		return this.low[c1] <= this.low[c2] && this.post[c2] <= this.post[c1];
+	}
+
+	/**
+	 * Collapse the cycles of the snapshot into components with Tarjan's
+	 * algorithm, and build the DAG of the components.
+	 */
+	private void collapseCycles() {
+		CitationGraph g = this.graph;
+		int n = g.size();
+		this.component = new int[n];
+		Arrays.fill(this.component, -1);
+		int[] index = new int[n];
+		int[] lowLink = new int[n];
+		boolean[] onStack = new boolean[n];
+		Arrays.fill(index, -1);
+		int[] sccStack = new int[n];
+		int sccSize = 0;
+		int[] callStack = new int[n];
+		int[] edge = new int[n];
+		int counter = 0;
+		int components = 0;
+		for (int root = 0; root < n; root++) {
+			if (index[root] >= 0)
+				continue;
+			int depth = 0;
+			callStack[depth++] = root;
+			index[root] = lowLink[root] = counter++;
+			edge[root] = g.citesStart[root];
+			sccStack[sccSize++] = root;
+			onStack[root] = true;
+			while (depth > 0) {
+				int v = callStack[depth - 1];
+				if (edge[v] < g.citesStart[v + 1]) {
+					int w = g.cites[edge[v]++];
+					if (index[w] < 0) {
+						index[w] = lowLink[w] = counter++;
+						edge[w] = g.citesStart[w];
+						sccStack[sccSize++] = w;
+						onStack[w] = true;
+						callStack[depth++] = w;
+					} else if (onStack[w]) {
+						lowLink[v] = Math.min(lowLink[v], index[w]);
+					}
+				} else {
+					depth--;
+					if (depth > 0) {
+						int parent = callStack[depth - 1];
+						lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+					}
+					if (lowLink[v] == index[v]) {
+						int w;
+						do {
+							w = sccStack[--sccSize];
+							onStack[w] = false;
+							this.component[w] = components;
+						} while (w != v);
+						components++;
+					}
+				}
+			}
+		}
+		this.componentSize = new int[components];
+		for (int v = 0; v < n; v++)
+			this.componentSize[this.component[v]]++;
+		this.dagStart = new int[components + 1];
+		for (int v = 0; v < n; v++)
+			for (int e = g.citesStart[v]; e < g.citesStart[v + 1]; e++)
+				if (this.component[g.cites[e]] != this.component[v])
+					this.dagStart[this.component[v] + 1]++;
+		for (int c = 0; c < components; c++)
+			this.dagStart[c + 1] += this.dagStart[c];
+		this.dag = new int[this.dagStart[components]];
+		int[] fill = Arrays.copyOf(this.dagStart, components);
+		for (int v = 0; v < n; v++)
+			for (int e = g.citesStart[v]; e < g.citesStart[v + 1]; e++)
+				if (this.component[g.cites[e]] != this.component[v])
+					this.dag[fill[this.component[v]]++] = this.component[g.cites[e]];
+	}
+
+	/**
+	 * Label the components of the DAG with their pre- and post-order numbers
+	 * and with the lowest post-order number they reach.
+	 */
+	private void label() {
+		int components = this.componentSize.length;
+		this.pre = new int[components];
+		this.post = new int[components];
+		this.low = new int[components];
+		this.visit = new int[components];
+		this.stack = new int[components];
+		this.stamp = 0;
+		Arrays.fill(this.pre, -1);
+		int[] edge = new int[components];
+		int preCounter = 0, postCounter = 0;
+		// Tarjan numbers the components in reverse topological order, so
+		// starting from the highest number visits the sources first.
+		for (int root = components - 1; root >= 0; root--) {
+			if (this.pre[root] >= 0)
+				continue;
+			int depth = 0;
+			this.stack[depth++] = root;
+			this.pre[root] = preCounter++;
+			this.low[root] = Integer.MAX_VALUE;
+			edge[root] = this.dagStart[root];
+			while (depth > 0) {
+				int c = this.stack[depth - 1];
+				if (edge[c] < this.dagStart[c + 1]) {
+					int d = this.dag[edge[c]++];
+					if (this.pre[d] < 0) {
+						this.pre[d] = preCounter++;
+						this.low[d] = Integer.MAX_VALUE;
+						edge[d] = this.dagStart[d];
+						this.stack[depth++] = d;
+					} else {
+						this.low[c] = Math.min(this.low[c], this.low[d]);
+					}
+				} else {
+					this.post[c] = postCounter++;
+					this.low[c] = Math.min(this.low[c], this.post[c]);
+					depth--;
+					if (depth > 0) {
+						int parent = this.stack[depth - 1];
+						this.low[parent] = Math.min(this.low[parent], this.low[c]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The snapshot of the citation graph the labels were built from.
+	 */
+	private CitationGraph graph;
+
+	/**
+	 * The component of each publication, by index, and the size of each
+	 * component.
+	 */
+	private int[] component;
+
+	private int[] componentSize;
+
+	/**
+	 * The DAG of the components in compressed rows.
+	 */
+	private int[] dagStart;
+
+	private int[] dag;
+
+	/**
+	 * The labels of the components.
+	 */
+	private int[] pre, post, low;
+
+	/**
+	 * The scratch space of the fallback search.
+	 */
+	private int[] visit, stack;
+
+	private int stamp;
+}
@@ -0,0 +1,144 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class ReachabilityIndexTest {
+
+	private ReferenceDataBase DB;
+	private Publication publication1, publication2, publication3, publication4, publication5;
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", new String[] { "Wang, Bo" }, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new Book("publication3", new String[] { "Els, Wang" }, 2012, "Springer");
+		publication4 = new Book("publication4", new String[] { "Oliever, Thus" }, 2012, "Springer");
+		publication5 = new Book("publication5", new String[] { "Hellen, Wang" }, 2006, "Springer");
+
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+		DB.addAsPublication(publication5);
+		publication1.addAsCites(publication2);
+		publication2.addAsCites(publication3);
+		// publication3 and publication4 appeared in the same year and cite
+		// each other.
+		publication3.addAsCites(publication4);
+		publication4.addAsCites(publication3);
+	}
+
+	@Test
+	public void transitivelyCites() throws Exception {
+		ReachabilityIndex index = new ReachabilityIndex(DB);
+		assertTrue(index.transitivelyCites(publication1.getId(), publication2.getId()));
+		assertTrue(index.transitivelyCites(publication1.getId(), publication4.getId()));
+		assertTrue(index.transitivelyCites(publication3.getId(), publication3.getId()));
+		assertFalse(index.transitivelyCites(publication2.getId(), publication1.getId()));
+		assertFalse(index.transitivelyCites(publication1.getId(), publication1.getId()));
+		assertFalse(index.transitivelyCites(publication1.getId(), publication5.getId()));
+	}
+
+	@Test
+	public void transitivelyCites_addCitation() throws Exception {
+		ReachabilityIndex index = new ReachabilityIndex(DB);
+		DB.addCitation(publication1.getId(), publication3.getId());
+		assertTrue(index.isUpToDate());
+		DB.addCitation(publication4.getId(), publication5.getId());
+		assertFalse(index.isUpToDate());
+		assertTrue(index.transitivelyCites(publication1.getId(), publication5.getId()));
+		assertTrue(index.isUpToDate());
+	}
+
+	@Test
+	public void transitivelyCites_addPublication() throws Exception {
+		ReachabilityIndex index = new ReachabilityIndex(DB);
+		Publication publication6 = new Book("publication6", new String[] { "Ou, Helen" }, 2017, "acco");
+		DB.addAsPublication(publication6);
+		assertFalse(index.transitivelyCites(publication6.getId(), publication1.getId()));
+		publication6.addAsCites(publication1);
+		assertTrue(index.transitivelyCites(publication6.getId(), publication3.getId()));
+	}
+
+	@Test
+	public void transitivelyCites_addPublicationWithCitations() throws Exception {
+		ReachabilityIndex index = new ReachabilityIndex(DB);
+		Publication publication6 = new Book("publication6", new String[] { "Ou, Helen" }, 2017, "acco");
+		publication6.addAsCites(publication1);
+		DB.addAsPublication(publication6);
+		assertFalse(index.isUpToDate());
+		assertTrue(index.transitivelyCites(publication6.getId(), publication1.getId()));
+		assertTrue(index.transitivelyCites(publication6.getId(), publication3.getId()));
+		assertTrue(index.isUpToDate());
+	}
+
+	@Test
+	public void transitivelyCites_removePublication() throws Exception {
+		ReachabilityIndex index = new ReachabilityIndex(DB);
+		DB.removePublication(publication2);
+		assertFalse(index.transitivelyCites(publication1.getId(), publication3.getId()));
+		assertTrue(index.transitivelyCites(publication4.getId(), publication3.getId()));
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void transitivelyCites_illegalIdCase() throws Exception {
+		new ReachabilityIndex(DB).transitivelyCites(publication1.getId(), 999);
+	}
+
+	@Test
+	public void transitivelyCites_randomGraphs() throws Exception {
+		Random random = new Random(31);
+		for (int round = 0; round < 20; round++) {
+			ReferenceDataBase dataBase = new ReferenceDataBase();
+			Publication[] publications = new Publication[40];
+			for (int i = 0; i < publications.length; i++) {
+				publications[i] = new Book("random" + i, new String[] { "Bo, Wang" }, 2000 + random.nextInt(8), "acco");
+				dataBase.addAsPublication(publications[i]);
+			}
+			ReachabilityIndex index = new ReachabilityIndex(dataBase);
+			for (int edge = 0; edge < 60; edge++) {
+				Publication citing = publications[random.nextInt(publications.length)];
+				Publication cited = publications[random.nextInt(publications.length)];
+				if (citing.canCites(cited))
+					citing.addAsCites(cited);
+				if (edge % 20 == 19) {
+					for (Publication from : publications)
+						for (Publication to : publications)
+							assertEquals(reachable(from, to),
+									index.transitivelyCites(from.getId(), to.getId()));
+				}
+			}
+			index.terminate();
+		}
+	}
+
+	private static boolean reachable(Publication from, Publication to) {
+		Set<Publication> visited = new HashSet<Publication>();
+		Deque<Publication> queue = new ArrayDeque<Publication>(from.getAllCites());
+		while (!queue.isEmpty()) {
+			Publication publication = queue.poll();
+			if (publication == to)
+				return true;
+			if (visited.add(publication))
+				queue.addAll(publication.getAllCites());
+		}
+		return false;
+	}
+}
@@ -0,0 +1,100 @@
+package referenceDB;
+
+import java.util.Arrays;
+
+/**
+ * A class of copy-on-write directories of publication records by ID.
+ *
+ * The records are kept in chunks of CHUNK_SIZE consecutive IDs. Sharing the
+ * directory hands out the current chunks and marks them all as shared; a
+ * shared chunk is never written again, but copied by the first later write
+ * to it. Sharing therefore takes time linear in the number of chunks only,
+ * and each version keeps the chunks it was given for as long as it is
+ * referenced.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class RecordDirectory {
+
+	/**
+	 * Return the record with the given ID, or null if there is none.
+	 */
+	PublicationRecord get(int id) {
+		return get(this.chunks, id);
+	}
+
+	/**
+	 * Return the record with the given ID in the given chunks, or null if
+	 * there is none.
+	 */
+	static PublicationRecord get(PublicationRecord[][] chunks, int id) {
+		int chunk = id >>> CHUNK_BITS;
+		if (chunk >= chunks.length || chunks[chunk] == null)
+			return null;
+		return chunks[chunk][id & (CHUNK_SIZE - 1)];
+	}
+
+	/**
+	 * Set the record with the given ID.
+	 *
+	 * @param id
+	 *            The ID of the record, which is not negative.
+	 * @param record
+	 *            The new record, or null to remove the record.
+	 */
+	void put(int id, PublicationRecord record) {
+		int chunk = id >>> CHUNK_BITS;
+		if (chunk >= this.chunks.length) {
+			if (record == null)
+				return;
+			int length = Math.max(chunk + 1, this.chunks.length * 2);
+			this.chunks = Arrays.copyOf(this.chunks, length);
+			this.shared = Arrays.copyOf(this.shared, length);
+		}
+		PublicationRecord[] records = this.chunks[chunk];
+		if (records == null) {
+			if (record == null)
+				return;
+			records = this.chunks[chunk] = new PublicationRecord[CHUNK_SIZE];
+		} else if (this.shared[chunk]) {
+			records = this.chunks[chunk] = records.clone();
+			this.shared[chunk] = false;
+		}
+		int slot = id & (CHUNK_SIZE - 1);
+		if (records[slot] == null && record != null)
+			this.size++;
+		else if (records[slot] != null && record == null)
+			this.size--;
+		records[slot] = record;
+	}
+
+	/**
+	 * Return the number of records of this directory.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Return the current chunks of this directory, which are never changed
+	 * afterwards.
+	 */
+	PublicationRecord[][] share() {
+		Arrays.fill(this.shared, true);
+		return this.chunks.clone();
+	}
+
+	static final int CHUNK_BITS = 10;
+
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	private PublicationRecord[][] chunks = new PublicationRecord[0][];
+
+	/**
+	 * Whether each chunk is referenced by a version handed out by share().
+	 */
+	private boolean[] shared = new boolean[0];
+
+	private int size;
+}
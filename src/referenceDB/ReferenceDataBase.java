@@ -1,8 +1,12 @@
 package referenceDB;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -12,6 +16,8 @@ import exceptions.IllegalAuthorException;
 import exceptions.IllegalIncrementIDException;
 import exceptions.IllegalPublicationIdException;
 import publications.Publication;
+import publications.PublicationAttribute;
+import publications.PublicationListener;
 
 /**
  * A class representing a reference database, i.e., a collection of
@@ -50,10 +56,20 @@ public class ReferenceDataBase {
 	 * 
 	 * @post This DataBase is terminated.
 	 * @post All publication belonging to this DataBase have been Removed.
+	 * @post The publications that belonged to this DataBase no longer report
+	 *       their changes to it, and no listeners are registered with this
+	 *       DataBase any more.
 	 */
 	public void terminate() {
 		if (!isTerminated) {
+			for (Publication publication : this.publications.values())
+				if (publication.getListener() == this.dispatcher)
+					publication.setListener(null);
+			for (Integer id : this.publications.keySet())
+				markChanged(id);
 			this.publications.clear();
+			membershipChanged();
+			this.listeners.clear();
 		}
 		this.isTerminated = true;
 	}
@@ -65,14 +81,26 @@ public class ReferenceDataBase {
 
 	/**
 	 * Check whether this DataBase has the given publication as one of the
-	 * publications attached to it.
+	 * publications attached to it. A publication merged into a duplicate is
+	 * not attached, even though it has the ID of the duplicate.
 	 * 
 	 * @param publication
 	 *            The publication to check.
 	 */
 	@Raw
 	public boolean hasPublication(Publication publication) {
-		return this.publications.containsKey(publication.getId());
+		return isAttached(publication);
+	}
+
+	/**
+	 * Check whether the given publication itself is attached to this DataBase,
+	 * rather than another publication with the same ID.
+	 * 
+	 * @param publication
+	 *            The publication to check.
+	 */
+	boolean isAttached(Publication publication) {
+		return this.publications.get(publication.getId()) == publication;
 	}
 
 	/**
@@ -144,8 +172,124 @@ public class ReferenceDataBase {
 	public void addAsPublication(Publication publication) throws IllegalArgumentException {
 		if (!canHaveAsPublication(publication) || hasPublication(publication))
 			throw new IllegalArgumentException();
-		publication.setId(incrementID++);
+		if (this.duplicatePolicy != DuplicatePolicy.ALLOW) {
+			Publication duplicate = this.fingerprints.findDuplicate(publication);
+			if (duplicate != null) {
+				if (this.duplicatePolicy == DuplicatePolicy.REJECT)
+					throw new IllegalArgumentException();
+				merge(publication, duplicate);
+				return;
+			}
+		}
+		attach(publication, incrementID++);
+	}
+
+	/**
+	 * Add the given publication to the set of publications attached to this
+	 * Database with the given ID, rather than the next one, regardless of the
+	 * duplicate policy of this Database.
+	 * 
+	 * @param publication
+	 *            The publication to be added.
+	 * @param id
+	 *            The ID of the publication.
+	 * @post This Database has the given publication as one of its
+	 *       publications, with the given ID.
+	 * @throws IllegalArgumentException
+	 *             The given publication can not be attached to the DataBase,
+	 *             or the DataBase already has a publication with the given ID.
+	 */
+	void addAsPublication(Publication publication, int id) throws IllegalArgumentException {
+		if (!canHaveAsPublication(publication) || isAttached(publication) || hasPublicationID(id))
+			throw new IllegalArgumentException();
+		attach(publication, id);
+	}
+
+	private void attach(Publication publication, int id) {
+		publication.setId(id);
 		this.publications.put(publication.getId(), publication);
+		membershipChanged();
+		publication.setListener(this.dispatcher);
+		if (this.records != null) {
+			if (!this.representatives.containsKey(publication.getClass()))
+				this.representatives.put(publication.getClass(), publication);
+			markChanged(publication.getId());
+			for (Publication other : publication.getAllCites())
+				markChanged(other.getId());
+			for (Publication other : publication.getAllCitedBy())
+				markChanged(other.getId());
+		}
+		for (DataBaseListener listener : this.listeners)
+			listener.publicationAdded(publication);
+	}
+
+	/**
+	 * Merge the given publication into the given duplicate of it attached to
+	 * this DataBase.
+	 * 
+	 * @post The duplicate cites the publications the given publication cites,
+	 *       and is cited by the publications citing it.
+	 * @post The given publication is terminated and has the ID of the
+	 *       duplicate, but this DataBase does not have it as one of its
+	 *       publications.
+	 */
+	private void merge(Publication publication, Publication duplicate) {
+		for (Publication cited : publication.getAllCites()) {
+			if (duplicate.canCites(cited))
+				duplicate.addAsCites(cited);
+			publication.removeAsCites(cited);
+		}
+		for (Publication citing : publication.getAllCitedBy()) {
+			if (citing.canCites(duplicate))
+				citing.addAsCites(duplicate);
+			publication.removeAsCitedBy(citing);
+		}
+		publication.setId(duplicate.getId());
+		publication.terminate();
+	}
+
+	/**
+	 * Return how this DataBase treats a publication added with the same
+	 * content as one it already has.
+	 */
+	@Basic
+	public DuplicatePolicy getDuplicatePolicy() {
+		return this.duplicatePolicy;
+	}
+
+	/**
+	 * Set how this DataBase treats a publication added with the same content
+	 * as one it already has. Duplicates already in this DataBase, or made by
+	 * changing a publication, are left alone.
+	 * 
+	 * @param policy
+	 *            The new policy.
+	 * @post The duplicate policy of this DataBase is the given policy.
+	 * @throws IllegalArgumentException
+	 *             The given policy is not effective.
+	 */
+	public void setDuplicatePolicy(DuplicatePolicy policy) throws IllegalArgumentException {
+		if (policy == null)
+			throw new IllegalArgumentException();
+		if (policy != DuplicatePolicy.ALLOW && this.fingerprints == null)
+			this.fingerprints = new ContentFingerprintIndex(this);
+		this.duplicatePolicy = policy;
+	}
+
+	private DuplicatePolicy duplicatePolicy = DuplicatePolicy.ALLOW;
+
+	/**
+	 * The index of the content of the publications of this DataBase, created
+	 * when duplicates are no longer allowed.
+	 */
+	private ContentFingerprintIndex fingerprints;
+
+	/**
+	 * Return the publication with the given ID attached to this DataBase, or
+	 * null if there is none.
+	 */
+	Publication attachedWithID(int id) {
+		return this.publications.get(id);
 	}
 
 	/**
@@ -164,9 +308,249 @@ public class ReferenceDataBase {
 		if (hasPublication(publication)) {
 			publication.terminate();
 			this.publications.remove(publication.getId());
+			markChanged(publication.getId());
+			membershipChanged();
+			for (DataBaseListener listener : this.listeners)
+				listener.publicationRemoved(publication);
+			publication.setListener(null);
+		}
+	}
+
+	/**
+	 * Remove all the given publications from the set of publications attached
+	 * to this DataBase at once. The citations of the whole batch are removed
+	 * in one pass, see Publication.terminateAll, and are reported to the
+	 * listeners before the publications themselves.
+	 * 
+	 * @param publications
+	 *            The publications to be removed.
+	 * @post This Database does not have any of the given publications as one
+	 *       of its publications.
+	 * @post Each given publication that was attached to this Database is
+	 *       terminated, and the associations between those publications and
+	 *       all the other publications are removed.
+	 */
+	public void removePublications(Collection<? extends Publication> publications) {
+		Set<Publication> batch = new LinkedHashSet<Publication>();
+		for (Publication publication : publications)
+			if (publication != null && isAttached(publication))
+				batch.add(publication);
+		Publication.terminateAll(batch);
+		for (Publication publication : batch) {
+			this.publications.remove(publication.getId());
+			markChanged(publication.getId());
+		}
+		if (!batch.isEmpty())
+			membershipChanged();
+		for (Publication publication : batch) {
+			for (DataBaseListener listener : this.listeners)
+				listener.publicationRemoved(publication);
+			publication.setListener(null);
+		}
+	}
+
+	/**
+	 * Remove the publications with the given IDs from this DataBase at once.
+	 * 
+	 * @param ids
+	 *            The IDs of the publications to be removed.
+	 * @post This Database has none of the given IDs.
+	 * @throws IllegalPublicationIdException
+	 *             One of the given IDs is not in the DataBase. No publication
+	 *             is removed in that case.
+	 */
+	public void removePublications(int[] ids) throws IllegalPublicationIdException {
+		List<Publication> batch = new ArrayList<Publication>(ids.length);
+		for (int id : ids)
+			batch.add(getPublicationWithID(id));
+		removePublications(batch);
+	}
+
+	/**
+	 * Register the given listener, so it is notified of all changes of this
+	 * DataBase and of the publications attached to it.
+	 * 
+	 * @param listener
+	 *            The listener to be registered.
+	 * @throws IllegalArgumentException
+	 *             The given listener is not effective.
+	 */
+	public void addListener(DataBaseListener listener) throws IllegalArgumentException {
+		if (listener == null)
+			throw new IllegalArgumentException();
+		if (!this.listeners.contains(listener))
+			this.listeners.add(listener);
+	}
+
+	/**
+	 * Unregister the given listener.
+	 * 
+	 * @param listener
+	 *            The listener to be unregistered.
+	 * @post The given listener is no longer notified of the changes of this
+	 *       DataBase.
+	 */
+	public void removeListener(DataBaseListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * List collecting the listeners registered with this DataBase.
+	 */
+	private final List<DataBaseListener> listeners = new ArrayList<>();
+
+	/**
+	 * The listener attached to each publication of this DataBase, forwarding
+	 * the changes of that publication to the listeners of this DataBase.
+	 */
+	private final PublicationListener dispatcher = new PublicationListener() {
+
+		@Override
+		public void citationAdded(Publication citing, Publication cited) {
+			markChanged(citing.getId());
+			markChanged(cited.getId());
+			for (DataBaseListener listener : listeners)
+				listener.citationAdded(citing, cited);
+		}
+
+		@Override
+		public void citationRemoved(Publication citing, Publication cited) {
+			markChanged(citing.getId());
+			markChanged(cited.getId());
+			for (DataBaseListener listener : listeners)
+				listener.citationRemoved(citing, cited);
+		}
+
+		@Override
+		public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+			markChanged(publication.getId());
+			if (attribute == PublicationAttribute.AUTHORS)
+				authorsGeneration++;
+			else if (attribute == PublicationAttribute.TITLE)
+				titlesGeneration++;
+			for (DataBaseListener listener : listeners)
+				listener.attributeChanged(publication, attribute, oldValue);
+		}
+	};
+
+	/**
+	 * Return a consistent read-only view of this DataBase as it is now.
+	 * 
+	 * The view is immutable, so it can be read by other threads while this
+	 * DataBase keeps changing. Like all other methods of this DataBase, this
+	 * method itself must be called by the thread changing it. The first call
+	 * records all publications; each later call only records the
+	 * publications changed since the previous call.
+	 * 
+	 * @return A snapshot of this DataBase with a higher version than all
+	 *         snapshots returned before.
+	 */
+	public ReferenceDataBaseSnapshot snapshot() {
+		if (this.records == null) {
+			this.records = new RecordDirectory();
+			for (Publication publication : this.publications.values())
+				this.records.put(publication.getId(), new PublicationRecord(publication, this));
+		} else {
+			for (Integer id : this.changed) {
+				Publication publication = this.publications.get(id);
+				this.records.put(id, publication == null ? null : new PublicationRecord(publication, this));
+			}
 		}
+		this.changed.clear();
+		// The weights are static per type, so one publication of each type
+		// gives them; the types are only searched again when one of those
+		// publications has been removed.
+		boolean stale = this.representatives.isEmpty();
+		for (Publication publication : this.representatives.values())
+			stale |= !isAttached(publication);
+		if (stale) {
+			this.representatives.clear();
+			for (Publication publication : this.publications.values())
+				if (!this.representatives.containsKey(publication.getClass()))
+					this.representatives.put(publication.getClass(), publication);
+		}
+		Map<Class<? extends Publication>, Double> weights = new HashMap<Class<? extends Publication>, Double>();
+		for (Publication publication : this.representatives.values())
+			weights.put(publication.getClass(), publication.getWeight());
+		return new ReferenceDataBaseSnapshot(++this.version, this.records.share(), this.records.size(), weights);
 	}
 
+	/**
+	 * Return an immutable, read-optimized copy of this DataBase as it is now,
+	 * for serving queries on a DataBase that no longer changes.
+	 * 
+	 * @return A frozen DataBase with the publications, citations and weights
+	 *         of this DataBase.
+	 */
+	public FrozenReferenceDataBase freeze() {
+		List<PublicationRecord> records = new ArrayList<PublicationRecord>(this.publications.size());
+		Map<Class<? extends Publication>, Double> weights = new HashMap<Class<? extends Publication>, Double>();
+		for (Publication publication : this.publications.values()) {
+			records.add(new PublicationRecord(publication, this));
+			if (!weights.containsKey(publication.getClass()))
+				weights.put(publication.getClass(), publication.getWeight());
+		}
+		return new FrozenReferenceDataBase(records, weights);
+	}
+
+	/**
+	 * Return the generation of the authors of this DataBase, a number that
+	 * changes whenever a publication is added or removed or the authors of a
+	 * publication change. The result of findByAuthor can only differ from an
+	 * earlier one if this generation differs.
+	 */
+	public long getAuthorsGeneration() {
+		return this.authorsGeneration;
+	}
+
+	/**
+	 * Return the generation of the titles of this DataBase, a number that
+	 * changes whenever a publication is added or removed or the title of a
+	 * publication changes. The result of findByTitleWord can only differ from
+	 * an earlier one if this generation differs.
+	 */
+	public long getTitlesGeneration() {
+		return this.titlesGeneration;
+	}
+
+	/**
+	 * Register that publications have been added or removed.
+	 */
+	private void membershipChanged() {
+		this.authorsGeneration++;
+		this.titlesGeneration++;
+	}
+
+	private long authorsGeneration;
+
+	private long titlesGeneration;
+
+	/**
+	 * Register that the publication with the given ID has changed since the
+	 * last snapshot.
+	 */
+	private void markChanged(int id) {
+		if (this.records != null)
+			this.changed.add(id);
+	}
+
+	/**
+	 * The records of the last snapshot, or null if no snapshot has been taken
+	 * yet, the IDs of the publications changed since then, and the version of
+	 * that snapshot.
+	 */
+	private RecordDirectory records;
+
+	private final Set<Integer> changed = new HashSet<Integer>();
+
+	/**
+	 * One publication of each type of publications of this DataBase, giving
+	 * the weights of the snapshots.
+	 */
+	private final Map<Class<? extends Publication>, Publication> representatives = new HashMap<Class<? extends Publication>, Publication>();
+
+	private long version;
+
 	/**
 	 * Return a set collecting all publications associated with this Database.
 	 */
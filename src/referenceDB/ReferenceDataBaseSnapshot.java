@@ -0,0 +1,202 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+
+/**
+ * A class of read-only views of a reference database at a point in time, as
+ * returned by ReferenceDataBase.snapshot().
+ *
+ * A snapshot never changes: the database keeps applying its changes to new
+ * copies of the parts of its records that a snapshot refers to. Any number of
+ * threads can therefore read a snapshot, for as long as they need, while the
+ * database goes on. The records of older versions are reclaimed by the
+ * garbage collector as soon as no snapshot referring to them is reachable.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+@Immutable
+public final class ReferenceDataBaseSnapshot implements ReferenceDataBaseView {
+
+	ReferenceDataBaseSnapshot(long version, PublicationRecord[][] chunks, int size,
+			Map<Class<? extends Publication>, Double> weights) {
+		this.version = version;
+		this.chunks = chunks;
+		this.size = size;
+		this.weights = Collections.unmodifiableMap(new HashMap<Class<? extends Publication>, Double>(weights));
+	}
+
+	/**
+	 * Return the version of this snapshot. Later snapshots of the same
+	 * database have higher versions.
+	 */
+	@Basic
+	public long getVersion() {
+		return version;
+	}
+
+	private final long version;
+
+	/**
+	 * Return the number of publications of this snapshot.
+	 */
+	@Basic
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private final int size;
+
+	/**
+	 * Check whether this snapshot has a publication with the given ID.
+	 */
+	@Override
+	public boolean hasPublicationID(int id) {
+		return id >= 0 && RecordDirectory.get(this.chunks, id) != null;
+	}
+
+	/**
+	 * Return the record of the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this snapshot.
+	 */
+	@Override
+	public PublicationRecord getPublicationWithID(int id) throws IllegalPublicationIdException {
+		if (!hasPublicationID(id))
+			throw new IllegalPublicationIdException(id);
+		return RecordDirectory.get(this.chunks, id);
+	}
+
+	/**
+	 * Return the records of all publications of this snapshot, in increasing
+	 * ID.
+	 */
+	@Override
+	public List<PublicationRecord> getAllPublications() {
+		List<PublicationRecord> result = new ArrayList<PublicationRecord>(this.size);
+		for (PublicationRecord[] chunk : this.chunks)
+			if (chunk != null)
+				for (PublicationRecord record : chunk)
+					if (record != null)
+						result.add(record);
+		return result;
+	}
+
+	/**
+	 * Return the weight the given type of publications had when this snapshot
+	 * was taken.
+	 *
+	 * @throws IllegalArgumentException
+	 *             This snapshot has no publications of the given type.
+	 */
+	@Override
+	public double getWeight(Class<? extends Publication> type) throws IllegalArgumentException {
+		Double weight = this.weights.get(type);
+		if (weight == null)
+			throw new IllegalArgumentException();
+		return weight;
+	}
+
+	private final Map<Class<? extends Publication>, Double> weights;
+
+	/**
+	 * Find all publications of this snapshot authored by an author, like
+	 * findByAuthor of the database.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	@Override
+	public Set<PublicationRecord> findByAuthor(String authorName) throws IllegalAuthorException {
+		if (!ReferenceDataBase.isValidAuthor(authorName))
+			throw new IllegalAuthorException(authorName);
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		int step = 0;
+		for (PublicationRecord record : getAllPublications()) {
+			Cancellation.check(step++);
+			for (String name : record.getAuthorsNames())
+				if (name.equals(authorName)) {
+					result.add(record);
+					break;
+				}
+		}
+		return result;
+	}
+
+	/**
+	 * Return all publications of this snapshot that have the given word in
+	 * their title, like findByTitleWord of the database.
+	 */
+	@Override
+	public Set<PublicationRecord> findByTitleWord(String word) {
+		String lowerCaseWord = word.toLowerCase();
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		int step = 0;
+		for (PublicationRecord record : getAllPublications()) {
+			Cancellation.check(step++);
+			if (record.getTitle().toLowerCase().contains(lowerCaseWord))
+				result.add(record);
+		}
+		return result;
+	}
+
+	/**
+	 * Calculate the citation index of the given author in this snapshot, like
+	 * authorCitationIndex of the database, with the weights of this snapshot.
+	 *
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	@Override
+	public double authorCitationIndex(String authorName) throws IllegalAuthorException {
+		double citationIndex = 0;
+		for (PublicationRecord record : findByAuthor(authorName))
+			citationIndex += this.weights.get(record.getType());
+		return citationIndex;
+	}
+
+	/**
+	 * Return all publications of this snapshot that directly or indirectly
+	 * cite the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this snapshot.
+	 */
+	@Override
+	public Set<PublicationRecord> findDirIndirCites(int id) throws IllegalPublicationIdException {
+		List<PublicationRecord> queue = new ArrayList<PublicationRecord>();
+		queue.add(getPublicationWithID(id));
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		for (int head = 0; head < queue.size(); head++) {
+			Cancellation.check(head);
+			PublicationRecord record = queue.get(head);
+			for (int i = 0; i < record.getCitedByNumber(); i++) {
+				PublicationRecord citing = RecordDirectory.get(this.chunks, record.citedByAt(i));
+				if (result.add(citing))
+					queue.add(citing);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The chunks of records of this snapshot, see RecordDirectory.
+	 */
+	private final PublicationRecord[][] chunks;
+}
@@ -0,0 +1,154 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+public class ReferenceDataBaseSnapshotTest {
+
+	private ReferenceDataBase DB;
+	private Publication publication1, publication2, publication3, publication4;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		publication4 = new Book("publication4", new String[] { "Els, Wang" }, 2008, "Springer");
+
+		DB = new ReferenceDataBase();
+		JournalArticle.setWeight(1.0);
+		Book.setWeight(1.2);
+		ConferencePaper.setWeight(0.8);
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		publication1.addAsCites(publication2);
+		publication2.addAsCites(publication3);
+	}
+
+	@Test
+	public void snapshot_records() throws Exception {
+		ReferenceDataBaseSnapshot snapshot = DB.snapshot();
+		assertEquals(3, snapshot.size());
+		PublicationRecord record = snapshot.getPublicationWithID(publication2.getId());
+		assertEquals(Book.class, record.getType());
+		assertEquals("publication2", record.getTitle());
+		assertEquals(2014, record.getYear());
+		assertEquals("acco", record.getAttribute(PublicationAttribute.PUBLISHER));
+		assertArrayEquals(new int[] { publication3.getId() }, record.getCites());
+		assertArrayEquals(new int[] { publication1.getId() }, record.getCitedBy());
+		assertEquals(123, snapshot.getPublicationWithID(publication1.getId())
+				.getAttribute(PublicationAttribute.ISSUE_NUMBER));
+	}
+
+	@Test
+	public void snapshot_isolatedFromChanges() throws Exception {
+		ReferenceDataBaseSnapshot snapshot = DB.snapshot();
+		DB.addAsPublication(publication4);
+		publication3.addAsCites(publication4);
+		publication2.setTitle("changed");
+		DB.removePublication(publication1);
+		Book.setWeight(2.0);
+
+		assertEquals(3, snapshot.size());
+		assertFalse(snapshot.hasPublicationID(publication4.getId()));
+		assertTrue(snapshot.hasPublicationID(publication1.getId()));
+		assertEquals("publication2", snapshot.getPublicationWithID(publication2.getId()).getTitle());
+		assertEquals(1.2, snapshot.getWeight(Book.class), 0.0001);
+		assertEquals(2, snapshot.findDirIndirCites(publication3.getId()).size());
+
+		ReferenceDataBaseSnapshot later = DB.snapshot();
+		assertTrue(later.getVersion() > snapshot.getVersion());
+		assertEquals(3, later.size());
+		assertFalse(later.hasPublicationID(publication1.getId()));
+		assertEquals("changed", later.getPublicationWithID(publication2.getId()).getTitle());
+		assertArrayEquals(new int[0], later.getPublicationWithID(publication2.getId()).getCitedBy());
+		assertTrue(later.getPublicationWithID(publication3.getId()).cites(publication4.getId()));
+		assertEquals(2.0, later.getWeight(Book.class), 0.0001);
+	}
+
+	@Test
+	public void snapshot_unchangedRecordsShared() throws Exception {
+		ReferenceDataBaseSnapshot snapshot = DB.snapshot();
+		publication1.setTitle("changed");
+		ReferenceDataBaseSnapshot later = DB.snapshot();
+		assertSame(snapshot.getPublicationWithID(publication3.getId()),
+				later.getPublicationWithID(publication3.getId()));
+		assertNotSame(snapshot.getPublicationWithID(publication1.getId()),
+				later.getPublicationWithID(publication1.getId()));
+	}
+
+	@Test
+	public void snapshot_queries() throws Exception {
+		ReferenceDataBaseSnapshot snapshot = DB.snapshot();
+		assertEquals(2, snapshot.findByAuthor("B. Wang").size());
+		assertEquals(1.8, snapshot.authorCitationIndex("B. Wang"), 0.0001);
+		assertEquals(DB.authorCitationIndex("B. Wang"), snapshot.authorCitationIndex("B. Wang"), 0.0001);
+		assertEquals(3, snapshot.findByTitleWord("PUBLICATION").size());
+		Set<Integer> ids = new HashSet<Integer>();
+		for (PublicationRecord record : snapshot.findDirIndirCites(publication3.getId()))
+			ids.add(record.getId());
+		Set<Integer> expected = new HashSet<Integer>();
+		for (Publication publication : DB.findDirIndirCites(publication3.getId()))
+			expected.add(publication.getId());
+		assertEquals(expected, ids);
+	}
+
+	@Test
+	public void snapshot_manyChunks() throws Exception {
+		ReferenceDataBaseSnapshot snapshot = DB.snapshot();
+		for (int i = 0; i < 3000; i++)
+			DB.addAsPublication(new Book("book" + i, new String[] { "Bo, Wang" }, 2000, "acco"));
+		ReferenceDataBaseSnapshot later = DB.snapshot();
+		assertEquals(3, snapshot.size());
+		assertEquals(3003, later.size());
+		assertEquals(3003, later.getAllPublications().size());
+	}
+
+	@Test
+	public void snapshot_queriesInterrupted() throws Exception {
+		ReferenceDataBaseSnapshot snapshot = DB.snapshot();
+		Thread.currentThread().interrupt();
+		try {
+			snapshot.findByTitleWord("publication");
+			fail();
+		} catch (CancellationException e) {
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+		assertEquals(3, snapshot.findByTitleWord("publication").size());
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void getPublicationWithID_illegalIdCase() throws Exception {
+		DB.snapshot().getPublicationWithID(999);
+	}
+
+	@Test(expected = IllegalAuthorException.class)
+	public void findByAuthor_illegalAuthorCase() throws Exception {
+		DB.snapshot().findByAuthor("Bo, Wang");
+	}
+}
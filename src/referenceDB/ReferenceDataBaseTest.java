@@ -3,8 +3,11 @@ package referenceDB;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.junit.Before;
@@ -116,6 +119,15 @@ public class ReferenceDataBaseTest{
 		assertTrue(DB.canHaveAsPublication(publication1));
 	}
 	
+	@Test
+	public void terminate_listenersDetached() throws Exception {
+		CitationRanking ranking = new CitationRanking(DB);
+		DB.terminate();
+		assertNull(publication1.getListener());
+		publication1.addAsCites(publication6);
+		assertEquals(0, ranking.getCitationCount(publication6));
+	}
+
 	@Test
 	public void canHaveAsPublication_FalseCase_dueToNull(){
 		assertFalse(DB.canHaveAsPublication(null));
@@ -172,6 +184,140 @@ public class ReferenceDataBaseTest{
 		assertFalse(DB.hasPublication(publication7));
 	}
 	
+	@Test
+	public void removePublications_Collection() {
+		publication1.addAsCites(publication3);
+		publication2.addAsCites(publication3);
+		publication3.addAsCites(publication5);
+		publication4.addAsCites(publication5);
+		DB.removePublications(Arrays.asList(publication3, publication4, publication7));
+		assertFalse(DB.hasPublication(publication3));
+		assertFalse(DB.hasPublication(publication4));
+		assertEquals(4, DB.getAllPublications().size());
+		assertTrue(publication3.isTerminated());
+		assertFalse(publication7.isTerminated());
+		assertTrue(publication1.getAllCites().isEmpty());
+		assertTrue(publication2.getAllCites().isEmpty());
+		assertTrue(publication5.getAllCitedBy().isEmpty());
+		assertTrue(publication3.getAllCites().isEmpty());
+		assertTrue(publication3.getAllCitedBy().isEmpty());
+	}
+
+	@Test
+	public void removePublications_IDs() throws IllegalPublicationIdException {
+		publication1.addAsCites(publication2);
+		DB.removePublications(new int[] { publication1.getId(), publication2.getId(), publication1.getId() });
+		assertFalse(DB.hasPublication(publication1));
+		assertFalse(DB.hasPublication(publication2));
+		assertEquals(4, DB.getAllPublications().size());
+	}
+
+	@Test
+	public void removePublications_IllegalIdCase() {
+		try {
+			DB.removePublications(new int[] { publication1.getId(), 999 });
+		} catch (IllegalPublicationIdException e) {
+			assertTrue(DB.hasPublication(publication1));
+			return;
+		}
+		assertTrue(false);
+	}
+
+	@Test
+	public void duplicatePolicy_Reject() throws Exception {
+		DB.setDuplicatePolicy(DuplicatePolicy.REJECT);
+		assertEquals(DuplicatePolicy.REJECT, DB.getDuplicatePolicy());
+		try {
+			DB.addAsPublication(new JournalArticle("Publication1", authors, "journal of MEMS", 123, 2016));
+		} catch (IllegalArgumentException e) {
+			assertEquals(6, DB.getAllPublications().size());
+			return;
+		}
+		assertTrue(false);
+	}
+
+	@Test
+	public void duplicatePolicy_Merge() throws Exception {
+		DB.setDuplicatePolicy(DuplicatePolicy.MERGE);
+		Publication copy = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		Publication citer = new JournalArticle("citer", authors, "journal of MEMS", 123, 2016);
+		copy.addAsCites(publication2);
+		citer.addAsCites(copy);
+		DB.addAsPublication(copy);
+		assertEquals(6, DB.getAllPublications().size());
+		assertTrue(copy.isTerminated());
+		assertEquals(publication1.getId(), copy.getId());
+		assertTrue(publication1.getAllCites().contains(publication2));
+		assertTrue(citer.getAllCites().contains(publication1));
+		assertTrue(publication2.getAllCitedBy().equals(new HashSet<Publication>(Arrays.asList(publication1))));
+	}
+
+	@Test
+	public void duplicatePolicy_MergeHasPublication() throws Exception {
+		DB.setDuplicatePolicy(DuplicatePolicy.MERGE);
+		Publication copy = new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016);
+		DB.addAsPublication(copy);
+		assertFalse(DB.hasPublication(copy));
+		assertTrue(DB.hasPublication(publication1));
+		// Removing the merged publication leaves its duplicate alone.
+		DB.removePublication(copy);
+		assertTrue(DB.hasPublication(publication1));
+		assertEquals(publication1, DB.getPublicationWithID(publication1.getId()));
+		assertEquals(6, DB.getAllPublications().size());
+	}
+
+	@Test
+	public void duplicatePolicy_Allow() throws Exception {
+		DB.setDuplicatePolicy(DuplicatePolicy.MERGE);
+		DB.setDuplicatePolicy(DuplicatePolicy.ALLOW);
+		DB.addAsPublication(new JournalArticle("publication1", authors, "journal of MEMS", 123, 2016));
+		assertEquals(7, DB.getAllPublications().size());
+	}
+
+	@Test
+	public void generations() throws Exception {
+		long authors = DB.getAuthorsGeneration();
+		long titles = DB.getTitlesGeneration();
+		publication1.addAsCites(publication2);
+		publication1.setYear(2017);
+		assertEquals(authors, DB.getAuthorsGeneration());
+		assertEquals(titles, DB.getTitlesGeneration());
+		publication1.setTitle("changed");
+		assertEquals(authors, DB.getAuthorsGeneration());
+		assertTrue(titles != DB.getTitlesGeneration());
+		titles = DB.getTitlesGeneration();
+		publication1.setAuthors(new String[] { "Wang, Bo" });
+		assertTrue(authors != DB.getAuthorsGeneration());
+		assertEquals(titles, DB.getTitlesGeneration());
+		authors = DB.getAuthorsGeneration();
+		DB.removePublication(publication1);
+		assertTrue(authors != DB.getAuthorsGeneration());
+		assertTrue(titles != DB.getTitlesGeneration());
+	}
+
+	@Test
+	public void removePublications_IndexesUpdated() throws Exception {
+		// publication6 is cited by the whole batch, so its citedBy set is
+		// swept at once.
+		publication1.addAsCites(publication6);
+		publication2.addAsCites(publication6);
+		publication3.addAsCites(publication6);
+		publication4.addAsCites(publication6);
+		publication5.addAsCites(publication6);
+		publication2.addAsCites(publication3);
+		publication1.addAsCites(publication2);
+		CitationRanking ranking = new CitationRanking(DB);
+		AuthorImpactIndex impacts = new AuthorImpactIndex(DB);
+		DB.removePublications(Arrays.asList(publication2, publication3, publication4));
+		assertEquals(2, ranking.getCitationCount(publication6));
+		assertEquals(Arrays.asList(publication6), ranking.getMostCited(1));
+		assertEquals(new AuthorImpactIndex(DB).getAllHIndices(), impacts.getAllHIndices());
+		assertEquals(new AuthorImpactIndex(DB).getAllGIndices(), impacts.getAllGIndices());
+		assertEquals(1, impacts.getHIndex("W. Hellen"));
+		assertTrue(publication1.alreadyCites(publication6));
+		assertFalse(publication1.alreadyCites(publication2));
+	}
+
 	@Test
 	public void getAllPublications_6Publictions(){
 	    Set<Publication> result = DB.getAllPublications();
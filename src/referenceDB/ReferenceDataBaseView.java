@@ -0,0 +1,88 @@
+package referenceDB;
+
+import java.util.List;
+import java.util.Set;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+
+/**
+ * An interface of read-only views of a reference database, handing out
+ * immutable publication records. The queries have the same meaning as the
+ * queries of ReferenceDataBase with the same name.
+ *
+ * The queries of the views held in memory, i.e. snapshots, frozen databases
+ * and replicas, check now and then whether the thread running them has been
+ * interrupted, and if so stop with a CancellationException, leaving the
+ * interrupt status of the thread set.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public interface ReferenceDataBaseView {
+
+	/**
+	 * Return the number of publications of this view.
+	 */
+	int size();
+
+	/**
+	 * Check whether this view has a publication with the given ID.
+	 */
+	boolean hasPublicationID(int id);
+
+	/**
+	 * Return the record of the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this view.
+	 */
+	PublicationRecord getPublicationWithID(int id) throws IllegalPublicationIdException;
+
+	/**
+	 * Return the records of all publications of this view.
+	 */
+	List<PublicationRecord> getAllPublications();
+
+	/**
+	 * Return the weight of the given type of publications in this view.
+	 *
+	 * @throws IllegalArgumentException
+	 *             This view has no publications of the given type.
+	 */
+	double getWeight(Class<? extends Publication> type) throws IllegalArgumentException;
+
+	/**
+	 * Find all publications of this view authored by an author.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	Set<PublicationRecord> findByAuthor(String authorName) throws IllegalAuthorException;
+
+	/**
+	 * Return all publications of this view that have the given word in their
+	 * title, ignoring case.
+	 */
+	Set<PublicationRecord> findByTitleWord(String word);
+
+	/**
+	 * Calculate the citation index of the given author in this view.
+	 *
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	double authorCitationIndex(String authorName) throws IllegalAuthorException;
+
+	/**
+	 * Return all publications of this view that directly or indirectly cite
+	 * the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this view.
+	 */
+	Set<PublicationRecord> findDirIndirCites(int id) throws IllegalPublicationIdException;
+}
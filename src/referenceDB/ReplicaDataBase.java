@@ -0,0 +1,344 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of read replicas of a reference database, following the events of
+ * a change feed of that database, e.g. shipped over the network by a
+ * replication leader.
+ *
+ * A replica starts from the records and weights of a view of the database at
+ * some sequence number of the feed, and then applies the events after that
+ * sequence number in order. Applying an event that has already been applied
+ * has no effect, so a replica can resume from any point it has reached, and
+ * the events that add or remove a publication or a citation are applied by
+ * their outcome, so applying them twice has the same effect as applying them
+ * once.
+ *
+ * The records are immutable and replaced as a whole, so any number of threads
+ * can query a replica while one thread applies events to it. A query running
+ * while events are applied sees each record either before or after an event,
+ * but may see some records before and others after it.
+ *
+ * @invar The sequence number of each replica is not below 0.
+ *        | getSequence() >= 0
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class ReplicaDataBase implements ReferenceDataBaseView {
+
+	/**
+	 * Initialize this new replica without any publications, at sequence
+	 * number 0.
+	 */
+	public ReplicaDataBase() {
+	}
+
+	/**
+	 * Return the sequence number of the last event applied to this replica,
+	 * or of the view it was last installed from.
+	 */
+	public long getSequence() {
+		return this.sequence;
+	}
+
+	private volatile long sequence;
+
+	/**
+	 * Replace all publications of this replica by the given records, and its
+	 * weights by the given weights.
+	 *
+	 * @param records
+	 *            The records of the publications of the database.
+	 * @param weights
+	 *            The weights of the types of publications of the database.
+	 * @param sequence
+	 *            The sequence number of the last event of the feed of the
+	 *            database reflected by the given records.
+	 * @post The sequence number of this replica is the given one.
+	 * @throws IllegalArgumentException
+	 *             The given records or weights are not effective, or the
+	 *             given sequence number is negative.
+	 */
+	public void install(Collection<PublicationRecord> records, Map<Class<? extends Publication>, Double> weights,
+			long sequence) throws IllegalArgumentException {
+		if (records == null || weights == null || sequence < 0)
+			throw new IllegalArgumentException();
+		ConcurrentHashMap<Integer, PublicationRecord> newRecords = new ConcurrentHashMap<Integer, PublicationRecord>(
+				Math.max(16, records.size() * 4 / 3 + 1));
+		for (PublicationRecord record : records)
+			newRecords.put(record.getId(), record);
+		this.records = newRecords;
+		this.weights = new ConcurrentHashMap<Class<? extends Publication>, Double>(weights);
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Apply the given event of the feed of the database to this replica.
+	 *
+	 * @param event
+	 *            The event to apply.
+	 * @post If the sequence number of the given event is the sequence number
+	 *       of this replica plus one, the change of the event is applied to
+	 *       this replica, and the sequence number of this replica is the one
+	 *       of the event. Otherwise, this replica is not changed.
+	 * @throws IllegalArgumentException
+	 *             The given event is not effective, or events between the
+	 *             last event applied and the given one are missing.
+	 */
+	public void apply(ChangeEvent event) throws IllegalArgumentException {
+		if (event == null || event.getSequence() > this.sequence + 1)
+			throw new IllegalArgumentException();
+		if (event.getSequence() <= this.sequence)
+			return;
+		int id = event.getPublicationId();
+		switch (event.getKind()) {
+		case PUBLICATION_ADDED: {
+			PublicationRecord record = event.getRecord();
+			this.records.put(id, record);
+			this.weights.put(record.getType(), (Double) event.getNewValue());
+			for (int cited : record.getCites())
+				link(id, cited, true);
+			for (int citing : record.getCitedBy())
+				link(citing, id, true);
+			break;
+		}
+		case PUBLICATION_REMOVED: {
+			PublicationRecord record = this.records.remove(id);
+			if (record != null) {
+				for (int cited : record.getCites())
+					link(id, cited, false);
+				for (int citing : record.getCitedBy())
+					link(citing, id, false);
+			}
+			break;
+		}
+		case CITATION_ADDED:
+			link(id, event.getCitedId(), true);
+			break;
+		case CITATION_REMOVED:
+			link(id, event.getCitedId(), false);
+			break;
+		case ATTRIBUTE_CHANGED: {
+			PublicationRecord record = this.records.get(id);
+			if (record != null)
+				this.records.put(id, record.withAttribute(event.getAttribute(), event.getNewValue()));
+			break;
+		}
+		case WEIGHT_CHANGED:
+			this.weights.put(event.getType(), (Double) event.getNewValue());
+			break;
+		}
+		this.sequence = event.getSequence();
+	}
+
+	/**
+	 * Add or remove the citation of the publication with the given cited ID
+	 * by the publication with the given citing ID, on the records of both of
+	 * them that this replica has.
+	 */
+	private void link(int citing, int cited, boolean add) {
+		PublicationRecord citingRecord = this.records.get(citing);
+		if (citingRecord != null) {
+			int[] cites = with(citingRecord.getCites(), cited, add);
+			if (cites != null)
+				this.records.put(citing, citingRecord.withCitations(cites, citingRecord.getCitedBy()));
+		}
+		PublicationRecord citedRecord = this.records.get(cited);
+		if (citedRecord != null) {
+			int[] citedBy = with(citedRecord.getCitedBy(), citing, add);
+			if (citedBy != null)
+				this.records.put(cited, citedRecord.withCitations(citedRecord.getCites(), citedBy));
+		}
+	}
+
+	/**
+	 * Return the given sorted IDs with the given ID added or removed, or null
+	 * if they already are so.
+	 */
+	private static int[] with(int[] ids, int id, boolean add) {
+		int index = Arrays.binarySearch(ids, id);
+		if (add == index >= 0)
+			return null;
+		if (add) {
+			index = -index - 1;
+			int[] result = new int[ids.length + 1];
+			System.arraycopy(ids, 0, result, 0, index);
+			result[index] = id;
+			System.arraycopy(ids, index, result, index + 1, ids.length - index);
+			return result;
+		}
+		int[] result = new int[ids.length - 1];
+		System.arraycopy(ids, 0, result, 0, index);
+		System.arraycopy(ids, index + 1, result, index, result.length - index);
+		return result;
+	}
+
+	/**
+	 * The records of the publications of this replica, by ID.
+	 */
+	private volatile ConcurrentHashMap<Integer, PublicationRecord> records = new ConcurrentHashMap<Integer, PublicationRecord>();
+
+	/**
+	 * The weight of each type of publications of this replica.
+	 */
+	private volatile ConcurrentHashMap<Class<? extends Publication>, Double> weights = new ConcurrentHashMap<Class<? extends Publication>, Double>();
+
+	/**
+	 * Return the number of publications of this replica.
+	 */
+	@Override
+	public int size() {
+		return this.records.size();
+	}
+
+	/**
+	 * Check whether this replica has a publication with the given ID.
+	 */
+	@Override
+	public boolean hasPublicationID(int id) {
+		return this.records.containsKey(id);
+	}
+
+	/**
+	 * Return the record of the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this replica.
+	 */
+	@Override
+	public PublicationRecord getPublicationWithID(int id) throws IllegalPublicationIdException {
+		PublicationRecord record = this.records.get(id);
+		if (record == null)
+			throw new IllegalPublicationIdException(id);
+		return record;
+	}
+
+	/**
+	 * Return the records of all publications of this replica, in increasing
+	 * ID.
+	 */
+	@Override
+	public List<PublicationRecord> getAllPublications() {
+		List<PublicationRecord> result = new ArrayList<PublicationRecord>(this.records.values());
+		Collections.sort(result, new Comparator<PublicationRecord>() {
+			@Override
+			public int compare(PublicationRecord record1, PublicationRecord record2) {
+				return Integer.compare(record1.getId(), record2.getId());
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Return the weight of the given type of publications in this replica.
+	 *
+	 * @throws IllegalArgumentException
+	 *             This replica has no weight of the given type.
+	 */
+	@Override
+	public double getWeight(Class<? extends Publication> type) throws IllegalArgumentException {
+		Double weight = type == null ? null : this.weights.get(type);
+		if (weight == null)
+			throw new IllegalArgumentException();
+		return weight;
+	}
+
+	/**
+	 * Find all publications of this replica authored by an author, like
+	 * findByAuthor of the database.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	@Override
+	public Set<PublicationRecord> findByAuthor(String authorName) throws IllegalAuthorException {
+		if (!ReferenceDataBase.isValidAuthor(authorName))
+			throw new IllegalAuthorException(authorName);
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		int step = 0;
+		for (PublicationRecord record : this.records.values()) {
+			Cancellation.check(step++);
+			for (String name : record.getAuthorsNames())
+				if (name.equals(authorName)) {
+					result.add(record);
+					break;
+				}
+		}
+		return result;
+	}
+
+	/**
+	 * Return all publications of this replica that have the given word in
+	 * their title, like findByTitleWord of the database.
+	 */
+	@Override
+	public Set<PublicationRecord> findByTitleWord(String word) {
+		String lowerCaseWord = word.toLowerCase();
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		int step = 0;
+		for (PublicationRecord record : this.records.values()) {
+			Cancellation.check(step++);
+			if (record.getTitle().toLowerCase().contains(lowerCaseWord))
+				result.add(record);
+		}
+		return result;
+	}
+
+	/**
+	 * Calculate the citation index of the given author in this replica, like
+	 * authorCitationIndex of the database, with the weights of this replica.
+	 *
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	@Override
+	public double authorCitationIndex(String authorName) throws IllegalAuthorException {
+		double citationIndex = 0;
+		for (PublicationRecord record : findByAuthor(authorName))
+			citationIndex += getWeight(record.getType());
+		return citationIndex;
+	}
+
+	/**
+	 * Return all publications of this replica that directly or indirectly
+	 * cite the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in this replica.
+	 */
+	@Override
+	public Set<PublicationRecord> findDirIndirCites(int id) throws IllegalPublicationIdException {
+		Map<Integer, PublicationRecord> records = this.records;
+		List<PublicationRecord> queue = new ArrayList<PublicationRecord>();
+		queue.add(getPublicationWithID(id));
+		Set<PublicationRecord> result = new HashSet<PublicationRecord>();
+		for (int head = 0; head < queue.size(); head++) {
+			Cancellation.check(head);
+			PublicationRecord record = queue.get(head);
+			for (int i = 0; i < record.getCitedByNumber(); i++) {
+				PublicationRecord citing = records.get(record.citedByAt(i));
+				if (citing != null && result.add(citing))
+					queue.add(citing);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,191 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class ReplicaDataBaseTest {
+
+	private ReferenceDataBase DB;
+	private ChangeFeed feed;
+	private ReplicaDataBase replica;
+	private Publication publication1, publication2, publication3;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion in fluids", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("Object oriented programming", new String[] { "Steegmans, Eric" }, 2014, "acco");
+		publication3 = new ConferencePaper("Gas leak rate study", new String[] { "Wang, Bo" }, 2012, "Transducers");
+		JournalArticle.setWeight(1.0);
+		Book.setWeight(1.2);
+		ConferencePaper.setWeight(0.8);
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		publication1.addAsCites(publication2);
+		feed = new ChangeFeed(DB, 1 << 16);
+		replica = new ReplicaDataBase();
+		ReferenceDataBaseSnapshot snapshot = DB.snapshot();
+		replica.install(snapshot.getAllPublications(), weightsOf(snapshot), feed.getLastSequence());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		feed.terminate();
+		Book.setWeight(1.2);
+	}
+
+	@Test
+	public void install() throws Exception {
+		assertEquals(0, replica.getSequence());
+		assertSameAs(DB.snapshot(), replica);
+		assertEquals(1, replica.findDirIndirCites(publication2.getId()).size());
+	}
+
+	@Test
+	public void apply() throws Exception {
+		DB.addAsPublication(publication3);
+		publication2.addAsCites(publication3);
+		publication3.setTitle("Gas leaks");
+		publication3.setAuthors(new String[] { "Wevers, Martine" });
+		DB.removePublication(publication1);
+		Book.setWeight(1.5);
+		applyAll();
+		assertEquals(feed.getLastSequence(), replica.getSequence());
+		assertSameAs(DB.snapshot(), replica);
+		assertEquals(1, replica.findByAuthor("M. Wevers").size());
+		assertEquals(1.5, replica.getWeight(Book.class), 1e-9);
+		assertEquals(1.5, replica.authorCitationIndex("E. Steegmans"), 1e-9);
+		assertFalse(replica.hasPublicationID(publication1.getId()));
+	}
+
+	@Test
+	public void apply_twice() throws Exception {
+		DB.addAsPublication(publication3);
+		publication2.addAsCites(publication3);
+		applyAll();
+		for (ChangeEvent event : feed.poll(1, 100))
+			replica.apply(event);
+		assertSameAs(DB.snapshot(), replica);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void apply_gap() throws Exception {
+		DB.addAsPublication(publication3);
+		publication2.addAsCites(publication3);
+		replica.apply(feed.poll(2, 1).get(0));
+	}
+
+	@Test
+	public void apply_sameAsDataBase() throws Exception {
+		Random random = new Random(11);
+		List<Publication> publications = new ArrayList<Publication>();
+		for (int i = 0; i < 3000; i++) {
+			int operation = random.nextInt(10);
+			if (operation < 4 || publications.size() < 2) {
+				Publication publication = new Book("Book " + i, authors, 1900 + i / 30, "acco");
+				DB.addAsPublication(publication);
+				publications.add(publication);
+			} else if (operation < 7) {
+				Publication citing = publications.get(random.nextInt(publications.size()));
+				Publication cited = publications.get(random.nextInt(publications.size()));
+				if (citing != cited && citing.getYear() >= cited.getYear() && !citing.getAllCites().contains(cited))
+					citing.addAsCites(cited);
+			} else if (operation < 8) {
+				Publication citing = publications.get(random.nextInt(publications.size()));
+				if (!citing.getAllCites().isEmpty())
+					citing.removeAsCites(citing.getAllCites().iterator().next());
+			} else if (operation < 9) {
+				Publication publication = publications.get(random.nextInt(publications.size()));
+				publication.setTitle(publication.getTitle() + " revised");
+			} else
+				DB.removePublication(publications.remove(random.nextInt(publications.size())));
+			// Ship the events through their wire format now and then.
+			if (i % 100 == 0)
+				applyAll();
+		}
+		applyAll();
+		assertSameAs(DB.snapshot(), replica);
+	}
+
+	@Test
+	public void writeTo_readFrom() throws Exception {
+		DB.addAsPublication(publication3);
+		publication3.setAuthors(new String[] { "Wevers, Martine" });
+		Book.setWeight(2.0);
+		for (ChangeEvent event : feed.poll(1, 100)) {
+			ChangeEvent copy = copyOf(event);
+			assertEquals(event.getSequence(), copy.getSequence());
+			assertEquals(event.getKind(), copy.getKind());
+			assertEquals(event.getPublicationId(), copy.getPublicationId());
+			assertEquals(event.getCitedId(), copy.getCitedId());
+			assertEquals(event.getAttribute(), copy.getAttribute());
+			assertEquals(event.getType(), copy.getType());
+			if (event.getNewValue() instanceof String[])
+				assertArrayEquals((String[]) event.getNewValue(), (String[]) copy.getNewValue());
+			else
+				assertEquals(event.getNewValue(), copy.getNewValue());
+		}
+	}
+
+	private void applyAll() throws Exception {
+		for (ChangeEvent event : feed.poll(replica.getSequence() + 1, Integer.MAX_VALUE))
+			replica.apply(copyOf(event));
+	}
+
+	private static ChangeEvent copyOf(ChangeEvent event) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		event.writeTo(new DataOutputStream(bytes));
+		return ChangeEvent.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	private static Map<Class<? extends Publication>, Double> weightsOf(ReferenceDataBaseView view) {
+		Map<Class<? extends Publication>, Double> weights = new HashMap<Class<? extends Publication>, Double>();
+		for (PublicationRecord record : view.getAllPublications())
+			weights.put(record.getType(), view.getWeight(record.getType()));
+		return weights;
+	}
+
+	/**
+	 * Check that the given views have the same publications, with the same
+	 * attributes and citations.
+	 */
+	private static void assertSameAs(ReferenceDataBaseView expected, ReferenceDataBaseView actual) {
+		List<PublicationRecord> expectedRecords = expected.getAllPublications();
+		List<PublicationRecord> actualRecords = actual.getAllPublications();
+		assertEquals(expectedRecords.size(), actualRecords.size());
+		assertEquals(expectedRecords.size(), actual.size());
+		for (int i = 0; i < expectedRecords.size(); i++) {
+			PublicationRecord record = expectedRecords.get(i), copy = actualRecords.get(i);
+			assertEquals(record.getId(), copy.getId());
+			assertEquals(record.getType(), copy.getType());
+			assertEquals(record.getTitle(), copy.getTitle());
+			assertEquals(record.getYear(), copy.getYear());
+			assertArrayEquals(record.getAuthors(), copy.getAuthors());
+			assertArrayEquals(record.getAuthorsNames(), copy.getAuthorsNames());
+			assertArrayEquals(record.getCites(), copy.getCites());
+			assertArrayEquals(record.getCitedBy(), copy.getCitedBy());
+			assertEquals(expected.getWeight(record.getType()), actual.getWeight(copy.getType()), 1e-9);
+		}
+	}
+}
@@ -0,0 +1,493 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+
+/**
+ * A class of reference databases split over a number of independent shards,
+ * which can be used by many threads at once.
+ *
+ * The publications are spread over the shards by a hash of their ID, and
+ * each shard is a reference database of its own, guarded by its own
+ * read-write lock. Queries on a single publication only lock its shard;
+ * findByAuthor, findByTitleWord, authorCitationIndex and getAllPublications
+ * are sent to all shards at once over the common fork/join pool, each under
+ * the read lock of its shard, and their results are merged.
+ *
+ * A citation between publications of different shards changes both of
+ * them, and is made under the write locks of both shards, taken in shard
+ * order. Such citations are also recorded in a table of cross-shard
+ * citations. Operations that may follow citations into any shard, i.e.
+ * adding or removing a publication with citations and findDirIndirCites,
+ * lock all shards.
+ *
+ * The publications of a sharded database must only be changed through it:
+ * their citations with addCitation, and their attributes under no other
+ * operation of the database.
+ *
+ * @invar The number of shards of each sharded database is positive.
+ *        | getShardsNumber() > 0
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class ShardedReferenceDataBase {
+
+	/**
+	 * Initialize this new sharded database with no publications and the
+	 * given number of shards. The IDs of the publications added to it start
+	 * counting from 1001.
+	 *
+	 * @param shardsNumber
+	 *            The number of shards.
+	 * @throws IllegalArgumentException
+	 *             The given number of shards is not positive.
+	 */
+	public ShardedReferenceDataBase(int shardsNumber) throws IllegalArgumentException {
+		if (shardsNumber <= 0)
+			throw new IllegalArgumentException();
+		this.shards = new ReferenceDataBase[shardsNumber];
+		this.locks = new ReentrantReadWriteLock[shardsNumber];
+		for (int i = 0; i < shardsNumber; i++) {
+			this.shards[i] = new ReferenceDataBase();
+			this.shards[i].addListener(this.crossShardRecorder);
+			this.locks[i] = new ReentrantReadWriteLock();
+		}
+		this.nextId = new AtomicInteger(FIRST_ID);
+	}
+
+	/**
+	 * Return the number of shards of this database.
+	 */
+	@Basic
+	public int getShardsNumber() {
+		return this.shards.length;
+	}
+
+	/**
+	 * Return the shard of the publication with the given ID.
+	 */
+	int shardOf(int id) {
+		return (int) ((MinimalPerfectHash.hash(id, SEED) >>> 1) % this.shards.length);
+	}
+
+	/**
+	 * Return the shard with the given index.
+	 */
+	ReferenceDataBase getShard(int shard) {
+		return this.shards[shard];
+	}
+
+	private final ReferenceDataBase[] shards;
+
+	private final ReentrantReadWriteLock[] locks;
+
+	private static final long SEED = 0x5EED;
+
+	/**
+	 * Check whether this database is terminated.
+	 */
+	@Basic
+	public boolean isTerminated() {
+		return this.isTerminated;
+	}
+
+	/**
+	 * Terminate this database.
+	 *
+	 * @post This database is terminated.
+	 * @post All shards of this database are terminated.
+	 */
+	public void terminate() {
+		lockAll();
+		try {
+			for (ReferenceDataBase shard : this.shards)
+				shard.terminate();
+			this.crossShardCitations.clear();
+			this.isTerminated = true;
+		} finally {
+			unlockAll();
+		}
+	}
+
+	private volatile boolean isTerminated;
+
+	/**
+	 * Check whether this database has the given publication as one of the
+	 * publications attached to it.
+	 */
+	public boolean hasPublication(Publication publication) {
+		int shard = shardOf(publication.getId());
+		this.locks[shard].readLock().lock();
+		try {
+			return this.shards[shard].hasPublication(publication);
+		} finally {
+			this.locks[shard].readLock().unlock();
+		}
+	}
+
+	/**
+	 * Check whether the given publication itself is attached to this
+	 * database, rather than another publication with the same ID.
+	 */
+	private boolean isAttached(Publication publication) {
+		int shard = shardOf(publication.getId());
+		this.locks[shard].readLock().lock();
+		try {
+			return this.shards[shard].isAttached(publication);
+		} finally {
+			this.locks[shard].readLock().unlock();
+		}
+	}
+
+	/**
+	 * Check whether this database has a publication with the given ID.
+	 */
+	public boolean hasPublicationID(int id) {
+		int shard = shardOf(id);
+		this.locks[shard].readLock().lock();
+		try {
+			return this.shards[shard].hasPublicationID(id);
+		} finally {
+			this.locks[shard].readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the publication of this database with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             This database has no publication with the given ID.
+	 */
+	public Publication getPublicationWithID(int id) throws IllegalPublicationIdException {
+		int shard = shardOf(id);
+		this.locks[shard].readLock().lock();
+		try {
+			return this.shards[shard].getPublicationWithID(id);
+		} finally {
+			this.locks[shard].readLock().unlock();
+		}
+	}
+
+	/**
+	 * Add the given publication to this database, with the next ID.
+	 *
+	 * @param publication
+	 *            The publication to be added.
+	 * @post This database has the given publication as one of its
+	 *       publications.
+	 * @throws IllegalArgumentException
+	 *             The given publication is not effective, terminated or
+	 *             already attached to this database, or this database is
+	 *             terminated.
+	 */
+	public void addAsPublication(Publication publication) throws IllegalArgumentException {
+		if (publication == null || publication.isTerminated() || isTerminated() || isAttached(publication))
+			throw new IllegalArgumentException();
+		int id = this.nextId.getAndIncrement();
+		int shard = shardOf(id);
+		if (publication.getCitesNumber() + publication.getCitedByNumber() == 0) {
+			this.locks[shard].writeLock().lock();
+			try {
+				this.shards[shard].addAsPublication(publication, id);
+			} finally {
+				this.locks[shard].writeLock().unlock();
+			}
+			return;
+		}
+		// The citations of the publication may lead into any shard.
+		lockAll();
+		try {
+			this.shards[shard].addAsPublication(publication, id);
+			for (Publication cited : publication.getAllCites())
+				recordCrossShardCitation(publication, cited);
+			for (Publication citing : publication.getAllCitedBy())
+				recordCrossShardCitation(citing, publication);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Record the citation between the given publications in the table of
+	 * cross-shard citations, if they are attached to different shards.
+	 */
+	private void recordCrossShardCitation(Publication citing, Publication cited) {
+		int citingShard = shardOf(citing.getId()), citedShard = shardOf(cited.getId());
+		if (citingShard != citedShard && this.shards[citingShard].isAttached(citing)
+				&& this.shards[citedShard].isAttached(cited))
+			this.crossShardCitations.add(edge(citing, cited));
+	}
+
+	private final AtomicInteger nextId;
+
+	private static final int FIRST_ID = 1001;
+
+	/**
+	 * Remove the given publication from this database.
+	 *
+	 * @post This database does not have the given publication as one of its
+	 *       publications.
+	 * @post If this database had the given publication, the publication is
+	 *       terminated and all its citations are removed.
+	 */
+	public void removePublication(Publication publication) {
+		int shard = shardOf(publication.getId());
+		this.locks[shard].writeLock().lock();
+		try {
+			// Without citations, no other shard is changed.
+			if (publication.getCitesNumber() + publication.getCitedByNumber() == 0) {
+				this.shards[shard].removePublication(publication);
+				return;
+			}
+		} finally {
+			this.locks[shard].writeLock().unlock();
+		}
+		lockAll();
+		try {
+			this.shards[shard].removePublication(publication);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Let the publication with the first given ID cite the publication with
+	 * the second given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             This database has no publication with one of the given
+	 *             IDs.
+	 * @throws IllegalArgumentException
+	 *             The first publication cannot cite the second one.
+	 */
+	public void addCitation(int publicationID1, int publicationID2)
+			throws IllegalPublicationIdException, IllegalArgumentException {
+		int shard1 = shardOf(publicationID1), shard2 = shardOf(publicationID2);
+		int first = Math.min(shard1, shard2), second = Math.max(shard1, shard2);
+		this.locks[first].writeLock().lock();
+		if (second != first)
+			this.locks[second].writeLock().lock();
+		try {
+			Publication publication1 = this.shards[shard1].getPublicationWithID(publicationID1);
+			Publication publication2 = this.shards[shard2].getPublicationWithID(publicationID2);
+			publication1.addAsCites(publication2);
+		} finally {
+			if (second != first)
+				this.locks[second].writeLock().unlock();
+			this.locks[first].writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the number of citations between publications of different
+	 * shards of this database.
+	 */
+	public int getCrossShardCitationsNumber() {
+		return this.crossShardCitations.size();
+	}
+
+	/**
+	 * Check whether the publication with the first given ID cites the
+	 * publication with the second given ID, and both are in different shards
+	 * of this database.
+	 */
+	public boolean isCrossShardCitation(int citingID, int citedID) {
+		return this.crossShardCitations.contains(((long) citingID << 32) | (citedID & 0xFFFFFFFFL));
+	}
+
+	private static long edge(Publication citing, Publication cited) {
+		return ((long) citing.getId() << 32) | (cited.getId() & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * The citations between publications of different shards, each as the
+	 * ID of the citing publication in the high half of a long and the ID of
+	 * the cited publication in the low half. The shards of both publications
+	 * report each such citation.
+	 */
+	private final Set<Long> crossShardCitations = ConcurrentHashMap.newKeySet();
+
+	private final DataBaseListener crossShardRecorder = new DataBaseAdapter() {
+
+		@Override
+		public void citationAdded(Publication citing, Publication cited) {
+			if (shardOf(citing.getId()) != shardOf(cited.getId()))
+				crossShardCitations.add(edge(citing, cited));
+		}
+
+		@Override
+		public void citationRemoved(Publication citing, Publication cited) {
+			crossShardCitations.remove(edge(citing, cited));
+		}
+	};
+
+	/**
+	 * Return all publications of this database.
+	 */
+	public Set<Publication> getAllPublications() {
+		return gather(new ShardQuery() {
+			@Override
+			Set<Publication> query(ReferenceDataBase shard) {
+				return shard.getAllPublications();
+			}
+		});
+	}
+
+	/**
+	 * Find all publications of this database authored by an author, from all
+	 * shards at once.
+	 *
+	 * @param authorName
+	 *            The author name, given as "initialOfFirstName. lastName".
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	public Set<Publication> findByAuthor(final String authorName) throws IllegalAuthorException {
+		if (!ReferenceDataBase.isValidAuthor(authorName))
+			throw new IllegalAuthorException(authorName);
+		return gather(new ShardQuery() {
+			@Override
+			Set<Publication> query(ReferenceDataBase shard) throws IllegalAuthorException {
+				return shard.findByAuthor(authorName);
+			}
+		});
+	}
+
+	/**
+	 * Return all publications of this database that have the given word in
+	 * their title, from all shards at once.
+	 */
+	public Set<Publication> findByTitleWord(final String word) {
+		return gather(new ShardQuery() {
+			@Override
+			Set<Publication> query(ReferenceDataBase shard) {
+				return shard.findByTitleWord(word);
+			}
+		});
+	}
+
+	/**
+	 * Calculate the citation index of the given author, i.e. the weighted sum
+	 * of the publications of the author, from all shards at once.
+	 *
+	 * @throws IllegalAuthorException
+	 *             The given author name is not valid.
+	 */
+	public double authorCitationIndex(String authorName) throws IllegalAuthorException {
+		double citationIndex = 0;
+		for (Publication publication : findByAuthor(authorName))
+			citationIndex += publication.getWeight();
+		return citationIndex;
+	}
+
+	/**
+	 * Return all publications of this database that directly or indirectly
+	 * cite the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             This database has no publication with the given ID.
+	 */
+	public Set<Publication> findDirIndirCites(int id) throws IllegalPublicationIdException {
+		lockAll(false);
+		try {
+			List<Publication> queue = new ArrayList<Publication>();
+			queue.add(this.shards[shardOf(id)].getPublicationWithID(id));
+			Set<Publication> result = new HashSet<Publication>();
+			for (int head = 0; head < queue.size(); head++)
+				for (Publication citing : queue.get(head).getAllCitedBy())
+					if (result.add(citing))
+						queue.add(citing);
+			return result;
+		} finally {
+			unlockAll(false);
+		}
+	}
+
+	/**
+	 * Run the given query on all shards at once, and return the union of
+	 * the results.
+	 */
+	private Set<Publication> gather(ShardQuery query) {
+		List<ForkJoinTask<Set<Publication>>> tasks = new ArrayList<ForkJoinTask<Set<Publication>>>();
+		for (int shard = 0; shard < this.shards.length; shard++)
+			tasks.add(new ShardTask(query, shard));
+		Set<Publication> result = new HashSet<Publication>();
+		for (ForkJoinTask<Set<Publication>> task : ForkJoinTask.invokeAll(tasks))
+			result.addAll(task.join());
+		return result;
+	}
+
+	/**
+	 * A class of queries on a single shard.
+	 */
+	private static abstract class ShardQuery {
+
+		abstract Set<Publication> query(ReferenceDataBase shard) throws Exception;
+	}
+
+	/**
+	 * A class of tasks running a query on a shard, under the read lock of
+	 * that shard.
+	 */
+	@SuppressWarnings("serial")
+	private class ShardTask extends RecursiveTask<Set<Publication>> {
+
+		ShardTask(ShardQuery query, int shard) {
+			this.query = query;
+			this.shard = shard;
+		}
+
+		@Override
+		protected Set<Publication> compute() {
+			locks[this.shard].readLock().lock();
+			try {
+				return this.query.query(shards[this.shard]);
+			} catch (RuntimeException exception) {
+				throw exception;
+			} catch (Exception exception) {
+				// The arguments of the queries are checked before they are sent.
+				throw new IllegalStateException(exception);
+			} finally {
+				locks[this.shard].readLock().unlock();
+			}
+		}
+
+		private final ShardQuery query;
+
+		private final int shard;
+	}
+
+	private void lockAll() {
+		lockAll(true);
+	}
+
+	private void unlockAll() {
+		unlockAll(true);
+	}
+
+	/**
+	 * Take the write or read locks of all shards, in shard order.
+	 */
+	private void lockAll(boolean write) {
+		for (ReentrantReadWriteLock lock : this.locks)
+			(write ? lock.writeLock() : lock.readLock()).lock();
+	}
+
+	private void unlockAll(boolean write) {
+		for (int shard = this.locks.length - 1; shard >= 0; shard--)
+			(write ? this.locks[shard].writeLock() : this.locks[shard].readLock()).unlock();
+	}
+}
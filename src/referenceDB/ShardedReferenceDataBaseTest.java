@@ -0,0 +1,167 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class ShardedReferenceDataBaseTest {
+
+	private ShardedReferenceDataBase DB;
+	private Publication publication1, publication2, publication3, publication4;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion in fluids", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("Object oriented programming", new String[] { "Steegmans, Eric" }, 2014, "acco");
+		publication3 = new ConferencePaper("Gas leak rate study", new String[] { "Wang, Bo" }, 2012, "Transducers");
+		publication4 = new Book("Fluid dynamics", new String[] { "Wang, Bo" }, 2008, "Springer");
+		DB = new ShardedReferenceDataBase(4);
+		for (Publication publication : Arrays.asList(publication1, publication2, publication3, publication4))
+			DB.addAsPublication(publication);
+	}
+
+	@Test
+	public void addAsPublication() throws Exception {
+		assertEquals(1001, publication1.getId());
+		assertEquals(1004, publication4.getId());
+		assertTrue(DB.hasPublication(publication3));
+		assertTrue(DB.hasPublicationID(1002));
+		assertEquals(publication2, DB.getPublicationWithID(1002));
+		assertEquals(set(publication1, publication2, publication3, publication4), DB.getAllPublications());
+		int total = 0;
+		for (int shard = 0; shard < DB.getShardsNumber(); shard++)
+			total += DB.getShard(shard).getAllPublications().size();
+		assertEquals(4, total);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addAsPublication_twice() {
+		DB.addAsPublication(publication1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_noShards() {
+		new ShardedReferenceDataBase(0);
+	}
+
+	@Test
+	public void queries() throws Exception {
+		assertEquals(set(publication1, publication3, publication4), DB.findByAuthor("B. Wang"));
+		assertEquals(set(publication1, publication4), DB.findByTitleWord("fluid"));
+		assertEquals(publication1.getWeight() + publication3.getWeight() + publication4.getWeight(),
+				DB.authorCitationIndex("B. Wang"), 1e-9);
+	}
+
+	@Test(expected = IllegalAuthorException.class)
+	public void findByAuthor_illegal() throws Exception {
+		DB.findByAuthor("Wang");
+	}
+
+	@Test
+	public void citations() throws Exception {
+		DB.addCitation(publication1.getId(), publication2.getId());
+		DB.addCitation(publication2.getId(), publication3.getId());
+		DB.addCitation(publication3.getId(), publication4.getId());
+		assertEquals(set(publication1, publication2, publication3), DB.findDirIndirCites(publication4.getId()));
+		int crossShard = 0;
+		for (Publication[] pair : new Publication[][] { { publication1, publication2 },
+				{ publication2, publication3 }, { publication3, publication4 } }) {
+			boolean isCross = DB.shardOf(pair[0].getId()) != DB.shardOf(pair[1].getId());
+			assertEquals(isCross, DB.isCrossShardCitation(pair[0].getId(), pair[1].getId()));
+			if (isCross)
+				crossShard++;
+		}
+		assertEquals(crossShard, DB.getCrossShardCitationsNumber());
+		DB.removePublication(publication2);
+		assertFalse(DB.hasPublication(publication2));
+		assertTrue(publication1.getAllCites().isEmpty());
+		assertEquals(set(publication3), DB.findDirIndirCites(publication4.getId()));
+		assertEquals(DB.shardOf(publication3.getId()) != DB.shardOf(publication4.getId()) ? 1 : 0,
+				DB.getCrossShardCitationsNumber());
+	}
+
+	@Test
+	public void addAsPublication_withCitations() throws Exception {
+		Publication publication5 = new Book("Fluids revisited", authors, 2017, "acco");
+		publication5.addAsCites(publication1);
+		DB.addAsPublication(publication5);
+		assertEquals(set(publication5), DB.findDirIndirCites(publication1.getId()));
+		assertEquals(DB.shardOf(publication1.getId()) != DB.shardOf(publication5.getId()),
+				DB.isCrossShardCitation(publication5.getId(), publication1.getId()));
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void addCitation_unknown() throws Exception {
+		DB.addCitation(publication1.getId(), 99);
+	}
+
+	@Test
+	public void concurrentUse() throws Exception {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final int thread = t;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						List<Publication> added = new ArrayList<Publication>();
+						for (int i = 0; i < 300; i++) {
+							Publication publication = new Book("Thread " + thread + " book " + i,
+									new String[] { "Wang, Bo" }, 2000 + i % 10, "acco");
+							DB.addAsPublication(publication);
+							added.add(publication);
+							Publication previous = i > 0 ? added.get(i - 1) : null;
+							if (previous != null && !previous.isTerminated()
+									&& previous.getYear() <= publication.getYear())
+								DB.addCitation(publication.getId(), previous.getId());
+							if (i % 50 == 0) {
+								DB.findByAuthor("B. Wang");
+								DB.findByTitleWord("thread " + thread);
+							}
+							if (i % 7 == 0)
+								DB.removePublication(added.get(i / 2));
+						}
+					} catch (Throwable throwable) {
+						failure.set(throwable);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+		Set<Publication> all = DB.getAllPublications();
+		assertEquals(1204 - 4 * 43, all.size());
+		all.remove(publication2);
+		assertEquals(all, DB.findByAuthor("B. Wang"));
+		for (Publication publication : all)
+			for (Publication cited : publication.getAllCites())
+				assertTrue(DB.hasPublication(cited) && !cited.isTerminated());
+	}
+
+	private static Set<Publication> set(Publication... publications) {
+		return new HashSet<Publication>(Arrays.asList(publications));
+	}
+}
@@ -0,0 +1,106 @@
+package referenceDB;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class of dictionaries of distinct strings, stored back to back in one
+ * char array. Each string is stored once and referred to by its code.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class StringDictionary {
+
+	/**
+	 * Return the code of the given string, adding the string if it is new.
+	 * Codes are handed out from 0 in the order of the first additions.
+	 *
+	 * @throws IllegalStateException
+	 *             This dictionary is sealed.
+	 */
+	int add(String string) throws IllegalStateException {
+		if (this.codes == null)
+			throw new IllegalStateException();
+		Integer code = this.codes.get(string);
+		if (code != null)
+			return code;
+		code = this.size;
+		this.codes.put(string, code);
+		if (this.size + 1 == this.offsets.length)
+			this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+		int end = this.offsets[this.size];
+		if (end + string.length() > this.chars.length)
+			this.chars = Arrays.copyOf(this.chars, Math.max(end + string.length(), this.chars.length * 2));
+		string.getChars(0, string.length(), this.chars, end);
+		this.offsets[++this.size] = end + string.length();
+		return code;
+	}
+
+	/**
+	 * Drop the map used to find the codes of added strings, and trim the
+	 * arrays. No strings can be added afterwards.
+	 */
+	void seal() {
+		this.codes = null;
+		this.chars = Arrays.copyOf(this.chars, this.offsets[this.size]);
+		this.offsets = Arrays.copyOf(this.offsets, this.size + 1);
+	}
+
+	/**
+	 * Return the number of strings of this dictionary.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Return the string with the given code.
+	 */
+	String get(int code) {
+		return new String(this.chars, this.offsets[code], this.offsets[code + 1] - this.offsets[code]);
+	}
+
+	/**
+	 * Check whether the string with the given code is equal to the given
+	 * string.
+	 */
+	boolean equals(int code, String string) {
+		int from = this.offsets[code];
+		if (this.offsets[code + 1] - from != string.length())
+			return false;
+		for (int i = 0; i < string.length(); i++)
+			if (this.chars[from + i] != string.charAt(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Check whether the string with the given code contains the given string.
+	 */
+	boolean contains(int code, String string) {
+		int from = this.offsets[code];
+		int last = this.offsets[code + 1] - string.length();
+		if (string.isEmpty())
+			return true;
+		char first = string.charAt(0);
+		outer: for (int i = from; i <= last; i++) {
+			if (this.chars[i] != first)
+				continue;
+			for (int j = 1; j < string.length(); j++)
+				if (this.chars[i + j] != string.charAt(j))
+					continue outer;
+			return true;
+		}
+		return false;
+	}
+
+	private Map<String, Integer> codes = new HashMap<String, Integer>();
+
+	private char[] chars = new char[64];
+
+	private int[] offsets = new int[16];
+
+	private int size;
+}
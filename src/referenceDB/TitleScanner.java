@@ -0,0 +1,316 @@
+package referenceDB;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of scanners of the titles of the publications of a reference
+ * database, answering the substring queries of findByTitleWord without an
+ * index of the words, and without copying any title.
+ *
+ * All titles are kept lowercased and UTF-8 encoded back to back in one byte
+ * array, with the start of each title in an offset array. A query scans the
+ * whole array, split over the common fork/join pool, eight positions at a
+ * time: the eight bytes at a position and the eight bytes at the position
+ * plus the length of the query minus one are read as two longs and compared
+ * with the first and the last byte of the query, all eight lanes at once.
+ * Only at the positions where both bytes agree is the query compared in
+ * full.
+ *
+ * Changed or removed titles are marked as removed and left in the array,
+ * which is compacted once they take more than half of it.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class TitleScanner extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new scanner with all the publications of the given
+	 * database, and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database whose titles are scanned.
+	 * @post This scanner is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public TitleScanner(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		for (Publication publication : dataBase.getAllPublications())
+			add(publication.getId(), publication.getTitle());
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this scanner.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this scanner.
+	 *
+	 * @post This scanner is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Return all publications of the database that have the given word in
+	 * their title, ignoring case, like findByTitleWord of the database.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given word is not effective.
+	 */
+	public Set<Publication> findByTitleWord(String word) throws IllegalArgumentException {
+		if (word == null)
+			throw new IllegalArgumentException();
+		Set<Publication> result = new HashSet<Publication>();
+		byte[] query = word.toLowerCase().getBytes(StandardCharsets.UTF_8);
+		if (query.length == 0) {
+			for (int slot = 0; slot < this.slotsNumber; slot++)
+				if (this.ids[slot] != NONE)
+					result.add(this.dataBase.attachedWithID(this.ids[slot]));
+			return result;
+		}
+		int[] slots = ForkJoinPool.commonPool().invoke(new Scan(query, 0, this.length));
+		for (int slot : slots)
+			result.add(this.dataBase.attachedWithID(this.ids[slot]));
+		return result;
+	}
+
+	/**
+	 * A class of tasks returning the slots of the titles with a match of a
+	 * query starting in a range of the arena.
+	 */
+	@SuppressWarnings("serial")
+	private class Scan extends RecursiveTask<int[]> {
+
+		Scan(byte[] query, int from, int to) {
+			this.query = query;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (this.to - this.from > GRAIN) {
+				int middle = (this.from + this.to) >>> 1;
+				Scan right = new Scan(this.query, middle, this.to);
+				right.fork();
+				int[] left = new Scan(this.query, this.from, middle).compute();
+				int[] rightSlots = right.join();
+				int[] result = Arrays.copyOf(left, left.length + rightSlots.length);
+				System.arraycopy(rightSlots, 0, result, left.length, rightSlots.length);
+				return result;
+			}
+			return scan(this.query, this.from, this.to);
+		}
+
+		private final byte[] query;
+
+		private final int from, to;
+	}
+
+	/**
+	 * The number of bytes of the arena above which a scan is split over the
+	 * pool.
+	 */
+	private static final int GRAIN = 1 << 16;
+
+	/**
+	 * Return the slots of the live titles with a match of the given query
+	 * starting in the given range of the arena.
+	 */
+	private int[] scan(byte[] query, int from, int to) {
+		byte[] arena = this.arena;
+		int last = query.length - 1;
+		long firsts = (query[0] & 0xFFL) * LANES;
+		long lasts = (query[last] & 0xFFL) * LANES;
+		int[] slots = new int[4];
+		int slotsNumber = 0;
+		int end = Math.min(to, this.length - last);
+		int position = from;
+		while (position < end) {
+			int candidate = -1;
+			// Eight positions at a time, as long as both words are in the arena.
+			for (; candidate == -1 && position + 8 <= end && position + last + 8 <= arena.length; position += 8) {
+				long match = ((long) LONGS.get(arena, position) ^ firsts)
+						| ((long) LONGS.get(arena, position + last) ^ lasts);
+				// The lanes where match is zero have their high bit set, and
+				// possibly some more lanes above them.
+				long zeros = (match - LANES) & ~match & (LANES << 7);
+				while (zeros != 0) {
+					int lane = Long.numberOfTrailingZeros(zeros) >>> 3;
+					if (matches(arena, position + lane, query)) {
+						candidate = position + lane;
+						break;
+					}
+					zeros &= zeros - 1;
+				}
+			}
+			for (; candidate == -1 && position < end; position++)
+				if (matches(arena, position, query))
+					candidate = position;
+			if (candidate == -1)
+				break;
+			int slot = slotAt(candidate);
+			if (this.ids[slot] != NONE && candidate + query.length <= this.offsets[slot + 1]) {
+				if (slotsNumber == slots.length)
+					slots = Arrays.copyOf(slots, slotsNumber * 2);
+				slots[slotsNumber++] = slot;
+				// Go on after the title found.
+				position = this.offsets[slot + 1];
+			} else
+				position = candidate + 1;
+		}
+		return Arrays.copyOf(slots, slotsNumber);
+	}
+
+	private static boolean matches(byte[] arena, int position, byte[] query) {
+		for (int i = 0; i < query.length; i++)
+			if (arena[position + i] != query[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Return the slot of the title at the given position of the arena.
+	 */
+	private int slotAt(int position) {
+		int slot = Arrays.binarySearch(this.offsets, 0, this.slotsNumber + 1, position);
+		if (slot < 0)
+			return -slot - 2;
+		// Skip empty titles starting at the same position.
+		while (this.offsets[slot + 1] == position)
+			slot++;
+		return slot;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		add(publication.getId(), publication.getTitle());
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		remove(publication.getId());
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (attribute == PublicationAttribute.TITLE && this.slotOf.containsKey(publication.getId())) {
+			remove(publication.getId());
+			add(publication.getId(), publication.getTitle());
+		}
+	}
+
+	private void add(int id, String title) {
+		byte[] bytes = title.toLowerCase().getBytes(StandardCharsets.UTF_8);
+		if (this.length + bytes.length + PADDING > this.arena.length)
+			this.arena = Arrays.copyOf(this.arena, Math.max(this.length + bytes.length + PADDING, this.arena.length * 2));
+		System.arraycopy(bytes, 0, this.arena, this.length, bytes.length);
+		this.length += bytes.length;
+		int slot = this.slotsNumber++;
+		if (slot + 1 == this.offsets.length) {
+			this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+			this.ids = Arrays.copyOf(this.ids, this.offsets.length);
+		}
+		this.ids[slot] = id;
+		this.offsets[slot + 1] = this.length;
+		this.slotOf.put(id, slot);
+		this.liveLength += bytes.length;
+	}
+
+	private void remove(int id) {
+		int slot = this.slotOf.remove(id);
+		if (slot == NONE)
+			return;
+		this.ids[slot] = NONE;
+		this.liveLength -= this.offsets[slot + 1] - this.offsets[slot];
+		if (this.length > COMPACTION && this.liveLength < this.length / 2)
+			compact();
+	}
+
+	/**
+	 * Move the live titles to the front of the arena, dropping the removed
+	 * ones.
+	 */
+	private void compact() {
+		int slots = 0, length = 0;
+		for (int slot = 0; slot < this.slotsNumber; slot++)
+			if (this.ids[slot] != NONE) {
+				int start = this.offsets[slot], size = this.offsets[slot + 1] - start;
+				System.arraycopy(this.arena, start, this.arena, length, size);
+				length += size;
+				this.ids[slots] = this.ids[slot];
+				this.slotOf.put(this.ids[slots], slots);
+				this.offsets[++slots] = length;
+			}
+		this.slotsNumber = slots;
+		this.length = length;
+		Arrays.fill(this.arena, length, Math.min(this.arena.length, length + PADDING), (byte) 0);
+	}
+
+	/**
+	 * The lowercased UTF-8 encoded titles, back to back, followed by at least
+	 * PADDING bytes, and the number of bytes used.
+	 */
+	private byte[] arena = new byte[PADDING];
+
+	private int length;
+
+	/**
+	 * The number of bytes of the titles that are not removed.
+	 */
+	private int liveLength;
+
+	/**
+	 * The start of the title of each slot, followed by the end of the last
+	 * one, the ID of the publication of each slot, or NONE for a removed
+	 * title, and the slot of each ID.
+	 */
+	private int[] offsets = new int[16];
+
+	private int[] ids = new int[16];
+
+	private int slotsNumber;
+
+	private final IntIntMap slotOf = new IntIntMap(NONE);
+
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * A long with a one in each of its eight bytes.
+	 */
+	private static final long LANES = 0x0101010101010101L;
+
+	private static final int PADDING = 8;
+
+	/**
+	 * The number of bytes of the arena below which it is never compacted.
+	 */
+	private static final int COMPACTION = 1 << 16;
+
+	private static final int NONE = -1;
+}
@@ -0,0 +1,91 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class TitleScannerTest {
+
+	private ReferenceDataBase DB;
+	private TitleScanner scanner;
+	private Publication publication1, publication2, publication3, publication4;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion in fluids", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("Object oriented programming", authors, 2014, "acco");
+		publication3 = new ConferencePaper("\u00dcber Brownian Motion", authors, 2012, "Transducers");
+		publication4 = new Book("Gas leak rate study of MEMS", authors, 2008, "Springer");
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		scanner = new TitleScanner(DB);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+	}
+
+	@Test
+	public void findByTitleWord() {
+		assertEquals(set(publication1, publication3), scanner.findByTitleWord("Brownian"));
+		assertEquals(set(publication3), scanner.findByTitleWord("\u00fcber"));
+		assertEquals(set(publication1, publication4), scanner.findByTitleWord("s"));
+		assertEquals(set(publication2), scanner.findByTitleWord("programming"));
+		assertEquals(set(), scanner.findByTitleWord("fluidsobject"));
+		assertEquals(DB.getAllPublications(), scanner.findByTitleWord(""));
+	}
+
+	@Test
+	public void update() throws Exception {
+		publication2.setTitle("Fluids in motion");
+		assertEquals(set(publication1, publication2), scanner.findByTitleWord("fluids"));
+		assertEquals(set(), scanner.findByTitleWord("object"));
+		DB.removePublication(publication1);
+		assertEquals(set(publication2), scanner.findByTitleWord("fluids"));
+	}
+
+	@Test
+	public void findByTitleWord_sameAsDataBase() throws Exception {
+		Random random = new Random(9);
+		String letters = "abcd \u00e9";
+		List<Publication> publications = new ArrayList<Publication>();
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder title = new StringBuilder("T");
+			for (int j = random.nextInt(20); j > 0; j--)
+				title.append(letters.charAt(random.nextInt(letters.length())));
+			Publication publication = new Book(title.toString(), authors, 2000, "acco");
+			DB.addAsPublication(publication);
+			publications.add(publication);
+		}
+		// Change and remove enough titles to compact the arena.
+		for (int i = 0; i < 15000; i++) {
+			Publication publication = publications.get(random.nextInt(publications.size()));
+			if (publication.isTerminated())
+				continue;
+			if (i % 2 == 0)
+				publication.setTitle(publication.getTitle() + "d\u00c9");
+			else
+				DB.removePublication(publication);
+		}
+		String[] words = { "a", "ab", "tabc", "d\u00e9", "cab d", "abcdabcd", "\u00e9\u00e9a", "dd", "Tb", "zz" };
+		for (String word : words)
+			assertEquals(word, DB.findByTitleWord(word), scanner.findByTitleWord(word));
+	}
+
+	private static Set<Publication> set(Publication... publications) {
+		return new HashSet<Publication>(Arrays.asList(publications));
+	}
+}
@@ -0,0 +1,496 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of full-text indices of the titles of the publications of a
+ * reference database, returning the publications best matching a query by
+ * their BM25 score.
+ *
+ * A title is lowercased and split into its words of letters and digits.
+ * Each title gets a document number, and each word a posting list of the
+ * numbers of the titles having it, with the number of times they have it.
+ * The postings are appended in increasing document number, stored as
+ * variable-length encoded differences, and every 64th posting is recorded
+ * in a skip list.
+ *
+ * A search walks the posting lists of the query words together in document
+ * order, WAND style: each list has an upper bound of the score its word can
+ * add to a title, and titles that cannot beat the lowest of the best titles
+ * found so far, even with the bounds of all words they may have, are
+ * skipped without being scored.
+ *
+ * A changed or removed title is only marked as removed; its postings are
+ * skipped by searches. The index is rebuilt once more than half of its
+ * documents are removed.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class TitleSearchIndex extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new index with all the publications of the given
+	 * database, and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database whose titles are indexed.
+	 * @post This index is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public TitleSearchIndex(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		for (Publication publication : dataBase.getAllPublications())
+			add(publication);
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this index.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this index.
+	 *
+	 * @post This index is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Return the publications of the database with the highest BM25 scores
+	 * for the words of the given query.
+	 *
+	 * @param query
+	 *            The words to search for, in any case and separated by any
+	 *            characters other than letters and digits.
+	 * @param limit
+	 *            The maximal number of publications to return.
+	 * @return The publications having at least one of the words, by
+	 *         decreasing score, publications with equal scores by increasing
+	 *         ID.
+	 * @throws IllegalArgumentException
+	 *             The given query is not effective or the given limit is not
+	 *             positive.
+	 */
+	public List<Publication> search(String query, int limit) throws IllegalArgumentException {
+		if (query == null || limit <= 0)
+			throw new IllegalArgumentException();
+		double averageLength = (double) this.totalLength / Math.max(1, this.liveNumber);
+		List<Cursor> cursorList = new ArrayList<Cursor>();
+		for (String word : new LinkedHashSet<String>(Arrays.asList(wordsOf(query)))) {
+			Postings postings = this.postings.get(word);
+			if (postings != null && postings.documents > 0)
+				cursorList.add(new Cursor(postings, averageLength));
+		}
+		Cursor[] cursors = cursorList.toArray(new Cursor[cursorList.size()]);
+		PriorityQueue<Hit> best = new PriorityQueue<Hit>(Math.min(limit, 1024), WORST_FIRST);
+		int active = cursors.length;
+		for (Cursor cursor : cursors)
+			cursor.next();
+		while (true) {
+			active = sortByDocument(cursors, active);
+			// Find the first document that could enter the best hits.
+			int pivot = -1;
+			double bound = 0;
+			for (int i = 0; i < active; i++) {
+				bound += cursors[i].maximum;
+				if (best.size() < limit || bound >= best.peek().score) {
+					pivot = i;
+					break;
+				}
+			}
+			if (pivot == -1)
+				break;
+			int document = cursors[pivot].document;
+			if (cursors[0].document == document) {
+				double score = 0;
+				for (int i = 0; i < active && cursors[i].document == document; i++) {
+					score += cursors[i].score(this.lengths[document]);
+					cursors[i].next();
+				}
+				if (this.ids[document] != NONE)
+					offer(best, limit, new Hit(this.ids[document], score));
+			} else
+				for (int i = 0; i < pivot; i++)
+					cursors[i].advance(document);
+		}
+		List<Hit> hits = new ArrayList<Hit>(best);
+		Collections.sort(hits, Collections.reverseOrder(WORST_FIRST));
+		List<Publication> result = new ArrayList<Publication>(hits.size());
+		for (Hit hit : hits)
+			result.add(this.dataBase.attachedWithID(hit.id));
+		return result;
+	}
+
+	/**
+	 * Add the given hit to the given best hits if it is better than the
+	 * worst of them, keeping at most the given number of hits.
+	 */
+	private static void offer(PriorityQueue<Hit> best, int limit, Hit hit) {
+		if (best.size() < limit)
+			best.add(hit);
+		else if (WORST_FIRST.compare(hit, best.peek()) > 0) {
+			best.poll();
+			best.add(hit);
+		}
+	}
+
+	/**
+	 * Sort the first given number of cursors by their current document, and
+	 * move the exhausted ones after them.
+	 *
+	 * @return The number of cursors that are not exhausted.
+	 */
+	private static int sortByDocument(Cursor[] cursors, int active) {
+		for (int i = 1; i < active; i++)
+			for (int j = i; j > 0 && cursors[j].document < cursors[j - 1].document; j--) {
+				Cursor cursor = cursors[j];
+				cursors[j] = cursors[j - 1];
+				cursors[j - 1] = cursor;
+			}
+		while (active > 0 && cursors[active - 1].document == END)
+			active--;
+		return active;
+	}
+
+	/**
+	 * A class of scored publications, by ID.
+	 */
+	private static class Hit {
+
+		Hit(int id, double score) {
+			this.id = id;
+			this.score = score;
+		}
+
+		final int id;
+
+		final double score;
+	}
+
+	/**
+	 * The order of hits from the lowest to the highest score, hits with equal
+	 * scores from the highest to the lowest ID.
+	 */
+	private static final Comparator<Hit> WORST_FIRST = new Comparator<Hit>() {
+		@Override
+		public int compare(Hit hit1, Hit hit2) {
+			if (hit1.score != hit2.score)
+				return Double.compare(hit1.score, hit2.score);
+			return Integer.compare(hit2.id, hit1.id);
+		}
+	};
+
+	/**
+	 * A class of positions in the posting list of a word, decoding the
+	 * postings one at a time.
+	 */
+	private class Cursor {
+
+		Cursor(Postings postings, double averageLength) {
+			this.postings = postings;
+			this.averageLength = averageLength;
+			this.weight = Math.log(1 + (liveNumber - postings.documents + 0.5) / (postings.documents + 0.5));
+			this.maximum = score(postings.maximumFrequency, postings.minimumLength);
+		}
+
+		/**
+		 * Move to the next posting.
+		 */
+		void next() {
+			if (this.index == this.postings.size) {
+				this.document = END;
+				return;
+			}
+			byte[] bytes = this.postings.bytes;
+			int value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = bytes[this.offset++];
+				value |= (b & 0x7F) << shift;
+				if (b >= 0)
+					break;
+			}
+			this.document += value;
+			value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = bytes[this.offset++];
+				value |= (b & 0x7F) << shift;
+				if (b >= 0)
+					break;
+			}
+			this.frequency = value;
+			this.index++;
+		}
+
+		/**
+		 * Move to the first posting at or after the given document, jumping
+		 * over the blocks of the skip list that end before it.
+		 */
+		void advance(int target) {
+			if (this.document >= target)
+				return;
+			int[] skipDocuments = this.postings.skipDocuments;
+			int low = this.index / SKIP, high = this.postings.skips - 1;
+			int skip = -1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				if (skipDocuments[middle] < target) {
+					skip = middle;
+					low = middle + 1;
+				} else
+					high = middle - 1;
+			}
+			if (skip >= 0 && (skip + 1) * SKIP > this.index) {
+				this.document = skipDocuments[skip];
+				this.offset = this.postings.skipOffsets[skip];
+				this.index = (skip + 1) * SKIP;
+			}
+			do
+				next();
+			while (this.document < target);
+		}
+
+		/**
+		 * Return the score of the word of this cursor for a title of the given
+		 * length having that word at the current frequency.
+		 */
+		double score(int length) {
+			return score(this.frequency, length);
+		}
+
+		private double score(int frequency, int length) {
+			return this.weight * frequency * (K1 + 1)
+					/ (frequency + K1 * (1 - B + B * length / this.averageLength));
+		}
+
+		private final Postings postings;
+
+		private final double averageLength;
+
+		/**
+		 * The inverse document frequency of the word, and the highest score
+		 * it can add to a title.
+		 */
+		private final double weight, maximum;
+
+		private int index, offset, frequency;
+
+		private int document = -1;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		add(publication);
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		remove(publication.getId(), publication.getTitle());
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (attribute == PublicationAttribute.TITLE && this.slotOf.containsKey(publication.getId())) {
+			remove(publication.getId(), (String) oldValue);
+			add(publication);
+		}
+	}
+
+	private void add(Publication publication) {
+		String[] words = wordsOf(publication.getTitle());
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+		for (String word : words) {
+			Integer frequency = frequencies.get(word);
+			frequencies.put(word, frequency == null ? 1 : frequency + 1);
+		}
+		int document = this.documentsNumber++;
+		if (document == this.ids.length) {
+			this.ids = Arrays.copyOf(this.ids, Math.max(16, document * 2));
+			this.lengths = Arrays.copyOf(this.lengths, this.ids.length);
+		}
+		this.ids[document] = publication.getId();
+		this.lengths[document] = words.length;
+		this.slotOf.put(publication.getId(), document);
+		this.liveNumber++;
+		this.totalLength += words.length;
+		for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+			Postings postings = this.postings.get(entry.getKey());
+			if (postings == null) {
+				postings = new Postings();
+				this.postings.put(entry.getKey(), postings);
+			}
+			postings.add(document, entry.getValue(), words.length);
+		}
+	}
+
+	private void remove(int id, String title) {
+		int document = this.slotOf.remove(id);
+		if (document == NONE)
+			return;
+		for (String word : new LinkedHashSet<String>(Arrays.asList(wordsOf(title))))
+			this.postings.get(word).documents--;
+		this.ids[document] = NONE;
+		this.liveNumber--;
+		this.totalLength -= this.lengths[document];
+		if (this.documentsNumber - this.liveNumber > Math.max(COMPACTION, this.liveNumber))
+			rebuild();
+	}
+
+	/**
+	 * Rebuild the postings of this index from the titles that are not
+	 * removed.
+	 */
+	private void rebuild() {
+		int[] ids = Arrays.copyOf(this.ids, this.documentsNumber);
+		this.postings.clear();
+		this.documentsNumber = 0;
+		this.liveNumber = 0;
+		this.totalLength = 0;
+		this.slotOf.clear();
+		for (int id : ids)
+			if (id != NONE)
+				add(this.dataBase.attachedWithID(id));
+	}
+
+	/**
+	 * Return the words of the given title, lowercased.
+	 */
+	static String[] wordsOf(String title) {
+		List<String> words = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i <= title.length(); i++)
+			if (i < title.length() && Character.isLetterOrDigit(title.charAt(i))) {
+				if (start == -1)
+					start = i;
+			} else if (start != -1) {
+				words.add(title.substring(start, i).toLowerCase());
+				start = -1;
+			}
+		return words.toArray(new String[words.size()]);
+	}
+
+	/**
+	 * A class of posting lists of a single word.
+	 *
+	 * @invar skipDocuments[s] is the document of posting (s + 1) * SKIP - 1,
+	 *        and skipOffsets[s] the offset of posting (s + 1) * SKIP.
+	 */
+	private static class Postings {
+
+		void add(int document, int frequency, int length) {
+			if (this.size > 0 && this.size % SKIP == 0) {
+				if (this.skips == this.skipDocuments.length) {
+					this.skipDocuments = Arrays.copyOf(this.skipDocuments, Math.max(4, this.skips * 2));
+					this.skipOffsets = Arrays.copyOf(this.skipOffsets, this.skipDocuments.length);
+				}
+				this.skipDocuments[this.skips] = this.lastDocument;
+				this.skipOffsets[this.skips++] = this.length;
+			}
+			if (this.length + 10 > this.bytes.length)
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(16, this.bytes.length * 2));
+			write(document - this.lastDocument);
+			write(frequency);
+			this.lastDocument = document;
+			this.size++;
+			this.documents++;
+			this.maximumFrequency = Math.max(this.maximumFrequency, frequency);
+			this.minimumLength = Math.min(this.minimumLength, length);
+		}
+
+		private void write(int value) {
+			while ((value & ~0x7F) != 0) {
+				this.bytes[this.length++] = (byte) (value | 0x80);
+				value >>>= 7;
+			}
+			this.bytes[this.length++] = (byte) value;
+		}
+
+		/**
+		 * The encoded postings, and the number of bytes and postings used.
+		 */
+		byte[] bytes = new byte[0];
+
+		int length, size;
+
+		int lastDocument = -1;
+
+		/**
+		 * The number of postings of titles that are not removed.
+		 */
+		int documents;
+
+		/**
+		 * The highest frequency and the lowest title length of the postings,
+		 * including those of removed titles.
+		 */
+		int maximumFrequency, minimumLength = Integer.MAX_VALUE;
+
+		int[] skipDocuments = new int[0], skipOffsets = new int[0];
+
+		int skips;
+	}
+
+	/**
+	 * The posting list of each word.
+	 */
+	private final Map<String, Postings> postings = new HashMap<String, Postings>();
+
+	/**
+	 * The ID of the publication of each document, or NONE for a removed
+	 * title, the length of each document, and the document of each ID.
+	 */
+	private int[] ids = new int[0];
+
+	private int[] lengths = new int[0];
+
+	private final IntIntMap slotOf = new IntIntMap(NONE);
+
+	private int documentsNumber;
+
+	/**
+	 * The number of documents that are not removed, and their total length.
+	 */
+	private int liveNumber;
+
+	private long totalLength;
+
+	private static final double K1 = 1.2;
+
+	private static final double B = 0.75;
+
+	private static final int SKIP = 64;
+
+	/**
+	 * The number of removed documents below which the index is never
+	 * rebuilt.
+	 */
+	private static final int COMPACTION = 1024;
+
+	private static final int END = Integer.MAX_VALUE;
+
+	private static final int NONE = -1;
+}
@@ -0,0 +1,112 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class TitleSearchIndexTest {
+
+	private ReferenceDataBase DB;
+	private TitleSearchIndex index;
+	private Publication publication1, publication2, publication3, publication4;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion in fluids", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("A model of fluids and a model of gases", authors, 2014, "acco");
+		publication3 = new ConferencePaper("Fluid model", authors, 2012, "Transducers");
+		publication4 = new Book("Gas leak rate study of MEMS", authors, 2008, "Springer");
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		index = new TitleSearchIndex(DB);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+	}
+
+	@Test
+	public void search_ranked() {
+		// The short title with the word ranks above the long one having it
+		// twice; the word is absent from the others.
+		assertEquals(Arrays.asList(publication3, publication2), index.search("Model", 10));
+		assertEquals(Arrays.asList(publication3), index.search("model", 1));
+		assertEquals(Arrays.asList(publication1, publication2), index.search("fluids", 10));
+		assertTrue(index.search("quantum", 10).isEmpty());
+	}
+
+	@Test
+	public void search_severalWords() {
+		List<Publication> result = index.search("fluids, model!", 10);
+		assertEquals(3, result.size());
+		assertEquals(publication2, result.get(0));
+	}
+
+	@Test
+	public void update() throws Exception {
+		publication4.setTitle("Model of leaks");
+		assertEquals(3, index.search("model", 10).size());
+		assertTrue(index.search("gas", 10).isEmpty());
+		publication4.capitalizeTitle();
+		assertEquals(3, index.search("model", 10).size());
+		assertEquals(Arrays.asList(publication4), index.search("LEAKS", 10));
+		DB.removePublication(publication3);
+		assertEquals(Arrays.asList(publication4, publication2), index.search("model", 10));
+	}
+
+	@Test
+	public void search_sameAsExhaustive() throws Exception {
+		Random random = new Random(3);
+		String[] words = { "alpha", "beta", "gamma", "delta", "sensor", "fluid", "graph", "laser", "model", "noise",
+				"optical", "plasma", "quantum", "robust", "silicon", "thermal", "vacuum", "wave", "zinc", "yield" };
+		List<Publication> publications = new ArrayList<Publication>();
+		for (int i = 0; i < 3000; i++) {
+			StringBuilder title = new StringBuilder();
+			for (int j = 1 + random.nextInt(8); j > 0; j--)
+				title.append(words[(int) Math.abs(random.nextGaussian() * 6) % words.length]).append(' ');
+			Publication publication = new Book(title.toString().trim(), authors, 2000, "acco");
+			DB.addAsPublication(publication);
+			publications.add(publication);
+		}
+		// Change and remove enough titles to rebuild the index.
+		for (int i = 0; i < 3000; i++) {
+			Publication publication = publications.get(random.nextInt(publications.size()));
+			if (publication.isTerminated())
+				continue;
+			if (i % 2 == 0)
+				publication.setTitle(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+			else
+				DB.removePublication(publication);
+		}
+		for (int i = 0; i < 30; i++) {
+			String query = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " "
+					+ words[random.nextInt(words.length)];
+			List<Publication> all = index.search(query, Integer.MAX_VALUE);
+			assertArrayEquals(all.subList(0, Math.min(10, all.size())).toArray(), index.search(query, 10).toArray());
+		}
+	}
+
+	@Test
+	public void wordsOf() {
+		assertArrayEquals(new String[] { "a", "model", "of", "mems", "2" },
+				TitleSearchIndex.wordsOf("A model of MEMS, 2."));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void search_illegalLimit() {
+		index.search("model", 0);
+	}
+}
@@ -0,0 +1,429 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of trigram indices of the titles of the publications of a
+ * reference database, answering substring, wildcard and regular expression
+ * queries on the titles.
+ *
+ * Each trigram of a lowercased title, i.e. each run of three characters,
+ * has a posting list of the IDs of the publications having it, sorted by
+ * ID. A query is reduced to the literal strings any matching title must
+ * contain; the IDs of the titles having all trigrams of those strings are
+ * found by intersecting their posting lists, shortest first, and only those
+ * titles are checked against the query itself. A query is thereby answered
+ * in time proportional to the length of its shortest posting list rather
+ * than to the size of the database. Queries without a literal string of at
+ * least three characters check all titles.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class TitleTrigramIndex extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new index with all the publications of the given
+	 * database, and attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database whose titles are indexed.
+	 * @post This index is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public TitleTrigramIndex(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		for (Publication publication : dataBase.getAllPublications())
+			add(publication.getId(), publication.getTitle());
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this index.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this index.
+	 *
+	 * @post This index is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Return all publications of the database that have the given string in
+	 * their title, ignoring case, like findByTitleWord of the database.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given string is not effective.
+	 */
+	public Set<Publication> findByTitleSubstring(String substring) throws IllegalArgumentException {
+		if (substring == null)
+			throw new IllegalArgumentException();
+		String lowerCaseSubstring = substring.toLowerCase();
+		Set<Publication> result = new HashSet<Publication>();
+		for (Publication publication : candidates(new String[] { lowerCaseSubstring }))
+			if (publication.getTitle().toLowerCase().contains(lowerCaseSubstring))
+				result.add(publication);
+		return result;
+	}
+
+	/**
+	 * Return all publications of the database whose whole title matches the
+	 * given wildcard pattern, ignoring case.
+	 *
+	 * @param wildcard
+	 *            The pattern, in which '*' stands for any number of
+	 *            characters and '?' for a single character.
+	 * @throws IllegalArgumentException
+	 *             The given pattern is not effective.
+	 */
+	public Set<Publication> findByTitleWildcard(String wildcard) throws IllegalArgumentException {
+		if (wildcard == null)
+			throw new IllegalArgumentException();
+		List<String> literals = new ArrayList<String>();
+		StringBuilder regex = new StringBuilder();
+		int start = 0;
+		for (int i = 0; i <= wildcard.length(); i++)
+			if (i == wildcard.length() || wildcard.charAt(i) == '*' || wildcard.charAt(i) == '?') {
+				if (i > start) {
+					literals.add(wildcard.substring(start, i).toLowerCase());
+					regex.append(Pattern.quote(wildcard.substring(start, i)));
+				}
+				if (i < wildcard.length())
+					regex.append(wildcard.charAt(i) == '*' ? ".*" : ".");
+				start = i + 1;
+			}
+		Pattern pattern = Pattern.compile(regex.toString(),
+				Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+		Set<Publication> result = new HashSet<Publication>();
+		for (Publication publication : candidates(literals.toArray(new String[literals.size()])))
+			if (pattern.matcher(publication.getTitle()).matches())
+				result.add(publication);
+		return result;
+	}
+
+	/**
+	 * Return all publications of the database with a part of their title
+	 * matching the given regular expression, ignoring case.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given expression is not effective.
+	 * @throws PatternSyntaxException
+	 *             The given expression is not a valid regular expression.
+	 */
+	public Set<Publication> findByTitlePattern(String regex) throws IllegalArgumentException, PatternSyntaxException {
+		if (regex == null)
+			throw new IllegalArgumentException();
+		Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+		Matcher matcher = pattern.matcher("");
+		Set<Publication> result = new HashSet<Publication>();
+		for (Publication publication : candidates(literalsOf(regex)))
+			if (matcher.reset(publication.getTitle()).find())
+				result.add(publication);
+		return result;
+	}
+
+	/**
+	 * Return the lowercased literal strings the given regular expression
+	 * requires in any string it finds a match in.
+	 *
+	 * Only the literal characters outside groups and character classes, and
+	 * not made optional by a quantifier, are taken. An expression with an
+	 * alternative outside groups, or that may ignore white space, requires
+	 * nothing.
+	 */
+	static String[] literalsOf(String regex) {
+		if (COMMENTS.matcher(regex).find())
+			return new String[0];
+		List<String> literals = new ArrayList<String>();
+		StringBuilder literal = new StringBuilder();
+		int i = 0;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			int end = i + 1;
+			boolean isLiteral = false;
+			if (c == '\\' && end < regex.length()) {
+				char escaped = regex.charAt(end++);
+				if (escaped == 'Q') {
+					int quoteEnd = regex.indexOf("\\E", end);
+					end = quoteEnd == -1 ? regex.length() : quoteEnd + 2;
+				} else if (end < regex.length() && regex.charAt(end) == '{' && "pPxN".indexOf(escaped) != -1)
+					end = regex.indexOf('}', end) + 1;
+				else if (escaped == 'k')
+					end = regex.indexOf('>', end) + 1;
+				else if (escaped == 'x' || escaped == 'u' || escaped == 'c')
+					end = Math.min(regex.length(), end + (escaped == 'x' ? 2 : escaped == 'u' ? 4 : 1));
+				else if (Character.isDigit(escaped))
+					// Skip the digits of an octal escape or a back reference.
+					while (end < regex.length() && Character.isDigit(regex.charAt(end)))
+						end++;
+				else if (!Character.isLetter(escaped)) {
+					c = escaped;
+					isLiteral = true;
+				}
+			} else if (c == '[')
+				end = skipClass(regex, i);
+			else if (c == '(')
+				end = skipGroup(regex, i);
+			else if (c == '|')
+				return new String[0];
+			else
+				isLiteral = ".^$*+?{)".indexOf(c) == -1;
+			// Skip the quantifier of the element, if any.
+			boolean optional = false, repeated = false;
+			if (end < regex.length() && "?*{".indexOf(regex.charAt(end)) != -1) {
+				optional = true;
+				end = regex.charAt(end) == '{' ? regex.indexOf('}', end) + 1 : end + 1;
+			} else if (end < regex.length() && regex.charAt(end) == '+') {
+				repeated = true;
+				end++;
+			}
+			if (optional || repeated) {
+				if (end < regex.length() && (regex.charAt(end) == '?' || regex.charAt(end) == '+'))
+					end++;
+			}
+			if (isLiteral && !optional)
+				literal.append(c);
+			if (!isLiteral || optional || repeated) {
+				if (literal.length() > 0)
+					literals.add(literal.toString().toLowerCase());
+				literal.setLength(0);
+			}
+			i = end <= i ? regex.length() : end;
+		}
+		if (literal.length() > 0)
+			literals.add(literal.toString().toLowerCase());
+		return literals.toArray(new String[literals.size()]);
+	}
+
+	/**
+	 * The inline flags that let a regular expression ignore white space.
+	 */
+	private static final Pattern COMMENTS = Pattern.compile("\\(\\?[a-zA-Z]*x");
+
+	/**
+	 * Return the index just after the character class starting at the given
+	 * index of the given regular expression.
+	 */
+	private static int skipClass(String regex, int start) {
+		int depth = 0;
+		int i = start;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\')
+				i++;
+			else if (c == '[')
+				depth++;
+			else if (c == ']' && i > start + 1 && !(i == start + 2 && regex.charAt(start + 1) == '^')) {
+				if (--depth == 0)
+					return i + 1;
+			}
+			i++;
+		}
+		return regex.length();
+	}
+
+	/**
+	 * Return the index just after the group starting at the given index of
+	 * the given regular expression.
+	 */
+	private static int skipGroup(String regex, int start) {
+		int depth = 0;
+		int i = start;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\')
+				i++;
+			else if (c == '[') {
+				i = skipClass(regex, i);
+				continue;
+			} else if (c == '(')
+				depth++;
+			else if (c == ')' && --depth == 0)
+				return i + 1;
+			i++;
+		}
+		return regex.length();
+	}
+
+	/**
+	 * Return the publications whose lowercased titles have all trigrams of
+	 * the given lowercased strings, or all publications if the strings have
+	 * no trigrams.
+	 */
+	private Collection<Publication> candidates(String[] literals) {
+		Set<Integer> grams = new HashSet<Integer>();
+		for (String literal : literals)
+			for (int i = 0; i + TRIGRAM <= literal.length(); i++)
+				grams.add(trigram(literal, i));
+		if (grams.isEmpty())
+			return this.dataBase.getAllPublications();
+		int[][] lists = new int[grams.size()][];
+		int[] sizes = new int[grams.size()];
+		int count = 0;
+		for (int gram : grams) {
+			int list = this.listOf.get(gram);
+			if (list == NONE)
+				return new ArrayList<Publication>();
+			lists[count] = this.postings[list];
+			sizes[count++] = this.postingSizes[list];
+		}
+		// Intersect the lists from short to long.
+		int shortest = 0;
+		for (int i = 1; i < count; i++)
+			if (sizes[i] < sizes[shortest])
+				shortest = i;
+		int[] ids = Arrays.copyOf(lists[shortest], sizes[shortest]);
+		int size = ids.length;
+		for (int i = 0; i < count && size > 0; i++)
+			if (i != shortest)
+				size = retain(ids, size, lists[i], sizes[i]);
+		List<Publication> result = new ArrayList<Publication>(size);
+		for (int i = 0; i < size; i++)
+			result.add(this.dataBase.attachedWithID(ids[i]));
+		return result;
+	}
+
+	/**
+	 * Keep the first given number of sorted IDs that are also in the given
+	 * number of sorted IDs of the given list, in place.
+	 *
+	 * @return The number of IDs kept.
+	 */
+	private static int retain(int[] ids, int size, int[] list, int listSize) {
+		int kept = 0;
+		int from = 0;
+		for (int i = 0; i < size; i++) {
+			int position = Arrays.binarySearch(list, from, listSize, ids[i]);
+			if (position >= 0) {
+				ids[kept++] = ids[i];
+				from = position + 1;
+			} else
+				from = -position - 1;
+		}
+		return kept;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		add(publication.getId(), publication.getTitle());
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		remove(publication.getId(), publication.getTitle());
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (attribute == PublicationAttribute.TITLE && this.dataBase.isAttached(publication)) {
+			remove(publication.getId(), (String) oldValue);
+			add(publication.getId(), publication.getTitle());
+		}
+	}
+
+	/**
+	 * Add the given ID to the posting lists of the trigrams of the given
+	 * title.
+	 */
+	private void add(int id, String title) {
+		for (int gram : trigramsOf(title)) {
+			int list = this.listOf.get(gram);
+			if (list == NONE) {
+				list = this.listsNumber++;
+				this.listOf.put(gram, list);
+				if (list == this.postings.length) {
+					this.postings = Arrays.copyOf(this.postings, Math.max(16, list * 2));
+					this.postingSizes = Arrays.copyOf(this.postingSizes, this.postings.length);
+				}
+				this.postings[list] = new int[4];
+			}
+			int[] ids = this.postings[list];
+			int size = this.postingSizes[list];
+			// New publications have the highest IDs, and are appended.
+			int position = size == 0 || ids[size - 1] < id ? size : -Arrays.binarySearch(ids, 0, size, id) - 1;
+			if (size == ids.length)
+				ids = this.postings[list] = Arrays.copyOf(ids, size * 2);
+			System.arraycopy(ids, position, ids, position + 1, size - position);
+			ids[position] = id;
+			this.postingSizes[list] = size + 1;
+		}
+	}
+
+	/**
+	 * Remove the given ID from the posting lists of the trigrams of the
+	 * given title.
+	 */
+	private void remove(int id, String title) {
+		for (int gram : trigramsOf(title)) {
+			int list = this.listOf.get(gram);
+			int[] ids = this.postings[list];
+			int size = this.postingSizes[list];
+			int position = Arrays.binarySearch(ids, 0, size, id);
+			System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+			this.postingSizes[list] = size - 1;
+		}
+	}
+
+	/**
+	 * Return the distinct trigrams of the given title, lowercased.
+	 */
+	private static int[] trigramsOf(String title) {
+		String lowerCaseTitle = title.toLowerCase();
+		int[] grams = new int[Math.max(0, lowerCaseTitle.length() - TRIGRAM + 1)];
+		for (int i = 0; i < grams.length; i++)
+			grams[i] = trigram(lowerCaseTitle, i);
+		Arrays.sort(grams);
+		int size = 0;
+		for (int i = 0; i < grams.length; i++)
+			if (i == 0 || grams[i] != grams[i - 1])
+				grams[size++] = grams[i];
+		return Arrays.copyOf(grams, size);
+	}
+
+	/**
+	 * Return the key of the trigram at the given index of the given string.
+	 * Different trigrams may share a key; this only adds candidates.
+	 */
+	private static int trigram(String string, int index) {
+		return (string.charAt(index) * 0x10001 + string.charAt(index + 1)) * 0x3D + string.charAt(index + 2);
+	}
+
+	/**
+	 * The posting list of each trigram, and the number of IDs in each list.
+	 */
+	private final IntIntMap listOf = new IntIntMap(NONE);
+
+	private int[][] postings = new int[0][];
+
+	private int[] postingSizes = new int[0];
+
+	private int listsNumber;
+
+	private static final int TRIGRAM = 3;
+
+	private static final int NONE = -1;
+}
@@ -0,0 +1,120 @@
+package referenceDB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class TitleTrigramIndexTest {
+
+	private ReferenceDataBase DB;
+	private TitleTrigramIndex index;
+	private Publication publication1, publication2, publication3, publication4;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("Brownian motion in fluids", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("Object oriented programming", authors, 2014, "acco");
+		publication3 = new ConferencePaper("Brownian Motion In Fluids.", authors, 2012, "Transducers");
+		publication4 = new Book("Gas leak rate study of MEMS", authors, 2008, "Springer");
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		index = new TitleTrigramIndex(DB);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+	}
+
+	@Test
+	public void findByTitleSubstring() {
+		assertEquals(set(publication1, publication3), index.findByTitleSubstring("otion in flu"));
+		assertEquals(set(publication2), index.findByTitleSubstring("OBJECT"));
+		assertEquals(set(publication2, publication4), index.findByTitleSubstring("ra"));
+		assertEquals(set(), index.findByTitleSubstring("motion of"));
+		assertEquals(DB.getAllPublications(), index.findByTitleSubstring(""));
+	}
+
+	@Test
+	public void findByTitleWildcard() {
+		assertEquals(set(publication1, publication3), index.findByTitleWildcard("brownian*fluids*"));
+		assertEquals(set(publication1), index.findByTitleWildcard("brownian*fluids"));
+		assertEquals(set(publication4), index.findByTitleWildcard("gas ?eak*"));
+		assertEquals(set(), index.findByTitleWildcard("leak*"));
+	}
+
+	@Test
+	public void findByTitlePattern() {
+		assertEquals(set(publication1, publication3), index.findByTitlePattern("motion\\s+in"));
+		assertEquals(set(publication2, publication4), index.findByTitlePattern("(object|gas) "));
+		assertEquals(set(publication2, publication4), index.findByTitlePattern("object|leak"));
+		assertEquals(set(publication4), index.findByTitlePattern("MEMS$"));
+		assertEquals(set(publication1, publication3), index.findByTitlePattern("fluids?\\.?$"));
+	}
+
+	@Test(expected = PatternSyntaxException.class)
+	public void findByTitlePattern_illegal() {
+		index.findByTitlePattern("motion(");
+	}
+
+	@Test
+	public void literalsOf() {
+		assertArrayEquals(new String[] { "motion", "in" }, TitleTrigramIndex.literalsOf("Motion\\s+in"));
+		assertArrayEquals(new String[] { "fluid", "." }, TitleTrigramIndex.literalsOf("fluids?\\.$"));
+		assertArrayEquals(new String[] { "ab", "cd" }, TitleTrigramIndex.literalsOf("ab+cd"));
+		assertArrayEquals(new String[] { "a", "b" }, TitleTrigramIndex.literalsOf("a(x|y)b[cd]*"));
+		assertArrayEquals(new String[] { "bc" }, TitleTrigramIndex.literalsOf("\\x41bc\\Qd|e\\E"));
+		assertArrayEquals(new String[0], TitleTrigramIndex.literalsOf("abc|def"));
+		assertArrayEquals(new String[0], TitleTrigramIndex.literalsOf("(?x)a b c"));
+	}
+
+	@Test
+	public void update() throws Exception {
+		publication2.setTitle("Gas leaks");
+		assertEquals(set(publication2, publication4), index.findByTitleSubstring("gas lea"));
+		assertEquals(set(), index.findByTitleSubstring("object"));
+		DB.removePublication(publication4);
+		assertEquals(set(publication2), index.findByTitleSubstring("gas lea"));
+	}
+
+	@Test
+	public void findByTitlePattern_sameAsScan() throws Exception {
+		Random random = new Random(5);
+		String letters = "abcde ";
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder title = new StringBuilder("t");
+			for (int j = random.nextInt(12); j > 0; j--)
+				title.append(letters.charAt(random.nextInt(letters.length())));
+			DB.addAsPublication(new Book(title.toString(), authors, 2000, "acco"));
+		}
+		String[] regexes = { "abc", "ab+c", "a.c", "a[bc]d", "(ab)+cd", "ab?cd", "^tab", "de$", "a{2}b", "\\bda",
+				"(?i)ABC", "\\x61bc" };
+		for (String regex : regexes) {
+			Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+			Set<Publication> expected = new HashSet<Publication>();
+			for (Publication publication : DB.getAllPublications())
+				if (pattern.matcher(publication.getTitle()).find())
+					expected.add(publication);
+			assertEquals(regex, expected, index.findByTitlePattern(regex));
+		}
+		assertEquals(DB.findByTitleWord("cab"), index.findByTitleSubstring("cab"));
+	}
+
+	private static Set<Publication> set(Publication... publications) {
+		return new HashSet<Publication>(Arrays.asList(publications));
+	}
+}
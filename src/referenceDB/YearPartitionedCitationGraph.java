@@ -0,0 +1,593 @@
+package referenceDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalPublicationIdException;
+import publications.Publication;
+import publications.PublicationAttribute;
+
+/**
+ * A class of citation graphs of a reference database partitioned by year,
+ * for closure and citation-count queries restricted to a window of years.
+ *
+ * Since canCites only allows a publication to cite publications of the same
+ * year or earlier, the citation graph is layered by year. The publications
+ * are numbered by year, so each year is a contiguous range of indices, and
+ * the citations are stored in blocks per citing year and cited year. The
+ * publications citing each publication are stored in increasing index, and
+ * therefore in increasing year.
+ *
+ * The publications that directly or indirectly cite a publication are found
+ * one year at a time, from the year of that publication up to the end of the
+ * window: a publication of a later year than the window can never be on a
+ * chain that ends in the window. Each year is either reached by following the
+ * citations of the publications found so far, when they have few citations
+ * left, or by scanning the blocks of citations from the year towards the
+ * years already done, partitioned over a fork-join pool. Citations within a
+ * year, which may form cycles, are then followed one by one.
+ *
+ * When a publication cites a later one, which setYear can bring about, the
+ * years are no longer ordered and the queries fall back to a plain search.
+ *
+ * The graph listens to its database and is rebuilt in bulk by the first query
+ * after any change of the citations, the publications or their years.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class YearPartitionedCitationGraph extends DataBaseAdapter {
+
+	/**
+	 * Initialize this new year-partitioned graph for the given database, and
+	 * attach it to that database.
+	 *
+	 * @param dataBase
+	 *            The database whose citations are partitioned.
+	 * @post This graph is registered as listener of the given database.
+	 * @throws IllegalArgumentException
+	 *             The given database is not effective or terminated.
+	 */
+	public YearPartitionedCitationGraph(ReferenceDataBase dataBase) throws IllegalArgumentException {
+		if (dataBase == null || dataBase.isTerminated())
+			throw new IllegalArgumentException();
+		this.dataBase = dataBase;
+		rebuild();
+		dataBase.addListener(this);
+	}
+
+	/**
+	 * Return the database of this graph.
+	 */
+	@Basic
+	public ReferenceDataBase getDataBase() {
+		return dataBase;
+	}
+
+	private final ReferenceDataBase dataBase;
+
+	/**
+	 * Terminate this graph.
+	 *
+	 * @post This graph is no longer registered as listener of its database.
+	 */
+	public void terminate() {
+		this.dataBase.removeListener(this);
+	}
+
+	/**
+	 * Check whether this graph reflects the current state of its database.
+	 */
+	@Basic
+	public boolean isUpToDate() {
+		return !outdated;
+	}
+
+	private boolean outdated;
+
+	/**
+	 * Check whether every citation of this graph goes to a publication of the
+	 * same year or earlier.
+	 */
+	@Basic
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	private boolean ordered;
+
+	/**
+	 * Return the number of years with at least one publication.
+	 */
+	public int getYearsNumber() {
+		return this.years.length;
+	}
+
+	/**
+	 * Return all publications that directly or indirectly cite the publication
+	 * with the given ID, like findDirIndirCites of the database.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in the database.
+	 */
+	public Set<Publication> findDirIndirCites(int id) throws IllegalPublicationIdException {
+		return findDirIndirCites(id, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Return the publications of the given window of years that directly or
+	 * indirectly cite the publication with the given ID. The chains of
+	 * citations may pass through publications outside the window.
+	 *
+	 * @param id
+	 *            The ID of the cited publication.
+	 * @param fromYear
+	 *            The first year of the window.
+	 * @param toYear
+	 *            The last year of the window.
+	 * @return The set of publications published from fromYear up to toYear
+	 *         that direct/indirectly cite the publication.
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in the database.
+	 */
+	public Set<Publication> findDirIndirCites(int id, int fromYear, int toYear) throws IllegalPublicationIdException {
+		int source = indexOf(id);
+		IntList found = this.ordered ? closureByYear(source, toYear) : closure(source);
+		int first = this.layerStart[firstLayer(fromYear)];
+		int end = this.layerStart[endLayer(toYear)];
+		Set<Publication> result = new HashSet<Publication>();
+		for (int i = 0; i < found.size; i++)
+			if (found.items[i] >= first && found.items[i] < end)
+				result.add(this.publications[found.items[i]]);
+		return result;
+	}
+
+	/**
+	 * Return the number of publications of the given window of years that
+	 * directly cite the publication with the given ID.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in the database.
+	 */
+	public int getCitationsNumber(int id, int fromYear, int toYear) throws IllegalPublicationIdException {
+		int v = indexOf(id);
+		int from = this.citedByStart[v], to = this.citedByStart[v + 1];
+		return lowerBound(this.citedBy, from, to, this.layerStart[endLayer(toYear)])
+				- lowerBound(this.citedBy, from, to, this.layerStart[firstLayer(fromYear)]);
+	}
+
+	/**
+	 * Return the number of citations from publications of the given citing
+	 * year to publications of the given cited year.
+	 */
+	public int getYearCitationsNumber(int citingYear, int citedYear) {
+		if (this.outdated)
+			rebuild();
+		int a = Arrays.binarySearch(this.years, citingYear);
+		int b = Arrays.binarySearch(this.years, citedYear);
+		if (a < 0 || b < 0)
+			return 0;
+		int k = Arrays.binarySearch(this.blockCited, this.blockStart[a], this.blockStart[a + 1], b);
+		return k < 0 ? 0 : this.edgeStart[k + 1] - this.edgeStart[k];
+	}
+
+	/**
+	 * Rebuild this graph from the current state of its database.
+	 *
+	 * @post This graph is up to date.
+	 */
+	public void rebuild() {
+		List<Publication> list = new ArrayList<Publication>(this.dataBase.getAllPublications());
+		Collections.sort(list, new Comparator<Publication>() {
+			@Override
+			public int compare(Publication p1, Publication p2) {
+				if (p1.getYear() != p2.getYear())
+					return p1.getYear() < p2.getYear() ? -1 : 1;
+				return Integer.compare(p1.getId(), p2.getId());
+			}
+		});
+		int n = list.size();
+		this.publications = list.toArray(new Publication[n]);
+		this.indexOf = new IntIntMap(-1, n);
+		this.layerOf = new int[n];
+		int[] years = new int[n];
+		int[] layerStart = new int[n + 1];
+		int layers = 0;
+		for (int v = 0; v < n; v++) {
+			this.indexOf.put(this.publications[v].getId(), v);
+			int year = this.publications[v].getYear();
+			if (layers == 0 || years[layers - 1] != year) {
+				years[layers] = year;
+				layerStart[layers++] = v;
+			}
+			this.layerOf[v] = layers - 1;
+		}
+		layerStart[layers] = n;
+		this.years = Arrays.copyOf(years, layers);
+		this.layerStart = Arrays.copyOf(layerStart, layers + 1);
+
+		// The citations between publications of the database, by increasing
+		// citing index.
+		int m = 0;
+		for (Publication publication : this.publications)
+			m += publication.getCitesNumber();
+		int[] citing = new int[m], cited = new int[m];
+		m = 0;
+		this.ordered = true;
+		this.citedByStart = new int[n + 1];
+		for (int u = 0; u < n; u++)
+			for (Publication publication : this.publications[u].getAllCites()) {
+				int v = this.indexOf.get(publication.getId());
+				if (v >= 0 && this.publications[v] == publication) {
+					citing[m] = u;
+					cited[m++] = v;
+					this.citedByStart[v + 1]++;
+					if (this.layerOf[v] > this.layerOf[u])
+						this.ordered = false;
+				}
+			}
+		for (int v = 0; v < n; v++)
+			this.citedByStart[v + 1] += this.citedByStart[v];
+		this.citedBy = new int[m];
+		int[] fill = Arrays.copyOf(this.citedByStart, n);
+		for (int e = 0; e < m; e++)
+			this.citedBy[fill[cited[e]]++] = citing[e];
+
+		// Two stable counting sorts group the citations by citing year, then
+		// by cited year, keeping them by increasing citing index in a block.
+		int[] order = new int[m];
+		for (int e = 0; e < m; e++)
+			order[e] = e;
+		order = sortByLayer(order, cited, layers);
+		order = sortByLayer(order, citing, layers);
+		this.edgeCiting = new int[m];
+		this.edgeCited = new int[m];
+		int[] blockCited = new int[Math.max(1, m)];
+		int[] edgeStart = new int[m + 1];
+		this.blockStart = new int[layers + 1];
+		int blocks = 0;
+		for (int i = 0; i < m; i++) {
+			int e = order[i];
+			this.edgeCiting[i] = citing[e];
+			this.edgeCited[i] = cited[e];
+			int a = this.layerOf[citing[e]], b = this.layerOf[cited[e]];
+			if (i == 0 || a != this.layerOf[this.edgeCiting[i - 1]] || b != blockCited[blocks - 1]) {
+				blockCited[blocks] = b;
+				edgeStart[blocks++] = i;
+				this.blockStart[a + 1] = blocks;
+			}
+		}
+		for (int a = 0; a < layers; a++)
+			this.blockStart[a + 1] = Math.max(this.blockStart[a + 1], this.blockStart[a]);
+		edgeStart[blocks] = m;
+		this.blockCited = Arrays.copyOf(blockCited, blocks);
+		this.edgeStart = Arrays.copyOf(edgeStart, blocks + 1);
+
+		this.mark = new int[n];
+		this.pointer = new int[n];
+		this.stamp = 0;
+		this.outdated = false;
+	}
+
+	/**
+	 * Return the given citations sorted stably by the layer of the given
+	 * ends.
+	 */
+	private int[] sortByLayer(int[] order, int[] ends, int layers) {
+		int[] start = new int[layers + 1];
+		for (int e : order)
+			start[this.layerOf[ends[e]] + 1]++;
+		for (int a = 0; a < layers; a++)
+			start[a + 1] += start[a];
+		int[] result = new int[order.length];
+		for (int e : order)
+			result[start[this.layerOf[ends[e]]]++] = e;
+		return result;
+	}
+
+	@Override
+	public void publicationAdded(Publication publication) {
+		this.outdated = true;
+	}
+
+	@Override
+	public void publicationRemoved(Publication publication) {
+		this.outdated = true;
+	}
+
+	@Override
+	public void citationAdded(Publication citing, Publication cited) {
+		if (this.dataBase.isAttached(citing) && this.dataBase.isAttached(cited))
+			this.outdated = true;
+	}
+
+	@Override
+	public void citationRemoved(Publication citing, Publication cited) {
+		if (this.dataBase.isAttached(citing) && this.dataBase.isAttached(cited))
+			this.outdated = true;
+	}
+
+	@Override
+	public void attributeChanged(Publication publication, PublicationAttribute attribute, Object oldValue) {
+		if (attribute == PublicationAttribute.YEAR)
+			this.outdated = true;
+	}
+
+	/**
+	 * Return the index of the publication with the given ID, after bringing
+	 * this graph up to date.
+	 *
+	 * @throws IllegalPublicationIdException
+	 *             The given ID is not in the database.
+	 */
+	private int indexOf(int id) throws IllegalPublicationIdException {
+		if (!this.dataBase.hasPublicationID(id))
+			throw new IllegalPublicationIdException(id);
+		if (this.outdated)
+			rebuild();
+		return this.indexOf.get(id);
+	}
+
+	/**
+	 * Return the indices of the publications that directly or indirectly cite
+	 * the given one and are not later than the given year, processing the
+	 * years in order.
+	 */
+	private IntList closureByYear(int source, int toYear) {
+		int stamp = ++this.stamp;
+		IntList found = new IntList();
+		IntList active = new IntList();
+		long pending = 0;
+		int a0 = this.layerOf[source];
+		int end = endLayer(toYear);
+		for (int a = a0; a < end; a++) {
+			int begin = found.size;
+			if (a == a0) {
+				addSameYearCiters(source, a, stamp, found);
+			} else {
+				if (pending == 0)
+					break;
+				int k0 = lowerBound(this.blockCited, this.blockStart[a], this.blockStart[a + 1], a0);
+				int k1 = lowerBound(this.blockCited, k0, this.blockStart[a + 1], a);
+				long pullCost = this.edgeStart[k1] - this.edgeStart[k0];
+				if (pending <= pullCost) {
+					// Follow the remaining citations of the publications found.
+					int kept = 0;
+					for (int i = 0; i < active.size; i++) {
+						int x = active.items[i];
+						int p = this.pointer[x], rowEnd = this.citedByStart[x + 1];
+						for (; p < rowEnd && this.citedBy[p] < this.layerStart[a + 1]; p++) {
+							int w = this.citedBy[p];
+							if (w >= this.layerStart[a] && this.mark[w] != stamp) {
+								this.mark[w] = stamp;
+								found.add(w);
+							}
+						}
+						pending -= p - this.pointer[x];
+						this.pointer[x] = p;
+						if (p < rowEnd)
+							active.items[kept++] = x;
+					}
+					active.size = kept;
+				} else if (pullCost > 0) {
+					// Scan the citations from this year to the years done.
+					ForkJoinPool.commonPool()
+							.invoke(new Pull(this.layerStart[a], this.layerStart[a + 1], k0, k1, stamp));
+					for (int w = this.layerStart[a]; w < this.layerStart[a + 1]; w++)
+						if (this.mark[w] == stamp)
+							found.add(w);
+				}
+			}
+			for (int i = begin; i < found.size; i++)
+				addSameYearCiters(found.items[i], a, stamp, found);
+			// The publications found in this year cite nothing of it anymore.
+			for (int i = begin; i < found.size; i++) {
+				pending += activate(found.items[i], a);
+				active.add(found.items[i]);
+			}
+			if (a == a0 && this.mark[source] != stamp) {
+				this.mark[source] = stamp;
+				pending += activate(source, a);
+				active.add(source);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Start the remaining citations of the given publication of the given
+	 * layer after that layer, and return their number.
+	 */
+	private int activate(int x, int a) {
+		int rowEnd = this.citedByStart[x + 1];
+		this.pointer[x] = lowerBound(this.citedBy, this.citedByStart[x], rowEnd, this.layerStart[a + 1]);
+		return rowEnd - this.pointer[x];
+	}
+
+	/**
+	 * Mark and add the unmarked publications of the given layer that directly
+	 * cite the given publication.
+	 */
+	private void addSameYearCiters(int x, int a, int stamp, IntList found) {
+		int to = lowerBound(this.citedBy, this.citedByStart[x], this.citedByStart[x + 1], this.layerStart[a + 1]);
+		for (int p = lowerBound(this.citedBy, this.citedByStart[x], to, this.layerStart[a]); p < to; p++) {
+			int w = this.citedBy[p];
+			if (this.mark[w] != stamp) {
+				this.mark[w] = stamp;
+				found.add(w);
+			}
+		}
+	}
+
+	/**
+	 * Return the indices of the publications that directly or indirectly cite
+	 * the given one, with a plain breadth-first search.
+	 */
+	private IntList closure(int source) {
+		int stamp = ++this.stamp;
+		IntList found = new IntList();
+		int current = source;
+		for (int head = 0;; current = found.items[head++]) {
+			for (int p = this.citedByStart[current]; p < this.citedByStart[current + 1]; p++) {
+				int w = this.citedBy[p];
+				if (this.mark[w] != stamp) {
+					this.mark[w] = stamp;
+					found.add(w);
+				}
+			}
+			if (head == found.size)
+				break;
+		}
+		return found;
+	}
+
+	/**
+	 * A class of growable lists of indices.
+	 */
+	private static class IntList {
+
+		void add(int value) {
+			if (this.size == this.items.length)
+				this.items = Arrays.copyOf(this.items, this.size * 2);
+			this.items[this.size++] = value;
+		}
+
+		int[] items = new int[16];
+
+		int size;
+	}
+
+	/**
+	 * Return the first layer whose year is at least the given year.
+	 */
+	private int firstLayer(int year) {
+		int k = Arrays.binarySearch(this.years, year);
+		return k >= 0 ? k : -k - 1;
+	}
+
+	/**
+	 * Return the first layer whose year is after the given year.
+	 */
+	private int endLayer(int year) {
+		int k = Arrays.binarySearch(this.years, year);
+		return k >= 0 ? k + 1 : -k - 1;
+	}
+
+	/**
+	 * Return the first index in the given range of the given sorted array
+	 * whose value is at least the given key, or the end of the range.
+	 */
+	private static int lowerBound(int[] array, int from, int to, int key) {
+		while (from < to) {
+			int middle = (from + to) >>> 1;
+			if (array[middle] < key)
+				from = middle + 1;
+			else
+				to = middle;
+		}
+		return from;
+	}
+
+	/**
+	 * A class of tasks marking the publications of a range of one year that
+	 * cite a marked publication through a range of blocks of that year.
+	 * Each task only marks publications of its own range, and only reads
+	 * marks of earlier years.
+	 */
+	@SuppressWarnings("serial")
+	private class Pull extends RecursiveAction {
+
+		Pull(int from, int to, int firstBlock, int endBlock, int stamp) {
+			this.from = from;
+			this.to = to;
+			this.firstBlock = firstBlock;
+			this.endBlock = endBlock;
+			this.stamp = stamp;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > GRAIN) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Pull(this.from, middle, this.firstBlock, this.endBlock, this.stamp),
+						new Pull(middle, this.to, this.firstBlock, this.endBlock, this.stamp));
+				return;
+			}
+			for (int k = this.firstBlock; k < this.endBlock; k++) {
+				int blockEnd = edgeStart[k + 1];
+				for (int e = lowerBound(edgeCiting, edgeStart[k], blockEnd, this.from); e < blockEnd
+						&& edgeCiting[e] < this.to; e++)
+					if (mark[edgeCited[e]] == this.stamp)
+						mark[edgeCiting[e]] = this.stamp;
+			}
+		}
+
+		private final int from, to, firstBlock, endBlock, stamp;
+	}
+
+	/**
+	 * The number of publications of a year above which a scan is split over
+	 * the pool.
+	 */
+	private static final int GRAIN = 1024;
+
+	/**
+	 * The publications by index, sorted by year and ID, and the index of each
+	 * ID.
+	 */
+	private Publication[] publications;
+
+	private IntIntMap indexOf;
+
+	/**
+	 * The distinct years in increasing order, the first index of each year
+	 * and the year layer of each index.
+	 */
+	private int[] years;
+
+	private int[] layerStart;
+
+	private int[] layerOf;
+
+	/**
+	 * The publications citing each publication, by increasing index.
+	 */
+	private int[] citedByStart;
+
+	private int[] citedBy;
+
+	/**
+	 * The blocks of citations: the blocks of citing layer a are
+	 * blockStart[a] up to blockStart[a + 1], in increasing cited layer
+	 * blockCited[k], and the citations of block k are edgeStart[k] up to
+	 * edgeStart[k + 1], in increasing citing index.
+	 */
+	private int[] blockStart;
+
+	private int[] blockCited;
+
+	private int[] edgeStart;
+
+	private int[] edgeCiting;
+
+	private int[] edgeCited;
+
+	/**
+	 * The scratch space of the closure: the stamp of the query that last
+	 * found each publication, and the next citation to follow of each
+	 * publication found.
+	 */
+	private int[] mark;
+
+	private int[] pointer;
+
+	private int stamp;
+}
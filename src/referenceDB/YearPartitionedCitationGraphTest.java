@@ -0,0 +1,136 @@
+package referenceDB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.JournalArticle;
+import publications.Publication;
+
+public class YearPartitionedCitationGraphTest {
+
+	private ReferenceDataBase DB;
+	private Publication publication1, publication2, publication3, publication4, publication5;
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1", new String[] { "Wang, Bo" }, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new Book("publication3", new String[] { "Els, Wang" }, 2012, "Springer");
+		publication4 = new Book("publication4", new String[] { "Oliever, Thus" }, 2012, "Springer");
+		publication5 = new Book("publication5", new String[] { "Hellen, Wang" }, 2006, "Springer");
+
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		DB.addAsPublication(publication4);
+		DB.addAsPublication(publication5);
+		publication1.addAsCites(publication2);
+		publication2.addAsCites(publication3);
+		publication3.addAsCites(publication4);
+		publication4.addAsCites(publication3);
+		publication4.addAsCites(publication5);
+	}
+
+	@Test
+	public void findDirIndirCites() throws Exception {
+		YearPartitionedCitationGraph graph = new YearPartitionedCitationGraph(DB);
+		assertTrue(graph.isOrdered());
+		assertEquals(4, graph.getYearsNumber());
+		assertEquals(DB.findDirIndirCites(publication2.getId()), graph.findDirIndirCites(publication2.getId()));
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication1, publication2, publication3, publication4)),
+				graph.findDirIndirCites(publication5.getId()));
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication1, publication2, publication3, publication4)),
+				graph.findDirIndirCites(publication4.getId()));
+	}
+
+	@Test
+	public void findDirIndirCites_window() throws Exception {
+		YearPartitionedCitationGraph graph = new YearPartitionedCitationGraph(DB);
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication3, publication4)),
+				graph.findDirIndirCites(publication5.getId(), 2000, 2013));
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication1)),
+				graph.findDirIndirCites(publication5.getId(), 2015, 2020));
+		assertTrue(graph.findDirIndirCites(publication5.getId(), 2020, 2010).isEmpty());
+	}
+
+	@Test
+	public void getCitationsNumber() throws Exception {
+		YearPartitionedCitationGraph graph = new YearPartitionedCitationGraph(DB);
+		assertEquals(2, graph.getCitationsNumber(publication3.getId(), 2000, 2020));
+		assertEquals(1, graph.getCitationsNumber(publication3.getId(), 2013, 2020));
+		assertEquals(0, graph.getCitationsNumber(publication1.getId(), 2000, 2020));
+		assertEquals(2, graph.getYearCitationsNumber(2012, 2012));
+		assertEquals(1, graph.getYearCitationsNumber(2012, 2006));
+		assertEquals(0, graph.getYearCitationsNumber(2016, 2012));
+	}
+
+	@Test
+	public void update() throws Exception {
+		YearPartitionedCitationGraph graph = new YearPartitionedCitationGraph(DB);
+		DB.addCitation(publication1.getId(), publication5.getId());
+		assertFalse(graph.isUpToDate());
+		assertEquals(1, graph.getYearCitationsNumber(2016, 2006));
+		assertTrue(graph.isUpToDate());
+		DB.removePublication(publication4);
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication1, publication2)),
+				graph.findDirIndirCites(publication3.getId()));
+	}
+
+	@Test
+	public void update_yearChanged() throws Exception {
+		YearPartitionedCitationGraph graph = new YearPartitionedCitationGraph(DB);
+		publication2.setYear(2000);
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication1)),
+				graph.findDirIndirCites(publication2.getId()));
+		assertFalse(graph.isOrdered());
+		assertEquals(new HashSet<Publication>(Arrays.asList(publication1, publication2, publication3, publication4)),
+				graph.findDirIndirCites(publication3.getId()));
+	}
+
+	@Test(expected = IllegalPublicationIdException.class)
+	public void findDirIndirCites_illegalIdCase() throws Exception {
+		new YearPartitionedCitationGraph(DB).findDirIndirCites(999);
+	}
+
+	@Test
+	public void findDirIndirCites_randomGraphs() throws Exception {
+		Random random = new Random(32);
+		for (int round = 0; round < 10; round++) {
+			ReferenceDataBase dataBase = new ReferenceDataBase();
+			Publication[] publications = new Publication[300];
+			for (int i = 0; i < publications.length; i++) {
+				publications[i] = new Book("random" + i, new String[] { "Bo, Wang" }, 2000 + random.nextInt(20), "acco");
+				dataBase.addAsPublication(publications[i]);
+			}
+			for (int edge = 0; edge < 100 + round * 150; edge++) {
+				Publication citing = publications[random.nextInt(publications.length)];
+				Publication cited = publications[random.nextInt(publications.length)];
+				if (citing.canCites(cited))
+					citing.addAsCites(cited);
+			}
+			YearPartitionedCitationGraph graph = new YearPartitionedCitationGraph(dataBase);
+			ReachabilityIndex index = new ReachabilityIndex(dataBase);
+			for (Publication cited : publications) {
+				int fromYear = 2000 + random.nextInt(20), toYear = fromYear + random.nextInt(10);
+				Set<Publication> expected = new HashSet<Publication>();
+				for (Publication citing : publications)
+					if (citing.getYear() >= fromYear && citing.getYear() <= toYear
+							&& index.transitivelyCites(citing.getId(), cited.getId()))
+						expected.add(citing);
+				assertEquals(expected, graph.findDirIndirCites(cited.getId(), fromYear, toYear));
+			}
+		}
+	}
+}
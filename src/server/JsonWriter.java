@@ -0,0 +1,118 @@
+package server;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import publications.PublicationAttribute;
+import referenceDB.PublicationRecord;
+
+/**
+ * A class of writers of the JSON responses of a query server, writing
+ * straight to the response stream without building a document first.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+class JsonWriter {
+
+	JsonWriter(Writer out) {
+		this.out = out;
+	}
+
+	private final Writer out;
+
+	/**
+	 * Write the given record as a JSON object.
+	 */
+	void writeRecord(PublicationRecord record) throws IOException {
+		this.out.write("{\"id\":");
+		this.out.write(Integer.toString(record.getId()));
+		this.out.write(",\"type\":");
+		writeString(record.getType().getSimpleName());
+		for (PublicationAttribute attribute : PublicationAttribute.values()) {
+			Object value = record.getAttribute(attribute);
+			if (value == null)
+				continue;
+			this.out.write(",\"");
+			this.out.write(attribute.name().toLowerCase());
+			this.out.write("\":");
+			if (value instanceof String[])
+				writeStrings((String[]) value);
+			else if (value instanceof Number)
+				this.out.write(value.toString());
+			else
+				writeString(value.toString());
+		}
+		this.out.write(",\"cites\":");
+		writeInts(record.getCites());
+		this.out.write(",\"citedBy\":");
+		writeInts(record.getCitedBy());
+		this.out.write('}');
+	}
+
+	/**
+	 * Write the given string as a JSON string.
+	 */
+	void writeString(String s) throws IOException {
+		this.out.write('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				this.out.write("\\\"");
+				break;
+			case '\\':
+				this.out.write("\\\\");
+				break;
+			case '\n':
+				this.out.write("\\n");
+				break;
+			case '\r':
+				this.out.write("\\r");
+				break;
+			case '\t':
+				this.out.write("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					this.out.write("\\u00");
+					this.out.write(Character.forDigit(c >> 4, 16));
+					this.out.write(Character.forDigit(c & 15, 16));
+				} else
+					this.out.write(c);
+			}
+		}
+		this.out.write('"');
+	}
+
+	private void writeStrings(String[] strings) throws IOException {
+		this.out.write('[');
+		for (int i = 0; i < strings.length; i++) {
+			if (i > 0)
+				this.out.write(',');
+			writeString(strings[i]);
+		}
+		this.out.write(']');
+	}
+
+	private void writeInts(int[] ints) throws IOException {
+		this.out.write('[');
+		for (int i = 0; i < ints.length; i++) {
+			if (i > 0)
+				this.out.write(',');
+			this.out.write(Integer.toString(ints[i]));
+		}
+		this.out.write(']');
+	}
+
+	/**
+	 * Write the given raw text.
+	 */
+	void write(String text) throws IOException {
+		this.out.write(text);
+	}
+
+	void flush() throws IOException {
+		this.out.flush();
+	}
+}
@@ -0,0 +1,145 @@
+package server;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import publications.Book;
+import publications.Publication;
+import referenceDB.FrozenReferenceDataBase;
+import referenceDB.ReferenceDataBase;
+
+/**
+ * A local load test of the query server: it serves a generated database on a
+ * free port and keeps a given number of connections busy with requests to all
+ * endpoints, then reports the throughput and latencies.
+ *
+ * Usage: java server.LoadTest [connections] [requests] [publications]
+ *
+ * With the defaults, 20000 connections are open at the same time. Each
+ * connection is a file descriptor at both ends, so the limit on open files
+ * (ulimit -n) must be raised accordingly, as well as the listen backlog of
+ * the system (net.core.somaxconn on Linux) to accept the initial burst.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class LoadTest {
+
+	public static void main(String[] args) throws Exception {
+		final int connections = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		final int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+		int publications = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		// This program owns its JVM, so it opts in to TCP_NODELAY on the
+		// connections of the server, as a deployment would on the command
+		// line.
+		if (System.getProperty("sun.net.httpserver.nodelay") == null)
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		FrozenReferenceDataBase view = new FrozenReferenceDataBase(generate(publications).snapshot());
+		QueryServer server = new QueryServer(view, 0, 10000);
+		server.start();
+		final String base = "http://localhost:" + server.getPort();
+		ExecutorService executor = QueryServer.newExecutor();
+		final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor)
+				.build();
+		final Random random = new Random(1);
+		final String[] paths = new String[1024];
+		for (int i = 0; i < paths.length; i++) {
+			int id = view.getAllPublications().get(random.nextInt(publications)).getId();
+			String name = "A.%20Author" + letters(random.nextInt(publications / 10 + 1));
+			paths[i] = new String[] { "/getPublicationWithID?id=" + id, "/findByAuthor?name=" + name,
+					"/findByTitleWord?word=w" + random.nextInt(1000), "/authorCitationIndex?name=" + name,
+					"/findDirIndirCites?id=" + id }[i % 5];
+		}
+
+		final long[] latencies = new long[requests];
+		final AtomicInteger issued = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+		final AtomicLong done = new AtomicLong();
+		final Object finished = new Object();
+		long start = System.nanoTime();
+		// Each of the connections sends its next request when the previous
+		// one is answered, so that all of them stay open and busy.
+		for (int c = 0; c < Math.min(connections, requests); c++)
+			new Object() {
+				void next() {
+					final int i = issued.getAndIncrement();
+					if (i >= requests)
+						return;
+					final long sent = System.nanoTime();
+					HttpRequest request = HttpRequest.newBuilder(URI.create(base + paths[i & (paths.length - 1)]))
+							.build();
+					client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+							.whenComplete(new BiConsumer<HttpResponse<Void>, Throwable>() {
+								@Override
+								public void accept(HttpResponse<Void> response, Throwable error) {
+									latencies[i] = System.nanoTime() - sent;
+									if (error != null || response.statusCode() != 200)
+										if (failed.incrementAndGet() == 1)
+											System.err.println(error != null ? error : response);
+									if (done.incrementAndGet() == requests)
+										synchronized (finished) {
+											finished.notifyAll();
+										}
+									next();
+								}
+							});
+				}
+			}.next();
+		synchronized (finished) {
+			while (done.get() < requests)
+				finished.wait();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		Arrays.sort(latencies);
+		System.out.printf("%d connections, %d requests, %d failed, %.0f requests/s%n", connections, requests,
+				failed.get(), requests / seconds);
+		System.out.printf("latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n", latencies[requests / 2] / 1e6,
+				latencies[(int) (requests * 0.99)] / 1e6, latencies[requests - 1] / 1e6);
+		server.stop();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Return a database of the given number of books, with random authors and
+	 * title words, a quarter of them citing an older book.
+	 */
+	static ReferenceDataBase generate(int size) throws Exception {
+		Random random = new Random(0);
+		ReferenceDataBase dataBase = new ReferenceDataBase();
+		Publication[] publications = new Publication[size];
+		for (int i = 0; i < size; i++) {
+			String[] authors = { "Author" + letters(random.nextInt(size / 10 + 1)) + ", Anna" };
+			publications[i] = new Book("w" + random.nextInt(1000) + " w" + random.nextInt(1000), authors,
+					1950 + (int) (70L * i / size), "publisher");
+			dataBase.addAsPublication(publications[i]);
+			if (i > 0 && random.nextInt(4) == 0) {
+				Publication cited = publications[random.nextInt(i)];
+				if (publications[i].canCites(cited))
+					publications[i].addAsCites(cited);
+			}
+		}
+		return dataBase;
+	}
+
+	/**
+	 * Return the given number written in lowercase letters, since author
+	 * names have no digits.
+	 */
+	private static String letters(int number) {
+		StringBuilder result = new StringBuilder();
+		do {
+			result.append((char) ('a' + number % 26));
+			number /= 26;
+		} while (number > 0);
+		return result.toString();
+	}
+}
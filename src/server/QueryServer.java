@@ -0,0 +1,363 @@
+package server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBaseView;
+
+/**
+ * A class of lightweight HTTP servers answering the queries of a reference
+ * database as JSON, with the HTTP server of the JDK.
+ *
+ * A server answers from a read-only view of a database, e.g. a snapshot or a
+ * frozen database, so any number of requests can be served at the same time
+ * while the database itself goes on changing; the owner of the database hands
+ * a newer view to the server with setView. Each request is answered from the
+ * view current when it arrives. The endpoints, all GET, are:
+ * <ul>
+ * <li>/getPublicationWithID?id=ID</li>
+ * <li>/findByAuthor?name=NAME</li>
+ * <li>/findByTitleWord?word=WORD</li>
+ * <li>/authorCitationIndex?name=NAME</li>
+ * <li>/findDirIndirCites?id=ID</li>
+ * </ul>
+ * A set of publications is built by the view first, and only then written
+ * as a JSON array of records, with chunked transfer encoding: the records are
+ * serialized into a buffer of BUFFER_SIZE characters that is sent whenever it
+ * fills, so the JSON of a large set is never held in memory as a whole. A
+ * query that takes longer than the timeout of the server is answered with
+ * 503 and the thread running it is interrupted. The queries of snapshots,
+ * frozen databases and replicas then stop at their next check; the queries
+ * of other views may run to completion, with their result thrown away. An
+ * invalid parameter gives 400 and an unknown ID 404.
+ *
+ * The HTTP server of the JDK only disables Nagle's algorithm on its
+ * connections when the system property sun.net.httpserver.nodelay is true.
+ * Otherwise the last packet of a chunked response may be held back until
+ * the client acknowledges the previous one, adding the delayed-acknowledgement
+ * time of the client to the latency. The property is read once for the whole
+ * JVM, when the first server is created, so a deployment sets it on the
+ * command line with -Dsun.net.httpserver.nodelay=true.
+ *
+ * Requests are handled on virtual threads when the JDK has them, so that
+ * connections waiting on slow clients hold no platform thread, and on a
+ * cached pool of platform threads otherwise.
+ *
+ * @version 1.0
+ * @author wangbo
+ */
+public class QueryServer {
+
+	/**
+	 * Initialize this new server for the given view, bound to the given port.
+	 * The server only starts answering when started.
+	 *
+	 * @param view
+	 *            The view to be queried.
+	 * @param port
+	 *            The port to listen on, or 0 for any free port.
+	 * @param timeout
+	 *            The maximal time, in milliseconds, a query may take.
+	 * @throws IllegalArgumentException
+	 *             The given view is not effective or the given timeout is not
+	 *             positive.
+	 * @throws IOException
+	 *             The server cannot be bound to the given port.
+	 */
+	public QueryServer(ReferenceDataBaseView view, int port, long timeout)
+			throws IllegalArgumentException, IOException {
+		if (view == null || timeout <= 0)
+			throw new IllegalArgumentException();
+		this.view = view;
+		this.timeout = timeout;
+		this.executor = newExecutor();
+		this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+		this.server.setExecutor(this.executor);
+		this.server.createContext("/getPublicationWithID", new Endpoint() {
+			@Override
+			Object query(ReferenceDataBaseView view, Map<String, String> parameters) throws Exception {
+				return view.getPublicationWithID(intParameter(parameters, "id"));
+			}
+		});
+		this.server.createContext("/findByAuthor", new Endpoint() {
+			@Override
+			Object query(ReferenceDataBaseView view, Map<String, String> parameters) throws Exception {
+				return view.findByAuthor(parameter(parameters, "name"));
+			}
+		});
+		this.server.createContext("/findByTitleWord", new Endpoint() {
+			@Override
+			Object query(ReferenceDataBaseView view, Map<String, String> parameters) throws Exception {
+				return view.findByTitleWord(parameter(parameters, "word"));
+			}
+		});
+		this.server.createContext("/authorCitationIndex", new Endpoint() {
+			@Override
+			Object query(ReferenceDataBaseView view, Map<String, String> parameters) throws Exception {
+				return view.authorCitationIndex(parameter(parameters, "name"));
+			}
+		});
+		this.server.createContext("/findDirIndirCites", new Endpoint() {
+			@Override
+			Object query(ReferenceDataBaseView view, Map<String, String> parameters) throws Exception {
+				return view.findDirIndirCites(intParameter(parameters, "id"));
+			}
+		});
+	}
+
+	/**
+	 * Return a new executor running each task on a virtual thread, or on a
+	 * cached pool of daemon threads if this JDK has no virtual threads.
+	 */
+	static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "query-server");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Return the view answered by this server.
+	 */
+	@Basic
+	public ReferenceDataBaseView getView() {
+		return view;
+	}
+
+	/**
+	 * Set the view answered by this server to the given view. Requests
+	 * arriving from now on are answered from that view.
+	 *
+	 * @param view
+	 *            The new view.
+	 * @throws IllegalArgumentException
+	 *             The given view is not effective.
+	 */
+	public void setView(ReferenceDataBaseView view) throws IllegalArgumentException {
+		if (view == null)
+			throw new IllegalArgumentException();
+		this.view = view;
+	}
+
+	private volatile ReferenceDataBaseView view;
+
+	/**
+	 * Return the maximal time, in milliseconds, a query of this server may
+	 * take.
+	 */
+	@Basic
+	public long getTimeout() {
+		return timeout;
+	}
+
+	private final long timeout;
+
+	/**
+	 * Return the port this server listens on.
+	 */
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	/**
+	 * Start answering requests.
+	 */
+	public void start() {
+		this.server.start();
+	}
+
+	/**
+	 * Stop this server, closing all its connections.
+	 */
+	public void stop() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	private final HttpServer server;
+
+	private final ExecutorService executor;
+
+	/**
+	 * A class of handlers of one endpoint, answering a query of the view of
+	 * the server within its timeout.
+	 */
+	private abstract class Endpoint implements HttpHandler {
+
+		/**
+		 * Answer the query of this endpoint with the given parameters.
+		 *
+		 * @return A publication record, a collection of them, or a number.
+		 */
+		abstract Object query(ReferenceDataBaseView view, Map<String, String> parameters) throws Exception;
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				if (!"GET".equals(exchange.getRequestMethod())) {
+					sendError(exchange, 405, "Only GET is supported");
+					return;
+				}
+				final ReferenceDataBaseView view = QueryServer.this.view;
+				final Map<String, String> parameters;
+				try {
+					parameters = parametersOf(exchange.getRequestURI().getRawQuery());
+				} catch (IllegalArgumentException e) {
+					sendError(exchange, 400, "Invalid parameter");
+					return;
+				}
+				Future<Object> future = QueryServer.this.executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						return query(view, parameters);
+					}
+				});
+				Object result;
+				try {
+					result = future.get(QueryServer.this.timeout, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					future.cancel(true);
+					sendError(exchange, 503, "The query timed out");
+					return;
+				} catch (InterruptedException e) {
+					future.cancel(true);
+					Thread.currentThread().interrupt();
+					sendError(exchange, 503, "The server is stopping");
+					return;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IllegalPublicationIdException)
+						sendError(exchange, 404, "No publication with this ID");
+					else if (cause instanceof IllegalAuthorException || cause instanceof IllegalArgumentException)
+						sendError(exchange, 400, "Invalid parameter");
+					else
+						sendError(exchange, 500, "Internal error");
+					return;
+				}
+				sendResult(exchange, result);
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * Send the given result as JSON, writing collections of records in
+	 * chunks.
+	 */
+	private static void sendResult(HttpExchange exchange, Object result) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		// A length of 0 makes the response chunked.
+		exchange.sendResponseHeaders(200, 0);
+		JsonWriter out = new JsonWriter(
+				new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), "UTF-8"), BUFFER_SIZE));
+		if (result instanceof Collection) {
+			out.write("[");
+			boolean first = true;
+			for (Object record : (Collection<?>) result) {
+				if (!first)
+					out.write(",");
+				out.writeRecord((PublicationRecord) record);
+				first = false;
+			}
+			out.write("]");
+		} else if (result instanceof PublicationRecord)
+			out.writeRecord((PublicationRecord) result);
+		else
+			out.write(result.toString());
+		out.flush();
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = ("{\"error\":\"" + message + "\"}").getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+
+	/**
+	 * Return the parameters of the given raw query string.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The query string contains a malformed escape.
+	 */
+	static Map<String, String> parametersOf(String query)
+			throws UnsupportedEncodingException, IllegalArgumentException {
+		Map<String, String> result = new HashMap<String, String>();
+		if (query == null)
+			return result;
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0)
+				result.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+						URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+		}
+		return result;
+	}
+
+	/**
+	 * Return the value of the given parameter.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The parameter is missing.
+	 */
+	static String parameter(Map<String, String> parameters, String name) throws IllegalArgumentException {
+		String value = parameters.get(name);
+		if (value == null)
+			throw new IllegalArgumentException(name);
+		return value;
+	}
+
+	/**
+	 * Return the value of the given integer parameter.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The parameter is missing or not an integer.
+	 */
+	static int intParameter(Map<String, String> parameters, String name) throws IllegalArgumentException {
+		return Integer.parseInt(parameter(parameters, name));
+	}
+
+	/**
+	 * The number of pending connections the server socket queues, so that a
+	 * burst of new connections is not refused.
+	 */
+	private static final int BACKLOG = 8192;
+
+	/**
+	 * The number of characters buffered before a chunk of a response is
+	 * written.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+}
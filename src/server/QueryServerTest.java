@@ -0,0 +1,221 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.IllegalAuthorException;
+import exceptions.IllegalPublicationIdException;
+import publications.Book;
+import publications.ConferencePaper;
+import publications.JournalArticle;
+import publications.Publication;
+import referenceDB.PublicationRecord;
+import referenceDB.ReferenceDataBase;
+import referenceDB.ReferenceDataBaseView;
+
+public class QueryServerTest {
+
+	private ReferenceDataBase DB;
+	private QueryServer server;
+	private Publication publication1, publication2, publication3;
+	private String[] authors = { "Wang, Bo", "De Coster, Jeroen", "Wevers, Martine" };
+
+	@Before
+	public void setUp() throws Exception {
+		publication1 = new JournalArticle("publication1 \"MEMS\"", authors, "journal of MEMS", 123, 2016);
+		publication2 = new Book("publication2", new String[] { "Eric, Steegmans" }, 2014, "acco");
+		publication3 = new ConferencePaper("publication3", new String[] { "Wang, Bo", "Ann, WitVrouw" },
+				2012, "Transducers");
+		JournalArticle.setWeight(1.0);
+		Book.setWeight(1.2);
+		ConferencePaper.setWeight(0.8);
+		DB = new ReferenceDataBase();
+		DB.addAsPublication(publication1);
+		DB.addAsPublication(publication2);
+		DB.addAsPublication(publication3);
+		publication1.addAsCites(publication2);
+		publication2.addAsCites(publication3);
+		server = new QueryServer(DB.snapshot(), 0, 2000);
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	private int status;
+
+	private String get(String path) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path)
+				.openConnection();
+		this.status = connection.getResponseCode();
+		InputStream in = this.status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for (int n; (n = in.read(buffer)) > 0;)
+			body.write(buffer, 0, n);
+		in.close();
+		return body.toString("UTF-8");
+	}
+
+	@Test
+	public void getPublicationWithID() throws Exception {
+		String body = get("/getPublicationWithID?id=" + publication2.getId());
+		assertEquals(200, status);
+		assertEquals("{\"id\":" + publication2.getId() + ",\"type\":\"Book\",\"title\":\"publication2\","
+				+ "\"authors\":[\"Eric, Steegmans\"],\"year\":2014,\"publisher\":\"acco\",\"cites\":["
+				+ publication3.getId() + "],\"citedBy\":[" + publication1.getId() + "]}", body);
+	}
+
+	@Test
+	public void getPublicationWithID_escapedTitle() throws Exception {
+		assertTrue(get("/getPublicationWithID?id=" + publication1.getId())
+				.contains("\"title\":\"publication1 \\\"MEMS\\\"\""));
+	}
+
+	@Test
+	public void getPublicationWithID_errors() throws Exception {
+		get("/getPublicationWithID?id=-5");
+		assertEquals(404, status);
+		get("/getPublicationWithID?id=abc");
+		assertEquals(400, status);
+		get("/getPublicationWithID");
+		assertEquals(400, status);
+	}
+
+	@Test
+	public void findByAuthor() throws Exception {
+		String body = get("/findByAuthor?name=B.%20Wang");
+		assertEquals(200, status);
+		assertTrue(body.startsWith("[{") && body.endsWith("}]"));
+		assertTrue(body.contains("\"title\":\"publication3\""));
+		assertEquals(2, body.split("\"type\"").length - 1);
+		get("/findByAuthor?name=Wang");
+		assertEquals(400, status);
+	}
+
+	@Test
+	public void findByAuthor_malformedEscape() throws Exception {
+		get("/findByAuthor?name=%zz");
+		assertEquals(400, status);
+		get("/findByAuthor?name=B.%2");
+		assertEquals(400, status);
+		// The server keeps answering.
+		get("/findByAuthor?name=B.%20Wang");
+		assertEquals(200, status);
+	}
+
+	@Test
+	public void findByTitleWord() throws Exception {
+		assertEquals("[]", get("/findByTitleWord?word=nothing"));
+		assertEquals(3, get("/findByTitleWord?word=PUBLICATION").split("\"type\"").length - 1);
+	}
+
+	@Test
+	public void authorCitationIndex() throws Exception {
+		assertEquals(1.8, Double.parseDouble(get("/authorCitationIndex?name=B.%20Wang")), 0.0001);
+	}
+
+	@Test
+	public void findDirIndirCites() throws Exception {
+		String body = get("/findDirIndirCites?id=" + publication3.getId());
+		assertEquals(2, body.split("\"type\"").length - 1);
+	}
+
+	@Test
+	public void setView() throws Exception {
+		DB.removePublication(publication2);
+		server.setView(DB.snapshot());
+		get("/getPublicationWithID?id=" + publication2.getId());
+		assertEquals(404, status);
+	}
+
+	@Test
+	public void timeout() throws Exception {
+		final ReferenceDataBaseView view = server.getView();
+		final CountDownLatch stopped = new CountDownLatch(1);
+		server.stop();
+		server = new QueryServer(new ReferenceDataBaseView() {
+			@Override
+			public int size() {
+				return view.size();
+			}
+
+			@Override
+			public boolean hasPublicationID(int id) {
+				return view.hasPublicationID(id);
+			}
+
+			@Override
+			public PublicationRecord getPublicationWithID(int id) throws IllegalPublicationIdException {
+				return view.getPublicationWithID(id);
+			}
+
+			@Override
+			public List<PublicationRecord> getAllPublications() {
+				return view.getAllPublications();
+			}
+
+			@Override
+			public double getWeight(Class<? extends Publication> type) {
+				return view.getWeight(type);
+			}
+
+			@Override
+			public Set<PublicationRecord> findByAuthor(String authorName) throws IllegalAuthorException {
+				return view.findByAuthor(authorName);
+			}
+
+			@Override
+			public Set<PublicationRecord> findByTitleWord(String word) {
+				// Busy with queries of the snapshot until one of them sees the
+				// interrupt of the timeout.
+				try {
+					while (true)
+						view.findByTitleWord(word);
+				} finally {
+					stopped.countDown();
+				}
+			}
+
+			@Override
+			public double authorCitationIndex(String authorName) throws IllegalAuthorException {
+				return view.authorCitationIndex(authorName);
+			}
+
+			@Override
+			public Set<PublicationRecord> findDirIndirCites(int id) throws IllegalPublicationIdException {
+				return view.findDirIndirCites(id);
+			}
+		}, 0, 100);
+		server.start();
+		get("/findByTitleWord?word=publication");
+		assertEquals(503, status);
+		assertTrue(stopped.await(5, TimeUnit.SECONDS));
+		get("/findByAuthor?name=B.%20Wang");
+		assertEquals(200, status);
+	}
+
+	@Test
+	public void onlyGet() throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				"http://localhost:" + server.getPort() + "/findByTitleWord?word=a").openConnection();
+		connection.setRequestMethod("DELETE");
+		assertEquals(405, connection.getResponseCode());
+	}
+}